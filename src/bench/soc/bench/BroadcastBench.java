@@ -0,0 +1,166 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.bench;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import soc.message.SOCGameTextMsg;
+import soc.message.SOCMessage;
+import soc.message.SOCPlayerElement;
+import soc.message.SOCResourceCount;
+import soc.server.genericServer.Frame;
+
+
+/**
+ * Allocation and time per game broadcast: encoding the message again for
+ * every member (toCmd() then writeUTF, as messageToGameWithMon used to),
+ * encoding one Frame from toCmd() and writing its bytes to every member,
+ * and encoding the Frame with toBytes(), which skips the String.
+ *<pre>
+ *  java -cp target/classes:target/bench-classes soc.bench.BroadcastBench [members] [broadcasts]
+ *</pre>
+ * Allocation is measured with com.sun.management.ThreadMXBean, so needs
+ * a HotSpot-based JVM.
+ */
+public class BroadcastBench
+{
+    /** a stream that throws its bytes away, standing in for the sockets */
+    static class NullOutputStream extends OutputStream
+    {
+        public void write(int b) {}
+
+        public void write(byte[] b, int off, int len) {}
+    }
+
+    static DataOutputStream out = new DataOutputStream(new NullOutputStream());
+
+    /** a typical mix of game broadcasts */
+    static SOCMessage message(int i)
+    {
+        switch (i % 3)
+        {
+        case 0:
+            return new SOCPlayerElement("game-" + (i % 7), i % 4, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, 1);
+
+        case 1:
+            return new SOCResourceCount("game-" + (i % 7), i % 4, i % 12);
+
+        default:
+            return new SOCGameTextMsg("game-" + (i % 7), "Server", "player" + (i % 4) + " built a road.");
+        }
+    }
+
+    /** send mes to each member the old way */
+    static void perMember(SOCMessage mes, int members) throws IOException
+    {
+        for (int m = 0; m < members; m++)
+        {
+            out.writeUTF(mes.toCmd());
+        }
+    }
+
+    /** send mes to each member as one shared Frame */
+    static void encodeOnce(SOCMessage mes, int members) throws IOException
+    {
+        Frame f = new Frame(mes.toCmd());
+
+        for (int m = 0; m < members; m++)
+        {
+            f.writeTo(out);
+        }
+    }
+
+    /** send mes to each member as one Frame encoded straight from the message */
+    static void encodeBytes(SOCMessage mes, int members) throws IOException
+    {
+        Frame f = new Frame(mes.toBytes());
+
+        for (int m = 0; m < members; m++)
+        {
+            f.writeTo(out);
+        }
+    }
+
+    static final String[] MODES = { "per member ", "encode once", "toBytes    " };
+
+    static void run(int mode, SOCMessage[] msgs, int members, int broadcasts) throws IOException
+    {
+        for (int i = 0; i < broadcasts; i++)
+        {
+            SOCMessage mes = msgs[i % msgs.length];
+
+            switch (mode)
+            {
+            case 0:
+                perMember(mes, members);
+
+                break;
+
+            case 1:
+                encodeOnce(mes, members);
+
+                break;
+
+            default:
+                encodeBytes(mes, members);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int members = (args.length > 0) ? Integer.parseInt(args[0]) : 24;
+        int broadcasts = (args.length > 1) ? Integer.parseInt(args[1]) : 1000000;
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        SOCMessage[] msgs = new SOCMessage[21];
+
+        for (int i = 0; i < msgs.length; i++)
+        {
+            msgs[i] = message(i);
+        }
+
+        System.out.println(members + " members, " + broadcasts + " broadcasts");
+
+        for (int round = 0; round < 3; round++)
+        {
+            for (int mode = 0; mode < MODES.length; mode++)
+            {
+                run(mode, msgs, members, broadcasts / 10);  // warm up
+
+                long bytes0 = mx.getThreadAllocatedBytes(tid);
+                long t0 = System.nanoTime();
+                run(mode, msgs, members, broadcasts);
+                long t1 = System.nanoTime();
+                long bytes1 = mx.getThreadAllocatedBytes(tid);
+
+                System.out.println(MODES[mode] + " "
+                    + ((bytes1 - bytes0) / broadcasts) + " bytes/broadcast  "
+                    + ((t1 - t0) / broadcasts) + " ns/broadcast");
+            }
+        }
+    }
+}
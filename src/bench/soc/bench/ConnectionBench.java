@@ -0,0 +1,216 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.bench;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.Arrays;
+
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.Server;
+
+
+/**
+ * Measures what idle connections cost the generic server with a given
+ * transport.  Opens many connections one at a time, timing each from
+ * connect() to the echo of a first message (the accept latency), leaves
+ * them all open and idle, then reports threads, heap and resident memory.
+ *
+ * Run each transport in its own JVM so the memory figures are separate:
+ *<pre>
+ *  java -cp target/classes:target/bench-classes soc.bench.ConnectionBench thread 10000
+ *  java -cp target/classes:target/bench-classes soc.bench.ConnectionBench virtual 10000
+ *  java -cp target/classes:target/bench-classes soc.bench.ConnectionBench nio 10000
+ *</pre>
+ * Each connection uses two file descriptors here (client and server end),
+ * so raise "ulimit -n" first.  The virtual run needs Java 21; on an
+ * older Java the server falls back to threads, and the report says so.
+ */
+public class ConnectionBench
+{
+    /** a server that echoes every message back */
+    static class EchoServer extends Server
+    {
+        EchoServer(int port)
+        {
+            super(port);
+        }
+
+        public void processCommand(String str, Connection con)
+        {
+            con.put(str);
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: ConnectionBench thread|virtual|nio [connections] [port]");
+            System.exit(1);
+        }
+
+        String transport = args[0];
+        int n = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+        int port = (args.length > 2) ? Integer.parseInt(args[2]) : 8890;
+
+        System.setProperty(Server.TRANSPORT_PROPERTY, transport);
+        System.setProperty(Server.ACCEPT_RATE_PROPERTY, "0");  // all from one address
+
+        long baseHeap = usedHeap();
+        int baseThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        long baseRss = rssKb();
+
+        EchoServer server = new EchoServer(port);
+        server.start();
+        Thread.sleep(500);
+
+        Socket[] socks = new Socket[n];
+        long[] latency = new long[n];
+        long start = System.nanoTime();
+        int opened = 0;
+
+        try
+        {
+            for (; opened < n; opened++)
+            {
+                long t0 = System.nanoTime();
+                Socket s = new Socket("localhost", port);
+                DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                DataInputStream in = new DataInputStream(s.getInputStream());
+
+                out.writeUTF("hello");
+                in.readUTF();
+                latency[opened] = System.nanoTime() - t0;
+                socks[opened] = s;
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("stopped after " + opened + " connections: " + e);
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        Thread.sleep(2000);  // let everything settle into its idle state
+
+        long[] sorted = new long[opened];
+        System.arraycopy(latency, 0, sorted, 0, opened);
+        Arrays.sort(sorted);
+
+        if ("virtual".equalsIgnoreCase(transport) && !hasVirtualThreads())
+        {
+            // the server fell back to a thread per connection
+            System.out.println("transport        " + transport + " (no virtual threads in this Java: ran as thread)");
+        }
+        else
+        {
+            System.out.println("transport        " + transport);
+        }
+
+        System.out.println("connections      " + opened);
+        System.out.println("open time        " + (elapsed / 1000000) + " ms");
+
+        if (opened > 0)
+        {
+            System.out.println("accept p50       " + (sorted[opened / 2] / 1000) + " us");
+            System.out.println("accept p99       " + (sorted[(opened * 99) / 100] / 1000) + " us");
+            System.out.println("accept max       " + (sorted[opened - 1] / 1000) + " us");
+        }
+
+        System.out.println("threads          " + (ManagementFactory.getThreadMXBean().getThreadCount() - baseThreads));
+        System.out.println("heap used        " + ((usedHeap() - baseHeap) / 1024) + " KB");
+
+        if (baseRss >= 0)
+        {
+            System.out.println("resident memory  " + (rssKb() - baseRss) + " KB");
+        }
+
+        for (int i = 0; i < opened; i++)
+        {
+            socks[i].close();
+        }
+
+        System.exit(0);
+    }
+
+    /** @return true if this Java has Thread.ofVirtual() (Java 21+) */
+    static boolean hasVirtualThreads()
+    {
+        try
+        {
+            Thread.class.getMethod("ofVirtual", new Class[0]);
+
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /** heap in use after a collection */
+    static long usedHeap()
+    {
+        Runtime rt = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** resident set size of this process from /proc, or -1 if it can't be read */
+    static long rssKb()
+    {
+        try
+        {
+            BufferedReader r = new BufferedReader(new FileReader("/proc/self/status"));
+
+            try
+            {
+                String line;
+
+                while ((line = r.readLine()) != null)
+                {
+                    if (line.startsWith("VmRSS:"))
+                    {
+                        return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                    }
+                }
+            }
+            finally
+            {
+                r.close();
+            }
+        }
+        catch (Exception e) {}
+
+        return -1;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.bench;
+
+import java.util.Enumeration;
+import java.util.Random;
+
+import soc.server.SOCGameList;
+
+
+/**
+ * Contention on SOCGameList: many threads handling messages for many
+ * games at once, each looking up a game, taking its monitor, reading its
+ * members and releasing it, the way the server's handlers do; now and
+ * then one checks a game exists, lists the games, or takes the list's
+ * monitor as creating a game would.  Reports operations a second for
+ * each number of threads, and how many updates made under a game's
+ * monitor were lost because two threads held it at once.
+ *<pre>
+ *  java -cp target/classes:target/bench-classes soc.bench.GameListBench [games] [seconds]
+ *</pre>
+ * Only calls that SOCGameList has always had are used, so the same
+ * bench runs against older builds for comparison.
+ */
+public class GameListBench
+{
+    static SOCGameList list;
+    static String[] names;
+
+    /** updated only while holding each game's monitor */
+    static int[] counts;
+
+    static volatile boolean running;
+
+    /** one thread's work: returns the number of operations done */
+    static long work(long seed)
+    {
+        Random rnd = new Random(seed);
+        long ops = 0;
+        int sink = 0;
+
+        while (running)
+        {
+            String ga = names[rnd.nextInt(names.length)];
+            int i = Integer.parseInt(ga.substring(5));
+
+            if (list.getGameData(ga) != null)
+            {
+                list.takeMonitorForGame(ga);
+                sink += list.getMembers(ga).size();
+                counts[i]++;
+                list.releaseMonitorForGame(ga);
+            }
+
+            ops++;
+
+            if ((ops & 63) == 0)
+            {
+                sink += list.isGame(ga) ? 1 : 0;
+            }
+
+            if ((ops & 1023) == 0)
+            {
+                for (Enumeration e = list.getGames(); e.hasMoreElements(); e.nextElement())
+                {
+                    sink++;
+                }
+
+                list.takeMonitor();
+                sink += list.isGame("game-0") ? 1 : 0;
+                list.releaseMonitor();
+            }
+        }
+
+        return ops + (sink & 0);
+    }
+
+    /** run threads for some seconds, and report */
+    static void run(int threads, int seconds) throws InterruptedException
+    {
+        final long[] done = new long[threads];
+        Thread[] t = new Thread[threads];
+        counts = new int[names.length];
+        running = true;
+
+        for (int k = 0; k < threads; k++)
+        {
+            final int n = k;
+            t[k] = new Thread(() -> done[n] = work(n));
+            t[k].start();
+        }
+
+        Thread.sleep(seconds * 1000L);
+        running = false;
+
+        long ops = 0;
+
+        for (int k = 0; k < threads; k++)
+        {
+            t[k].join();
+            ops += done[k];
+        }
+
+        long counted = 0;
+
+        for (int i = 0; i < counts.length; i++)
+        {
+            counted += counts[i];
+        }
+
+        System.out.println(threads + " threads: " + (ops / seconds) + " ops/s, "
+            + (ops - counted) + " lost updates");
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+
+        list = new SOCGameList();
+        names = new String[games];
+
+        for (int i = 0; i < games; i++)
+        {
+            names[i] = "game-" + i;
+            list.createGame(names[i]);
+        }
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        System.out.println(games + " games, " + cpus + " processors");
+
+        run(1, 1);  // warm up
+
+        int[] threads = { 1, 4, 16, 64 };
+
+        for (int k = 0; k < threads.length; k++)
+        {
+            run(threads[k], seconds);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Vector;
+
+import soc.message.SOCMessage;
+
+
+/**
+ * Replays recorded traffic through SOCMessage.toMsg and reports
+ * messages parsed a second and bytes allocated per message.  The input
+ * is one message per line, as written by the server's -DLOG=file option;
+ * lines that don't start with a message type are skipped.
+ *<pre>
+ *  java -cp target/classes:target/bench-classes soc.bench.ParseBench server.log [more.log ...]
+ *</pre>
+ * Only SOCMessage.toMsg is called, so the same bench runs against older
+ * builds for comparison.
+ * Allocation is measured with com.sun.management.ThreadMXBean, so needs
+ * a HotSpot-based JVM.
+ */
+public class ParseBench
+{
+    /** keeps the results live so the JIT can't drop the work */
+    static int sink;
+
+    /** parse every message with toMsg */
+    static void parse(String[] msgs)
+    {
+        for (int i = 0; i < msgs.length; i++)
+        {
+            SOCMessage mes = SOCMessage.toMsg(msgs[i]);
+
+            if (mes != null)
+            {
+                sink += mes.getType();
+            }
+        }
+    }
+
+    static void run(String[] msgs, int passes)
+    {
+        for (int p = 0; p < passes; p++)
+        {
+            parse(msgs);
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: ParseBench logfile [logfile ...]");
+            System.exit(1);
+        }
+
+        Vector lines = new Vector();
+
+        for (int i = 0; i < args.length; i++)
+        {
+            BufferedReader r = new BufferedReader(new FileReader(args[i]));
+            String line;
+
+            while ((line = r.readLine()) != null)
+            {
+                // skip '#' notes, and the rest of any message that had a newline in it
+                if ((line.length() > 0) && Character.isDigit(line.charAt(0)))
+                {
+                    lines.addElement(line);
+                }
+            }
+
+            r.close();
+        }
+
+        String[] msgs = new String[lines.size()];
+        lines.copyInto(msgs);
+
+        if (msgs.length == 0)
+        {
+            System.err.println("no messages");
+            System.exit(1);
+        }
+
+        // about 2 million messages a run, whatever the log's size
+        int passes = Math.max(1, 2000000 / msgs.length);
+        long n = (long) passes * msgs.length;
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        System.out.println(msgs.length + " messages, " + passes + " passes");
+
+        for (int round = 0; round < 3; round++)
+        {
+            run(msgs, Math.max(1, passes / 10));  // warm up
+
+            long bytes0 = mx.getThreadAllocatedBytes(tid);
+            long t0 = System.nanoTime();
+            run(msgs, passes);
+            long t1 = System.nanoTime();
+            long bytes1 = mx.getThreadAllocatedBytes(tid);
+
+            System.out.println(((n * 1000000000L) / Math.max(1, t1 - t0)) + " messages/s  "
+                + ((bytes1 - bytes0) / n) + " bytes/message");
+        }
+    }
+}
@@ -24,8 +24,11 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.io.UTFDataFormatException;
 import java.net.Socket;
 import java.util.Hashtable;
+import java.util.Vector;
+import java.util.zip.InflaterInputStream;
 
 import soc.disableDebug.D;
 import soc.game.SOCBoard;
@@ -42,10 +45,12 @@ import soc.game.SOCTradeOffer;
 import soc.message.SOCAcceptOffer;
 import soc.message.SOCBCastTextMsg;
 import soc.message.SOCBankTrade;
+import soc.message.SOCBinaryCodec;
 import soc.message.SOCBoardLayout;
 import soc.message.SOCBuildRequest;
 import soc.message.SOCBuyCardRequest;
 import soc.message.SOCCancelBuildRequest;
+import soc.message.SOCCapabilities;
 import soc.message.SOCChangeFace;
 import soc.message.SOCChannels;
 import soc.message.SOCChoosePlayer;
@@ -62,7 +67,9 @@ import soc.message.SOCDiscardRequest;
 import soc.message.SOCDiscoveryPick;
 import soc.message.SOCEndTurn;
 import soc.message.SOCFirstPlayer;
+import soc.message.SOCGameHandle;
 import soc.message.SOCGameMembers;
+import soc.message.SOCGameSnapshot;
 import soc.message.SOCGameState;
 import soc.message.SOCGameStats;
 import soc.message.SOCGameTextMsg;
@@ -79,6 +86,7 @@ import soc.message.SOCLongestRoad;
 import soc.message.SOCMakeOffer;
 import soc.message.SOCMembers;
 import soc.message.SOCMessage;
+import soc.message.SOCMessageEncoder;
 import soc.message.SOCMonopolyPick;
 import soc.message.SOCMoveRobber;
 import soc.message.SOCNewChannel;
@@ -90,6 +98,7 @@ import soc.message.SOCPutPiece;
 import soc.message.SOCRejectConnection;
 import soc.message.SOCRejectOffer;
 import soc.message.SOCResourceCount;
+import soc.message.SOCResume;
 import soc.message.SOCRollDice;
 import soc.message.SOCSetPlayedDevCard;
 import soc.message.SOCSetSeatLock;
@@ -99,6 +108,7 @@ import soc.message.SOCStartGame;
 import soc.message.SOCStatusMessage;
 import soc.message.SOCTextMsg;
 import soc.message.SOCTurn;
+import soc.message.SOCTypeTable;
 
 
 /**
@@ -149,6 +159,48 @@ public class SOCDisplaylessPlayerClient implements Runnable
      */
     protected Hashtable<String, SOCGame> games = new Hashtable<String, SOCGame>();
 
+    /**
+     * the protocol features the server has agreed to; see {@link SOCCapabilities}
+     */
+    protected int capabilities = 0;
+
+    /**
+     * the games the server's game handles stand for, for reading binary frames
+     */
+    protected SOCBinaryCodec.Handles gameHandles = new SOCBinaryCodec.Handles();
+
+    /**
+     * the token of our session with the server, if it gave us one;
+     * see {@link #resume()}
+     */
+    protected String sessionToken = null;
+
+    /**
+     * the messages read from the server on this connection, and those
+     * before it that our session was resumed after
+     */
+    protected int received = 0;
+
+    /** the data of the frame being read; see {@link #readMessage()} */
+    private byte[] frameBuf = new byte[1024];
+
+    /**
+     * Treats one type of message from the server.
+     */
+    public interface Handler
+    {
+        /**
+         * @param mes  the message
+         */
+        void handle(SOCMessage mes);
+    }
+
+    /**
+     * the Handler for each message type, which also counts the messages
+     * and the time taken over them; see {@link #treat(SOCMessage)}
+     */
+    protected final SOCTypeTable<Handler> handlers = new SOCTypeTable<Handler>(true);
+
     /**
      * Create a SOCDisplaylessPlayerClient
      */
@@ -157,6 +209,7 @@ public class SOCDisplaylessPlayerClient implements Runnable
         host = null;
         port = 8889;
         gotPassword = false;
+        registerHandlers();
     }
 
     /**
@@ -170,6 +223,7 @@ public class SOCDisplaylessPlayerClient implements Runnable
     {
         host = h;
         port = p;
+        registerHandlers();
     }
 
     /**
@@ -189,8 +243,33 @@ public class SOCDisplaylessPlayerClient implements Runnable
         {
             while (connected)
             {
-                String s = in.readUTF();
-                treat((SOCMessage) SOCMessage.toMsg(s));
+                SOCMessage mes;
+
+                try
+                {
+                    mes = readMessage();
+                }
+                catch (IOException e)
+                {
+                    if (connected && !(e instanceof InterruptedIOException) && resume())
+                    {
+                        continue;
+                    }
+
+                    throw e;
+                }
+
+                received++;  // counted even if unreadable, as the server counts what it sent
+
+                if (mes == null)
+                {
+                    continue;  // a bad or unknown frame
+                }
+
+                if (!treatProtocol(mes))
+                {
+                    treat(mes);
+                }
             }
         }
         catch (InterruptedIOException x)
@@ -211,431 +290,404 @@ public class SOCDisplaylessPlayerClient implements Runnable
     }
 
     /**
-     * resend the last message
-     */
-    public void resend()
-    {
-        put(lastMessage);
-    }
-
-    /**
-     * write a message to the net
+     * Read the next message from the server, as text or as a binary frame.
      *
-     * @param s  the message
-     * @return true if the message was sent, false if not
+     * @return the message, or null if it was garbled or of an unknown type
+     * @throws IOException if the connection fails
      */
-    public synchronized boolean put(String s)
+    protected SOCMessage readMessage() throws IOException
     {
-        lastMessage = s;
-
-        D.ebugPrintln("OUT - " + s);
+        int n = in.readUnsignedShort();
 
-        if ((ex != null) || !connected)
+        if (n > frameBuf.length)
         {
-            return false;
+            frameBuf = new byte[Math.max(n, frameBuf.length * 2)];
         }
 
-        try
+        in.readFully(frameBuf, 0, n);
+
+        if (SOCBinaryCodec.isBinary(frameBuf, 0, n))
         {
-            out.writeUTF(s);
+            try
+            {
+                return SOCBinaryCodec.decode(frameBuf, 0, n, gameHandles);
+            }
+            catch (IllegalArgumentException e)
+            {
+                System.err.println("bad binary frame: " + e);
+
+                return null;
+            }
         }
-        catch (InterruptedIOException x)
+
+        try
         {
-            System.err.println("Socket timeout in put: " + x);
+            return SOCMessage.toMsg(SOCMessageEncoder.decode(frameBuf, 0, n));
         }
-        catch (IOException e)
+        catch (IllegalArgumentException e)
         {
-            ex = e;
-            System.err.println("could not write to the net: " + ex);
-            destroy();
-
-            return false;
+            throw new UTFDataFormatException(e.getMessage());
         }
-
-        return true;
     }
 
     /**
-     * Treat the incoming messages
+     * Handle the messages about the protocol itself, which every
+     * client needs whatever its treat() does.
      *
-     * @param mes    the message
+     * @param mes  the message
+     * @return true if mes was one of them
      */
-    public void treat(SOCMessage mes)
+    protected boolean treatProtocol(SOCMessage mes)
     {
-        D.ebugPrintln(mes.toString());
-
-        try
+        if (mes == null)
         {
-            switch (mes.getType())
-            {
-            /**
-             * status message
-             */
-            case SOCMessage.STATUSMESSAGE:
-                handleSTATUSMESSAGE((SOCStatusMessage) mes);
-
-                break;
-
-            /**
-             * join channel authorization
-             */
-            case SOCMessage.JOINAUTH:
-                handleJOINAUTH((SOCJoinAuth) mes);
-
-                break;
-
-            /**
-             * someone joined a channel
-             */
-            case SOCMessage.JOIN:
-                handleJOIN((SOCJoin) mes);
-
-                break;
-
-            /**
-             * list of members for a channel
-             */
-            case SOCMessage.MEMBERS:
-                handleMEMBERS((SOCMembers) mes);
-
-                break;
+            return false;
+        }
 
-            /**
-             * a new channel has been created
-             */
-            case SOCMessage.NEWCHANNEL:
-                handleNEWCHANNEL((SOCNewChannel) mes);
+        switch (mes.getType())
+        {
+        case SOCMessage.CAPABILITIES:
+            capabilities = ((SOCCapabilities) mes).getBits();
 
-                break;
+            if (((capabilities & SOCCapabilities.DEFLATE) != 0) && (s != null))
+            {
+                try
+                {
+                    // everything after the answer is compressed
+                    in = new DataInputStream(new InflaterInputStream(s.getInputStream()));
+                }
+                catch (IOException e)
+                {
+                    ex = e;
+                }
+            }
 
-            /**
-             * list of channels on the server
-             */
-            case SOCMessage.CHANNELS:
-                handleCHANNELS((SOCChannels) mes);
+            return true;
 
-                break;
+        case SOCMessage.GAMEHANDLE:
+            SOCGameHandle gh = (SOCGameHandle) mes;
+            gameHandles.put(gh.getHandle(), gh.getGame());
 
-            /**
-             * text message
-             */
-            case SOCMessage.TEXTMSG:
-                handleTEXTMSG((SOCTextMsg) mes);
+            return true;
 
-                break;
+        case SOCMessage.RESUME:
+            sessionToken = ((SOCResume) mes).getToken();
 
-            /**
-             * someone left the channel
-             */
-            case SOCMessage.LEAVE:
-                handleLEAVE((SOCLeave) mes);
+            return true;
 
-                break;
+        default:
+            return false;
+        }
+    }
 
-            /**
-             * delete a channel
-             */
-            case SOCMessage.DELETECHANNEL:
-                handleDELETECHANNEL((SOCDeleteChannel) mes);
+    /**
+     * The connection dropped: connect again and resume our session, if
+     * we have one.  What the server sends a new connection is skipped
+     * until it answers; if it resumes the session, it then sends the
+     * messages we missed, and reading goes on as if nothing happened.
+     * Messages we sent while the connection was down are lost.
+     *
+     * @return true if the session was resumed
+     */
+    protected boolean resume()
+    {
+        String token = sessionToken;
 
-                break;
+        if ((token == null) || (host == null))
+        {
+            return false;
+        }
 
-            /**
-             * list of games on the server
-             */
-            case SOCMessage.GAMES:
-                handleGAMES((SOCGames) mes);
+        sessionToken = null;  // resumed at most once for each drop
 
-                break;
+        try
+        {
+            Socket so = new Socket(host, port);
+            so.setSoTimeout(s.getSoTimeout());
 
-            /**
-             * join game authorization
-             */
-            case SOCMessage.JOINGAMEAUTH:
-                handleJOINGAMEAUTH((SOCJoinGameAuth) mes);
+            DataInputStream i = new DataInputStream(so.getInputStream());
+            DataOutputStream o = new DataOutputStream(so.getOutputStream());
 
-                break;
+            synchronized (this)
+            {
+                try
+                {
+                    s.close();
+                }
+                catch (IOException e) {}
 
-            /**
-             * someone joined a game
-             */
-            case SOCMessage.JOINGAME:
-                handleJOINGAME((SOCJoinGame) mes);
+                s = so;
+                in = i;
+                out = o;
+                ex = null;
+            }
 
-                break;
+            out.writeUTF(SOCResume.toCmd(token, received));
 
-            /**
-             * someone left a game
-             */
-            case SOCMessage.LEAVEGAME:
-                handleLEAVEGAME((SOCLeaveGame) mes);
+            while (true)
+            {
+                SOCMessage mes = readMessage();
 
-                break;
+                if ((mes != null) && (mes.getType() == SOCMessage.RESUME))
+                {
+                    SOCResume r = (SOCResume) mes;
 
-            /**
-             * new game has been created
-             */
-            case SOCMessage.NEWGAME:
-                handleNEWGAME((SOCNewGame) mes);
+                    if (r.getSequence() != received)
+                    {
+                        System.err.println("could not resume the session");
 
-                break;
+                        return false;
+                    }
 
-            /**
-             * game has been destroyed
-             */
-            case SOCMessage.DELETEGAME:
-                handleDELETEGAME((SOCDeleteGame) mes);
+                    sessionToken = token;
 
-                break;
+                    return true;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("could not resume the session: " + e);
 
-            /**
-             * list of game members
-             */
-            case SOCMessage.GAMEMEMBERS:
-                handleGAMEMEMBERS((SOCGameMembers) mes);
+            return false;
+        }
+    }
 
-                break;
+    /**
+     * resend the last message
+     */
+    public void resend()
+    {
+        put(lastMessage);
+    }
 
-            /**
-             * game stats
-             */
-            case SOCMessage.GAMESTATS:
-                handleGAMESTATS((SOCGameStats) mes);
+    /**
+     * write a message to the net
+     *
+     * @param s  the message
+     * @return true if the message was sent, false if not
+     */
+    public synchronized boolean put(String s)
+    {
+        lastMessage = s;
 
-                break;
+        D.ebugPrintln("OUT - " + s);
 
-            /**
-             * game text message
-             */
-            case SOCMessage.GAMETEXTMSG:
-                handleGAMETEXTMSG((SOCGameTextMsg) mes);
+        if ((ex != null) || !connected)
+        {
+            return false;
+        }
 
-                break;
+        try
+        {
+            out.writeUTF(s);
+        }
+        catch (InterruptedIOException x)
+        {
+            System.err.println("Socket timeout in put: " + x);
+        }
+        catch (IOException e)
+        {
+            ex = e;
+            System.err.println("could not write to the net: " + ex);
 
-            /**
-             * broadcast text message
-             */
-            case SOCMessage.BCASTTEXTMSG:
-                handleBCASTTEXTMSG((SOCBCastTextMsg) mes);
+            if (sessionToken == null)
+            {
+                destroy();
+            }
 
-                break;
+            // otherwise the reader will find the connection down too, and resume
 
-            /**
-             * someone is sitting down
-             */
-            case SOCMessage.SITDOWN:
-                handleSITDOWN((SOCSitDown) mes);
+            return false;
+        }
 
-                break;
+        return true;
+    }
 
-            /**
-             * receive a board layout
-             */
-            case SOCMessage.BOARDLAYOUT:
-                handleBOARDLAYOUT((SOCBoardLayout) mes);
+    /**
+     * Fill in {@link #handlers} with the handler for each message type
+     * this client treats.  Called by the constructor, before subclass
+     * fields are set, so overrides should only register handlers.
+     */
+    protected void registerHandlers()
+    {
+        // status message
+        handlers.put(SOCMessage.STATUSMESSAGE, m -> handleSTATUSMESSAGE((SOCStatusMessage) m));
 
-                break;
+        // join channel authorization
+        handlers.put(SOCMessage.JOINAUTH, m -> handleJOINAUTH((SOCJoinAuth) m));
 
-            /**
-             * message that the game is starting
-             */
-            case SOCMessage.STARTGAME:
-                handleSTARTGAME((SOCStartGame) mes);
+        // someone joined a channel
+        handlers.put(SOCMessage.JOIN, m -> handleJOIN((SOCJoin) m));
 
-                break;
+        // list of members for a channel
+        handlers.put(SOCMessage.MEMBERS, m -> handleMEMBERS((SOCMembers) m));
 
-            /**
-             * update the state of the game
-             */
-            case SOCMessage.GAMESTATE:
-                handleGAMESTATE((SOCGameState) mes);
+        // a new channel has been created
+        handlers.put(SOCMessage.NEWCHANNEL, m -> handleNEWCHANNEL((SOCNewChannel) m));
 
-                break;
+        // list of channels on the server
+        handlers.put(SOCMessage.CHANNELS, m -> handleCHANNELS((SOCChannels) m));
 
-            /**
-             * set the current turn
-             */
-            case SOCMessage.SETTURN:
-                handleSETTURN((SOCSetTurn) mes);
+        // text message
+        handlers.put(SOCMessage.TEXTMSG, m -> handleTEXTMSG((SOCTextMsg) m));
 
-                break;
+        // someone left the channel
+        handlers.put(SOCMessage.LEAVE, m -> handleLEAVE((SOCLeave) m));
 
-            /**
-             * set who the first player is
-             */
-            case SOCMessage.FIRSTPLAYER:
-                handleFIRSTPLAYER((SOCFirstPlayer) mes);
+        // delete a channel
+        handlers.put(SOCMessage.DELETECHANNEL, m -> handleDELETECHANNEL((SOCDeleteChannel) m));
 
-                break;
+        // list of games on the server
+        handlers.put(SOCMessage.GAMES, m -> handleGAMES((SOCGames) m));
 
-            /**
-             * update who's turn it is
-             */
-            case SOCMessage.TURN:
-                handleTURN((SOCTurn) mes);
+        // join game authorization
+        handlers.put(SOCMessage.JOINGAMEAUTH, m -> handleJOINGAMEAUTH((SOCJoinGameAuth) m));
 
-                break;
+        // someone joined a game
+        handlers.put(SOCMessage.JOINGAME, m -> handleJOINGAME((SOCJoinGame) m));
 
-            /**
-             * receive player information
-             */
-            case SOCMessage.PLAYERELEMENT:
-                handlePLAYERELEMENT((SOCPlayerElement) mes);
+        // someone left a game
+        handlers.put(SOCMessage.LEAVEGAME, m -> handleLEAVEGAME((SOCLeaveGame) m));
 
-                break;
+        // new game has been created
+        handlers.put(SOCMessage.NEWGAME, m -> handleNEWGAME((SOCNewGame) m));
 
-            /**
-             * receive resource count
-             */
-            case SOCMessage.RESOURCECOUNT:
-                handleRESOURCECOUNT((SOCResourceCount) mes);
+        // game has been destroyed
+        handlers.put(SOCMessage.DELETEGAME, m -> handleDELETEGAME((SOCDeleteGame) m));
 
-                break;
+        // list of game members
+        handlers.put(SOCMessage.GAMEMEMBERS, m -> handleGAMEMEMBERS((SOCGameMembers) m));
 
-            /**
-             * the latest dice result
-             */
-            case SOCMessage.DICERESULT:
-                handleDICERESULT((SOCDiceResult) mes);
+        // the state of a game we've joined, all at once
+        handlers.put(SOCMessage.GAMESNAPSHOT, m -> handleGAMESNAPSHOT((SOCGameSnapshot) m));
 
-                break;
+        // game stats
+        handlers.put(SOCMessage.GAMESTATS, m -> handleGAMESTATS((SOCGameStats) m));
 
-            /**
-             * a player built something
-             */
-            case SOCMessage.PUTPIECE:
-                handlePUTPIECE((SOCPutPiece) mes);
+        // game text message
+        handlers.put(SOCMessage.GAMETEXTMSG, m -> handleGAMETEXTMSG((SOCGameTextMsg) m));
 
-                break;
+        // broadcast text message
+        handlers.put(SOCMessage.BCASTTEXTMSG, m -> handleBCASTTEXTMSG((SOCBCastTextMsg) m));
 
-            /**
-             * the robber moved
-             */
-            case SOCMessage.MOVEROBBER:
-                handleMOVEROBBER((SOCMoveRobber) mes);
+        // someone is sitting down
+        handlers.put(SOCMessage.SITDOWN, m -> handleSITDOWN((SOCSitDown) m));
 
-                break;
+        // receive a board layout
+        handlers.put(SOCMessage.BOARDLAYOUT, m -> handleBOARDLAYOUT((SOCBoardLayout) m));
 
-            /**
-             * the server wants this player to discard
-             */
-            case SOCMessage.DISCARDREQUEST:
-                handleDISCARDREQUEST((SOCDiscardRequest) mes);
+        // message that the game is starting
+        handlers.put(SOCMessage.STARTGAME, m -> handleSTARTGAME((SOCStartGame) m));
 
-                break;
+        // update the state of the game
+        handlers.put(SOCMessage.GAMESTATE, m -> handleGAMESTATE((SOCGameState) m));
 
-            /**
-             * the server wants this player to choose a player to rob
-             */
-            case SOCMessage.CHOOSEPLAYERREQUEST:
-                handleCHOOSEPLAYERREQUEST((SOCChoosePlayerRequest) mes);
+        // set the current turn
+        handlers.put(SOCMessage.SETTURN, m -> handleSETTURN((SOCSetTurn) m));
 
-                break;
+        // set who the first player is
+        handlers.put(SOCMessage.FIRSTPLAYER, m -> handleFIRSTPLAYER((SOCFirstPlayer) m));
 
-            /**
-             * a player has made an offer
-             */
-            case SOCMessage.MAKEOFFER:
-                handleMAKEOFFER((SOCMakeOffer) mes);
+        // update who's turn it is
+        handlers.put(SOCMessage.TURN, m -> handleTURN((SOCTurn) m));
 
-                break;
+        // receive player information
+        handlers.put(SOCMessage.PLAYERELEMENT, m -> handlePLAYERELEMENT((SOCPlayerElement) m));
 
-            /**
-             * a player has cleared her offer
-             */
-            case SOCMessage.CLEAROFFER:
-                handleCLEAROFFER((SOCClearOffer) mes);
+        // receive resource count
+        handlers.put(SOCMessage.RESOURCECOUNT, m -> handleRESOURCECOUNT((SOCResourceCount) m));
 
-                break;
+        // the latest dice result
+        handlers.put(SOCMessage.DICERESULT, m -> handleDICERESULT((SOCDiceResult) m));
 
-            /**
-             * a player has rejected an offer
-             */
-            case SOCMessage.REJECTOFFER:
-                handleREJECTOFFER((SOCRejectOffer) mes);
+        // a player built something
+        handlers.put(SOCMessage.PUTPIECE, m -> handlePUTPIECE((SOCPutPiece) m));
 
-                break;
+        // the robber moved
+        handlers.put(SOCMessage.MOVEROBBER, m -> handleMOVEROBBER((SOCMoveRobber) m));
 
-            /**
-             * the trade message needs to be cleared
-             */
-            case SOCMessage.CLEARTRADEMSG:
-                handleCLEARTRADEMSG((SOCClearTradeMsg) mes);
+        // the server wants this player to discard
+        handlers.put(SOCMessage.DISCARDREQUEST, m -> handleDISCARDREQUEST((SOCDiscardRequest) m));
 
-                break;
+        // the server wants this player to choose a player to rob
+        handlers.put(SOCMessage.CHOOSEPLAYERREQUEST, m -> handleCHOOSEPLAYERREQUEST((SOCChoosePlayerRequest) m));
 
-            /**
-             * the current number of development cards
-             */
-            case SOCMessage.DEVCARDCOUNT:
-                handleDEVCARDCOUNT((SOCDevCardCount) mes);
+        // a player has made an offer
+        handlers.put(SOCMessage.MAKEOFFER, m -> handleMAKEOFFER((SOCMakeOffer) m));
 
-                break;
+        // a player has cleared her offer
+        handlers.put(SOCMessage.CLEAROFFER, m -> handleCLEAROFFER((SOCClearOffer) m));
 
-            /**
-             * a dev card action, either draw, play, or add to hand
-             */
-            case SOCMessage.DEVCARD:
-                handleDEVCARD((SOCDevCard) mes);
+        // a player has rejected an offer
+        handlers.put(SOCMessage.REJECTOFFER, m -> handleREJECTOFFER((SOCRejectOffer) m));
 
-                break;
+        // the trade message needs to be cleared
+        handlers.put(SOCMessage.CLEARTRADEMSG, m -> handleCLEARTRADEMSG((SOCClearTradeMsg) m));
 
-            /**
-             * set the flag that tells if a player has played a
-             * development card this turn
-             */
-            case SOCMessage.SETPLAYEDDEVCARD:
-                handleSETPLAYEDDEVCARD((SOCSetPlayedDevCard) mes);
+        // the current number of development cards
+        handlers.put(SOCMessage.DEVCARDCOUNT, m -> handleDEVCARDCOUNT((SOCDevCardCount) m));
 
-                break;
+        // a dev card action, either draw, play, or add to hand
+        handlers.put(SOCMessage.DEVCARD, m -> handleDEVCARD((SOCDevCard) m));
 
-            /**
-             * get a list of all the potential settlements for a player
-             */
-            case SOCMessage.POTENTIALSETTLEMENTS:
-                handlePOTENTIALSETTLEMENTS((SOCPotentialSettlements) mes);
+        // set the flag that tells if a player has played a development card this turn
+        handlers.put(SOCMessage.SETPLAYEDDEVCARD, m -> handleSETPLAYEDDEVCARD((SOCSetPlayedDevCard) m));
 
-                break;
+        // get a list of all the potential settlements for a player
+        handlers.put(SOCMessage.POTENTIALSETTLEMENTS, m -> handlePOTENTIALSETTLEMENTS((SOCPotentialSettlements) m));
 
-            /**
-             * handle the change face message
-             */
-            case SOCMessage.CHANGEFACE:
-                handleCHANGEFACE((SOCChangeFace) mes);
+        // handle the change face message
+        handlers.put(SOCMessage.CHANGEFACE, m -> handleCHANGEFACE((SOCChangeFace) m));
 
-                break;
+        // handle the reject connection message
+        handlers.put(SOCMessage.REJECTCONNECTION, m -> handleREJECTCONNECTION((SOCRejectConnection) m));
 
-            /**
-             * handle the reject connection message
-             */
-            case SOCMessage.REJECTCONNECTION:
-                handleREJECTCONNECTION((SOCRejectConnection) mes);
+        // handle the longest road message
+        handlers.put(SOCMessage.LONGESTROAD, m -> handleLONGESTROAD((SOCLongestRoad) m));
 
-                break;
+        // handle the largest army message
+        handlers.put(SOCMessage.LARGESTARMY, m -> handleLARGESTARMY((SOCLargestArmy) m));
 
-            /**
-             * handle the longest road message
-             */
-            case SOCMessage.LONGESTROAD:
-                handleLONGESTROAD((SOCLongestRoad) mes);
+        // handle the seat lock state message
+        handlers.put(SOCMessage.SETSEATLOCK, m -> handleSETSEATLOCK((SOCSetSeatLock) m));
+    }
 
-                break;
+    /**
+     * Set how a type of message from the server is treated.
+     *
+     * @param type  the message type
+     * @param h  its handler, or null to ignore messages of that type
+     */
+    public void setHandler(int type, Handler h)
+    {
+        handlers.put(type, h);
+    }
 
-            /**
-             * handle the largest army message
-             */
-            case SOCMessage.LARGESTARMY:
-                handleLARGESTARMY((SOCLargestArmy) mes);
+    /**
+     * Treat the incoming messages
+     *
+     * @param mes    the message
+     */
+    public void treat(SOCMessage mes)
+    {
+        if (mes == null)
+        {
+            return;
+        }
 
-                break;
+        D.ebugPrintln(mes.toString());
 
-            /**
-             * handle the seat lock state message
-             */
-            case SOCMessage.SETSEATLOCK:
-                handleSETSEATLOCK((SOCSetSeatLock) mes);
+        try
+        {
+            int type = mes.getType();
+            Handler h = handlers.get(type);
 
-                break;
+            if (h != null)
+            {
+                long t0 = System.nanoTime();
+                h.handle(mes);
+                handlers.record(type, System.nanoTime() - t0);
             }
         }
         catch (Exception e)
@@ -777,6 +829,21 @@ public class SOCDisplaylessPlayerClient implements Runnable
      */
     protected void handleGAMEMEMBERS(SOCGameMembers mes) {}
 
+    /**
+     * handle the "game snapshot" message: treat each of the messages
+     * it stands for, in order
+     * @param mes  the message
+     */
+    protected void handleGAMESNAPSHOT(SOCGameSnapshot mes)
+    {
+        Vector<SOCMessage> v = mes.toMessages();
+
+        for (int i = 0; i < v.size(); i++)
+        {
+            treat(v.elementAt(i));
+        }
+    }
+
     /**
      * handle the "game stats" message
      */
@@ -44,6 +44,7 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.zip.InflaterInputStream;
 
 import javax.swing.JFrame;
 import javax.swing.UIManager;
@@ -68,6 +69,7 @@ import soc.message.SOCBoardLayout;
 import soc.message.SOCBuildRequest;
 import soc.message.SOCBuyCardRequest;
 import soc.message.SOCCancelBuildRequest;
+import soc.message.SOCCapabilities;
 import soc.message.SOCChangeFace;
 import soc.message.SOCChannels;
 import soc.message.SOCChoosePlayer;
@@ -112,6 +114,7 @@ import soc.message.SOCPutPiece;
 import soc.message.SOCRejectConnection;
 import soc.message.SOCRejectOffer;
 import soc.message.SOCResourceCount;
+import soc.message.SOCResume;
 import soc.message.SOCRollDice;
 import soc.message.SOCSetPlayedDevCard;
 import soc.message.SOCSetSeatLock;
@@ -165,6 +168,18 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
     protected Exception ex = null;
     protected boolean connected = false;
 
+    /**
+     * the token of our session with the server, if it gave us one;
+     * see {@link #resume()}
+     */
+    protected String sessionToken = null;
+
+    /**
+     * the messages read from the server on this connection, and those
+     * before it that our session was resumed after
+     */
+    protected int received = 0;
+
     /**
      * the nickname
      */
@@ -520,8 +535,11 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
             s = new Socket(host, port);
             in = new DataInputStream(s.getInputStream());
             out = new DataOutputStream(s.getOutputStream());
+            sessionToken = null;
+            received = 0;
             connected = true;
             (reader = new Thread(this)).start();
+            put(SOCCapabilities.toCmd(SOCCapabilities.DEFLATE | SOCCapabilities.RESUME));
         }
         catch (Exception e)
         {
@@ -755,8 +773,30 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
         {
             while (connected)
             {
-                String s = in.readUTF();
-                treat((SOCMessage) SOCMessage.toMsg(s));
+                String s;
+
+                try
+                {
+                    s = in.readUTF();
+                }
+                catch (IOException e)
+                {
+                    if (connected && resume())
+                    {
+                        continue;
+                    }
+
+                    throw e;
+                }
+
+                received++;  // counted even if unreadable, as the server counts what it sent
+
+                SOCMessage mes = SOCMessage.toMsg(s);
+
+                if (mes != null)
+                {
+                    treat(mes);
+                }
             }
         }
         catch (IOException e)
@@ -771,6 +811,77 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
         }
     }
 
+    /**
+     * The connection dropped: connect again and resume our session, if
+     * we have one, instead of leaving our games.  What the server sends
+     * a new connection is skipped until it answers; if it resumes the
+     * session, it then sends the messages we missed, and reading goes on
+     * as if nothing happened.  Messages we sent while the connection was
+     * down are lost.
+     *
+     * @return true if the session was resumed
+     */
+    protected boolean resume()
+    {
+        String token = sessionToken;
+
+        if (token == null)
+        {
+            return false;
+        }
+
+        sessionToken = null;  // resumed at most once for each drop
+        System.out.println("connection lost, resuming");
+
+        try
+        {
+            Socket so = new Socket(host, port);
+            DataInputStream i = new DataInputStream(so.getInputStream());
+            DataOutputStream o = new DataOutputStream(so.getOutputStream());
+
+            synchronized (this)
+            {
+                try
+                {
+                    s.close();
+                }
+                catch (IOException e) {}
+
+                s = so;
+                in = i;
+                out = o;
+                ex = null;
+            }
+
+            out.writeUTF(SOCResume.toCmd(token, received));
+
+            while (true)
+            {
+                SOCMessage mes = SOCMessage.toMsg(in.readUTF());
+
+                if ((mes != null) && (mes.getType() == SOCMessage.RESUME))
+                {
+                    if (((SOCResume) mes).getSequence() != received)
+                    {
+                        System.err.println("could not resume the session");
+
+                        return false;
+                    }
+
+                    sessionToken = token;
+
+                    return true;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("could not resume the session: " + e);
+
+            return false;
+        }
+    }
+
     /**
      * resend the last message
      */
@@ -805,7 +916,13 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
         {
             ex = e;
             System.err.println("could not write to the net: " + ex);
-            destroy();
+
+            if (sessionToken == null)
+            {
+                destroy();
+            }
+
+            // otherwise the reader will find the connection down too, and resume
 
             return false;
         }
@@ -826,6 +943,22 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
         {
             switch (mes.getType())
             {
+            /**
+             * the server's answer to our capabilities
+             */
+            case SOCMessage.CAPABILITIES:
+                handleCAPABILITIES((SOCCapabilities) mes);
+
+                break;
+
+            /**
+             * our session's token, to resume it with
+             */
+            case SOCMessage.RESUME:
+                sessionToken = ((SOCResume) mes).getToken();
+
+                break;
+
             /**
              * status message
              */
@@ -1203,6 +1336,29 @@ public class SOCPlayerClient extends java.applet.Applet implements Runnable, Act
         }
     }
 
+    /**
+     * handle the server's answer to our capabilities: if it agreed to
+     * compress, everything after this message comes compressed.
+     * Called by the reader thread, so the next read uses the new stream.
+     * @param mes  the message
+     */
+    protected void handleCAPABILITIES(SOCCapabilities mes)
+    {
+        if ((mes.getBits() & SOCCapabilities.DEFLATE) != 0)
+        {
+            try
+            {
+                in = new DataInputStream(new InflaterInputStream(s.getInputStream()));
+            }
+            catch (IOException e)
+            {
+                ex = e;
+                System.err.println("could not read from the net: " + ex);
+                destroy();
+            }
+        }
+    }
+
     /**
      * handle the "status message" message
      * @param mes  the message
@@ -46,6 +46,7 @@ import soc.disableDebug.D;
 import soc.game.SOCGame;
 import soc.game.SOCTradeOffer;
 import soc.message.SOCMakeOffer;
+import soc.message.SOCMessageCursor;
 
 
 /**
@@ -349,7 +350,7 @@ public class SOCPlayerInterface extends Frame implements ActionListener
     void processText(String s) {
         if (s.startsWith(".op.")) {
             String offerStr = "My Game,1,true,false,true,true,0,0,0,0,0,0,0,1,1,1";
-            SOCMakeOffer moffer = SOCMakeOffer.parseDataStr(offerStr);
+            SOCMakeOffer moffer = SOCMakeOffer.parseDataStr(new SOCMessageCursor(offerStr));
             int fromPlayer = 1;
             SOCTradeOffer offer = moffer.getOffer();
             getGame().getPlayer(fromPlayer).setCurrentOffer(offer);
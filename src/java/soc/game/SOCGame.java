@@ -110,6 +110,11 @@ public class SOCGame implements Serializable, Cloneable
      */
     private String name;
 
+    /**
+     * the number the server's game list knows this game by, or -1
+     */
+    private int handle = -1;
+
     /**
      * true if this game is ACTIVE
      */
@@ -225,6 +230,11 @@ public class SOCGame implements Serializable, Cloneable
      */
     private int turnNumber = 0;
 
+    /**
+     * counter of changes to the game's state; see {@link #getChangeCount()}
+     */
+    private int changeCount = 0;
+
     public int getTurnNumber() {
       return turnNumber;
     }
@@ -353,6 +363,26 @@ public class SOCGame implements Serializable, Cloneable
         return expiration;
     }
 
+    /**
+     * @return a count of the changes made to the game's state so far.
+     *         Anything worked out from the game may be kept until this
+     *         changes; the server keeps what it sends to joining clients
+     *         this way.
+     */
+    public int getChangeCount()
+    {
+        return changeCount;
+    }
+
+    /**
+     * note a change to the game's state; called by every method that
+     * changes it, and by SOCPlayer for changes made straight to a player
+     */
+    public void changed()
+    {
+        changeCount++;
+    }
+
     /**
      * set the expiration time
      *
@@ -371,6 +401,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void addPlayer(String name, int pn)
     {
+        changed();
+
         players[pn].setName(name);
         seats[pn] = OCCUPIED;
 
@@ -387,6 +419,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void removePlayer(String name)
     {
+        changed();
+
         SOCPlayer pl = getPlayer(name);
         pl.setName(null);
         seats[pl.getPlayerNumber()] = VACANT;
@@ -411,6 +445,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void lockSeat(int pn)
     {
+        changed();
+
         seatLocks[pn] = LOCKED;
     }
 
@@ -421,6 +457,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void unlockSeat(int pn)
     {
+        changed();
+
         seatLocks[pn] = UNLOCKED;
     }
 
@@ -474,6 +512,23 @@ public class SOCGame implements Serializable, Cloneable
         return name;
     }
 
+    /**
+     * @return the number the server's game list knows this game by,
+     *         or -1 if it isn't in one
+     */
+    public int getHandle()
+    {
+        return handle;
+    }
+
+    /**
+     * @param h  the number the server's game list knows this game by
+     */
+    public void setHandle(int h)
+    {
+        handle = h;
+    }
+
     /**
      * @return the game board
      */
@@ -526,6 +581,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setCurrentPlayerNumber(int pn)
     {
+        changed();
+
         //D.ebugPrintln("SETTING CURRENT PLAYER NUMBER TO "+pn);
         currentPlayerNumber = pn;
     }
@@ -545,6 +602,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setCurrentDice(int dr)
     {
+        changed();
+
         currentDice = dr;
     }
 
@@ -563,6 +622,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setGameState(int gs)
     {
+        changed();
+
         gameState = gs;
     }
 
@@ -581,6 +642,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setNumDevCards(int nd)
     {
+        changed();
+
         numDevCards = nd;
     }
 
@@ -606,6 +669,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setPlayerWithLargestArmy(SOCPlayer pl)
     {
+        changed();
+
         if (pl == null)
         {
             playerWithLargestArmy = -1;
@@ -638,6 +703,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setPlayerWithLongestRoad(SOCPlayer pl)
     {
+        changed();
+
         if (pl == null)
         {
             playerWithLongestRoad = -1;
@@ -680,6 +747,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void putPiece(SOCPlayingPiece pp)
     {
+        changed();
+
         /**
          * call putPiece() on every player so that each
          * player's updatePotentials() function gets called
@@ -915,6 +984,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void putTempPiece(SOCPlayingPiece pp)
     {
+        changed();
+
         //D.ebugPrintln("@@@ putTempPiece "+pp);
 
         /**
@@ -1022,6 +1093,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void undoPutTempPiece(SOCPlayingPiece pp)
     {
+        changed();
+
         //D.ebugPrintln("@@@ undoPutTempPiece "+pp);
         board.removePiece(pp);
 
@@ -1108,6 +1181,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void startGame()
     {
+        changed();
+
         board.makeNewBoard(this);
 
         makeDevDeck();
@@ -1129,6 +1204,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void setFirstPlayer(int pn)
     {
+        changed();
+
         firstPlayerNumber = pn;
         lastPlayerNumber = (pn - 1 + MAXPLAYERS) % MAXPLAYERS;
     }
@@ -1156,6 +1233,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void endTurn()
     {
+        changed();
+
         currentDice = 0;
         if (gameOver) {
             gameState = OVER;
@@ -1189,6 +1268,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public IntPair rollDice()
     {
+        changed();
+
         int die1 = rand.nextInt(6) + 1;
         int die2 = rand.nextInt(6) + 1;
 
@@ -1396,6 +1477,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void discard(int pn, SOCResourceSet rs)
     {
+        changed();
+
         players[pn].getResources().subtract(rs);
         players[pn].setNeedToDiscard(false);
 
@@ -1467,6 +1550,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public SOCMoveRobberResult moveRobber(int pn, int co)
     {
+        changed();
+
         SOCMoveRobberResult result = new SOCMoveRobberResult();
 
         board.setRobberHex(co);
@@ -1781,6 +1866,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public int stealFromPlayer(int pn)
     {
+        changed();
+
         /**
          * pick a resource card at random
          */
@@ -1879,6 +1966,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void makeTrade(int offering, int accepting)
     {
+        changed();
+
         SOCResourceSet offeringPlayerResources = players[offering].getResources();
         SOCResourceSet acceptingPlayerResources = players[accepting].getResources();
         SOCTradeOffer offer = players[offering].getCurrentOffer();
@@ -2015,6 +2104,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void makeBankTrade(SOCResourceSet give, SOCResourceSet get)
     {
+        changed();
+
         SOCResourceSet playerResources = players[currentPlayerNumber].getResources();
 
         playerResources.subtract(give);
@@ -2095,6 +2186,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void buyRoad(int pn)
     {
+        changed();
+
         SOCResourceSet resources = players[pn].getResources();
         resources.subtract(1, SOCResourceConstants.CLAY);
         resources.subtract(1, SOCResourceConstants.WOOD);
@@ -2108,6 +2201,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void buySettlement(int pn)
     {
+        changed();
+
         SOCResourceSet resources = players[pn].getResources();
         resources.subtract(1, SOCResourceConstants.CLAY);
         resources.subtract(1, SOCResourceConstants.SHEEP);
@@ -2123,6 +2218,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void buyCity(int pn)
     {
+        changed();
+
         SOCResourceSet resources = players[pn].getResources();
         resources.subtract(3, SOCResourceConstants.ORE);
         resources.subtract(2, SOCResourceConstants.WHEAT);
@@ -2136,6 +2233,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void cancelBuildRoad(int pn)
     {
+        changed();
+
         SOCResourceSet resources = players[pn].getResources();
         resources.add(1, SOCResourceConstants.CLAY);
         resources.add(1, SOCResourceConstants.WOOD);
@@ -2149,6 +2248,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void cancelBuildSettlement(int pn)
     {
+        changed();
+
         SOCResourceSet resources = players[pn].getResources();
         resources.add(1, SOCResourceConstants.CLAY);
         resources.add(1, SOCResourceConstants.SHEEP);
@@ -2164,6 +2265,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void cancelBuildCity(int pn)
     {
+        changed();
+
         SOCResourceSet resources = players[pn].getResources();
         resources.add(3, SOCResourceConstants.ORE);
         resources.add(2, SOCResourceConstants.WHEAT);
@@ -2177,6 +2280,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public int buyDevCard()
     {
+        changed();
+
         int card = devCardDeck[numDevCards - 1];
         numDevCards--;
 
@@ -2300,6 +2405,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playKnight()
     {
+        changed();
+
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getDevCards().subtract(1, SOCDevCardSet.OLD, SOCDevCardConstants.KNIGHT);
         players[currentPlayerNumber].incrementNumKnights();
@@ -2317,6 +2424,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playRoadBuilding()
     {
+        changed();
+
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getDevCards().subtract(1, SOCDevCardSet.OLD, SOCDevCardConstants.ROADS);
         oldGameState = gameState;
@@ -2328,6 +2437,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playDiscovery()
     {
+        changed();
+
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getDevCards().subtract(1, SOCDevCardSet.OLD, SOCDevCardConstants.DISC);
         oldGameState = gameState;
@@ -2339,6 +2450,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void playMonopoly()
     {
+        changed();
+
         players[currentPlayerNumber].setPlayedDevCard(true);
         players[currentPlayerNumber].getDevCards().subtract(1, SOCDevCardSet.OLD, SOCDevCardConstants.MONO);
         oldGameState = gameState;
@@ -2390,6 +2503,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void doDiscoveryAction(SOCResourceSet pick)
     {
+        changed();
+
         for (int i = SOCResourceConstants.MIN; i < SOCResourceConstants.MAX; i++)
         {
             players[currentPlayerNumber].getResources().add(pick.getAmount(i), i);
@@ -2405,6 +2520,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public int doMonopolyAction(int pick)
     {
+        changed();
+
         int sum = 0;
 
         for (int i = 0; i < MAXPLAYERS; i++)
@@ -2426,6 +2543,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void updateLargestArmy()
     {
+        changed();
+
         int size;
 
         if (playerWithLargestArmy == -1)
@@ -2459,6 +2578,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void restoreLargestArmyState()
     {
+        changed();
+
         playerWithLargestArmy = oldPlayerWithLargestArmy;
     }
 
@@ -2474,6 +2595,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void updateLongestRoad(int pn)
     {
+        changed();
+
         //D.ebugPrintln("## updateLongestRoad("+pn+")");
         int longestLength;
         int playerLength;
@@ -2534,6 +2657,8 @@ public class SOCGame implements Serializable, Cloneable
      */
     public void checkForWinner()
     {
+        changed();
+
         for (int i = 0; i < MAXPLAYERS; i++)
         {
             if (players[i].getTotalVP() >= 10)
@@ -568,6 +568,11 @@ public class SOCPlayer implements SOCResourceConstants, SOCDevCardConstants, Ser
     public void setRobotFlag(boolean value)
     {
         robotFlag = value;
+
+        if (game != null)
+        {
+            game.changed();  // not once destroyPlayer() has run
+        }
     }
 
     /**
@@ -586,6 +591,11 @@ public class SOCPlayer implements SOCResourceConstants, SOCDevCardConstants, Ser
     public void setFaceId(int id)
     {
         faceId = id;
+
+        if (game != null)
+        {
+            game.changed();  // not once destroyPlayer() has run
+        }
     }
 
     /**
@@ -1777,6 +1787,21 @@ public class SOCPlayer implements SOCResourceConstants, SOCDevCardConstants, Ser
         }
     }
 
+    /**
+     * set which nodes are potential settlements
+     *
+     * @param psList        the list of potential settlements
+     */
+    public void setPotentialSettlements(int[] psList)
+    {
+        clearPotentialSettlements();
+
+        for (int i = 0; i < psList.length; i++)
+        {
+            potentialSettlements[psList[i]] = true;
+        }
+    }
+
     /**
      * @return true if this node is a potential settlement
      * @param node the coordinates of a node on the board
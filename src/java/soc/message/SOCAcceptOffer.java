@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that the player is accepting an offer
@@ -110,22 +108,20 @@ public class SOCAcceptOffer extends SOCMessage
     /**
      * Parse the command String into a StartGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a StartGame message, or null of the data is garbled
      */
-    public static SOCAcceptOffer parseDataStr(String s)
+    public static SOCAcceptOffer parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int ac; // the number of the accepting player
         int of; //the number of the offering player
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            ac = Integer.parseInt(st.nextToken());
-            of = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            ac = c.nextInt();
+            of = c.nextInt();
         }
         catch (Exception e)
         {
@@ -77,12 +77,12 @@ public class SOCAdminPing extends SOCMessage
     /**
      * Parse the command String into a AdminPing message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a AdminPing message
      */
-    public static SOCAdminPing parseDataStr(String s)
+    public static SOCAdminPing parseDataStr(SOCMessageCursor c)
     {
-        return new SOCAdminPing(s);
+        return new SOCAdminPing(c.rest());
     }
 
     /**
@@ -51,10 +51,10 @@ public class SOCAdminReset extends SOCMessage
     /**
      * Parse the command String into a AdminReset message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a AdminReset message
      */
-    public static SOCAdminReset parseDataStr(String s)
+    public static SOCAdminReset parseDataStr(SOCMessageCursor c)
     {
         return new SOCAdminReset();
     }
@@ -76,12 +76,12 @@ public class SOCBCastTextMsg extends SOCMessage
     /**
      * Parse the command String into a BCastTextMsg message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a BCastTextMsg message, or null of the data is garbled
      */
-    public static SOCBCastTextMsg parseDataStr(String s)
+    public static SOCBCastTextMsg parseDataStr(SOCMessageCursor c)
     {
-        return new SOCBCastTextMsg(s);
+        return new SOCBCastTextMsg(c.rest());
     }
 
     /**
@@ -25,8 +25,6 @@ import soc.disableDebug.D;	// debug
 import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player wants to trade with the bank
@@ -124,10 +122,10 @@ public class SOCBankTrade extends SOCMessage
     /**
      * Parse the command String into a BankTrade message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a BankTrade message, or null of the data is garbled
      */
-    public static SOCBankTrade parseDataStr(String s)
+    public static SOCBankTrade parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         SOCResourceSet give; // the set of resources being given to the bank
@@ -136,25 +134,23 @@ public class SOCBankTrade extends SOCMessage
         give = new SOCResourceSet();
         get = new SOCResourceSet();
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
-	D.ebugPrintln("BankTrade.parseDataStr - "+s);
+	D.ebugPrintln("BankTrade.parseDataStr - "+c);
 
         try
         {
-            ga = st.nextToken();
+            ga = c.next();
 
             /**
              * Note: this only works if SOCResourceConstants.MIN == 1, MAX == 6
              */
             for (int i = SOCResourceConstants.MIN; i < SOCResourceConstants.MAX; i++)
             {
-                give.setAmount(Integer.parseInt(st.nextToken()), i);
+                give.setAmount(c.nextInt(), i);
             }
 
             for (int i = SOCResourceConstants.MIN; i < SOCResourceConstants.MAX; i++)
             {
-                get.setAmount(Integer.parseInt(st.nextToken()), i);
+                get.setAmount(c.nextInt(), i);
             }
         }
         catch (Exception e)
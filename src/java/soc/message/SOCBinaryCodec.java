@@ -0,0 +1,346 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+
+/**
+ * The binary form of the messages sent most often during a game, for
+ * connections that have agreed to it with {@link SOCCapabilities#BINARY}.
+ * Each binary frame goes on the wire where a writeUTF String would: a
+ * 2-byte length, then
+ *<pre>
+ *  0x00  varint(type - 1000)  varint(game handle)  fields...
+ *</pre>
+ * Modified UTF-8 never has a 0x00 byte, so the first byte tells a binary
+ * frame from a text one, and both kinds can be mixed on one connection.
+ * The game's name is replaced by the number the server gave it, sent
+ * beforehand in a {@link SOCGameHandle} message.  Player numbers, piece
+ * types and coordinates are single bytes; other numbers are varints,
+ * zigzag-encoded and 7 bits a byte.  Strings are a varint byte count
+ * and modified UTF-8.
+ *<P>
+ * Messages with no binary form, or whose values don't fit, are sent
+ * as text.  Only the server sends binary frames.
+ */
+public final class SOCBinaryCodec
+{
+    /** first byte of a binary frame's data */
+    public static final int MARK = 0x00;
+
+    /**
+     * The game names for the handles a client has been told about.
+     * Not synchronized: used by the client's reader thread only.
+     */
+    public static final class Handles
+    {
+        private String[] names = new String[16];
+
+        /** remember the game for a handle */
+        public void put(int h, String ga)
+        {
+            if (h >= names.length)
+            {
+                String[] n = new String[Math.max(names.length * 2, h + 1)];
+                System.arraycopy(names, 0, n, 0, names.length);
+                names = n;
+            }
+
+            names[h] = ga;
+        }
+
+        /** @return the game for a handle, or null if it isn't known */
+        public String get(int h)
+        {
+            return ((h >= 0) && (h < names.length)) ? names[h] : null;
+        }
+
+        /** forget all handles */
+        public void clear()
+        {
+            names = new String[16];
+        }
+    }
+
+    /** reads the fields of one binary frame */
+    private static final class Reader
+    {
+        final byte[] b;
+        int pos;
+        final int end;
+
+        Reader(byte[] b, int off, int len)
+        {
+            this.b = b;
+            pos = off;
+            end = off + len;
+        }
+
+        int u8()
+        {
+            if (pos >= end)
+            {
+                throw new IllegalArgumentException("binary frame too short");
+            }
+
+            return b[pos++] & 0xFF;
+        }
+
+        int varint()
+        {
+            int v = 0;
+
+            for (int shift = 0; shift < 35; shift += 7)
+            {
+                int c = u8();
+                v |= (c & 0x7F) << shift;
+
+                if ((c & 0x80) == 0)
+                {
+                    return (v >>> 1) ^ -(v & 1);
+                }
+            }
+
+            throw new IllegalArgumentException("bad varint");
+        }
+
+        String utf()
+        {
+            int n = varint();
+
+            if ((n < 0) || (n > (end - pos)))
+            {
+                throw new IllegalArgumentException("bad string length " + n);
+            }
+
+            String s = SOCMessageEncoder.decode(b, pos, n);
+            pos += n;
+
+            return s;
+        }
+    }
+
+    private SOCBinaryCodec() {}
+
+    /**
+     * @param b  a frame's data, without the 2-byte length
+     * @param off  where the data starts
+     * @param len  how many bytes it has
+     * @return true if it's a binary frame, not a text message
+     */
+    public static boolean isBinary(byte[] b, int off, int len)
+    {
+        return (len > 0) && (b[off] == MARK);
+    }
+
+    /** @return true if v fits in an unsigned byte */
+    private static boolean isByte(int v)
+    {
+        return (v >= 0) && (v <= 0xFF);
+    }
+
+    /**
+     * Encode a message as a binary frame.
+     *
+     * @param mes  the message
+     * @param h  the handle of the message's game
+     * @return the 2-byte length and the frame, or null if the message
+     *         must be sent as text
+     */
+    public static byte[] encode(SOCMessage mes, int h)
+    {
+        int type = mes.getType();
+        int pn;
+
+        switch (type)
+        {
+        case SOCMessage.PLAYERELEMENT:
+            pn = ((SOCPlayerElement) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.CLEAROFFER:
+            pn = ((SOCClearOffer) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.RESOURCECOUNT:
+            pn = ((SOCResourceCount) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.SETPLAYEDDEVCARD:
+            pn = ((SOCSetPlayedDevCard) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.TURN:
+            pn = ((SOCTurn) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.CLEARTRADEMSG:
+            pn = ((SOCClearTradeMsg) mes).getPlayerNumber();
+            break;
+
+        case SOCMessage.PUTPIECE:
+            SOCPutPiece pp = (SOCPutPiece) mes;
+
+            if (!isByte(pp.getPieceType()) || !isByte(pp.getCoordinates()))
+            {
+                return null;
+            }
+
+            pn = pp.getPlayerNumber();
+            break;
+
+        case SOCMessage.GAMETEXTMSG:
+        case SOCMessage.GAMESTATE:
+        case SOCMessage.DICERESULT:
+            pn = 0;  // none
+            break;
+
+        default:
+            return null;
+        }
+
+        if (!isByte(pn) || (h < 0))
+        {
+            return null;
+        }
+
+        SOCMessageEncoder e = SOCMessageEncoder.get().appendByte(MARK).appendVarint(type - 1000).appendVarint(h);
+
+        switch (type)
+        {
+        case SOCMessage.PLAYERELEMENT:
+            SOCPlayerElement pe = (SOCPlayerElement) mes;
+            e.appendByte(pn).appendVarint(pe.getAction()).appendVarint(pe.getElementType()).appendVarint(pe.getValue());
+            break;
+
+        case SOCMessage.GAMETEXTMSG:
+            SOCGameTextMsg gt = (SOCGameTextMsg) mes;
+            e.appendUTF(gt.getNickname()).appendUTF(gt.getText());
+            break;
+
+        case SOCMessage.GAMESTATE:
+            e.appendVarint(((SOCGameState) mes).getState());
+            break;
+
+        case SOCMessage.RESOURCECOUNT:
+            e.appendByte(pn).appendVarint(((SOCResourceCount) mes).getCount());
+            break;
+
+        case SOCMessage.SETPLAYEDDEVCARD:
+            e.appendByte(pn).appendByte(((SOCSetPlayedDevCard) mes).hasPlayedDevCard() ? 1 : 0);
+            break;
+
+        case SOCMessage.DICERESULT:
+            e.appendVarint(((SOCDiceResult) mes).getResult());
+            break;
+
+        case SOCMessage.PUTPIECE:
+            SOCPutPiece pp = (SOCPutPiece) mes;
+            e.appendByte(pn).appendByte(pp.getPieceType()).appendByte(pp.getCoordinates());
+            break;
+
+        default:  // CLEAROFFER, TURN, CLEARTRADEMSG
+            e.appendByte(pn);
+        }
+
+        return e.toBytes();
+    }
+
+    /**
+     * Decode a binary frame.
+     *
+     * @param b  the frame's data, without the 2-byte length
+     * @param off  where the data starts
+     * @param len  how many bytes it has
+     * @param handles  the games the handles stand for
+     * @return the message
+     * @throws IllegalArgumentException if the frame is garbled, or
+     *         its game handle isn't known
+     */
+    public static SOCMessage decode(byte[] b, int off, int len, Handles handles)
+    {
+        Reader r = new Reader(b, off, len);
+
+        if (r.u8() != MARK)
+        {
+            throw new IllegalArgumentException("not a binary frame");
+        }
+
+        int type = 1000 + r.varint();
+        int h = r.varint();
+        String ga = handles.get(h);
+
+        if (ga == null)
+        {
+            throw new IllegalArgumentException("unknown game handle " + h);
+        }
+
+        int pn;
+
+        switch (type)
+        {
+        case SOCMessage.PLAYERELEMENT:
+            pn = r.u8();
+            int ac = r.varint();
+            int et = r.varint();
+
+            return new SOCPlayerElement(ga, pn, ac, et, r.varint());
+
+        case SOCMessage.GAMETEXTMSG:
+            String nn = r.utf();
+
+            return new SOCGameTextMsg(ga, nn, r.utf());
+
+        case SOCMessage.CLEAROFFER:
+            return new SOCClearOffer(ga, r.u8());
+
+        case SOCMessage.GAMESTATE:
+            return new SOCGameState(ga, r.varint());
+
+        case SOCMessage.RESOURCECOUNT:
+            pn = r.u8();
+
+            return new SOCResourceCount(ga, pn, r.varint());
+
+        case SOCMessage.SETPLAYEDDEVCARD:
+            pn = r.u8();
+
+            return new SOCSetPlayedDevCard(ga, pn, r.u8() != 0);
+
+        case SOCMessage.TURN:
+            return new SOCTurn(ga, r.u8());
+
+        case SOCMessage.DICERESULT:
+            return new SOCDiceResult(ga, r.varint());
+
+        case SOCMessage.CLEARTRADEMSG:
+            return new SOCClearTradeMsg(ga, r.u8());
+
+        case SOCMessage.PUTPIECE:
+            pn = r.u8();
+            int pt = r.u8();
+
+            return new SOCPutPiece(ga, pn, pt, r.u8());
+
+        default:
+            throw new IllegalArgumentException("no binary form for message type " + type);
+        }
+    }
+}
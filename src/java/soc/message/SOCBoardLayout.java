@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message contains the board layout information.
@@ -141,32 +139,31 @@ public class SOCBoardLayout extends SOCMessage
     /**
      * Parse the command String into a BoardLayout message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a BoardLayout message
      */
-    public static SOCBoardLayout parseDataStr(String s)
+    public static SOCBoardLayout parseDataStr(SOCMessageCursor c)
     {
         String ga; // game name
         int[] hl = new int[37]; // hex layout
         int[] nl = new int[37]; // number layout
         int rh; // robber hex
-        StringTokenizer st = new StringTokenizer(s, sep2);
 
         try
         {
-            ga = st.nextToken();
+            ga = c.next();
 
             for (int i = 0; i < 37; i++)
             {
-                hl[i] = Integer.parseInt(st.nextToken());
+                hl[i] = c.nextInt();
             }
 
             for (int i = 0; i < 37; i++)
             {
-                nl[i] = Integer.parseInt(st.nextToken());
+                nl[i] = c.nextInt();
             }
 
-            rh = Integer.parseInt(st.nextToken());
+            rh = c.nextInt();
         }
         catch (Exception e)
         {
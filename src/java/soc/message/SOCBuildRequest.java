@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says which player the current player wants to
@@ -95,20 +93,18 @@ public class SOCBuildRequest extends SOCMessage
     /**
      * Parse the command String into a BuildRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a BuildRequest message, or null of the data is garbled
      */
-    public static SOCBuildRequest parseDataStr(String s)
+    public static SOCBuildRequest parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pt; // the type of piece to build
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pt = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pt = c.nextInt();
         }
         catch (Exception e)
         {
@@ -77,12 +77,12 @@ public class SOCBuyCardRequest extends SOCMessage
     /**
      * Parse the command String into a BuyCardRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a BuyCardRequest message, or null of the data is garbled
      */
-    public static SOCBuyCardRequest parseDataStr(String s)
+    public static SOCBuyCardRequest parseDataStr(SOCMessageCursor c)
     {
-        return new SOCBuyCardRequest(s);
+        return new SOCBuyCardRequest(c.rest());
     }
 
     /**
@@ -0,0 +1,130 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+
+/**
+ * This message tells what optional protocol features a client can use;
+ * the server answers with the features both sides support, and sends
+ * that way from then on.  Servers that don't know this message ignore it,
+ * so the client goes on with the plain text protocol.
+ *<P>
+ * The server may treat a game's messages on another thread than this
+ * one, so a client should wait for the answer before joining a game.
+ */
+public class SOCCapabilities extends SOCMessage
+{
+    /**
+     * The connection takes binary frames for the most common game
+     * messages, as written by {@link SOCBinaryCodec}.
+     */
+    public static final int BINARY = 1;
+
+    /**
+     * The connection takes a {@link SOCGameSnapshot} when joining a game,
+     * instead of the game's state as many small messages.
+     */
+    public static final int SNAPSHOT = 2;
+
+    /**
+     * The connection has a session the client can resume if the
+     * connection drops, with a {@link SOCResume} message.
+     */
+    public static final int RESUME = 4;
+
+    /**
+     * Everything the server sends after its answer is compressed, as one
+     * zlib stream flushed after each batch of messages; the client reads
+     * it through a java.util.zip.InflaterInputStream.
+     */
+    public static final int DEFLATE = 8;
+
+    /**
+     * The feature bits
+     */
+    private int bits;
+
+    /**
+     * Create a Capabilities message.
+     *
+     * @param b  the feature bits
+     */
+    public SOCCapabilities(int b)
+    {
+        messageType = CAPABILITIES;
+        bits = b;
+    }
+
+    /**
+     * @return the feature bits
+     */
+    public int getBits()
+    {
+        return bits;
+    }
+
+    /**
+     * CAPABILITIES sep bits
+     *
+     * @return the command String
+     */
+    public String toCmd()
+    {
+        return toCmd(bits);
+    }
+
+    /**
+     * CAPABILITIES sep bits
+     *
+     * @param b  the feature bits
+     * @return the command String
+     */
+    public static String toCmd(int b)
+    {
+        return CAPABILITIES + sep + b;
+    }
+
+    /**
+     * Parse the command String into a Capabilities message
+     *
+     * @param c   the data to parse
+     * @return    a Capabilities message, or null of the data is garbled
+     */
+    public static SOCCapabilities parseDataStr(SOCMessageCursor c)
+    {
+        try
+        {
+            return new SOCCapabilities(c.nextInt());
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return a human readable form of the message
+     */
+    public String toString()
+    {
+        return "SOCCapabilities:bits=" + bits;
+    }
+}
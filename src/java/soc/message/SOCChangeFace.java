@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says that a player is changing the
@@ -95,6 +93,16 @@ public class SOCChangeFace extends SOCMessage
         return toCmd(game, playerNumber, faceId);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, faceId);
+    }
+
     /**
      * CHANGEFACE sep game sep2 playerNumber sep2 faceId
      *
@@ -108,25 +116,38 @@ public class SOCChangeFace extends SOCMessage
         return CHANGEFACE + sep + ga + sep2 + pn + sep2 + id;
     }
 
+    /**
+     * CHANGEFACE sep game sep2 playerNumber sep2 faceId
+     *
+     * @param ga  the name of the game
+     * @param pn  the number of the changing player
+     * @param id  the id of the face image
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn, int id)
+    {
+        return SOCMessageEncoder.get().append(CHANGEFACE).append(sep).append(ga)
+            .append(sep2).append(pn)
+            .append(sep2).append(id).toBytes();
+    }
+
     /**
      * Parse the command String into a ChangeFace message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a ChangeFace message, or null of the data is garbled
      */
-    public static SOCChangeFace parseDataStr(String s)
+    public static SOCChangeFace parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pn; // the number of the changing player
         int id; // the id of the face image
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            id = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
+            id = c.nextInt();
         }
         catch (Exception e)
         {
@@ -21,7 +21,6 @@
 package soc.message;
 
 import java.util.Enumeration;
-import java.util.StringTokenizer;
 import java.util.Vector;
 
 
@@ -94,19 +93,18 @@ public class SOCChannels extends SOCMessage
     /**
      * Parse the command String into a Channels message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Channels message, or null of the data is garbled
      */
-    public static SOCChannels parseDataStr(String s)
+    public static SOCChannels parseDataStr(SOCMessageCursor c)
     {
         Vector cl = new Vector();
-        StringTokenizer st = new StringTokenizer(s, sep2);
 
         try
         {
-            while (st.hasMoreTokens())
+            while (c.hasNext())
             {
-                cl.addElement(st.nextToken());
+                cl.addElement(c.next());
             }
         }
         catch (Exception e)
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says which player the current player wants to
@@ -95,20 +93,18 @@ public class SOCChoosePlayer extends SOCMessage
     /**
      * Parse the command String into a ChoosePlayer message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a ChoosePlayer message, or null of the data is garbled
      */
-    public static SOCChoosePlayer parseDataStr(String s)
+    public static SOCChoosePlayer parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int ch; // the number of the chosen player 
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            ch = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            ch = c.nextInt();
         }
         catch (Exception e)
         {
@@ -22,8 +22,6 @@ package soc.message;
 
 import soc.game.SOCGame;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message asks a player to choose a player to
@@ -106,26 +104,24 @@ public class SOCChoosePlayerRequest extends SOCMessage
     /**
      * Parse the command String into a ChoosePlayerRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a ChoosePlayerRequest message, or null of the data is garbled
      */
-    public static SOCChoosePlayerRequest parseDataStr(String s)
+    public static SOCChoosePlayerRequest parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         boolean[] ch; // the choices
         ch = new boolean[SOCGame.MAXPLAYERS];
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
+            ga = c.next();
 
             int count = 0;
 
-            while (st.hasMoreTokens())
+            while (c.hasNext())
             {
-                ch[count] = (Boolean.valueOf(st.nextToken())).booleanValue();
+                ch[count] = c.nextBoolean();
                 count++;
             }
         }
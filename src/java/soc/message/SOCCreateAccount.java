@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message is a request to create an account
@@ -147,24 +145,22 @@ public class SOCCreateAccount extends SOCMessage
     /**
      * Parse the command String into a CreateAccount message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a CreateAccount message, or null of the data is garbled
      */
-    public static SOCCreateAccount parseDataStr(String s)
+    public static SOCCreateAccount parseDataStr(SOCMessageCursor c)
     {
         String nn;
         String pw;
         String hn;
         String em;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            nn = st.nextToken();
-            pw = st.nextToken();
-            hn = st.nextToken();
-            em = st.nextToken();
+            nn = c.next();
+            pw = c.next();
+            hn = c.next();
+            em = c.next();
 
             if (em.equals(NULLEMAIL))
             {
@@ -76,12 +76,12 @@ public class SOCDeleteChannel extends SOCMessage
     /**
      * Parse the command String into a DeleteChannel message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Delete Channel message
      */
-    public static SOCDeleteChannel parseDataStr(String s)
+    public static SOCDeleteChannel parseDataStr(SOCMessageCursor c)
     {
-        return new SOCDeleteChannel(s);
+        return new SOCDeleteChannel(c.rest());
     }
 
     /**
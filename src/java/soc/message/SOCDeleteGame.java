@@ -76,12 +76,12 @@ public class SOCDeleteGame extends SOCMessage
     /**
      * Parse the command String into a DeleteGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Delete Game message
      */
-    public static SOCDeleteGame parseDataStr(String s)
+    public static SOCDeleteGame parseDataStr(SOCMessageCursor c)
     {
-        return new SOCDeleteGame(s);
+        return new SOCDeleteGame(c.rest());
     }
 
     /**
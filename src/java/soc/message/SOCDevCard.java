@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player is drawing or playing
@@ -118,6 +116,16 @@ public class SOCDevCard extends SOCMessage
         return toCmd(game, playerNumber, actionType, cardType);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, actionType, cardType);
+    }
+
     /**
      * DEVCARD sep game sep2 playerNumber sep2 actionType sep2 cardType
      *
@@ -132,27 +140,42 @@ public class SOCDevCard extends SOCMessage
         return DEVCARD + sep + ga + sep2 + pn + sep2 + ac + sep2 + ct;
     }
 
+    /**
+     * DEVCARD sep game sep2 playerNumber sep2 actionType sep2 cardType
+     *
+     * @param ga  the game name
+     * @param pn  the player number
+     * @param ac  the type of action
+     * @param ct  the type of card
+     * @return    the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn, int ac, int ct)
+    {
+        return SOCMessageEncoder.get().append(DEVCARD).append(sep).append(ga)
+            .append(sep2).append(pn)
+            .append(sep2).append(ac)
+            .append(sep2).append(ct).toBytes();
+    }
+
     /**
      * Parse the command String into a DevCard message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a DevCard message, or null of the data is garbled
      */
-    public static SOCDevCard parseDataStr(String s)
+    public static SOCDevCard parseDataStr(SOCMessageCursor c)
     {
         String ga;
         int pn;
         int ac;
         int ct;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            ac = Integer.parseInt(st.nextToken());
-            ct = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
+            ac = c.nextInt();
+            ct = c.nextInt();
         }
         catch (Exception e)
         {
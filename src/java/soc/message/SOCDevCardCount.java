@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says how many development cards are in the deck.
@@ -79,6 +77,16 @@ public class SOCDevCardCount extends SOCMessage
         return toCmd(game, numDevCards);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, numDevCards);
+    }
+
     /**
      * DEVCARDCOUNT sep game sep2 numDevCards
      *
@@ -91,23 +99,34 @@ public class SOCDevCardCount extends SOCMessage
         return DEVCARDCOUNT + sep + ga + sep2 + nd;
     }
 
+    /**
+     * DEVCARDCOUNT sep game sep2 numDevCards
+     *
+     * @param ga  the name of the game
+     * @param nd  the number of dev cards
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int nd)
+    {
+        return SOCMessageEncoder.get().append(DEVCARDCOUNT).append(sep).append(ga)
+            .append(sep2).append(nd).toBytes();
+    }
+
     /**
      * Parse the command String into a DevCardCount message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a DevCardCount message, or null of the data is garbled
      */
-    public static SOCDevCardCount parseDataStr(String s)
+    public static SOCDevCardCount parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int nd; // the number of dev cards 
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            nd = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            nd = c.nextInt();
         }
         catch (Exception e)
         {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message reports what was rolled on the dice
@@ -79,6 +77,16 @@ public class SOCDiceResult extends SOCMessage
         return toCmd(game, result);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, result);
+    }
+
     /**
      * DICERESULT sep game sep2 result
      *
@@ -91,23 +99,33 @@ public class SOCDiceResult extends SOCMessage
         return DICERESULT + sep + ga + sep2 + dr;
     }
 
+    /**
+     * DICERESULT sep game sep2 result
+     *
+     * @param ga  the name of the game
+     * @param dr  the dice result
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int dr)
+    {
+        return SOCMessageEncoder.get().append(DICERESULT).append(sep).append(ga).append(sep2).append(dr).toBytes();
+    }
+
     /**
      * Parse the command String into a DiceResult message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a DiceResult message, or null of the data is garbled
      */
-    public static SOCDiceResult parseDataStr(String s)
+    public static SOCDiceResult parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int dr; // the dice result
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            dr = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            dr = c.nextInt();
         }
         catch (Exception e)
         {
@@ -23,8 +23,6 @@ package soc.message;
 import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player is discarding
@@ -148,10 +146,10 @@ public class SOCDiscard extends SOCMessage
     /**
      * Parse the command String into a Discard message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Discard message, or null of the data is garbled
      */
-    public static SOCDiscard parseDataStr(String s)
+    public static SOCDiscard parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int cl; // the ammount of clay being discarded  
@@ -161,17 +159,15 @@ public class SOCDiscard extends SOCMessage
         int wo; // the ammount of wood being discarded  
         int uk; // the ammount of unknown resources being discarded  
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            cl = Integer.parseInt(st.nextToken());
-            or = Integer.parseInt(st.nextToken());
-            sh = Integer.parseInt(st.nextToken());
-            wh = Integer.parseInt(st.nextToken());
-            wo = Integer.parseInt(st.nextToken());
-            uk = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            cl = c.nextInt();
+            or = c.nextInt();
+            sh = c.nextInt();
+            wh = c.nextInt();
+            wo = c.nextInt();
+            uk = c.nextInt();
         }
         catch (Exception e)
         {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message requests that the player discard a particular number of cards
@@ -94,20 +92,18 @@ public class SOCDiscardRequest extends SOCMessage
     /**
      * Parse the command String into a DiscardRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a DiscardRequest message, or null of the data is garbled
      */
-    public static SOCDiscardRequest parseDataStr(String s)
+    public static SOCDiscardRequest parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int nd; // the number of discards
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            nd = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            nd = c.nextInt();
         }
         catch (Exception e)
         {
@@ -23,8 +23,6 @@ package soc.message;
 import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says which resources the player picked
@@ -102,25 +100,23 @@ public class SOCDiscoveryPick extends SOCMessage
     /**
      * Parse the command String into a DiscoveryPick message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a DiscoveryPick message, or null of the data is garbled
      */
-    public static SOCDiscoveryPick parseDataStr(String s)
+    public static SOCDiscoveryPick parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         SOCResourceSet rs; // the chosen resources
 
         rs = new SOCResourceSet();
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
+            ga = c.next();
 
             for (int i = SOCResourceConstants.MIN; i < SOCResourceConstants.MAX; i++)
             {
-                rs.setAmount(Integer.parseInt(st.nextToken()), i);
+                rs.setAmount(c.nextInt(), i);
             }
         }
         catch (Exception e)
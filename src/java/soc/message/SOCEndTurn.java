@@ -76,12 +76,12 @@ public class SOCEndTurn extends SOCMessage
     /**
      * Parse the command String into a EndTurn message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a EndTurn message, or null of the data is garbled
      */
-    public static SOCEndTurn parseDataStr(String s)
+    public static SOCEndTurn parseDataStr(SOCMessageCursor c)
     {
-        return new SOCEndTurn(s);
+        return new SOCEndTurn(c.rest());
     }
 
     /**
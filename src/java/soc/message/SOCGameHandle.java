@@ -0,0 +1,123 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+
+/**
+ * This message tells a client using binary frames the number that
+ * stands for a game's name in them.  It is sent when the client joins
+ * the game, before any binary frame for that game.
+ */
+public class SOCGameHandle extends SOCMessage
+{
+    /**
+     * Name of game
+     */
+    private String game;
+
+    /**
+     * The game's number
+     */
+    private int handle;
+
+    /**
+     * Create a GameHandle message.
+     *
+     * @param ga  the name of the game
+     * @param h   the game's number
+     */
+    public SOCGameHandle(String ga, int h)
+    {
+        messageType = GAMEHANDLE;
+        game = ga;
+        handle = h;
+    }
+
+    /**
+     * @return the name of the game
+     */
+    public String getGame()
+    {
+        return game;
+    }
+
+    /**
+     * @return the game's number
+     */
+    public int getHandle()
+    {
+        return handle;
+    }
+
+    /**
+     * GAMEHANDLE sep game sep2 handle
+     *
+     * @return the command string
+     */
+    public String toCmd()
+    {
+        return toCmd(game, handle);
+    }
+
+    /**
+     * GAMEHANDLE sep game sep2 handle
+     *
+     * @param ga  the name of the game
+     * @param h   the game's number
+     * @return the command string
+     */
+    public static String toCmd(String ga, int h)
+    {
+        return GAMEHANDLE + sep + ga + sep2 + h;
+    }
+
+    /**
+     * Parse the command String into a GameHandle message
+     *
+     * @param c   the data to parse
+     * @return    a GameHandle message, or null of the data is garbled
+     */
+    public static SOCGameHandle parseDataStr(SOCMessageCursor c)
+    {
+        String ga;
+        int h;
+
+        try
+        {
+            ga = c.next();
+            h = c.nextInt();
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+
+        return new SOCGameHandle(ga, h);
+    }
+
+    /**
+     * @return a human readable form of the message
+     */
+    public String toString()
+    {
+        return "SOCGameHandle:game=" + game + "|handle=" + handle;
+    }
+}
@@ -23,7 +23,6 @@ package soc.message;
 import soc.server.genericServer.Connection;
 
 import java.util.Enumeration;
-import java.util.StringTokenizer;
 import java.util.Vector;
 
 
@@ -112,22 +111,21 @@ public class SOCGameMembers extends SOCMessage
     /**
      * Parse the command String into a Members message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Members message, or null of the data is garbled
      */
-    public static SOCGameMembers parseDataStr(String s)
+    public static SOCGameMembers parseDataStr(SOCMessageCursor c)
     {
         String ga;
         Vector ml = new Vector();
-        StringTokenizer st = new StringTokenizer(s, sep2);
 
         try
         {
-            ga = st.nextToken();
+            ga = c.next();
 
-            while (st.hasMoreTokens())
+            while (c.hasNext())
             {
-                ml.addElement(st.nextToken());
+                ml.addElement(c.next());
             }
         }
         catch (Exception e)
@@ -0,0 +1,431 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+import java.util.Enumeration;
+import java.util.Vector;
+
+import soc.game.SOCBoard;
+import soc.game.SOCDevCardConstants;
+import soc.game.SOCGame;
+import soc.game.SOCPlayer;
+import soc.game.SOCPlayingPiece;
+
+
+/**
+ * Everything a client joining a game is told about it, in one message:
+ * who sits where, the board, each player's pieces and counts, and the
+ * game's turn and state.  Sent instead of the run of SITDOWN, PUTPIECE,
+ * PLAYERELEMENT and other messages that would otherwise follow
+ * JOINGAMEAUTH, to clients that asked for it with
+ * {@link SOCCapabilities#SNAPSHOT}.  The members of the game are still
+ * sent separately, as a GAMEMEMBERS message.
+ *<P>
+ * A client applies it with {@link #toMessages()}, which gives the same
+ * messages the server would have sent one by one, in the same order.
+ *<P>
+ * The first field after the game is the snapshot's version; a client
+ * ignores snapshots of a version it doesn't know.
+ */
+public class SOCGameSnapshot extends SOCMessage
+{
+    /**
+     * the version of the snapshot format this class reads and writes
+     */
+    public static final int VERSION = 1;
+
+    /** seat flag: the seat is locked */
+    private static final int LOCKED = 1;
+
+    /** seat flag: someone is sitting in the seat */
+    private static final int SITTING = 2;
+
+    /** seat flag: the player is a robot */
+    private static final int ROBOT = 4;
+
+    /** seat flag: the seat has a player's pieces and counts */
+    private static final int KNOWN = 8;
+
+    /** what a joining client is told about one seat */
+    private static final class Seat
+    {
+        int flags;
+        String name;
+        int face;
+        int lastSettlement;
+        int roads;
+        int settlements;
+        int cities;
+        int resources;
+        int knights;
+        int devCards;
+
+        /** type and coordinates of each piece */
+        int[] pieces;
+
+        /** nodes where the player could build a settlement */
+        int[] potentialSettlements;
+    }
+
+    /**
+     * Name of game
+     */
+    private String game;
+
+    private int gameState;
+    private int currentPlayer;
+    private int firstPlayer;
+    private int devCardsLeft;
+    private int currentDice;
+    private int longestRoad;
+    private int largestArmy;
+    private int[] hexLayout;
+    private int[] numberLayout;
+    private int robberHex;
+    private Seat[] seats;
+
+    /**
+     * Create a GameSnapshot message of a game as it is now.
+     *
+     * @param ga  the game
+     */
+    public SOCGameSnapshot(SOCGame ga)
+    {
+        this(ga.getName());
+
+        gameState = ga.getGameState();
+        currentPlayer = ga.getCurrentPlayerNumber();
+        firstPlayer = ga.getFirstPlayer();
+        devCardsLeft = ga.getNumDevCards();
+        currentDice = ga.getCurrentDice();
+
+        SOCPlayer pl = ga.getPlayerWithLongestRoad();
+        longestRoad = (pl != null) ? pl.getPlayerNumber() : -1;
+        pl = ga.getPlayerWithLargestArmy();
+        largestArmy = (pl != null) ? pl.getPlayerNumber() : -1;
+
+        SOCBoard board = ga.getBoard();
+        hexLayout = board.getHexLayout().clone();
+        numberLayout = board.getNumberLayout().clone();
+        robberHex = board.getRobberHex();
+
+        for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
+        {
+            pl = ga.getPlayer(i);
+
+            Seat s = new Seat();
+            seats[i] = s;
+
+            if (ga.isSeatLocked(i))
+            {
+                s.flags |= LOCKED;
+            }
+
+            if (pl.getName() == null)
+            {
+                continue;
+            }
+
+            s.flags |= KNOWN;
+
+            if (!ga.isSeatVacant(i))
+            {
+                s.flags |= SITTING;
+                s.name = pl.getName();
+
+                if (pl.isRobot())
+                {
+                    s.flags |= ROBOT;
+                }
+            }
+
+            s.face = pl.getFaceId();
+            s.lastSettlement = pl.getLastSettlementCoord();
+            s.roads = pl.getNumPieces(SOCPlayingPiece.ROAD);
+            s.settlements = pl.getNumPieces(SOCPlayingPiece.SETTLEMENT);
+            s.cities = pl.getNumPieces(SOCPlayingPiece.CITY);
+            s.resources = pl.getResources().getTotal();
+            s.knights = pl.getNumKnights();
+            s.devCards = pl.getDevCards().getTotal();
+
+            Vector<SOCPlayingPiece> pieces = pl.getPieces();
+            s.pieces = new int[2 * pieces.size()];
+
+            int k = 0;
+
+            for (Enumeration<SOCPlayingPiece> e = pieces.elements(); e.hasMoreElements();)
+            {
+                SOCPlayingPiece piece = e.nextElement();
+                s.pieces[k++] = piece.getType();
+                s.pieces[k++] = piece.getCoordinates();
+            }
+
+            int n = 0;
+            int[] ps = new int[0xDC - 0x23 + 1];
+
+            for (int j = 0x23; j <= 0xDC; j++)
+            {
+                if (pl.isPotentialSettlement(j))
+                {
+                    ps[n++] = j;
+                }
+            }
+
+            s.potentialSettlements = new int[n];
+            System.arraycopy(ps, 0, s.potentialSettlements, 0, n);
+        }
+    }
+
+    /** make an empty snapshot, for parseDataStr */
+    private SOCGameSnapshot(String ga)
+    {
+        messageType = GAMESNAPSHOT;
+        game = ga;
+        seats = new Seat[SOCGame.MAXPLAYERS];
+    }
+
+    /**
+     * @return the name of the game
+     */
+    public String getGame()
+    {
+        return game;
+    }
+
+    /**
+     * The messages this snapshot stands for, in the order the server
+     * would have sent them to a joining client.
+     *
+     * @return a Vector of SOCMessages
+     */
+    public Vector<SOCMessage> toMessages()
+    {
+        Vector<SOCMessage> v = new Vector<SOCMessage>();
+
+        for (int i = 0; i < seats.length; i++)
+        {
+            Seat s = seats[i];
+
+            if ((s.flags & SITTING) != 0)
+            {
+                v.addElement(new SOCSitDown(game, s.name, i, (s.flags & ROBOT) != 0));
+            }
+
+            v.addElement(new SOCSetSeatLock(game, i, (s.flags & LOCKED) != 0));
+        }
+
+        v.addElement(new SOCBoardLayout(game, hexLayout, numberLayout, robberHex));
+
+        for (int i = 0; i < seats.length; i++)
+        {
+            Seat s = seats[i];
+
+            if ((s.flags & KNOWN) == 0)
+            {
+                continue;
+            }
+
+            for (int k = 0; k < s.pieces.length; k += 2)
+            {
+                if (s.pieces[k] == SOCPlayingPiece.CITY)
+                {
+                    v.addElement(new SOCPutPiece(game, i, SOCPlayingPiece.SETTLEMENT, s.pieces[k + 1]));
+                }
+
+                v.addElement(new SOCPutPiece(game, i, s.pieces[k], s.pieces[k + 1]));
+            }
+
+            v.addElement(new SOCPotentialSettlements(game, i, s.potentialSettlements));
+            v.addElement(new SOCLastSettlement(game, i, s.lastSettlement));
+            v.addElement(new SOCPlayerElement(game, i, SOCPlayerElement.SET, SOCPlayerElement.ROADS, s.roads));
+            v.addElement(new SOCPlayerElement(game, i, SOCPlayerElement.SET, SOCPlayerElement.SETTLEMENTS, s.settlements));
+            v.addElement(new SOCPlayerElement(game, i, SOCPlayerElement.SET, SOCPlayerElement.CITIES, s.cities));
+            v.addElement(new SOCPlayerElement(game, i, SOCPlayerElement.SET, SOCPlayerElement.UNKNOWN, s.resources));
+            v.addElement(new SOCPlayerElement(game, i, SOCPlayerElement.SET, SOCPlayerElement.NUMKNIGHTS, s.knights));
+
+            for (int j = 0; j < s.devCards; j++)
+            {
+                v.addElement(new SOCDevCard(game, i, SOCDevCard.ADDOLD, SOCDevCardConstants.UNKNOWN));
+            }
+
+            v.addElement(new SOCFirstPlayer(game, firstPlayer));
+            v.addElement(new SOCDevCardCount(game, devCardsLeft));
+            v.addElement(new SOCChangeFace(game, i, s.face));
+            v.addElement(new SOCDiceResult(game, currentDice));
+        }
+
+        v.addElement(new SOCLongestRoad(game, longestRoad));
+        v.addElement(new SOCLargestArmy(game, largestArmy));
+        v.addElement(new SOCSetTurn(game, currentPlayer));
+        v.addElement(new SOCGameState(game, gameState));
+
+        return v;
+    }
+
+    /** append a count, then the ints */
+    private static void appendInts(StringBuffer sb, int[] a)
+    {
+        sb.append(sep2).append(a.length);
+
+        for (int i = 0; i < a.length; i++)
+        {
+            sb.append(sep2).append(a[i]);
+        }
+    }
+
+    /** read a count, then that many ints */
+    private static int[] nextInts(SOCMessageCursor c)
+    {
+        int n = c.nextInt();
+
+        if ((n < 0) || (n > 0xFFFF))
+        {
+            throw new IllegalArgumentException("bad count " + n);
+        }
+
+        int[] a = new int[n];
+
+        for (int i = 0; i < n; i++)
+        {
+            a[i] = c.nextInt();
+        }
+
+        return a;
+    }
+
+    /**
+     * GAMESNAPSHOT sep game sep2 version sep2 gameState sep2 currentPlayer
+     * sep2 firstPlayer sep2 devCardsLeft sep2 currentDice sep2 longestRoad
+     * sep2 largestArmy sep2 robberHex sep2 hexLayout sep2 numberLayout,
+     * then for each seat: flags [sep2 name] and, if the seat is known,
+     * face, lastSettlement, roads, settlements, cities, resources,
+     * knights, devCards, pieces, potentialSettlements.  Each array is
+     * its length, then its elements.
+     *
+     * @return the command string
+     */
+    public String toCmd()
+    {
+        StringBuffer sb = new StringBuffer(512);
+        sb.append(GAMESNAPSHOT).append(sep).append(game).append(sep2).append(VERSION);
+        sb.append(sep2).append(gameState).append(sep2).append(currentPlayer);
+        sb.append(sep2).append(firstPlayer).append(sep2).append(devCardsLeft);
+        sb.append(sep2).append(currentDice).append(sep2).append(longestRoad);
+        sb.append(sep2).append(largestArmy).append(sep2).append(robberHex);
+        appendInts(sb, hexLayout);
+        appendInts(sb, numberLayout);
+
+        for (int i = 0; i < seats.length; i++)
+        {
+            Seat s = seats[i];
+            sb.append(sep2).append(s.flags);
+
+            if ((s.flags & SITTING) != 0)
+            {
+                sb.append(sep2).append(s.name);
+            }
+
+            if ((s.flags & KNOWN) != 0)
+            {
+                sb.append(sep2).append(s.face).append(sep2).append(s.lastSettlement);
+                sb.append(sep2).append(s.roads).append(sep2).append(s.settlements);
+                sb.append(sep2).append(s.cities).append(sep2).append(s.resources);
+                sb.append(sep2).append(s.knights).append(sep2).append(s.devCards);
+                appendInts(sb, s.pieces);
+                appendInts(sb, s.potentialSettlements);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Parse the command String into a GameSnapshot message
+     *
+     * @param c   the data to parse
+     * @return    a GameSnapshot message, or null if the data is garbled
+     *            or of a version this class doesn't know
+     */
+    public static SOCGameSnapshot parseDataStr(SOCMessageCursor c)
+    {
+        try
+        {
+            SOCGameSnapshot m = new SOCGameSnapshot(c.next());
+
+            if (c.nextInt() != VERSION)
+            {
+                return null;
+            }
+
+            m.gameState = c.nextInt();
+            m.currentPlayer = c.nextInt();
+            m.firstPlayer = c.nextInt();
+            m.devCardsLeft = c.nextInt();
+            m.currentDice = c.nextInt();
+            m.longestRoad = c.nextInt();
+            m.largestArmy = c.nextInt();
+            m.robberHex = c.nextInt();
+            m.hexLayout = nextInts(c);
+            m.numberLayout = nextInts(c);
+
+            for (int i = 0; i < m.seats.length; i++)
+            {
+                Seat s = new Seat();
+                m.seats[i] = s;
+                s.flags = c.nextInt();
+
+                if ((s.flags & SITTING) != 0)
+                {
+                    s.name = c.next();
+                }
+
+                if ((s.flags & KNOWN) != 0)
+                {
+                    s.face = c.nextInt();
+                    s.lastSettlement = c.nextInt();
+                    s.roads = c.nextInt();
+                    s.settlements = c.nextInt();
+                    s.cities = c.nextInt();
+                    s.resources = c.nextInt();
+                    s.knights = c.nextInt();
+                    s.devCards = c.nextInt();
+                    s.pieces = nextInts(c);
+                    s.potentialSettlements = nextInts(c);
+                }
+            }
+
+            return m;
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return a human readable form of the message
+     */
+    public String toString()
+    {
+        return "SOCGameSnapshot:game=" + game + "|version=" + VERSION + "|gameState=" + gameState
+            + "|currentPlayer=" + currentPlayer;
+    }
+}
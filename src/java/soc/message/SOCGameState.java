@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message communicates the current state of the game
@@ -79,6 +77,16 @@ public class SOCGameState extends SOCMessage
         return toCmd(game, state);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, state);
+    }
+
     /**
      * GAMESTATE sep game sep2 state
      *
@@ -91,23 +99,33 @@ public class SOCGameState extends SOCMessage
         return GAMESTATE + sep + ga + sep2 + gs;
     }
 
+    /**
+     * GAMESTATE sep game sep2 state
+     *
+     * @param ga  the game name
+     * @param gs  the game state
+     * @return    the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int gs)
+    {
+        return SOCMessageEncoder.get().append(GAMESTATE).append(sep).append(ga).append(sep2).append(gs).toBytes();
+    }
+
     /**
      * Parse the command String into a GameState message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a GameState message, or null of the data is garbled
      */
-    public static SOCGameState parseDataStr(String s)
+    public static SOCGameState parseDataStr(SOCMessageCursor c)
     {
         String ga;
         int gs;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            gs = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            gs = c.nextInt();
         }
         catch (Exception e)
         {
@@ -22,8 +22,6 @@ package soc.message;
 
 import soc.game.SOCGame;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message contains the scores for the people at a game.
@@ -122,10 +120,10 @@ public class SOCGameStats extends SOCMessage
     /**
      * Parse the command String into a GameStatss message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a GameStats message, or null of the data is garbled
      */
-    public static SOCGameStats parseDataStr(String s)
+    public static SOCGameStats parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int[] sc; // the scores
@@ -134,20 +132,18 @@ public class SOCGameStats extends SOCMessage
         sc = new int[SOCGame.MAXPLAYERS];
         rb = new boolean[SOCGame.MAXPLAYERS];
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
+            ga = c.next();
 
             for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
             {
-                sc[i] = Integer.parseInt(st.nextToken());
+                sc[i] = c.nextInt();
             }
 
             for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
             {
-                rb[i] = (Boolean.valueOf(st.nextToken())).booleanValue();
+                rb[i] = c.nextBoolean();
             }
         }
         catch (Exception e)
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message contains a text message for a SoC game
@@ -99,6 +97,16 @@ public class SOCGameTextMsg extends SOCMessage
         return toCmd(game, nickname, text);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, nickname, text);
+    }
+
     /**
      * GAMETEXTMSG sep game sep2 nickname sep2 text
      *
@@ -112,25 +120,38 @@ public class SOCGameTextMsg extends SOCMessage
         return GAMETEXTMSG + sep + ga + sep2 + nn + sep2 + tm;
     }
 
+    /**
+     * GAMETEXTMSG sep game sep2 nickname sep2 text
+     *
+     * @param ga  the game name
+     * @param nn  the nickname
+     * @param tm  the text message
+     * @return    the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, String nn, String tm)
+    {
+        return SOCMessageEncoder.get().append(GAMETEXTMSG).append(sep).append(ga)
+            .append(sep2).append(nn)
+            .append(sep2).append(tm).toBytes();
+    }
+
     /**
      * Parse the command String into a GameTextMsg message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a GameTextMsg message, or null of the data is garbled
      */
-    public static SOCGameTextMsg parseDataStr(String s)
+    public static SOCGameTextMsg parseDataStr(SOCMessageCursor c)
     {
         String ga;
         String nn;
         String tm;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            nn = st.nextToken();
-            tm = st.nextToken();
+            ga = c.next(sep2.charAt(0));
+            nn = c.next(sep2.charAt(0));
+            tm = c.next(sep2.charAt(0));
         }
         catch (Exception e)
         {
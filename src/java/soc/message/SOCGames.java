@@ -21,7 +21,6 @@
 package soc.message;
 
 import java.util.Enumeration;
-import java.util.StringTokenizer;
 import java.util.Vector;
 
 
@@ -94,19 +93,18 @@ public class SOCGames extends SOCMessage
     /**
      * Parse the command String into a Games message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Games message, or null of the data is garbled
      */
-    public static SOCGames parseDataStr(String s)
+    public static SOCGames parseDataStr(SOCMessageCursor c)
     {
         Vector ga = new Vector();
-        StringTokenizer st = new StringTokenizer(s, sep2);
 
         try
         {
-            while (st.hasMoreTokens())
+            while (c.hasNext())
             {
-                ga.addElement(st.nextToken());
+                ga.addElement(c.next());
             }
         }
         catch (Exception e)
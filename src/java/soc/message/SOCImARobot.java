@@ -76,12 +76,12 @@ public class SOCImARobot extends SOCMessage
     /**
      * Parse the command String into a ImARobot message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a ImARobot message, or null of the data is garbled
      */
-    public static SOCImARobot parseDataStr(String s)
+    public static SOCImARobot parseDataStr(SOCMessageCursor c)
     {
-        return new SOCImARobot(s);
+        return new SOCImARobot(c.rest());
     }
 
     /**
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that someone is joining a channel
@@ -138,24 +136,22 @@ public class SOCJoin extends SOCMessage
     /**
      * Parse the command String into a Join message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Join message, or null of the data is garbled
      */
-    public static SOCJoin parseDataStr(String s)
+    public static SOCJoin parseDataStr(SOCMessageCursor c)
     {
         String nn;
         String pw;
         String hn;
         String ch;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            nn = st.nextToken();
-            pw = st.nextToken();
-            hn = st.nextToken();
-            ch = st.nextToken();
+            nn = c.next();
+            pw = c.next();
+            hn = c.next();
+            ch = c.next();
 
             if (pw.equals(NULLPASS))
             {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that the server has authorized
@@ -95,20 +93,18 @@ public class SOCJoinAuth extends SOCMessage
     /**
      * Parse the command String into a Join message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Join message, or null of the data is garbled
      */
-    public static SOCJoinAuth parseDataStr(String s)
+    public static SOCJoinAuth parseDataStr(SOCMessageCursor c)
     {
         String nn;
         String ch;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            nn = st.nextToken();
-            ch = st.nextToken();
+            nn = c.next();
+            ch = c.next();
         }
         catch (Exception e)
         {
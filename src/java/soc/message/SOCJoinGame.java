@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that someone is joining a game
@@ -138,24 +136,22 @@ public class SOCJoinGame extends SOCMessage
     /**
      * Parse the command String into a JoinGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a JoinGame message, or null of the data is garbled
      */
-    public static SOCJoinGame parseDataStr(String s)
+    public static SOCJoinGame parseDataStr(SOCMessageCursor c)
     {
         String nn;
         String pw;
         String hn;
         String ga;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            nn = st.nextToken();
-            pw = st.nextToken();
-            hn = st.nextToken();
-            ga = st.nextToken();
+            nn = c.next();
+            pw = c.next();
+            hn = c.next();
+            ga = c.next();
 
             if (pw.equals(NULLPASS))
             {
@@ -77,12 +77,12 @@ public class SOCJoinGameAuth extends SOCMessage
     /**
      * Parse the command String into a JoinGameAuth message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a JoinGameAuth message, or null of the data is garbled
      */
-    public static SOCJoinGameAuth parseDataStr(String s)
+    public static SOCJoinGameAuth parseDataStr(SOCMessageCursor c)
     {
-        return new SOCJoinGameAuth(s);
+        return new SOCJoinGameAuth(c.rest());
     }
 
     /**
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that the server has authorized
@@ -94,20 +92,18 @@ public class SOCJoinGameRequest extends SOCMessage
     /**
      * Parse the command String into a JoinGameRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a JoinGameRequest message, or null of the data is garbled
      */
-    public static SOCJoinGameRequest parseDataStr(String s)
+    public static SOCJoinGameRequest parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pn; // the seat number
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
         }
         catch (Exception e)
         {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message tells the client where the last settlement was places
@@ -97,6 +95,16 @@ public class SOCLastSettlement extends SOCMessage
         return toCmd(game, playerNumber, coordinates);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, coordinates);
+    }
+
     /**
      * Command string:
      *
@@ -112,25 +120,40 @@ public class SOCLastSettlement extends SOCMessage
         return LASTSETTLEMENT + sep + na + sep2 + pn + sep2 + co;
     }
 
+    /**
+     * Command string:
+     *
+     * LASTSETTLEMENT sep game sep2 playerNumber sep2 coordinates
+     *
+     * @param na  the name of the game
+     * @param pn  player number
+     * @param co  coordinates
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String na, int pn, int co)
+    {
+        return SOCMessageEncoder.get().append(LASTSETTLEMENT).append(sep).append(na)
+            .append(sep2).append(pn)
+            .append(sep2).append(co).toBytes();
+    }
+
     /**
      * parse the command string into a MoveRobber message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a TextMsg message, or null of the data is garbled
      */
-    public static SOCLastSettlement parseDataStr(String s)
+    public static SOCLastSettlement parseDataStr(SOCMessageCursor c)
     {
         String na; // name of the game
         int pn; // player number
         int co; // coordinates
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            na = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            co = Integer.parseInt(st.nextToken());
+            na = c.next();
+            pn = c.nextInt();
+            co = c.nextInt();
         }
         catch (Exception e)
         {
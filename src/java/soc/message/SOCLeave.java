@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that someone is leaveing a channel
@@ -110,22 +108,20 @@ public class SOCLeave extends SOCMessage
     /**
      * Parse the command String into a Leave message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Leave message, or null of the data is garbled
      */
-    public static SOCLeave parseDataStr(String s)
+    public static SOCLeave parseDataStr(SOCMessageCursor c)
     {
         String nn;
         String hn;
         String ch;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            nn = st.nextToken();
-            hn = st.nextToken();
-            ch = st.nextToken();
+            nn = c.next();
+            hn = c.next();
+            ch = c.next();
         }
         catch (Exception e)
         {
@@ -50,10 +50,10 @@ public class SOCLeaveAll extends SOCMessage
     /**
      * Parse the command String into a LeaveAll message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a LeaveAll message
      */
-    public static SOCLeaveAll parseDataStr(String s)
+    public static SOCLeaveAll parseDataStr(SOCMessageCursor c)
     {
         return new SOCLeaveAll();
     }
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that someone is leaveing a game
@@ -110,22 +108,20 @@ public class SOCLeaveGame extends SOCMessage
     /**
      * Parse the command String into a Leave message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a LeaveGame message, or null of the data is garbled
      */
-    public static SOCLeaveGame parseDataStr(String s)
+    public static SOCLeaveGame parseDataStr(SOCMessageCursor c)
     {
         String nn; // nickname
         String hn; // host name
         String ga; // game name
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            nn = st.nextToken();
-            hn = st.nextToken();
-            ga = st.nextToken();
+            nn = c.next();
+            hn = c.next();
+            ga = c.next();
         }
         catch (Exception e)
         {
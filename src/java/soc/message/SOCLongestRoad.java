@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says which player has longest road
@@ -79,6 +77,16 @@ public class SOCLongestRoad extends SOCMessage
         return toCmd(game, playerNumber);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber);
+    }
+
     /**
      * LONGESTROAD sep game sep2 playerNumber
      *
@@ -91,23 +99,34 @@ public class SOCLongestRoad extends SOCMessage
         return LONGESTROAD + sep + ga + sep2 + pn;
     }
 
+    /**
+     * LONGESTROAD sep game sep2 playerNumber
+     *
+     * @param ga  the name of the game
+     * @param pn  the seat number
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn)
+    {
+        return SOCMessageEncoder.get().append(LONGESTROAD).append(sep).append(ga)
+            .append(sep2).append(pn).toBytes();
+    }
+
     /**
      * Parse the command String into a StartGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a StartGame message, or null of the data is garbled
      */
-    public static SOCLongestRoad parseDataStr(String s)
+    public static SOCLongestRoad parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pn; // the seat number
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
         }
         catch (Exception e)
         {
@@ -27,8 +27,6 @@ import soc.game.SOCResourceConstants;
 import soc.game.SOCResourceSet;
 import soc.game.SOCTradeOffer;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player wants to trade with other players
@@ -122,10 +120,10 @@ public class SOCMakeOffer extends SOCMessage
     /**
      * Parse the command String into a MakeOffer message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a MakeOffer message, or null if the data is garbled
      */
-    public static SOCMakeOffer parseDataStr(String s)
+    public static SOCMakeOffer parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int from; // the number of the offering player
@@ -137,18 +135,16 @@ public class SOCMakeOffer extends SOCMessage
         give = new SOCResourceSet();
         get = new SOCResourceSet();
 
-	      D.ebugPrintln("MakeOffer.parseDataStr - "+s);
-
-        StringTokenizer st = new StringTokenizer(s, sep2);
+	      D.ebugPrintln("MakeOffer.parseDataStr - "+c);
 
         try
         {
-            ga = st.nextToken();
-            from = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            from = c.nextInt();
 
             for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
             {
-                to[i] = (Boolean.valueOf(st.nextToken())).booleanValue();
+                to[i] = c.nextBoolean();
             }
 
             /**
@@ -156,12 +152,12 @@ public class SOCMakeOffer extends SOCMessage
              */
             for (int i = SOCResourceConstants.MIN; i < SOCResourceConstants.MAX; i++)
             {
-                give.setAmount(Integer.parseInt(st.nextToken()), i);
+                give.setAmount(c.nextInt(), i);
             }
 
             for (int i = SOCResourceConstants.MIN; i < SOCResourceConstants.MAX; i++)
             {
-                get.setAmount(Integer.parseInt(st.nextToken()), i);
+                get.setAmount(c.nextInt(), i);
             }
         }
         catch (Exception e)
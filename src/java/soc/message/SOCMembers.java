@@ -23,7 +23,6 @@ package soc.message;
 import soc.server.genericServer.Connection;
 
 import java.util.Enumeration;
-import java.util.StringTokenizer;
 import java.util.Vector;
 
 
@@ -112,22 +111,21 @@ public class SOCMembers extends SOCMessage
     /**
      * Parse the command String into a Members message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a Members message, or null of the data is garbled
      */
-    public static SOCMembers parseDataStr(String s)
+    public static SOCMembers parseDataStr(SOCMessageCursor c)
     {
         String ch;
         Vector ml = new Vector();
-        StringTokenizer st = new StringTokenizer(s, sep2);
 
         try
         {
-            ch = st.nextToken();
+            ch = c.next();
 
-            while (st.hasMoreTokens())
+            while (c.hasNext())
             {
-                ml.addElement(st.nextToken());
+                ml.addElement(c.next());
             }
         }
         catch (Exception e)
@@ -22,9 +22,6 @@ package soc.message;
 
 import java.io.Serializable;
 
-import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
-
 
 /**
  * Messages used for chatting on a channel
@@ -106,6 +103,10 @@ public abstract class SOCMessage implements Serializable, Cloneable
     public static final int STATUSMESSAGE = 1069;
     public static final int CREATEACCOUNT = 1070;
     public static final int UPDATEROBOTPARAMS = 1071;
+    public static final int CAPABILITIES = 1072;
+    public static final int GAMEHANDLE = 1073;
+    public static final int GAMESNAPSHOT = 1074;
+    public static final int RESUME = 1075;
     public static final int SERVERPING = 9999;
 
     /**
@@ -114,6 +115,109 @@ public abstract class SOCMessage implements Serializable, Cloneable
     protected static final String sep = "|";
     protected static String sep2 = ",";
 
+    /**
+     * Turns the data of one type of message into the message; usually
+     * that message class's parseDataStr.
+     */
+    public interface Parser
+    {
+        /**
+         * @param c  the data, after the type
+         * @return the message, or null if the data is garbled
+         */
+        SOCMessage parse(SOCMessageCursor c);
+    }
+
+    /** the Parser for each message type; see {@link #registerParser} */
+    private static final SOCTypeTable<Parser> parsers = new SOCTypeTable<Parser>(false);
+
+    static
+    {
+        parsers.put(NEWCHANNEL, SOCNewChannel::parseDataStr);
+        parsers.put(MEMBERS, SOCMembers::parseDataStr);
+        parsers.put(CHANNELS, SOCChannels::parseDataStr);
+        parsers.put(JOIN, SOCJoin::parseDataStr);
+        parsers.put(TEXTMSG, SOCTextMsg::parseDataStr);
+        parsers.put(LEAVE, SOCLeave::parseDataStr);
+        parsers.put(DELETECHANNEL, SOCDeleteChannel::parseDataStr);
+        parsers.put(LEAVEALL, SOCLeaveAll::parseDataStr);
+        parsers.put(PUTPIECE, SOCPutPiece::parseDataStr);
+        parsers.put(GAMETEXTMSG, SOCGameTextMsg::parseDataStr);
+        parsers.put(LEAVEGAME, SOCLeaveGame::parseDataStr);
+        parsers.put(SITDOWN, SOCSitDown::parseDataStr);
+        parsers.put(JOINGAME, SOCJoinGame::parseDataStr);
+        parsers.put(BOARDLAYOUT, SOCBoardLayout::parseDataStr);
+        parsers.put(GAMES, SOCGames::parseDataStr);
+        parsers.put(DELETEGAME, SOCDeleteGame::parseDataStr);
+        parsers.put(NEWGAME, SOCNewGame::parseDataStr);
+        parsers.put(GAMEMEMBERS, SOCGameMembers::parseDataStr);
+        parsers.put(STARTGAME, SOCStartGame::parseDataStr);
+        parsers.put(JOINAUTH, SOCJoinAuth::parseDataStr);
+        parsers.put(JOINGAMEAUTH, SOCJoinGameAuth::parseDataStr);
+        parsers.put(IMAROBOT, SOCImARobot::parseDataStr);
+        parsers.put(JOINGAMEREQUEST, SOCJoinGameRequest::parseDataStr);
+        parsers.put(PLAYERELEMENT, SOCPlayerElement::parseDataStr);
+        parsers.put(GAMESTATE, SOCGameState::parseDataStr);
+        parsers.put(TURN, SOCTurn::parseDataStr);
+        parsers.put(SETUPDONE, SOCSetupDone::parseDataStr);
+        parsers.put(DICERESULT, SOCDiceResult::parseDataStr);
+        parsers.put(DISCARDREQUEST, SOCDiscardRequest::parseDataStr);
+        parsers.put(ROLLDICEREQUEST, SOCRollDiceRequest::parseDataStr);
+        parsers.put(ROLLDICE, SOCRollDice::parseDataStr);
+        parsers.put(ENDTURN, SOCEndTurn::parseDataStr);
+        parsers.put(DISCARD, SOCDiscard::parseDataStr);
+        parsers.put(MOVEROBBER, SOCMoveRobber::parseDataStr);
+        parsers.put(CHOOSEPLAYER, SOCChoosePlayer::parseDataStr);
+        parsers.put(CHOOSEPLAYERREQUEST, SOCChoosePlayerRequest::parseDataStr);
+        parsers.put(REJECTOFFER, SOCRejectOffer::parseDataStr);
+        parsers.put(CLEAROFFER, SOCClearOffer::parseDataStr);
+        parsers.put(ACCEPTOFFER, SOCAcceptOffer::parseDataStr);
+        parsers.put(BANKTRADE, SOCBankTrade::parseDataStr);
+        parsers.put(MAKEOFFER, SOCMakeOffer::parseDataStr);
+        parsers.put(CLEARTRADEMSG, SOCClearTradeMsg::parseDataStr);
+        parsers.put(BUILDREQUEST, SOCBuildRequest::parseDataStr);
+        parsers.put(CANCELBUILDREQUEST, SOCCancelBuildRequest::parseDataStr);
+        parsers.put(BUYCARDREQUEST, SOCBuyCardRequest::parseDataStr);
+        parsers.put(DEVCARD, SOCDevCard::parseDataStr);
+        parsers.put(DEVCARDCOUNT, SOCDevCardCount::parseDataStr);
+        parsers.put(SETPLAYEDDEVCARD, SOCSetPlayedDevCard::parseDataStr);
+        parsers.put(PLAYDEVCARDREQUEST, SOCPlayDevCardRequest::parseDataStr);
+        parsers.put(DISCOVERYPICK, SOCDiscoveryPick::parseDataStr);
+        parsers.put(MONOPOLYPICK, SOCMonopolyPick::parseDataStr);
+        parsers.put(FIRSTPLAYER, SOCFirstPlayer::parseDataStr);
+        parsers.put(SETTURN, SOCSetTurn::parseDataStr);
+        parsers.put(ROBOTDISMISS, SOCRobotDismiss::parseDataStr);
+        parsers.put(POTENTIALSETTLEMENTS, SOCPotentialSettlements::parseDataStr);
+        parsers.put(CHANGEFACE, SOCChangeFace::parseDataStr);
+        parsers.put(REJECTCONNECTION, SOCRejectConnection::parseDataStr);
+        parsers.put(LASTSETTLEMENT, SOCLastSettlement::parseDataStr);
+        parsers.put(GAMESTATS, SOCGameStats::parseDataStr);
+        parsers.put(BCASTTEXTMSG, SOCBCastTextMsg::parseDataStr);
+        parsers.put(RESOURCECOUNT, SOCResourceCount::parseDataStr);
+        parsers.put(ADMINPING, SOCAdminPing::parseDataStr);
+        parsers.put(ADMINRESET, SOCAdminReset::parseDataStr);
+        parsers.put(LONGESTROAD, SOCLongestRoad::parseDataStr);
+        parsers.put(LARGESTARMY, SOCLargestArmy::parseDataStr);
+        parsers.put(SETSEATLOCK, SOCSetSeatLock::parseDataStr);
+        parsers.put(STATUSMESSAGE, SOCStatusMessage::parseDataStr);
+        parsers.put(CREATEACCOUNT, SOCCreateAccount::parseDataStr);
+        parsers.put(UPDATEROBOTPARAMS, SOCUpdateRobotParams::parseDataStr);
+        parsers.put(CAPABILITIES, SOCCapabilities::parseDataStr);
+        parsers.put(GAMEHANDLE, SOCGameHandle::parseDataStr);
+        parsers.put(GAMESNAPSHOT, SOCGameSnapshot::parseDataStr);
+        parsers.put(RESUME, SOCResume::parseDataStr);
+        parsers.put(SERVERPING, SOCServerPing::parseDataStr);
+    }
+
+    /** each thread's cursor for {@link #toMsg(String)} */
+    private static final ThreadLocal<SOCMessageCursor> cursors = new ThreadLocal<SOCMessageCursor>()
+    {
+        protected SOCMessageCursor initialValue()
+        {
+            return new SOCMessageCursor();
+        }
+    };
+
     /**
      * An ID identifying the type of message
      */
@@ -134,6 +238,33 @@ public abstract class SOCMessage implements Serializable, Cloneable
      */
     public abstract String toCmd();
 
+    /**
+     * The bytes sent for this message: toCmd() as writeUTF would write it.
+     * The messages sent most often override this to encode straight into
+     * a {@link SOCMessageEncoder}, without making the String first.
+     *
+     * @return the length and modified UTF-8 of the command
+     */
+    public byte[] toBytes()
+    {
+        return SOCMessageEncoder.get().append(toCmd()).toBytes();
+    }
+
+    /**
+     * Say how to parse a type of message.  New message types are added
+     * here and in the handler tables of whoever treats them, with no
+     * switch statements to change.
+     *
+     * @param type  the message type
+     * @param p  its parser, or null to stop parsing it
+     * @throws IllegalArgumentException if the type has no room in a
+     *         {@link SOCTypeTable}
+     */
+    public static void registerParser(int type, Parser p)
+    {
+        parsers.put(type, p);
+    }
+
     /**
      * Convert a string into a SOCMessage
      * The string is in the form of "<ID> sep <message name> sep <message data>"
@@ -143,251 +274,29 @@ public abstract class SOCMessage implements Serializable, Cloneable
      */
     public static SOCMessage toMsg(String s)
     {
+        SOCMessageCursor data = cursors.get();
+
         try
         {
-            StringTokenizer st = new StringTokenizer(s, sep);
+            data.reset(s, 0, s.length());
 
             /**
              * get the id that identifies the type of message
              */
-            int msgId = Integer.parseInt(st.nextToken());
+            int msgId = data.nextInt('|');
 
             /**
-             * get the rest of the data
+             * the rest is the data
              */
-            String data;
-
-            try
-            {
-                data = st.nextToken();
-            }
-            catch (NoSuchElementException e)
-            {
-                data = "";
-            }
+            data.enterField('|');
 
             // System.out.format("msgId=%d data=%s\n", msgId, data);
             /**
              * convert the data part and create the message
              */
-            switch (msgId)
-            {
-            case NULLMESSAGE:
-                return null;
-
-            case NEWCHANNEL:
-                return SOCNewChannel.parseDataStr(data);
-
-            case MEMBERS:
-                return SOCMembers.parseDataStr(data);
-
-            case CHANNELS:
-                return SOCChannels.parseDataStr(data);
-
-            case JOIN:
-                return SOCJoin.parseDataStr(data);
-
-            case TEXTMSG:
-                return SOCTextMsg.parseDataStr(data);
-
-            case LEAVE:
-                return SOCLeave.parseDataStr(data);
-
-            case DELETECHANNEL:
-                return SOCDeleteChannel.parseDataStr(data);
-
-            case LEAVEALL:
-                return SOCLeaveAll.parseDataStr(data);
-
-            case PUTPIECE:
-                return SOCPutPiece.parseDataStr(data);
-
-            case GAMETEXTMSG:
-                return SOCGameTextMsg.parseDataStr(data);
-
-            case LEAVEGAME:
-                return SOCLeaveGame.parseDataStr(data);
-
-            case SITDOWN:
-                return SOCSitDown.parseDataStr(data);
-
-            case JOINGAME:
-                return SOCJoinGame.parseDataStr(data);
-
-            case BOARDLAYOUT:
-                return SOCBoardLayout.parseDataStr(data);
-
-            case GAMES:
-                return SOCGames.parseDataStr(data);
-
-            case DELETEGAME:
-                return SOCDeleteGame.parseDataStr(data);
-
-            case NEWGAME:
-                return SOCNewGame.parseDataStr(data);
-
-            case GAMEMEMBERS:
-                return SOCGameMembers.parseDataStr(data);
-
-            case STARTGAME:
-                return SOCStartGame.parseDataStr(data);
-
-            case JOINAUTH:
-                return SOCJoinAuth.parseDataStr(data);
-
-            case JOINGAMEAUTH:
-                return SOCJoinGameAuth.parseDataStr(data);
-
-            case IMAROBOT:
-                return SOCImARobot.parseDataStr(data);
+            Parser p = parsers.get(msgId);
 
-            case JOINGAMEREQUEST:
-                return SOCJoinGameRequest.parseDataStr(data);
-
-            case PLAYERELEMENT:
-                return SOCPlayerElement.parseDataStr(data);
-
-            case GAMESTATE:
-                return SOCGameState.parseDataStr(data);
-
-            case TURN:
-                return SOCTurn.parseDataStr(data);
-
-            case SETUPDONE:
-                return SOCSetupDone.parseDataStr(data);
-
-            case DICERESULT:
-                return SOCDiceResult.parseDataStr(data);
-
-            case DISCARDREQUEST:
-                return SOCDiscardRequest.parseDataStr(data);
-
-            case ROLLDICEREQUEST:
-                return SOCRollDiceRequest.parseDataStr(data);
-
-            case ROLLDICE:
-                return SOCRollDice.parseDataStr(data);
-
-            case ENDTURN:
-                return SOCEndTurn.parseDataStr(data);
-
-            case DISCARD:
-                return SOCDiscard.parseDataStr(data);
-
-            case MOVEROBBER:
-                return SOCMoveRobber.parseDataStr(data);
-
-            case CHOOSEPLAYER:
-                return SOCChoosePlayer.parseDataStr(data);
-
-            case CHOOSEPLAYERREQUEST:
-                return SOCChoosePlayerRequest.parseDataStr(data);
-
-            case REJECTOFFER:
-                return SOCRejectOffer.parseDataStr(data);
-
-            case CLEAROFFER:
-                return SOCClearOffer.parseDataStr(data);
-
-            case ACCEPTOFFER:
-                return SOCAcceptOffer.parseDataStr(data);
-
-            case BANKTRADE:
-                return SOCBankTrade.parseDataStr(data);
-
-            case MAKEOFFER:
-                return SOCMakeOffer.parseDataStr(data);
-
-            case CLEARTRADEMSG:
-                return SOCClearTradeMsg.parseDataStr(data);
-
-            case BUILDREQUEST:
-                return SOCBuildRequest.parseDataStr(data);
-
-            case CANCELBUILDREQUEST:
-                return SOCCancelBuildRequest.parseDataStr(data);
-
-            case BUYCARDREQUEST:
-                return SOCBuyCardRequest.parseDataStr(data);
-
-            case DEVCARD:
-                return SOCDevCard.parseDataStr(data);
-
-            case DEVCARDCOUNT:
-                return SOCDevCardCount.parseDataStr(data);
-
-            case SETPLAYEDDEVCARD:
-                return SOCSetPlayedDevCard.parseDataStr(data);
-
-            case PLAYDEVCARDREQUEST:
-                return SOCPlayDevCardRequest.parseDataStr(data);
-
-            case DISCOVERYPICK:
-                return SOCDiscoveryPick.parseDataStr(data);
-
-            case MONOPOLYPICK:
-                return SOCMonopolyPick.parseDataStr(data);
-
-            case FIRSTPLAYER:
-                return SOCFirstPlayer.parseDataStr(data);
-
-            case SETTURN:
-                return SOCSetTurn.parseDataStr(data);
-
-            case ROBOTDISMISS:
-                return SOCRobotDismiss.parseDataStr(data);
-
-            case POTENTIALSETTLEMENTS:
-                return SOCPotentialSettlements.parseDataStr(data);
-
-            case CHANGEFACE:
-                return SOCChangeFace.parseDataStr(data);
-
-            case REJECTCONNECTION:
-                return SOCRejectConnection.parseDataStr(data);
-
-            case LASTSETTLEMENT:
-                return SOCLastSettlement.parseDataStr(data);
-
-            case GAMESTATS:
-                return SOCGameStats.parseDataStr(data);
-
-            case BCASTTEXTMSG:
-                return SOCBCastTextMsg.parseDataStr(data);
-
-            case RESOURCECOUNT:
-                return SOCResourceCount.parseDataStr(data);
-
-            case ADMINPING:
-                return SOCAdminPing.parseDataStr(data);
-
-            case ADMINRESET:
-                return SOCAdminReset.parseDataStr(data);
-
-            case LONGESTROAD:
-                return SOCLongestRoad.parseDataStr(data);
-
-            case LARGESTARMY:
-                return SOCLargestArmy.parseDataStr(data);
-
-            case SETSEATLOCK:
-                return SOCSetSeatLock.parseDataStr(data);
-
-            case STATUSMESSAGE:
-                return SOCStatusMessage.parseDataStr(data);
-
-            case CREATEACCOUNT:
-                return SOCCreateAccount.parseDataStr(data);
-
-            case UPDATEROBOTPARAMS:
-                return SOCUpdateRobotParams.parseDataStr(data);
-
-            case SERVERPING:
-                return SOCServerPing.parseDataStr(data);
-
-            default:
-                return null;
-            }
+            return (p != null) ? p.parse(data) : null;
         }
         catch (Exception e)
         {
@@ -396,5 +305,9 @@ public abstract class SOCMessage implements Serializable, Cloneable
 
             return null;
         }
+        finally
+        {
+            data.reset(null, 0, 0);
+        }
     }
 }
@@ -0,0 +1,312 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+import java.util.NoSuchElementException;
+
+
+/**
+ * Reads the fields of a message's data in place, for the parseDataStr
+ * methods.  Numbers and booleans are read straight from the message
+ * String, without cutting out a substring for each field; only String
+ * fields (game names, nicknames, text) become new Strings.
+ *<P>
+ * Fields are split the way StringTokenizer split them: runs of the
+ * separator count as one, and separators at the start are skipped.
+ * The separator is ',' unless one is given.
+ *<P>
+ * {@link SOCMessage#toMsg(String)} keeps one cursor per thread and
+ * points it at each message in turn, so a cursor must not be kept
+ * after parseDataStr returns.
+ */
+public final class SOCMessageCursor
+{
+    /** the message */
+    private String str;
+
+    /** where the next field starts (or the separators before it) */
+    private int pos;
+
+    /** where the data ends */
+    private int end;
+
+    /** make a cursor for {@link #reset} */
+    SOCMessageCursor() {}
+
+    /**
+     * Make a cursor to read the fields of a message's data.
+     *
+     * @param data  the data, without the message type
+     */
+    public SOCMessageCursor(String data)
+    {
+        reset(data, 0, data.length());
+    }
+
+    /**
+     * Point the cursor at part of a String.
+     *
+     * @param s  the String
+     * @param from  where to start reading
+     * @param to  where the data ends
+     * @return this cursor
+     */
+    SOCMessageCursor reset(String s, int from, int to)
+    {
+        str = s;
+        pos = from;
+        end = to;
+
+        return this;
+    }
+
+    /**
+     * Narrow the cursor to the next field, so that reading continues
+     * inside it.  Used by toMsg to go from the type to the data.
+     *
+     * @param sep  the separator ending the field
+     */
+    void enterField(char sep)
+    {
+        skip(sep);
+
+        int e = str.indexOf(sep, pos);
+
+        if ((e >= 0) && (e < end))
+        {
+            end = e;
+        }
+    }
+
+    /** step over separators */
+    private void skip(char sep)
+    {
+        while ((pos < end) && (str.charAt(pos) == sep))
+        {
+            pos++;
+        }
+    }
+
+    /** @return where the field starting at pos ends */
+    private int fieldEnd(char sep)
+    {
+        int e = pos;
+
+        while ((e < end) && (str.charAt(e) != sep))
+        {
+            e++;
+        }
+
+        return e;
+    }
+
+    /** @return true if there is another ','-separated field */
+    public boolean hasNext()
+    {
+        return hasNext(',');
+    }
+
+    /** @return true if there is another field */
+    public boolean hasNext(char sep)
+    {
+        skip(sep);
+
+        return pos < end;
+    }
+
+    /**
+     * @return the number of ','-separated fields left, without reading them
+     */
+    public int countFields()
+    {
+        int n = 0;
+        boolean inField = false;
+
+        for (int i = pos; i < end; i++)
+        {
+            boolean isSep = (str.charAt(i) == ',');
+
+            if (!isSep && !inField)
+            {
+                n++;
+            }
+
+            inField = !isSep;
+        }
+
+        return n;
+    }
+
+    /**
+     * @return the next ','-separated field
+     * @throws NoSuchElementException if there are no more fields
+     */
+    public String next()
+    {
+        return next(',');
+    }
+
+    /**
+     * @param sep  the separator
+     * @return the next field
+     * @throws NoSuchElementException if there are no more fields
+     */
+    public String next(char sep)
+    {
+        skip(sep);
+
+        if (pos >= end)
+        {
+            throw new NoSuchElementException();
+        }
+
+        int start = pos;
+        pos = fieldEnd(sep);
+
+        return str.substring(start, pos);
+    }
+
+    /**
+     * Read the next ','-separated field as an int, as Integer.parseInt would.
+     *
+     * @return the number
+     * @throws NoSuchElementException if there are no more fields
+     * @throws NumberFormatException if the field isn't a number
+     */
+    public int nextInt()
+    {
+        return nextInt(',');
+    }
+
+    /**
+     * Read the next field as an int, as Integer.parseInt would.
+     *
+     * @param sep  the separator
+     * @return the number
+     * @throws NoSuchElementException if there are no more fields
+     * @throws NumberFormatException if the field isn't a number
+     */
+    public int nextInt(char sep)
+    {
+        skip(sep);
+
+        if (pos >= end)
+        {
+            throw new NoSuchElementException();
+        }
+
+        int start = pos;
+        int e = fieldEnd(sep);
+        int i = start;
+        boolean negative = false;
+        char ch = str.charAt(i);
+
+        if ((ch == '-') || (ch == '+'))
+        {
+            negative = (ch == '-');
+            i++;
+        }
+
+        if (i == e)
+        {
+            throw badNumber(start, e);
+        }
+
+        long n = 0;
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+
+        for (; i < e; i++)
+        {
+            int d = str.charAt(i) - '0';
+
+            if ((d < 0) || (d > 9))
+            {
+                throw badNumber(start, e);
+            }
+
+            n = (n * 10) + d;
+
+            if (n > limit)
+            {
+                throw badNumber(start, e);
+            }
+        }
+
+        pos = e;
+
+        return (int) (negative ? -n : n);
+    }
+
+    private NumberFormatException badNumber(int start, int e)
+    {
+        return new NumberFormatException("For input string: \"" + str.substring(start, e) + "\"");
+    }
+
+    /**
+     * Read the next ','-separated field as a boolean, as Boolean.valueOf would:
+     * true if it's "true", ignoring case.
+     *
+     * @throws NoSuchElementException if there are no more fields
+     */
+    public boolean nextBoolean()
+    {
+        skip(',');
+
+        if (pos >= end)
+        {
+            throw new NoSuchElementException();
+        }
+
+        int start = pos;
+        pos = fieldEnd(',');
+
+        return ((pos - start) == 4) && str.regionMatches(true, start, "true", 0, 4);
+    }
+
+    /**
+     * Read the next ','-separated field as a float.  Rare enough that it
+     * isn't done in place.
+     *
+     * @throws NoSuchElementException if there are no more fields
+     * @throws NumberFormatException if the field isn't a number
+     */
+    public float nextFloat()
+    {
+        return Float.parseFloat(next());
+    }
+
+    /**
+     * @return the rest of the data, as one field
+     */
+    public String rest()
+    {
+        String s = str.substring(pos, end);  // the whole string isn't copied
+        pos = end;
+
+        return s;
+    }
+
+    /** @return the data not yet read */
+    public String toString()
+    {
+        return str.substring(pos, end);
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+
+/**
+ * Builds a message straight into the bytes that go on the wire: the
+ * 2-byte length and modified UTF-8 that DataOutputStream.writeUTF would
+ * send for the message's toCmd() String.  Numbers are written digit by
+ * digit and Strings char by char, so no Strings are made on the way.
+ *<P>
+ * Each thread has one encoder, got with {@link #get()}; its buffer is
+ * kept and grown as needed, so the only allocation for a message is the
+ * array {@link #toBytes()} returns.  See {@link SOCMessage#toBytes()}.
+ */
+public final class SOCMessageEncoder
+{
+    /** each thread's encoder */
+    private static final ThreadLocal<SOCMessageEncoder> encoders = new ThreadLocal<SOCMessageEncoder>()
+    {
+        protected SOCMessageEncoder initialValue()
+        {
+            return new SOCMessageEncoder();
+        }
+    };
+
+    /** the length, then the message so far */
+    private byte[] buf = new byte[256];
+
+    /** bytes used in buf */
+    private int len;
+
+    private SOCMessageEncoder() {}
+
+    /**
+     * @return this thread's encoder, emptied
+     */
+    public static SOCMessageEncoder get()
+    {
+        SOCMessageEncoder e = encoders.get();
+        e.len = 2;  // room for the length
+
+        return e;
+    }
+
+    /** make room for n more bytes */
+    private void ensure(int n)
+    {
+        if ((len + n) > buf.length)
+        {
+            byte[] b = new byte[Math.max(buf.length * 2, len + n)];
+            System.arraycopy(buf, 0, b, 0, len);
+            buf = b;
+        }
+    }
+
+    /** append a String, as modified UTF-8 */
+    public SOCMessageEncoder append(String s)
+    {
+        ensure(s.length() * 3);
+        len = encode(s, buf, len);
+
+        return this;
+    }
+
+    /** append an int, in decimal */
+    public SOCMessageEncoder append(int i)
+    {
+        ensure(11);
+
+        if (i < 0)
+        {
+            if (i == Integer.MIN_VALUE)
+            {
+                return append("-2147483648");
+            }
+
+            buf[len++] = '-';
+            i = -i;
+        }
+
+        int digits = 1;
+
+        for (int t = i; t >= 10; t /= 10)
+        {
+            digits++;
+        }
+
+        for (int p = len + digits - 1; p >= len; p--)
+        {
+            buf[p] = (byte) ('0' + (i % 10));
+            i /= 10;
+        }
+
+        len += digits;
+
+        return this;
+    }
+
+    /** append "true" or "false" */
+    public SOCMessageEncoder append(boolean b)
+    {
+        return append(b ? "true" : "false");
+    }
+
+    /** append one byte, for binary messages; see {@link SOCBinaryCodec} */
+    public SOCMessageEncoder appendByte(int b)
+    {
+        ensure(1);
+        buf[len++] = (byte) b;
+
+        return this;
+    }
+
+    /**
+     * append an int in as few bytes as it needs, for binary messages:
+     * zigzag-encoded so that small negative numbers are short too, then
+     * 7 bits a byte, low bits first, the top bit set on all but the last
+     */
+    public SOCMessageEncoder appendVarint(int i)
+    {
+        ensure(5);
+
+        int v = (i << 1) ^ (i >> 31);
+
+        while ((v & ~0x7F) != 0)
+        {
+            buf[len++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+
+        buf[len++] = (byte) v;
+
+        return this;
+    }
+
+    /**
+     * append a String for binary messages: its length in bytes as a
+     * varint, then its modified UTF-8
+     */
+    public SOCMessageEncoder appendUTF(String s)
+    {
+        return appendVarint(utfLength(s)).append(s);
+    }
+
+    /**
+     * @return the length and the message, as writeUTF would send them
+     * @throws IllegalArgumentException if the message is over 65535 bytes
+     */
+    public byte[] toBytes()
+    {
+        int utflen = len - 2;
+
+        if (utflen > 65535)
+        {
+            throw new IllegalArgumentException("encoded string too long: " + utflen + " bytes");
+        }
+
+        buf[0] = (byte) (utflen >>> 8);
+        buf[1] = (byte) utflen;
+
+        byte[] b = new byte[len];
+        System.arraycopy(buf, 0, b, 0, len);
+
+        return b;
+    }
+
+    /**
+     * @param s  a String
+     * @return how many bytes its modified UTF-8 takes, without a length
+     */
+    public static int utfLength(String s)
+    {
+        int n = s.length();
+        int utflen = 0;
+
+        for (int i = 0; i < n; i++)
+        {
+            char ch = s.charAt(i);
+            utflen += ((ch >= 0x0001) && (ch <= 0x007F)) ? 1 : ((ch > 0x07FF) ? 3 : 2);
+        }
+
+        return utflen;
+    }
+
+    /**
+     * Write the modified UTF-8 of a String, as writeUTF would after the
+     * length.  This and {@link #decode(byte[], int, int)} are the one
+     * codec for it; the transports and Frame use them too.
+     *
+     * @param s  the String
+     * @param b  where to write it; must have room for
+     *           {@link #utfLength(String) utfLength(s)} bytes from off
+     * @param off  where to start
+     * @return the index after the last byte written
+     */
+    public static int encode(String s, byte[] b, int off)
+    {
+        int n = s.length();
+
+        for (int i = 0; i < n; i++)
+        {
+            char ch = s.charAt(i);
+
+            if ((ch >= 0x0001) && (ch <= 0x007F))
+            {
+                b[off++] = (byte) ch;
+            }
+            else if (ch > 0x07FF)
+            {
+                b[off++] = (byte) (0xE0 | ((ch >> 12) & 0x0F));
+                b[off++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                b[off++] = (byte) (0x80 | (ch & 0x3F));
+            }
+            else
+            {
+                b[off++] = (byte) (0xC0 | ((ch >> 6) & 0x1F));
+                b[off++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+
+        return off;
+    }
+
+    /**
+     * Turn bytes from {@link #toBytes()} back into the message String.
+     *
+     * @param b  the length and message
+     * @return the message
+     */
+    public static String decode(byte[] b)
+    {
+        return decode(b, 2, ((b[0] & 0xFF) << 8) | (b[1] & 0xFF));
+    }
+
+    /**
+     * Decode modified UTF-8, as readUTF would.
+     *
+     * @param b  the bytes
+     * @param off  where the String starts
+     * @param n  how many bytes it takes
+     * @return the String
+     * @throws IllegalArgumentException if the bytes aren't modified UTF-8
+     */
+    public static String decode(byte[] b, int off, int n)
+    {
+        char[] chars = new char[n];
+        int count = 0;
+        int end = off + n;
+
+        for (int i = off; i < end;)
+        {
+            int c = b[i] & 0xFF;
+
+            if (c < 0x80)
+            {
+                chars[count++] = (char) c;
+                i++;
+            }
+            else if (((c >> 5) == 0x06) && ((i + 1) < end))
+            {
+                chars[count++] = (char) (((c & 0x1F) << 6) | (b[i + 1] & 0x3F));
+                i += 2;
+            }
+            else if (((c >> 4) == 0x0E) && ((i + 2) < end))
+            {
+                chars[count++] = (char) (((c & 0x0F) << 12) | ((b[i + 1] & 0x3F) << 6) | (b[i + 2] & 0x3F));
+                i += 3;
+            }
+            else
+            {
+                throw new IllegalArgumentException("malformed input around byte " + (i - off));
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+}
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message says what resource the current player wants to
@@ -95,20 +93,18 @@ public class SOCMonopolyPick extends SOCMessage
     /**
      * Parse the command String into a StartGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a StartGame message, or null of the data is garbled
      */
-    public static SOCMonopolyPick parseDataStr(String s)
+    public static SOCMonopolyPick parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int rs; // the chosen resource
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            rs = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            rs = c.nextInt();
         }
         catch (Exception e)
         {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player wants to move the robber
@@ -114,22 +112,20 @@ public class SOCMoveRobber extends SOCMessage
     /**
      * parse the command string into a MoveRobber message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a TextMsg message, or null of the data is garbled
      */
-    public static SOCMoveRobber parseDataStr(String s)
+    public static SOCMoveRobber parseDataStr(SOCMessageCursor c)
     {
         String na; // name of the game
         int pn; // player number
         int co; // coordinates
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            na = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            co = Integer.parseInt(st.nextToken());
+            na = c.next();
+            pn = c.nextInt();
+            co = c.nextInt();
         }
         catch (Exception e)
         {
@@ -76,12 +76,12 @@ public class SOCNewChannel extends SOCMessage
     /**
      * Parse the command String into a NewChannel message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a NewChannel message
      */
-    public static SOCNewChannel parseDataStr(String s)
+    public static SOCNewChannel parseDataStr(SOCMessageCursor c)
     {
-        return new SOCNewChannel(s);
+        return new SOCNewChannel(c.rest());
     }
 
     /**
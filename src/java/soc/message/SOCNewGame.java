@@ -76,12 +76,12 @@ public class SOCNewGame extends SOCMessage
     /**
      * Parse the command String into a NewGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a NewGame message
      */
-    public static SOCNewGame parseDataStr(String s)
+    public static SOCNewGame parseDataStr(SOCMessageCursor c)
     {
-        return new SOCNewGame(s);
+        return new SOCNewGame(c.rest());
     }
 
     /**
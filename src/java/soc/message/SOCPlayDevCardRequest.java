@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player wants to play a development card
@@ -94,20 +92,18 @@ public class SOCPlayDevCardRequest extends SOCMessage
     /**
      * Parse the command String into a PlayDevCardRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a PlayDevCardRequest message, or null of the data is garbled
      */
-    public static SOCPlayDevCardRequest parseDataStr(String s)
+    public static SOCPlayDevCardRequest parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int dc; // the type of dev card
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            dc = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            dc = c.nextInt();
         }
         catch (Exception e)
         {
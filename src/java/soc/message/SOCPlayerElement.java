@@ -20,7 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
 import soc.game.SOCResourceConstants;
 
 
@@ -146,6 +145,16 @@ public class SOCPlayerElement extends SOCMessage
         return toCmd(game, playerNumber, actionType, elementType, value);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, actionType, elementType, value);
+    }
+
     /**
      * PLAYERELEMENT sep game sep2 playerNumber sep2 actionType sep2 elementType sep2 value
      *
@@ -161,13 +170,32 @@ public class SOCPlayerElement extends SOCMessage
         return PLAYERELEMENT + sep + ga + sep2 + pn + sep2 + ac + sep2 + et + sep2 + va;
     }
 
+    /**
+     * PLAYERELEMENT sep game sep2 playerNumber sep2 actionType sep2 elementType sep2 value
+     *
+     * @param ga  the game name
+     * @param pn  the player number
+     * @param ac  the type of action
+     * @param et  the type of element
+     * @param va  the value of the element
+     * @return    the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn, int ac, int et, int va)
+    {
+        return SOCMessageEncoder.get().append(PLAYERELEMENT).append(sep).append(ga)
+            .append(sep2).append(pn)
+            .append(sep2).append(ac)
+            .append(sep2).append(et)
+            .append(sep2).append(va).toBytes();
+    }
+
     /**
      * Parse the command String into a PlayerElement message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a PlayerElement message, or null of the data is garbled
      */
-    public static SOCPlayerElement parseDataStr(String s)
+    public static SOCPlayerElement parseDataStr(SOCMessageCursor c)
     {
         String ga;
         int pn;
@@ -175,15 +203,13 @@ public class SOCPlayerElement extends SOCMessage
         int et;
         int va;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            ac = Integer.parseInt(st.nextToken());
-            et = Integer.parseInt(st.nextToken());
-            va = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
+            ac = c.nextInt();
+            et = c.nextInt();
+            va = c.nextInt();
         }
         catch (Exception e)
         {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.Enumeration;
-import java.util.StringTokenizer;
 import java.util.Vector;
 
 
@@ -45,7 +43,7 @@ public class SOCPotentialSettlements extends SOCMessage
     /**
      * List of potential settlements
      */
-    private Vector<Integer> psList;
+    private int[] psList;
 
     /**
      * Create a SOCPotentialSettlements message.
@@ -54,7 +52,7 @@ public class SOCPotentialSettlements extends SOCMessage
      * @param pn  the player number
      * @param ps  the list of potential settlements
      */
-    public SOCPotentialSettlements(String ga, int pn, Vector<Integer> ps)
+    public SOCPotentialSettlements(String ga, int pn, int[] ps)
     {
         messageType = POTENTIALSETTLEMENTS;
         game = ga;
@@ -81,7 +79,7 @@ public class SOCPotentialSettlements extends SOCMessage
     /**
      * @return the list of potential settlements
      */
-    public Vector<Integer> getPotentialSettlements()
+    public int[] getPotentialSettlements()
     {
         return psList;
     }
@@ -96,6 +94,16 @@ public class SOCPotentialSettlements extends SOCMessage
         return toCmd(game, playerNumber, psList);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, psList);
+    }
+
     /**
      * POTENTIALSETTLEMENTS sep game sep2 playerNumber sep2 psList
      *
@@ -106,40 +114,80 @@ public class SOCPotentialSettlements extends SOCMessage
      */
     public static String toCmd(String ga, int pn, Vector<Integer> ps)
     {
-        String cmd = POTENTIALSETTLEMENTS + sep + ga + sep2 + pn;
-        Enumeration<Integer> enumr = ps.elements();
+        StringBuffer cmd = new StringBuffer();
+        cmd.append(POTENTIALSETTLEMENTS).append(sep).append(ga).append(sep2).append(pn);
 
-        while (enumr.hasMoreElements())
+        for (int i = 0; i < ps.size(); i++)
         {
-            Integer number = enumr.nextElement();
-            cmd += (sep2 + number);
+            cmd.append(sep2).append(ps.elementAt(i).intValue());
         }
 
-        return cmd;
+        return cmd.toString();
+    }
+
+    /**
+     * POTENTIALSETTLEMENTS sep game sep2 playerNumber sep2 psList
+     *
+     * @param ga  the game name
+     * @param pn  the player number
+     * @param ps  the list of potential settlements
+     * @return    the command string
+     */
+    public static String toCmd(String ga, int pn, int[] ps)
+    {
+        StringBuffer cmd = new StringBuffer();
+        cmd.append(POTENTIALSETTLEMENTS).append(sep).append(ga).append(sep2).append(pn);
+
+        for (int i = 0; i < ps.length; i++)
+        {
+            cmd.append(sep2).append(ps[i]);
+        }
+
+        return cmd.toString();
+    }
+
+    /**
+     * POTENTIALSETTLEMENTS sep game sep2 playerNumber sep2 psList
+     *
+     * @param ga  the game name
+     * @param pn  the player number
+     * @param ps  the list of potential settlements
+     * @return    the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn, int[] ps)
+    {
+        SOCMessageEncoder e = SOCMessageEncoder.get();
+        e.append(POTENTIALSETTLEMENTS).append(sep).append(ga).append(sep2).append(pn);
+
+        for (int i = 0; i < ps.length; i++)
+        {
+            e.append(sep2).append(ps[i]);
+        }
+
+        return e.toBytes();
     }
 
     /**
      * Parse the command String into a PotentialSettlements message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a PotentialSettlements message, or null of the data is garbled
      */
-    public static SOCPotentialSettlements parseDataStr(String s)
+    public static SOCPotentialSettlements parseDataStr(SOCMessageCursor c)
     {
         String ga;
         int pn;
-        Vector<Integer> ps = new Vector<Integer>();
-
-        StringTokenizer st = new StringTokenizer(s, sep2);
+        int[] ps;
 
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
+            ps = new int[c.countFields()];
 
-            while (st.hasMoreTokens())
+            for (int i = 0; i < ps.length; i++)
             {
-                ps.addElement(Integer.parseInt(st.nextToken()));
+                ps[i] = c.nextInt();
             }
         }
         catch (Exception e)
@@ -156,12 +204,9 @@ public class SOCPotentialSettlements extends SOCMessage
     public String toString()
     {
         String s = "SOCPotentialSettlements:game=" + game + "|playerNum=" + playerNumber + "|list=";
-        Enumeration<Integer> enumr = psList.elements();
-
-        while (enumr.hasMoreElements())
+        for (int i = 0; i < psList.length; i++)
         {
-            Integer number = (Integer) enumr.nextElement();
-            s += (Integer.toHexString(number.intValue()) + " ");
+            s += (Integer.toHexString(psList[i]) + " ");
         }
 
         return s;
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player has placed a piece on the board
@@ -111,6 +109,16 @@ public class SOCPutPiece extends SOCMessage
         return toCmd(game, playerNumber, pieceType, coordinates);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, pieceType, coordinates);
+    }
+
     /**
      * Command string:
      *
@@ -127,27 +135,44 @@ public class SOCPutPiece extends SOCMessage
         return PUTPIECE + sep + na + sep2 + pn + sep2 + pt + sep2 + co;
     }
 
+    /**
+     * Command string:
+     *
+     * PUTPIECE sep game sep2 playerNumber sep2 pieceType sep2 coordinates
+     *
+     * @param na  the name of the game
+     * @param pt  type of playing piece
+     * @param pn  player number
+     * @param co  coordinates
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String na, int pn, int pt, int co)
+    {
+        return SOCMessageEncoder.get().append(PUTPIECE).append(sep).append(na)
+            .append(sep2).append(pn)
+            .append(sep2).append(pt)
+            .append(sep2).append(co).toBytes();
+    }
+
     /**
      * parse the command string into a PutPiece message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a TextMsg message, or null of the data is garbled
      */
-    public static SOCPutPiece parseDataStr(String s)
+    public static SOCPutPiece parseDataStr(SOCMessageCursor c)
     {
         String na; // name of the game
         int pn; // player number
         int pt; // type of piece
         int co; // coordinates
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            na = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            pt = Integer.parseInt(st.nextToken());
-            co = Integer.parseInt(st.nextToken());
+            na = c.next();
+            pn = c.nextInt();
+            pt = c.nextInt();
+            co = c.nextInt();
         }
         catch (Exception e)
         {
@@ -76,12 +76,12 @@ public class SOCRejectConnection extends SOCMessage
     /**
      * Parse the command String into a RejectConnection message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a RejectConnection message
      */
-    public static SOCRejectConnection parseDataStr(String s)
+    public static SOCRejectConnection parseDataStr(SOCMessageCursor c)
     {
-        return new SOCRejectConnection(s);
+        return new SOCRejectConnection(c.rest());
     }
 
     /**
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message has the total resource count for a player
@@ -94,6 +92,16 @@ public class SOCResourceCount extends SOCMessage
         return toCmd(game, playerNumber, count);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, count);
+    }
+
     /**
      * RESOURCECOUNT sep game sep2 playerNumber sep2 count
      *
@@ -107,25 +115,38 @@ public class SOCResourceCount extends SOCMessage
         return RESOURCECOUNT + sep + ga + sep2 + pn + sep2 + rc;
     }
 
+    /**
+     * RESOURCECOUNT sep game sep2 playerNumber sep2 count
+     *
+     * @param ga  the name of the game
+     * @param pn  the seat number
+     * @param rc  the resource count
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn, int rc)
+    {
+        return SOCMessageEncoder.get().append(RESOURCECOUNT).append(sep).append(ga)
+            .append(sep2).append(pn)
+            .append(sep2).append(rc).toBytes();
+    }
+
     /**
      * Parse the command String into a ResourceCount message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a ResourceCount message, or null of the data is garbled
      */
-    public static SOCResourceCount parseDataStr(String s)
+    public static SOCResourceCount parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pn; // the seat number
         int rc; // the resource count
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            rc = Integer.parseInt(st.nextToken());
+            ga = c.next();
+            pn = c.nextInt();
+            rc = c.nextInt();
         }
         catch (Exception e)
         {
@@ -0,0 +1,130 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+
+/**
+ * This message is about a session that a client can resume if its
+ * connection drops; see {@link SOCCapabilities#RESUME}.
+ *<P>
+ * The server sends it once the session starts, with the session's token.
+ * A client whose connection dropped connects again and sends it as its
+ * first message, with the token and the number of messages it had read
+ * on its connections so far.  The server answers with the same token
+ * and number, then sends the messages the client missed and carries on;
+ * or, if the session can't be resumed, with the number -1, and the
+ * client starts over as a new connection.
+ */
+public class SOCResume extends SOCMessage
+{
+    /**
+     * The session's token
+     */
+    private String token;
+
+    /**
+     * The number of messages read, or -1
+     */
+    private int sequence;
+
+    /**
+     * Create a Resume message.
+     *
+     * @param t  the session's token
+     * @param n  the number of messages read, or -1 if the session can't be resumed
+     */
+    public SOCResume(String t, int n)
+    {
+        messageType = RESUME;
+        token = t;
+        sequence = n;
+    }
+
+    /**
+     * @return the session's token
+     */
+    public String getToken()
+    {
+        return token;
+    }
+
+    /**
+     * @return the number of messages read, or -1 if the session can't be resumed
+     */
+    public int getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * RESUME sep token sep2 sequence
+     *
+     * @return the command string
+     */
+    public String toCmd()
+    {
+        return toCmd(token, sequence);
+    }
+
+    /**
+     * RESUME sep token sep2 sequence
+     *
+     * @param t  the session's token
+     * @param n  the number of messages read, or -1
+     * @return the command string
+     */
+    public static String toCmd(String t, int n)
+    {
+        return RESUME + sep + t + sep2 + n;
+    }
+
+    /**
+     * Parse the command String into a Resume message
+     *
+     * @param c   the data to parse
+     * @return    a Resume message, or null of the data is garbled
+     */
+    public static SOCResume parseDataStr(SOCMessageCursor c)
+    {
+        String t;
+        int n;
+
+        try
+        {
+            t = c.next();
+            n = c.nextInt();
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+
+        return new SOCResume(t, n);
+    }
+
+    /**
+     * @return a human readable form of the message
+     */
+    public String toString()
+    {
+        return "SOCResume:token=" + token + "|sequence=" + sequence;
+    }
+}
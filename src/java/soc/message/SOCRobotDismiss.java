@@ -77,12 +77,12 @@ public class SOCRobotDismiss extends SOCMessage
     /**
      * Parse the command String into a RobotDismiss message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a RobotDismiss message, or null of the data is garbled
      */
-    public static SOCRobotDismiss parseDataStr(String s)
+    public static SOCRobotDismiss parseDataStr(SOCMessageCursor c)
     {
-        return new SOCRobotDismiss(s);
+        return new SOCRobotDismiss(c.rest());
     }
 
     /**
@@ -77,12 +77,12 @@ public class SOCRollDice extends SOCMessage
     /**
      * Parse the command String into a RollDice message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a RollDice message, or null of the data is garbled
      */
-    public static SOCRollDice parseDataStr(String s)
+    public static SOCRollDice parseDataStr(SOCMessageCursor c)
     {
-        return new SOCRollDice(s);
+        return new SOCRollDice(c.rest());
     }
 
     /**
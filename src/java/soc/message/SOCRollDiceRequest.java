@@ -77,12 +77,12 @@ public class SOCRollDiceRequest extends SOCMessage
     /**
      * Parse the command String into a RollDiceRequest message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a RollDiceRequest message, or null of the data is garbled
      */
-    public static SOCRollDiceRequest parseDataStr(String s)
+    public static SOCRollDiceRequest parseDataStr(SOCMessageCursor c)
     {
-        return new SOCRollDiceRequest(s);
+        return new SOCRollDiceRequest(c.rest());
     }
 
     /**
@@ -76,12 +76,12 @@ public class SOCServerPing extends SOCMessage
     /**
      * Parse the command String into a ServerPing message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a ServerPing message
      */
-    public static SOCServerPing parseDataStr(String s)
+    public static SOCServerPing parseDataStr(SOCMessageCursor c)
     {
-        return new SOCServerPing(Integer.parseInt(s));
+        return new SOCServerPing(c.nextInt());
     }
 
     /**
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message sets the flag which says if a player has
@@ -95,6 +93,16 @@ public class SOCSetPlayedDevCard extends SOCMessage
         return toCmd(game, playerNumber, playedDevCard);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, playerNumber, playedDevCard);
+    }
+
     /**
      * SETPLAYEDDEVCARD sep game sep2 playerNumber sep2 playedDevCard
      *
@@ -108,25 +116,38 @@ public class SOCSetPlayedDevCard extends SOCMessage
         return SETPLAYEDDEVCARD + sep + ga + sep2 + pn + sep2 + pd;
     }
 
+    /**
+     * SETPLAYEDDEVCARD sep game sep2 playerNumber sep2 playedDevCard
+     *
+     * @param ga  the name of the game
+     * @param pn  the seat number
+     * @param pd  the value of the playedDevCard flag
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, int pn, boolean pd)
+    {
+        return SOCMessageEncoder.get().append(SETPLAYEDDEVCARD).append(sep).append(ga)
+            .append(sep2).append(pn)
+            .append(sep2).append(pd).toBytes();
+    }
+
     /**
      * Parse the command String into a StartGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a StartGame message, or null of the data is garbled
      */
-    public static SOCSetPlayedDevCard parseDataStr(String s)
+    public static SOCSetPlayedDevCard parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pn; // the seat number
         boolean pd; // the value of the playedDevCard flag
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            pd = (Boolean.valueOf(st.nextToken())).booleanValue();
+            ga = c.next();
+            pn = c.nextInt();
+            pd = c.nextBoolean();
         }
         catch (Exception e)
         {
@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message sets the lock state of a seat.
@@ -110,22 +108,20 @@ public class SOCSetSeatLock extends SOCMessage
     /**
      * Parse the command String into a SetSeatLock message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a SetSeatLock message, or null of the data is garbled
      */
-    public static SOCSetSeatLock parseDataStr(String s)
+    public static SOCSetSeatLock parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         int pn; // the number of the changing player
         boolean ls; // the state of the lock
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            ls = (Boolean.valueOf(st.nextToken())).booleanValue();
+            ga = c.next();
+            pn = c.nextInt();
+            ls = c.nextBoolean();
         }
         catch (Exception e)
         {
@@ -77,12 +77,12 @@ public class SOCSetupDone extends SOCMessage
     /**
      * Parse the command String into a SetupDone message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a SetupDone message, or null of the data is garbled
      */
-    public static SOCSetupDone parseDataStr(String s)
+    public static SOCSetupDone parseDataStr(SOCMessageCursor c)
     {
-        return new SOCSetupDone(s);
+        return new SOCSetupDone(c.rest());
     }
 
     /**
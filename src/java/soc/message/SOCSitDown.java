@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that a player wants to sit down to play
@@ -109,6 +107,16 @@ public class SOCSitDown extends SOCMessage
         return toCmd(game, nickname, playerNumber, robotFlag);
     }
 
+    /**
+     * Encode this message as {@link #toCmd()} would, without making the String.
+     *
+     * @return the bytes sent for the command
+     */
+    public byte[] toBytes()
+    {
+        return toBytes(game, nickname, playerNumber, robotFlag);
+    }
+
     /**
      * SITDOWN sep game sep2 nickname sep2 playerNumber sep2 robotFlag
      *
@@ -123,27 +131,42 @@ public class SOCSitDown extends SOCMessage
         return SITDOWN + sep + ga + sep2 + nk + sep2 + pn + sep2 + rf;
     }
 
+    /**
+     * SITDOWN sep game sep2 nickname sep2 playerNumber sep2 robotFlag
+     *
+     * @param ga  the name of the game
+     * @param nk  nickname of the player
+     * @param pn  the seat number
+     * @param rf  the value of the robot flag
+     * @return the bytes sent for the command
+     */
+    public static byte[] toBytes(String ga, String nk, int pn, boolean rf)
+    {
+        return SOCMessageEncoder.get().append(SITDOWN).append(sep).append(ga)
+            .append(sep2).append(nk)
+            .append(sep2).append(pn)
+            .append(sep2).append(rf).toBytes();
+    }
+
     /**
      * Parse the command String into a SitDown message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a SitDown message, or null of the data is garbled
      */
-    public static SOCSitDown parseDataStr(String s)
+    public static SOCSitDown parseDataStr(SOCMessageCursor c)
     {
         String ga; // the game name
         String nk; // nickname of the player
         int pn; // the seat number
         boolean rf; // the value of the robot flag
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ga = st.nextToken();
-            nk = st.nextToken();
-            pn = Integer.parseInt(st.nextToken());
-            rf = (Boolean.valueOf(st.nextToken())).booleanValue();
+            ga = c.next();
+            nk = c.next();
+            pn = c.nextInt();
+            rf = c.nextBoolean();
         }
         catch (Exception e)
         {
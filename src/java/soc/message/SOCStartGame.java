@@ -76,12 +76,12 @@ public class SOCStartGame extends SOCMessage
     /**
      * Parse the command String into a StartGame message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a StartGame message, or null of the data is garbled
      */
-    public static SOCStartGame parseDataStr(String s)
+    public static SOCStartGame parseDataStr(SOCMessageCursor c)
     {
-        return new SOCStartGame(s);
+        return new SOCStartGame(c.rest());
     }
 
     /**
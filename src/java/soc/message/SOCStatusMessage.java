@@ -76,12 +76,12 @@ public class SOCStatusMessage extends SOCMessage
     /**
      * Parse the command String into a StatusMessage message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a StatusMessage message, or null of the data is garbled
      */
-    public static SOCStatusMessage parseDataStr(String s)
+    public static SOCStatusMessage parseDataStr(SOCMessageCursor c)
     {
-        return new SOCStatusMessage(s);
+        return new SOCStatusMessage(c.rest());
     }
 
     /**
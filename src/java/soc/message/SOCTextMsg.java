@@ -20,8 +20,6 @@
  **/
 package soc.message;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message contains a text message
@@ -115,22 +113,20 @@ public class SOCTextMsg extends SOCMessage
     /**
      * Parse the command String into a TextMsg message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a TextMsg message, or null of the data is garbled
      */
-    public static SOCTextMsg parseDataStr(String s)
+    public static SOCTextMsg parseDataStr(SOCMessageCursor c)
     {
         String ch;
         String nn;
         String tm;
 
-        StringTokenizer st = new StringTokenizer(s, sep2);
-
         try
         {
-            ch = st.nextToken();
-            nn = st.nextToken();
-            tm = st.nextToken();
+            ch = c.next(sep2.charAt(0));
+            nn = c.next(sep2.charAt(0));
+            tm = c.next(sep2.charAt(0));
         }
         catch (Exception e)
         {
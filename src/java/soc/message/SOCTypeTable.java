@@ -0,0 +1,204 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Something for each message type, found by indexing an array with the
+ * type: the parsers in {@link SOCMessage#toMsg(String)}, and the handlers
+ * the server and clients call for each message they're sent.  A table
+ * can also count the messages of each type and the time spent on them,
+ * for whoever dispatches through it to {@link #record(int, long)}.
+ *<P>
+ * Types 1000 to 1126 and {@link SOCMessage#SERVERPING} have room.
+ * Entries are normally put in while the owner is set up; lookups
+ * aren't synchronized.
+ *
+ * @param <T>  what the table holds for each type
+ */
+public final class SOCTypeTable<T>
+{
+    /** number of types a table has room for */
+    public static final int SLOTS = 128;
+
+    /** the entry for each type's slot */
+    private final Object[] entries = new Object[SLOTS];
+
+    /** messages recorded for each slot, or null if not counting */
+    private final LongAdder[] counts;
+
+    /** nanoseconds recorded for each slot, or null if not counting */
+    private final LongAdder[] nanos;
+
+    /**
+     * Make an empty table.
+     *
+     * @param timed  true to count messages and time with {@link #record(int, long)}
+     */
+    public SOCTypeTable(boolean timed)
+    {
+        if (timed)
+        {
+            counts = new LongAdder[SLOTS];
+            nanos = new LongAdder[SLOTS];
+
+            for (int i = 0; i < SLOTS; i++)
+            {
+                counts[i] = new LongAdder();
+                nanos[i] = new LongAdder();
+            }
+        }
+        else
+        {
+            counts = null;
+            nanos = null;
+        }
+    }
+
+    /**
+     * @param type  a message type
+     * @return its slot, or -1 if it has none
+     */
+    public static int slot(int type)
+    {
+        if ((type >= SOCMessage.NULLMESSAGE) && (type < (SOCMessage.NULLMESSAGE + SLOTS - 1)))
+        {
+            return type - SOCMessage.NULLMESSAGE;
+        }
+
+        return (type == SOCMessage.SERVERPING) ? (SLOTS - 1) : -1;
+    }
+
+    /** @return the type in a slot */
+    private static int typeOf(int slot)
+    {
+        return (slot == (SLOTS - 1)) ? SOCMessage.SERVERPING : (SOCMessage.NULLMESSAGE + slot);
+    }
+
+    /**
+     * Set the entry for a type.
+     *
+     * @param type  the message type
+     * @param t  the entry, or null to remove it
+     * @throws IllegalArgumentException if the type has no slot
+     */
+    public void put(int type, T t)
+    {
+        int i = slot(type);
+
+        if (i < 0)
+        {
+            throw new IllegalArgumentException("no room for message type " + type);
+        }
+
+        entries[i] = t;
+    }
+
+    /**
+     * @param type  the message type
+     * @return its entry, or null if it has none
+     */
+    @SuppressWarnings("unchecked")  // put() only stores T's
+    public T get(int type)
+    {
+        int i = slot(type);
+
+        return (i >= 0) ? (T) entries[i] : null;
+    }
+
+    /**
+     * Count a message, and the time taken over it.
+     *
+     * @param type  the message type
+     * @param ns  nanoseconds spent on it
+     */
+    public void record(int type, long ns)
+    {
+        int i = slot(type);
+
+        if ((counts != null) && (i >= 0))
+        {
+            counts[i].increment();
+            nanos[i].add(ns);
+        }
+    }
+
+    /** @return the number of messages of a type recorded */
+    public long getCount(int type)
+    {
+        int i = slot(type);
+
+        return ((counts != null) && (i >= 0)) ? counts[i].sum() : 0;
+    }
+
+    /** @return nanoseconds recorded for a type */
+    public long getNanos(int type)
+    {
+        int i = slot(type);
+
+        return ((nanos != null) && (i >= 0)) ? nanos[i].sum() : 0;
+    }
+
+    /**
+     * @param n  how many types to list
+     * @return up to n types, those with the most time recorded first
+     */
+    public int[] busiest(int n)
+    {
+        long[] total = new long[SLOTS];
+        int[] order = new int[SLOTS];
+        int used = 0;
+
+        for (int i = 0; (nanos != null) && (i < SLOTS); i++)
+        {
+            long t = nanos[i].sum();
+
+            if (counts[i].sum() == 0)
+            {
+                continue;
+            }
+
+            // insertion sort, most time first
+            int j = used++;
+
+            while ((j > 0) && (total[j - 1] < t))
+            {
+                total[j] = total[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+
+            total[j] = t;
+            order[j] = i;
+        }
+
+        int[] types = new int[Math.min(n, used)];
+
+        for (int k = 0; k < types.length; k++)
+        {
+            types[k] = typeOf(order[k]);
+        }
+
+        return types;
+    }
+}
@@ -22,8 +22,6 @@ package soc.message;
 
 import soc.util.SOCRobotParameters;
 
-import java.util.StringTokenizer;
-
 
 /**
  * This message means that the robot client needs to update
@@ -78,10 +76,10 @@ public class SOCUpdateRobotParams extends SOCMessage
     /**
      * Parse the command String into a UpdateRobotParams message
      *
-     * @param s   the String to parse
+     * @param c   the data to parse
      * @return    a UpdateRobotParams message, or null of the data is garbled
      */
-    public static SOCUpdateRobotParams parseDataStr(String s)
+    public static SOCUpdateRobotParams parseDataStr(SOCMessageCursor c)
     {
         int mgl; // maxGameLength
         int me; // maxETA
@@ -93,19 +91,17 @@ public class SOCUpdateRobotParams extends SOCMessage
         int st; // strategyType
         int tf; // trade flag
 
-        StringTokenizer stok = new StringTokenizer(s, sep2);
-
         try
         {
-            mgl = Integer.parseInt(stok.nextToken());
-            me = Integer.parseInt(stok.nextToken());
-            ebf = (Float.valueOf(stok.nextToken())).floatValue();
-            af = (Float.valueOf(stok.nextToken())).floatValue();
-            laf = (Float.valueOf(stok.nextToken())).floatValue();
-            dcm = (Float.valueOf(stok.nextToken())).floatValue();
-            tm = (Float.valueOf(stok.nextToken())).floatValue();
-            st = Integer.parseInt(stok.nextToken());
-            tf = Integer.parseInt(stok.nextToken());
+            mgl = c.nextInt();
+            me = c.nextInt();
+            ebf = c.nextFloat();
+            af = c.nextFloat();
+            laf = c.nextFloat();
+            dcm = c.nextFloat();
+            tm = c.nextFloat();
+            st = c.nextInt();
+            tf = c.nextInt();
         }
         catch (Exception e)
         {
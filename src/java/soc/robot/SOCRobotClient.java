@@ -36,6 +36,7 @@ import soc.message.SOCAcceptOffer;
 import soc.message.SOCAdminPing;
 import soc.message.SOCAdminReset;
 import soc.message.SOCBoardLayout;
+import soc.message.SOCCapabilities;
 import soc.message.SOCChangeFace;
 import soc.message.SOCChoosePlayerRequest;
 import soc.message.SOCClearOffer;
@@ -47,6 +48,7 @@ import soc.message.SOCDiceResult;
 import soc.message.SOCDiscardRequest;
 import soc.message.SOCFirstPlayer;
 import soc.message.SOCGameMembers;
+import soc.message.SOCGameSnapshot;
 import soc.message.SOCGameState;
 import soc.message.SOCGameTextMsg;
 import soc.message.SOCImARobot;
@@ -73,6 +75,8 @@ import soc.message.SOCSitDown;
 import soc.message.SOCStartGame;
 import soc.message.SOCTurn;
 import soc.message.SOCUpdateRobotParams;
+import soc.server.genericServer.LocalLink;
+import soc.server.genericServer.Server;
 import soc.util.CappedQueue;
 import soc.util.CutoffExceededException;
 import soc.util.SOCRobotParameters;
@@ -96,6 +100,16 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
      */
     private Thread reader;
 
+    /**
+     * the server, if this robot runs in its JVM; otherwise null and we use a socket
+     */
+    private Server localServer = null;
+
+    /**
+     * our end of the in-process connection to localServer
+     */
+    private LocalLink local = null;
+
     /**
      * the current robot parameters for robot brains
      */
@@ -167,23 +181,49 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
         password = pw;
     }
 
+    /**
+     * Constructor for a robot running in the same JVM as the server,
+     * connected through memory instead of a socket.
+     *
+     * @param sv the server
+     * @param nn nickname for robot
+     * @param pw password for robot
+     */
+    public SOCRobotClient(Server sv, String nn, String pw)
+    {
+        this("localhost", 0, nn, pw);
+        localServer = sv;
+    }
+
     /**
      * Initialize the robot player
      */
     public void init()
     {
+        if (localServer != null)
+        {
+            connectLocal();
+
+            return;
+        }
+
         try
         {
             s = new Socket(host, port);
             s.setSoTimeout(300000);
             in = new DataInputStream(s.getInputStream());
             out = new DataOutputStream(s.getOutputStream());
+            sessionToken = null;
+            received = 0;
             connected = true;
             reader = new Thread(this);
             reader.start();
 
             //resetThread = new SOCRobotResetThread(this);
             //resetThread.start();
+            capabilities = 0;
+            gameHandles.clear();
+            put(SOCCapabilities.toCmd(SOCCapabilities.BINARY | SOCCapabilities.SNAPSHOT | SOCCapabilities.RESUME));
             put(SOCImARobot.toCmd(nickname));
         }
         catch (Exception e)
@@ -201,19 +241,33 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
         D.ebugPrintln("(*)(*)(*)(*)(*)(*)(*) disconnectReconnect()");
         ex = null;
 
+        if (localServer != null)
+        {
+            connected = false;
+            local.close();
+            connectLocal();
+
+            return;
+        }
+
         try
         {
             connected = false;
+            sessionToken = null;  // start afresh, not resume
             s.close();
             s = new Socket(host, port);
             in = new DataInputStream(s.getInputStream());
             out = new DataOutputStream(s.getOutputStream());
+            received = 0;
             connected = true;
             reader = new Thread(this);
             reader.start();
 
             //resetThread = new SOCRobotResetThread(this);
             //resetThread.start();
+            capabilities = 0;
+            gameHandles.clear();
+            put(SOCCapabilities.toCmd(SOCCapabilities.BINARY | SOCCapabilities.SNAPSHOT | SOCCapabilities.RESUME));
             put(SOCImARobot.toCmd(nickname));
         }
         catch (Exception e)
@@ -224,305 +278,206 @@ public class SOCRobotClient extends SOCDisplaylessPlayerClient
     }
 
     /**
-     * Treat the incoming messages
-     *
-     * @param mes    the message
+     * Connect to localServer in-process, and start reading
      */
-    public void treat(SOCMessage mes)
+    private void connectLocal()
     {
-        D.ebugPrintln("IN - " + mes);
+        local = localServer.connectLocal();
+        connected = true;
+        reader = new Thread(this);
+        reader.start();
+        put(SOCImARobot.toCmd(nickname));
+    }
 
-        try
+    /**
+     * continuously read from the server; in-process, messages come
+     * either as SOCMessages or as Strings to parse
+     */
+    public void run()
+    {
+        if (local == null)
         {
-            switch (mes.getType())
-            {
-            /**
-             * server ping
-             */
-            case SOCMessage.SERVERPING:
-                handleSERVERPING((SOCServerPing) mes);
-
-                break;
+            super.run();
 
-            /**
-             * admin ping
-             */
-            case SOCMessage.ADMINPING:
-                handleADMINPING((SOCAdminPing) mes);
-
-                break;
-
-            /**
-             * admin reset
-             */
-            case SOCMessage.ADMINRESET:
-                handleADMINRESET((SOCAdminReset) mes);
-
-                break;
-
-            /**
-             * update the current robot parameters
-             */
-            case SOCMessage.UPDATEROBOTPARAMS:
-                handleUPDATEROBOTPARAMS((SOCUpdateRobotParams) mes);
-
-                break;
-
-            /**
-             * join game authorization
-             */
-            case SOCMessage.JOINGAMEAUTH:
-                handleJOINGAMEAUTH((SOCJoinGameAuth) mes);
-
-                break;
-
-            /**
-             * someone joined a game
-             */
-            case SOCMessage.JOINGAME:
-                handleJOINGAME((SOCJoinGame) mes);
-
-                break;
-
-            /**
-             * someone left a game
-             */
-            case SOCMessage.LEAVEGAME:
-                handleLEAVEGAME((SOCLeaveGame) mes);
-
-                break;
-
-            /**
-             * game has been destroyed
-             */
-            case SOCMessage.DELETEGAME:
-                handleDELETEGAME((SOCDeleteGame) mes);
-
-                break;
-
-            /**
-             * list of game members
-             */
-            case SOCMessage.GAMEMEMBERS:
-                handleGAMEMEMBERS((SOCGameMembers) mes);
-
-                break;
-
-            /**
-             * game text message
-             */
-            case SOCMessage.GAMETEXTMSG:
-                handleGAMETEXTMSG((SOCGameTextMsg) mes);
-
-                break;
-
-            /**
-             * someone is sitting down
-             */
-            case SOCMessage.SITDOWN:
-                handleSITDOWN((SOCSitDown) mes);
+            return;
+        }
 
-                break;
+        LocalLink link = local;
 
-            /**
-             * receive a board layout
-             */
-            case SOCMessage.BOARDLAYOUT:
-                handleBOARDLAYOUT((SOCBoardLayout) mes);
-
-                break;
+        while (connected)
+        {
+            Object o = link.take();
 
-            /**
-             * message that the game is starting
-             */
-            case SOCMessage.STARTGAME:
-                handleSTARTGAME((SOCStartGame) mes);
+            if (o == null)
+            {
+                break;  // closed
+            }
 
-                break;
+            if (o instanceof SOCMessage)
+            {
+                treat((SOCMessage) o);
+            }
+            else
+            {
+                treat((SOCMessage) SOCMessage.toMsg((String) o));
+            }
+        }
+    }
 
-            /**
-             * update the state of the game
-             */
-            case SOCMessage.GAMESTATE:
-                handleGAMESTATE((SOCGameState) mes);
+    /**
+     * write a message to the server
+     *
+     * @param s  the message
+     * @return true if the message was sent, false if not
+     */
+    public boolean put(String s)
+    {
+        if (local == null)
+        {
+            return super.put(s);
+        }
 
-                break;
+        lastMessage = s;
 
-            /**
-             * set the current turn
-             */
-            case SOCMessage.SETTURN:
-                handleSETTURN((SOCSetTurn) mes);
+        D.ebugPrintln("OUT - " + s);
 
-                break;
+        if ((ex != null) || !connected)
+        {
+            return false;
+        }
 
-            /**
-             * set who the first player is
-             */
-            case SOCMessage.FIRSTPLAYER:
-                handleFIRSTPLAYER((SOCFirstPlayer) mes);
+        return local.put(s);
+    }
 
-                break;
+    /**
+     * disconnect from the server
+     */
+    protected void disconnect()
+    {
+        if (local == null)
+        {
+            super.disconnect();
 
-            /**
-             * update who's turn it is
-             */
-            case SOCMessage.TURN:
-                handleTURN((SOCTurn) mes);
+            return;
+        }
 
-                break;
+        connected = false;
+        local.close();
+    }
 
-            /**
-             * receive player information
-             */
-            case SOCMessage.PLAYERELEMENT:
-                handlePLAYERELEMENT((SOCPlayerElement) mes);
+    /**
+     * A robot treats only the messages its brains need, and some a
+     * human's client never gets; so none of the handlers are inherited.
+     */
+    protected void registerHandlers()
+    {
+        // server ping
+        handlers.put(SOCMessage.SERVERPING, m -> handleSERVERPING((SOCServerPing) m));
 
-                break;
+        // admin ping
+        handlers.put(SOCMessage.ADMINPING, m -> handleADMINPING((SOCAdminPing) m));
 
-            /**
-             * receive resource count
-             */
-            case SOCMessage.RESOURCECOUNT:
-                handleRESOURCECOUNT((SOCResourceCount) mes);
+        // admin reset
+        handlers.put(SOCMessage.ADMINRESET, m -> handleADMINRESET((SOCAdminReset) m));
 
-                break;
+        // update the current robot parameters
+        handlers.put(SOCMessage.UPDATEROBOTPARAMS, m -> handleUPDATEROBOTPARAMS((SOCUpdateRobotParams) m));
 
-            /**
-             * the latest dice result
-             */
-            case SOCMessage.DICERESULT:
-                handleDICERESULT((SOCDiceResult) mes);
+        // join game authorization
+        handlers.put(SOCMessage.JOINGAMEAUTH, m -> handleJOINGAMEAUTH((SOCJoinGameAuth) m));
 
-                break;
+        // someone joined a game
+        handlers.put(SOCMessage.JOINGAME, m -> handleJOINGAME((SOCJoinGame) m));
 
-            /**
-             * a player built something
-             */
-            case SOCMessage.PUTPIECE:
-                handlePUTPIECE((SOCPutPiece) mes);
+        // someone left a game
+        handlers.put(SOCMessage.LEAVEGAME, m -> handleLEAVEGAME((SOCLeaveGame) m));
 
-                break;
+        // game has been destroyed
+        handlers.put(SOCMessage.DELETEGAME, m -> handleDELETEGAME((SOCDeleteGame) m));
 
-            /**
-             * the robber moved
-             */
-            case SOCMessage.MOVEROBBER:
-                handleMOVEROBBER((SOCMoveRobber) mes);
+        // list of game members
+        handlers.put(SOCMessage.GAMEMEMBERS, m -> handleGAMEMEMBERS((SOCGameMembers) m));
 
-                break;
+        // the state of a game we've joined, all at once
+        handlers.put(SOCMessage.GAMESNAPSHOT, m -> handleGAMESNAPSHOT((SOCGameSnapshot) m));
 
-            /**
-             * the server wants this player to discard
-             */
-            case SOCMessage.DISCARDREQUEST:
-                handleDISCARDREQUEST((SOCDiscardRequest) mes);
+        // game text message
+        handlers.put(SOCMessage.GAMETEXTMSG, m -> handleGAMETEXTMSG((SOCGameTextMsg) m));
 
-                break;
+        // someone is sitting down
+        handlers.put(SOCMessage.SITDOWN, m -> handleSITDOWN((SOCSitDown) m));
 
-            /**
-             * the server wants this player to choose a player to rob
-             */
-            case SOCMessage.CHOOSEPLAYERREQUEST:
-                handleCHOOSEPLAYERREQUEST((SOCChoosePlayerRequest) mes);
+        // receive a board layout
+        handlers.put(SOCMessage.BOARDLAYOUT, m -> handleBOARDLAYOUT((SOCBoardLayout) m));
 
-                break;
+        // message that the game is starting
+        handlers.put(SOCMessage.STARTGAME, m -> handleSTARTGAME((SOCStartGame) m));
 
-            /**
-             * a player has made an offer
-             */
-            case SOCMessage.MAKEOFFER:
-                handleMAKEOFFER((SOCMakeOffer) mes);
+        // update the state of the game
+        handlers.put(SOCMessage.GAMESTATE, m -> handleGAMESTATE((SOCGameState) m));
 
-                break;
+        // set the current turn
+        handlers.put(SOCMessage.SETTURN, m -> handleSETTURN((SOCSetTurn) m));
 
-            /**
-             * a player has cleared her offer
-             */
-            case SOCMessage.CLEAROFFER:
-                handleCLEAROFFER((SOCClearOffer) mes);
+        // set who the first player is
+        handlers.put(SOCMessage.FIRSTPLAYER, m -> handleFIRSTPLAYER((SOCFirstPlayer) m));
 
-                break;
+        // update who's turn it is
+        handlers.put(SOCMessage.TURN, m -> handleTURN((SOCTurn) m));
 
-            /**
-             * a player has rejected an offer
-             */
-            case SOCMessage.REJECTOFFER:
-                handleREJECTOFFER((SOCRejectOffer) mes);
+        // receive player information
+        handlers.put(SOCMessage.PLAYERELEMENT, m -> handlePLAYERELEMENT((SOCPlayerElement) m));
 
-                break;
+        // receive resource count
+        handlers.put(SOCMessage.RESOURCECOUNT, m -> handleRESOURCECOUNT((SOCResourceCount) m));
 
-            /**
-             * a player has accepted an offer
-             */
-            case SOCMessage.ACCEPTOFFER:
-                handleACCEPTOFFER((SOCAcceptOffer) mes);
+        // the latest dice result
+        handlers.put(SOCMessage.DICERESULT, m -> handleDICERESULT((SOCDiceResult) m));
 
-                break;
+        // a player built something
+        handlers.put(SOCMessage.PUTPIECE, m -> handlePUTPIECE((SOCPutPiece) m));
 
-            /**
-             * the trade message needs to be cleared
-             */
-            case SOCMessage.CLEARTRADEMSG:
-                handleCLEARTRADEMSG((SOCClearTradeMsg) mes);
+        // the robber moved
+        handlers.put(SOCMessage.MOVEROBBER, m -> handleMOVEROBBER((SOCMoveRobber) m));
 
-                break;
+        // the server wants this player to discard
+        handlers.put(SOCMessage.DISCARDREQUEST, m -> handleDISCARDREQUEST((SOCDiscardRequest) m));
 
-            /**
-             * the current number of development cards
-             */
-            case SOCMessage.DEVCARDCOUNT:
-                handleDEVCARDCOUNT((SOCDevCardCount) mes);
+        // the server wants this player to choose a player to rob
+        handlers.put(SOCMessage.CHOOSEPLAYERREQUEST, m -> handleCHOOSEPLAYERREQUEST((SOCChoosePlayerRequest) m));
 
-                break;
+        // a player has made an offer
+        handlers.put(SOCMessage.MAKEOFFER, m -> handleMAKEOFFER((SOCMakeOffer) m));
 
-            /**
-             * a dev card action, either draw, play, or add to hand
-             */
-            case SOCMessage.DEVCARD:
-                handleDEVCARD((SOCDevCard) mes);
+        // a player has cleared her offer
+        handlers.put(SOCMessage.CLEAROFFER, m -> handleCLEAROFFER((SOCClearOffer) m));
 
-                break;
+        // a player has rejected an offer
+        handlers.put(SOCMessage.REJECTOFFER, m -> handleREJECTOFFER((SOCRejectOffer) m));
 
-            /**
-             * set the flag that tells if a player has played a
-             * development card this turn
-             */
-            case SOCMessage.SETPLAYEDDEVCARD:
-                handleSETPLAYEDDEVCARD((SOCSetPlayedDevCard) mes);
+        // a player has accepted an offer
+        handlers.put(SOCMessage.ACCEPTOFFER, m -> handleACCEPTOFFER((SOCAcceptOffer) m));
 
-                break;
+        // the trade message needs to be cleared
+        handlers.put(SOCMessage.CLEARTRADEMSG, m -> handleCLEARTRADEMSG((SOCClearTradeMsg) m));
 
-            /**
-             * get a list of all the potential settlements for a player
-             */
-            case SOCMessage.POTENTIALSETTLEMENTS:
-                handlePOTENTIALSETTLEMENTS((SOCPotentialSettlements) mes);
+        // the current number of development cards
+        handlers.put(SOCMessage.DEVCARDCOUNT, m -> handleDEVCARDCOUNT((SOCDevCardCount) m));
 
-                break;
+        // a dev card action, either draw, play, or add to hand
+        handlers.put(SOCMessage.DEVCARD, m -> handleDEVCARD((SOCDevCard) m));
 
-            /**
-             * the server is requesting that we join a game
-             */
-            case SOCMessage.JOINGAMEREQUEST:
-                handleJOINGAMEREQUEST((SOCJoinGameRequest) mes);
+        // set the flag that tells if a player has played a development card this turn
+        handlers.put(SOCMessage.SETPLAYEDDEVCARD, m -> handleSETPLAYEDDEVCARD((SOCSetPlayedDevCard) m));
 
-                break;
+        // get a list of all the potential settlements for a player
+        handlers.put(SOCMessage.POTENTIALSETTLEMENTS, m -> handlePOTENTIALSETTLEMENTS((SOCPotentialSettlements) m));
 
-            /**
-             * message that means the server wants us to leave the game
-             */
-            case SOCMessage.ROBOTDISMISS:
-                handleROBOTDISMISS((SOCRobotDismiss) mes);
+        // the server is requesting that we join a game
+        handlers.put(SOCMessage.JOINGAMEREQUEST, m -> handleJOINGAMEREQUEST((SOCJoinGameRequest) m));
 
-                break;
-            }
-        }
-        catch (Exception e)
-        {
-            System.out.println("SOCRobotClient treat ERROR - " + e.getMessage());
-            e.printStackTrace();
-        }
+        // message that means the server wants us to leave the game
+        handlers.put(SOCMessage.ROBOTDISMISS, m -> handleROBOTDISMISS((SOCRobotDismiss) m));
     }
 
     /**
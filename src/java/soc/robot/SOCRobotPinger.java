@@ -24,18 +24,24 @@ import soc.message.SOCGameTextMsg;
 
 import soc.util.CappedQueue;
 import soc.util.CutoffExceededException;
+import soc.util.TimingWheel;
 
 
 /**
- * Pings the robots so that they can have a sense of time
+ * Pings the robots so that they can have a sense of time.
+ * All robot pingers share one {@link TimingWheel} instead of
+ * each having a thread.
  *
  * @author Robert S Thomas
  */
-public class SOCRobotPinger extends Thread
+public class SOCRobotPinger implements Runnable
 {
+    /** the wheel all robot pingers run on; started when first needed */
+    private static TimingWheel timers = null;
+
     CappedQueue messageQueue;
     SOCGameTextMsg ping;
-    boolean alive;
+    volatile boolean alive;
 
     /**
      * Create a robot pinger
@@ -49,12 +55,32 @@ public class SOCRobotPinger extends Thread
         alive = true;
     }
 
+    /** @return the shared timing wheel, starting it if needed */
+    private static synchronized TimingWheel getTimers()
+    {
+        if (timers == null)
+        {
+            timers = new TimingWheel("robot-timers", 100);
+            timers.start();
+        }
+
+        return timers;
+    }
+
     /**
-     * DOCUMENT ME!
+     * Start pinging
+     */
+    public void start()
+    {
+        getTimers().schedule(this, 0);
+    }
+
+    /**
+     * Ping the brain, then wait a second for the next time
      */
     public void run()
     {
-        while (alive)
+        if (alive)
         {
             try
             {
@@ -64,18 +90,17 @@ public class SOCRobotPinger extends Thread
             {
                 alive = false;
             }
-
-            Thread.yield();
-
-            try
-            {
-                sleep(1000);
-            }
-            catch (InterruptedException exc) {}
         }
 
-        messageQueue = null;
-        ping = null;
+        if (alive)
+        {
+            getTimers().schedule(this, 1000);
+        }
+        else
+        {
+            messageQueue = null;
+            ping = null;
+        }
     }
 
     /**
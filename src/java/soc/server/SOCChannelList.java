@@ -33,13 +33,19 @@ import java.util.Vector;
 
 /**
  * A class for tracking the chat channels
+ *<P>
+ * Each channel's members are kept as a snapshot: a Vector that is never
+ * changed once made.  Joining or leaving makes a new one and puts it in
+ * channelMembers, so whoever has a snapshot from {@link #getMembers(String)}
+ * can go through it without holding any monitor.  Nobody may change a
+ * snapshot.
  *
  * @author Robert S. Thomas
  */
 public class SOCChannelList
 {
-    protected Hashtable channelMutexes;
-    protected Hashtable channelMembers;
+    protected Hashtable<String, MutexFlag> channelMutexes;
+    protected Hashtable<String, Vector<Connection>> channelMembers;
     protected boolean inUse;
 
     /**
@@ -47,8 +53,8 @@ public class SOCChannelList
      */
     public SOCChannelList()
     {
-        channelMutexes = new Hashtable();
-        channelMembers = new Hashtable();
+        channelMutexes = new Hashtable<String, MutexFlag>();
+        channelMembers = new Hashtable<String, Vector<Connection>>();
         inUse = false;
     }
 
@@ -94,7 +100,7 @@ public class SOCChannelList
     {
         D.ebugPrintln("SOCChannelList : TAKE MONITOR FOR " + channel);
 
-        MutexFlag mutex = (MutexFlag) channelMutexes.get(channel);
+        MutexFlag mutex = channelMutexes.get(channel);
 
         if (mutex == null)
         {
@@ -105,7 +111,7 @@ public class SOCChannelList
 
         while (!done)
         {
-            mutex = (MutexFlag) channelMutexes.get(channel);
+            mutex = channelMutexes.get(channel);
 
             if (mutex == null)
             {
@@ -147,7 +153,7 @@ public class SOCChannelList
     {
         D.ebugPrintln("SOCChannelList : RELEASE MONITOR FOR " + channel);
 
-        MutexFlag mutex = (MutexFlag) channelMutexes.get(channel);
+        MutexFlag mutex = channelMutexes.get(channel);
 
         if (mutex == null)
         {
@@ -166,22 +172,22 @@ public class SOCChannelList
     /**
      * @return an enumeration of channel names
      */
-    public Enumeration getChannels()
+    public Enumeration<String> getChannels()
     {
         return channelMembers.keys();
     }
 
     /**
      * @param   chName  channel name
-     * @return  list of members
+     * @return  list of members, a snapshot that must not be changed
      */
-    public synchronized Vector getMembers(String chName)
+    public Vector<Connection> getMembers(String chName)
     {
-        Vector result = (Vector) channelMembers.get(chName);
+        Vector<Connection> result = channelMembers.get(chName);
 
         if (result == null)
         {
-            result = new Vector();
+            result = new Vector<Connection>();
         }
 
         return result;
@@ -192,9 +198,9 @@ public class SOCChannelList
      * @param  conn     the member's connection
      * @return  true if memName is a member of the channel
      */
-    public synchronized boolean isMember(Connection conn, String chName)
+    public boolean isMember(Connection conn, String chName)
     {
-        Vector members = getMembers(chName);
+        Vector<Connection> members = getMembers(chName);
 
         if ((members != null) && (members.contains(conn)))
         {
@@ -214,11 +220,13 @@ public class SOCChannelList
      */
     public synchronized void addMember(Connection conn, String chName)
     {
-        Vector members = getMembers(chName);
+        Vector<Connection> members = channelMembers.get(chName);
 
         if ((members != null) && (!members.contains(conn)))
         {
-            members.addElement(conn);
+            Vector<Connection> v = new Vector<Connection>(members);
+            v.addElement(conn);
+            channelMembers.put(chName, v);
         }
     }
 
@@ -230,11 +238,13 @@ public class SOCChannelList
      */
     public synchronized void removeMember(Connection conn, String chName)
     {
-        Vector members = getMembers(chName);
+        Vector<Connection> members = channelMembers.get(chName);
 
-        if ((members != null))
+        if ((members != null) && members.contains(conn))
         {
-            members.removeElement(conn);
+            Vector<Connection> v = new Vector<Connection>(members);
+            v.removeElement(conn);
+            channelMembers.put(chName, v);
         }
     }
 
@@ -251,12 +261,12 @@ public class SOCChannelList
      * @param   chName  the name of the channel
      * @return true if the channel exists and has an empty member list
      */
-    public synchronized boolean isChannelEmpty(String chName)
+    public boolean isChannelEmpty(String chName)
     {
         boolean result;
-        Vector members;
+        Vector<Connection> members;
 
-        members = (Vector) channelMembers.get(chName);
+        members = channelMembers.get(chName);
 
         if ((members != null) && (members.isEmpty()))
         {
@@ -282,7 +292,7 @@ public class SOCChannelList
             MutexFlag mutex = new MutexFlag();
             channelMutexes.put(chName, mutex);
 
-            Vector members = new Vector();
+            Vector<Connection> members = new Vector<Connection>();
             channelMembers.put(chName, members);
         }
     }
@@ -297,7 +307,7 @@ public class SOCChannelList
         D.ebugPrintln("SOCChannelList : deleteChannel(" + chName + ")");
         channelMembers.remove(chName);
 
-        MutexFlag mutex = (MutexFlag) channelMutexes.get(chName);
+        MutexFlag mutex = channelMutexes.get(chName);
         channelMutexes.remove(chName);
 
         if (mutex != null)
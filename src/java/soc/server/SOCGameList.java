@@ -25,67 +25,218 @@ import soc.disableDebug.D;
 import soc.game.SOCGame;
 
 import soc.server.genericServer.Connection;
-
-import soc.util.MutexFlag;
+import soc.server.genericServer.Mailbox;
 
 import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
  * A class for tracking the games
+ *<P>
+ * The games are kept in a ConcurrentHashMap, so the read-only queries
+ * ({@link #getGames()}, {@link #isGame(String)}, {@link #getGameData(String)},
+ * {@link #getMembers(String)} and the like) take no lock at all.
+ * The monitors are fair ReentrantLocks: one for the list, taken to
+ * create or destroy games, and one for each game.  A thread may take a
+ * monitor it already holds, and must release it as many times.
+ * Waiting for a game's monitor gives up if the game is deleted meanwhile.
+ *<P>
+ * Each game's members are kept as a snapshot: a Vector that is never
+ * changed once made.  Joining or leaving makes a new one and swaps it
+ * in, so whoever has a snapshot from {@link #getMembers(String)} can
+ * go through it without holding any monitor.  Nobody may change a
+ * snapshot.
+ *<P>
+ * Each game is also given a handle when it's created: a small number, the
+ * game's index in an array of the games.  The name is looked up once,
+ * with {@link #getGameHandle(String)}, when a message naming the game
+ * comes in; from then on the game can be found by its handle without
+ * hashing or comparing the name.  A game's handle is also
+ * {@link SOCGame#getHandle()}.
+ *<P>
+ * Players are known by number the same way: each seat's connection is
+ * kept in an array by seat number, set by {@link #setSeat} when a player
+ * sits down, so the server finds a player from a connection, or a
+ * connection from a seat, without comparing nicknames.
+ *<P>
+ * Handles of deleted games are given to new games again, the ones
+ * freed longest ago first, so a handle should not be kept after the
+ * message it was looked up for has been handled.
+ *<P>
+ * Each game also has its own {@link Mailbox}, made with the game, where
+ * the server's treaters run its messages one at a time.  The mailbox
+ * is closed when the game is deleted.
  *
  * @author Robert S. Thomas
  */
 public class SOCGameList
 {
-    protected Hashtable gameMutexes;
-    protected Hashtable<String, Vector> gameMembers;
-    protected Hashtable gameData;
-    protected boolean inUse;
+    /** how long to wait for a monitor before checking the game still exists */
+    private static final long LOCK_WAIT = 1000;
+
+    /** a fair lock that can say which thread holds it */
+    static final class GameLock extends ReentrantLock
+    {
+        GameLock()
+        {
+            super(true);
+        }
+
+        /** @return the thread holding the lock, or null */
+        public Thread getOwner()
+        {
+            return super.getOwner();
+        }
+    }
+
+    /** what the list holds for one game */
+    private static final class GameEntry
+    {
+        final String name;
+        final int handle;
+        final SOCGame game;
+
+        /** where the game's messages are treated */
+        final Mailbox mailbox;
+
+        /** the members: a snapshot, replaced on join and leave */
+        volatile Vector members = new Vector();
+
+        /** the connection in each seat, or null; changed only on the game's mailbox */
+        final Connection[] seats = new Connection[SOCGame.MAXPLAYERS];
+
+        final GameLock lock = new GameLock();
+
+        /** set once the game is deleted, for those waiting for its lock */
+        volatile boolean deleted = false;
+
+        GameEntry(String n, int h, SOCGame g)
+        {
+            name = n;
+            handle = h;
+            game = g;
+            mailbox = new Mailbox(h);
+        }
+    }
+
+    /** the games, by name */
+    private final ConcurrentHashMap<String, GameEntry> gamesByName;
+
+    /** the games, by handle; null where there's no game */
+    private volatile GameEntry[] games;
+
+    /** handles given back by deleted games, freed longest ago first */
+    private final Vector freeHandles;
+
+    /** the list's monitor, see {@link #takeMonitor()} */
+    private final GameLock listLock;
 
     /**
      * constructor
      */
     public SOCGameList()
     {
-        gameMutexes = new Hashtable();
-        gameMembers = new Hashtable();
-        gameData = new Hashtable();
-        inUse = false;
+        gamesByName = new ConcurrentHashMap<String, GameEntry>();
+        games = new GameEntry[16];
+        freeHandles = new Vector();
+        listLock = new GameLock();
     }
 
     /**
      * take the monitor for this game list
      */
-    public synchronized void takeMonitor()
+    public void takeMonitor()
     {
         D.ebugPrintln("SOCGameList : TAKE MONITOR");
-
-        while (inUse)
-        {
-            try
-            {
-                wait(1000);
-            }
-            catch (InterruptedException e)
-            {
-                System.out.println("EXCEPTION IN takeMonitor() -- " + e);
-            }
-        }
-
-        inUse = true;
+        listLock.lock();
     }
 
     /**
      * release the monitor for this game list
      */
-    public synchronized void releaseMonitor()
+    public void releaseMonitor()
     {
         D.ebugPrintln("SOCGameList : RELEASE MONITOR");
-        inUse = false;
-        this.notify();
+        listLock.unlock();
+    }
+
+    /**
+     * @return the thread holding the game list's monitor, or null
+     */
+    public Thread getMonitorOwner()
+    {
+        return listLock.getOwner();
+    }
+
+    /**
+     * @param gaName  the name of the game
+     * @return the game's handle, or -1 if there's no such game
+     */
+    public int getGameHandle(String gaName)
+    {
+        GameEntry e = gamesByName.get(gaName);
+
+        return (e != null) ? e.handle : -1;
+    }
+
+    /**
+     * @param h  a game's handle
+     * @return its entry, or null if there's no game with that handle
+     */
+    private GameEntry entry(int h)
+    {
+        GameEntry[] g = games;
+
+        return ((h >= 0) && (h < g.length)) ? g[h] : null;
+    }
+
+    /**
+     * @param ga  a game
+     * @return its entry, or null if ga isn't in the list; its handle may
+     *         be another game's by now
+     */
+    private GameEntry entry(SOCGame ga)
+    {
+        GameEntry e = entry(ga.getHandle());
+
+        return ((e != null) && (e.game == ga)) ? e : null;
+    }
+
+    /**
+     * @param h  a game's handle
+     * @return the game's name, or null if there's no such game
+     */
+    public String getGameName(int h)
+    {
+        GameEntry e = entry(h);
+
+        return (e != null) ? e.name : null;
+    }
+
+    /**
+     * @param gaName  the name of the game
+     * @return the game's mailbox, or null if there's no such game
+     */
+    public Mailbox getMailbox(String gaName)
+    {
+        GameEntry e = gamesByName.get(gaName);
+
+        return (e != null) ? e.mailbox : null;
+    }
+
+    /**
+     * @param ga  a game
+     * @return the game's mailbox, or null if ga isn't in the list
+     */
+    public Mailbox getMailbox(SOCGame ga)
+    {
+        GameEntry e = entry(ga);
+
+        return (e != null) ? e.mailbox : null;
     }
 
     /**
@@ -96,49 +247,60 @@ public class SOCGameList
      */
     public boolean takeMonitorForGame(String game)
     {
-        D.ebugPrintln("SOCGameList : TAKE MONITOR FOR " + game);
+        return lock(gamesByName.get(game));
+    }
 
-        MutexFlag mutex = (MutexFlag) gameMutexes.get(game);
+    /**
+     * take the monitor for this game
+     *
+     * @param h  the game's handle
+     * @return false if there's no such game
+     */
+    public boolean takeMonitorForGame(int h)
+    {
+        return lock(entry(h));
+    }
 
-        if (mutex == null)
+    /**
+     * Take a game's lock, giving up if the game is deleted first.
+     *
+     * @param e  the game's entry, or null
+     * @return true if the lock was taken
+     */
+    private boolean lock(GameEntry e)
+    {
+        if (e == null)
         {
             return false;
         }
 
-        boolean done = false;
+        D.ebugPrintln("SOCGameList : TAKE MONITOR FOR " + e.name);
 
-        while (!done)
+        while (!e.deleted)
         {
-            mutex = (MutexFlag) gameMutexes.get(game);
-
-            if (mutex == null)
-            {
-                return false;
-            }
-
-            synchronized (mutex)
+            try
             {
-                if (mutex.getState() == true)
+                if (e.lock.tryLock(LOCK_WAIT, TimeUnit.MILLISECONDS))
                 {
-                    try
+                    if (e.deleted)
                     {
-                        mutex.wait(1000);
-                    }
-                    catch (InterruptedException e)
-                    {
-                        System.out.println("EXCEPTION IN takeMonitor() -- " + e);
+                        e.lock.unlock();
+
+                        return false;
                     }
+
+                    return true;
                 }
-                else
-                {
-                    done = true;
-                }
+
+                D.ebugPrintln("SOCGameList : still waiting for " + e.name + ", held by " + e.lock.getOwner());
+            }
+            catch (InterruptedException ex)
+            {
+                System.out.println("EXCEPTION IN takeMonitor() -- " + ex);
             }
         }
 
-        mutex.setState(true);
-
-        return true;
+        return false;
     }
 
     /**
@@ -149,62 +311,114 @@ public class SOCGameList
      */
     public boolean releaseMonitorForGame(String game)
     {
-        D.ebugPrintln("SOCGameList : RELEASE MONITOR FOR " + game);
+        return unlock(gamesByName.get(game));
+    }
 
-        MutexFlag mutex = (MutexFlag) gameMutexes.get(game);
+    /**
+     * release the monitor for this game
+     *
+     * @param h  the game's handle
+     * @return false if there's no such game
+     */
+    public boolean releaseMonitorForGame(int h)
+    {
+        return unlock(entry(h));
+    }
 
-        if (mutex == null)
+    /**
+     * Release a game's lock, if this thread holds it.  It may not, if
+     * the game was deleted while it did, and its handle given to another.
+     *
+     * @param e  the game's entry, or null
+     * @return true if the lock was released
+     */
+    private boolean unlock(GameEntry e)
+    {
+        if ((e == null) || !e.lock.isHeldByCurrentThread())
         {
             return false;
         }
 
-        synchronized (mutex)
-        {
-            mutex.setState(false);
-            mutex.notify();
-        }
+        D.ebugPrintln("SOCGameList : RELEASE MONITOR FOR " + e.name);
+        e.lock.unlock();
 
         return true;
     }
 
+    /**
+     * @param game  the name of the game
+     * @return the thread holding the game's monitor, or null
+     */
+    public Thread getMonitorOwner(String game)
+    {
+        GameEntry e = gamesByName.get(game);
+
+        return (e != null) ? e.lock.getOwner() : null;
+    }
+
     /**
      * @return an enumeration of game names
      */
     public Enumeration<String> getGames()
     {
-        return gameMembers.keys();
+        return gamesByName.keys();
     }
 
     /**
      * @param   gaName  the name of the game
      * @return true if the channel exists and has an empty member list
      */
-    public synchronized boolean isGameEmpty(String gaName)
+    public boolean isGameEmpty(String gaName)
     {
-        boolean result;
-        Vector members;
+        Vector members = getMembers(gaName);
 
-        members = (Vector) gameMembers.get(gaName);
+        return (members != null) && members.isEmpty();
+    }
 
-        if ((members != null) && (members.isEmpty()))
-        {
-            result = true;
-        }
-        else
-        {
-            result = false;
-        }
+    /**
+     * @param   ga  a game
+     * @return true if ga is in the list and has no members
+     */
+    public boolean isGameEmpty(SOCGame ga)
+    {
+        Vector members = getMembers(ga);
 
-        return result;
+        return (members != null) && members.isEmpty();
     }
 
     /**
      * @param   gaName  game name
-     * @return  list of members
+     * @return  list of members, a snapshot that must not be changed
      */
-    public synchronized Vector getMembers(String gaName)
+    public Vector getMembers(String gaName)
     {
-        return (Vector) gameMembers.get(gaName);
+        GameEntry e = gamesByName.get(gaName);
+
+        return (e != null) ? e.members : null;
+    }
+
+    /**
+     * @param   h  the game's handle
+     * @return  list of members, a snapshot that must not be changed,
+     *          or null if there's no such game
+     */
+    public Vector getMembers(int h)
+    {
+        GameEntry e = entry(h);
+
+        return (e != null) ? e.members : null;
+    }
+
+    /**
+     * @param   ga  a game
+     * @return  list of members, a snapshot that must not be changed,
+     *          or null if ga isn't in the list
+     */
+    public Vector getMembers(SOCGame ga)
+    {
+        GameEntry e = entry(ga);
+
+        return (e != null) ? e.members : null;
     }
 
     /**
@@ -213,7 +427,20 @@ public class SOCGameList
      */
     public SOCGame getGameData(String gaName)
     {
-        return (SOCGame) gameData.get(gaName);
+        GameEntry e = gamesByName.get(gaName);
+
+        return (e != null) ? e.game : null;
+    }
+
+    /**
+     * @param   h  the game's handle
+     * @return the game data, or null if there's no such game
+     */
+    public SOCGame getGameData(int h)
+    {
+        GameEntry e = entry(h);
+
+        return (e != null) ? e.game : null;
     }
 
     /**
@@ -221,18 +448,89 @@ public class SOCGameList
      * @param  conn     the member's connection
      * @return true if memName is a member of the game
      */
-    public synchronized boolean isMember(Connection conn, String gaName)
+    public boolean isMember(Connection conn, String gaName)
     {
         Vector members = getMembers(gaName);
 
-        if ((members != null) && (members.contains(conn)))
+        return (members != null) && members.contains(conn);
+    }
+
+    /**
+     * @param  h        the game's handle
+     * @param  conn     the member's connection
+     * @return true if conn is a member of the game
+     */
+    public boolean isMember(Connection conn, int h)
+    {
+        Vector members = getMembers(h);
+
+        return (members != null) && members.contains(conn);
+    }
+
+    /**
+     * @param  ga       a game
+     * @param  conn     the member's connection
+     * @return true if conn is a member of the game
+     */
+    public boolean isMember(Connection conn, SOCGame ga)
+    {
+        Vector members = getMembers(ga);
+
+        return (members != null) && members.contains(conn);
+    }
+
+    /**
+     * Note who's in a seat.  Call on the game's mailbox, when a player
+     * sits down or leaves.
+     *
+     * @param ga    the game
+     * @param pn    the seat number
+     * @param conn  the player's connection, or null if the seat is empty
+     */
+    public void setSeat(SOCGame ga, int pn, Connection conn)
+    {
+        GameEntry e = entry(ga);
+
+        if (e != null)
         {
-            return true;
+            e.seats[pn] = conn;
         }
-        else
+    }
+
+    /**
+     * @param ga  the game
+     * @param pn  a seat number
+     * @return the connection of the player in that seat, or null
+     */
+    public Connection getSeatConnection(SOCGame ga, int pn)
+    {
+        GameEntry e = entry(ga);
+
+        return (e != null) ? e.seats[pn] : null;
+    }
+
+    /**
+     * @param ga    the game
+     * @param conn  a connection
+     * @return the seat number of conn's player in the game, or -1 if
+     *         conn isn't sitting in it
+     */
+    public int getSeatNumber(SOCGame ga, Connection conn)
+    {
+        GameEntry e = entry(ga);
+
+        if ((e != null) && (conn != null))
         {
-            return false;
+            for (int pn = 0; pn < e.seats.length; pn++)
+            {
+                if (e.seats[pn] == conn)
+                {
+                    return pn;
+                }
+            }
         }
+
+        return -1;
     }
 
     /**
@@ -241,13 +539,35 @@ public class SOCGameList
      * @param  gaName   the name of the game
      * @param  conn     the member's connection
      */
-    public synchronized void addMember(Connection conn, String gaName)
+    public void addMember(Connection conn, String gaName)
     {
-        Vector members = getMembers(gaName);
+        addMember(conn, gamesByName.get(gaName));
+    }
 
-        if ((members != null) && (!members.contains(conn)))
+    /**
+     * add a member to the game
+     *
+     * @param  ga       the game
+     * @param  conn     the member's connection
+     */
+    public void addMember(Connection conn, SOCGame ga)
+    {
+        addMember(conn, entry(ga));
+    }
+
+    private void addMember(Connection conn, GameEntry e)
+    {
+        if (e != null)
         {
-            members.addElement(conn);
+            synchronized (e)
+            {
+                if (!e.members.contains(conn))
+                {
+                    Vector v = (Vector) e.members.clone();
+                    v.addElement(conn);
+                    e.members = v;
+                }
+            }
         }
     }
 
@@ -257,82 +577,138 @@ public class SOCGameList
      * @param  gaName   the name of the game
      * @param  conn     the member's connection
      */
-    public synchronized void removeMember(Connection conn, String gaName)
+    public void removeMember(Connection conn, String gaName)
     {
-        Vector members = getMembers(gaName);
+        removeMember(conn, gamesByName.get(gaName));
+    }
 
-        if ((members != null))
+    /**
+     * remove member from the game
+     *
+     * @param  ga       the game
+     * @param  conn     the member's connection
+     */
+    public void removeMember(Connection conn, SOCGame ga)
+    {
+        removeMember(conn, entry(ga));
+    }
+
+    private void removeMember(Connection conn, GameEntry e)
+    {
+        if (e != null)
         {
-            members.removeElement(conn);
+            synchronized (e)
+            {
+                if (e.members.contains(conn))
+                {
+                    Vector v = (Vector) e.members.clone();
+                    v.removeElement(conn);
+                    e.members = v;
+                }
+            }
         }
     }
 
+    /**
+     * @param   ga  a game
+     * @return true if ga is in the list; false once it's deleted, even
+     *          if a new game has been made with the same name
+     */
+    public boolean isGame(SOCGame ga)
+    {
+        return entry(ga) != null;
+    }
+
     /**
      * @param   gaName  the name of the game
      * @return true if the game exists
      */
     public boolean isGame(String gaName)
     {
-        return (gameMembers.get(gaName) != null);
+        return gamesByName.containsKey(gaName);
     }
 
     /**
-     * create a new game
+     * create a new game, and give it a handle
      *
      * @param gaName  the name of the game
      */
-    public synchronized void createGame(String gaName)
+    public void createGame(String gaName)
     {
-        if (!isGame(gaName))
+        synchronized (freeHandles)
         {
-            MutexFlag mutex = new MutexFlag();
-            gameMutexes.put(gaName, mutex);
+            if (isGame(gaName))
+            {
+                return;
+            }
+
+            int h;
 
-            Vector members = new Vector();
-            gameMembers.put(gaName, members);
+            if (freeHandles.isEmpty())
+            {
+                h = gamesByName.size();
+            }
+            else
+            {
+                h = ((Integer) freeHandles.remove(0)).intValue();
+            }
+
+            if (h >= games.length)
+            {
+                GameEntry[] g = new GameEntry[games.length * 2];
+                System.arraycopy(games, 0, g, 0, games.length);
+                games = g;
+            }
 
             SOCGame game = new SOCGame(gaName);
+            game.setHandle(h);
 
             // set the expiration to 90 min. from now
             game.setExpiration(game.getStartTime().getTime() + SOCServer.TIME_LIMIT);
-            gameData.put(gaName, game);
+
+            GameEntry e = new GameEntry(gaName, h, game);
+            games[h] = e;
+            gamesByName.put(gaName, e);  // after the array, so whoever finds it here finds it there
         }
     }
 
     /**
-     * remove the game from the list
+     * remove the game from the list.  If this thread holds the game's
+     * monitor, it's released; those waiting for it give up.
      *
      * @param gaName  the name of the game
      */
-    public synchronized void deleteGame(String gaName)
+    public void deleteGame(String gaName)
     {
         D.ebugPrintln("SOCGameList : deleteGame(" + gaName + ")");
 
-        SOCGame game = (SOCGame) gameData.get(gaName);
+        GameEntry e;
 
-        if (game != null)
+        synchronized (freeHandles)
         {
-            game.destroyGame();
+            e = gamesByName.remove(gaName);
+
+            if (e == null)
+            {
+                return;
+            }
+
+            e.deleted = true;
+            e.mailbox.close();
+            games[e.handle] = null;
+            freeHandles.addElement(Integer.valueOf(e.handle));
         }
 
-        Vector members = (Vector) gameMembers.get(gaName);
+        e.game.destroyGame();
 
-        if (members != null)
+        synchronized (e)
         {
-            members.removeAllElements();
+            e.members = new Vector();
         }
 
-        MutexFlag mutex = (MutexFlag) gameMutexes.get(gaName);
-        gameMutexes.remove(gaName);
-        gameMembers.remove(gaName);
-        gameData.remove(gaName);
-
-        if (mutex != null)
+        while (e.lock.isHeldByCurrentThread())
         {
-            synchronized (mutex)
-            {
-                mutex.notifyAll();
-            }
+            e.lock.unlock();
         }
     }
 }
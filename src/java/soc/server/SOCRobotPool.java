@@ -0,0 +1,291 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server;
+
+import soc.server.genericServer.Connection;
+
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+
+/**
+ * The robots connected to the server, and how busy each one is, so
+ * that a seat needing a robot goes to the least loaded one.
+ *<P>
+ * For each robot the pool keeps the games it has been asked to play
+ * (its brains, counted from the join request until it leaves the game
+ * or the game is destroyed), and the time it took to sit down after
+ * recent join requests, as a moving average.  The robots are kept in
+ * a TreeSet ordered by games and then by that time, so the least
+ * loaded one is found in O(log n).  Among the few eligible robots with
+ * the fewest games, the one with the fewest messages waiting in its
+ * outQueue is picked, since a robot that's behind on its messages is
+ * busier than its games show.
+ *<P>
+ * All the methods are synchronized; picks come from the games' mailboxes.
+ */
+public class SOCRobotPool
+{
+    /** how many eligible robots with the fewest games to compare queue depths of */
+    private static final int PEEK = 4;
+
+    /** one robot connection */
+    static final class Robot
+    {
+        final Connection conn;
+
+        /** the order the robot joined the pool in, to break ties */
+        final int id;
+
+        /**
+         * the games it's been asked to play: game name to the time of
+         * the join request (System.nanoTime()), or 0 once it's sat down
+         */
+        final Hashtable<String, Long> games = new Hashtable<String, Long>();
+
+        /** moving average of join request to sitting down, in ms */
+        long latency = 0;
+
+        Robot(Connection c, int n)
+        {
+            conn = c;
+            id = n;
+        }
+    }
+
+    /** least loaded first */
+    private static final Comparator<Robot> LOAD = new Comparator<Robot>()
+    {
+        public int compare(Robot ra, Robot rb)
+        {
+            if (ra.games.size() != rb.games.size())
+            {
+                return (ra.games.size() < rb.games.size()) ? -1 : 1;
+            }
+
+            if (ra.latency != rb.latency)
+            {
+                return (ra.latency < rb.latency) ? -1 : 1;
+            }
+
+            return (ra.id < rb.id) ? -1 : ((ra.id == rb.id) ? 0 : 1);
+        }
+    };
+
+    /** the robots, least loaded first */
+    private final TreeSet<Robot> byLoad = new TreeSet<Robot>(LOAD);
+
+    /** the robots by connection */
+    private final Hashtable<Connection, Robot> byConn = new Hashtable<Connection, Robot>();
+
+    /** the next robot's id */
+    private int nextId = 0;
+
+    /**
+     * add a robot to the pool
+     *
+     * @param c  the robot's connection
+     */
+    public synchronized void add(Connection c)
+    {
+        if (!byConn.containsKey(c))
+        {
+            Robot r = new Robot(c, nextId++);
+            byConn.put(c, r);
+            byLoad.add(r);
+        }
+    }
+
+    /**
+     * take a robot out of the pool
+     *
+     * @param c  the robot's connection
+     */
+    public synchronized void remove(Connection c)
+    {
+        Robot r = byConn.remove(c);
+
+        if (r != null)
+        {
+            byLoad.remove(r);
+        }
+    }
+
+    /**
+     * @return the number of robots in the pool
+     */
+    public synchronized int size()
+    {
+        return byConn.size();
+    }
+
+    /**
+     * Pick the least loaded robot that isn't already playing or asked
+     * to play a game, and count the game against it.  The caller sends
+     * the join request.
+     *
+     * @param game  the game name
+     * @return the robot's connection, or null if no robot can play
+     */
+    public synchronized Connection pick(String game)
+    {
+        Robot best = null;
+        int bestDepth = 0;
+        int seen = 0;
+
+        for (Iterator<Robot> it = byLoad.iterator(); it.hasNext();)
+        {
+            Robot r = it.next();
+
+            if (r.games.containsKey(game))
+            {
+                continue;
+            }
+
+            if ((best != null) && (r.games.size() > best.games.size()))
+            {
+                break;
+            }
+
+            int depth = r.conn.getQueueDepth();
+
+            if ((best == null) || (depth < bestDepth))
+            {
+                best = r;
+                bestDepth = depth;
+            }
+
+            if (++seen == PEEK)
+            {
+                break;
+            }
+        }
+
+        if (best != null)
+        {
+            byLoad.remove(best);
+            best.games.put(game, Long.valueOf(System.nanoTime()));
+            byLoad.add(best);
+
+            return best.conn;
+        }
+
+        return null;
+    }
+
+    /**
+     * A robot has sat down in a game it was asked to play; note how long
+     * it took.
+     *
+     * @param c  the robot's connection
+     * @param game  the game name
+     */
+    public synchronized void seated(Connection c, String game)
+    {
+        Robot r = byConn.get(c);
+
+        if (r == null)
+        {
+            return;
+        }
+
+        Long asked = r.games.get(game);
+
+        if ((asked != null) && (asked.longValue() != 0))
+        {
+            long ms = (System.nanoTime() - asked.longValue()) / 1000000;
+
+            byLoad.remove(r);
+            r.latency = (r.latency == 0) ? ms : ((7 * r.latency) + ms) / 8;
+            r.games.put(game, Long.valueOf(0));
+            byLoad.add(r);
+        }
+    }
+
+    /**
+     * A robot asked to play a game hasn't sat down in time.  The wait so
+     * far counts towards its average.  The game still counts against it
+     * until it's released: when it leaves, when the game is destroyed, or
+     * at once if it's dismissed before it joined.
+     *
+     * @param c  the robot's connection
+     * @param game  the game name
+     */
+    public synchronized void timedOut(Connection c, String game)
+    {
+        Robot r = byConn.get(c);
+
+        if (r == null)
+        {
+            return;
+        }
+
+        Long asked = r.games.get(game);
+
+        if ((asked != null) && (asked.longValue() != 0))
+        {
+            long now = System.nanoTime();
+            long ms = (now - asked.longValue()) / 1000000;
+
+            byLoad.remove(r);
+            r.latency = (r.latency == 0) ? ms : ((7 * r.latency) + ms) / 8;
+            r.games.put(game, Long.valueOf(now));
+            byLoad.add(r);
+        }
+    }
+
+    /**
+     * A robot is no longer playing a game: it left, or the game was
+     * destroyed.  Does nothing if it wasn't.
+     *
+     * @param c  the robot's connection
+     * @param game  the game name
+     */
+    public synchronized void release(Connection c, String game)
+    {
+        Robot r = byConn.get(c);
+
+        if ((r != null) && r.games.containsKey(game))
+        {
+            byLoad.remove(r);
+            r.games.remove(game);
+            byLoad.add(r);
+        }
+    }
+
+    /**
+     * @param c  a robot's connection
+     * @return how busy it is, for *BOTLIST*, or null if it's not in the pool
+     */
+    public synchronized String describe(Connection c)
+    {
+        Robot r = byConn.get(c);
+
+        if (r == null)
+        {
+            return null;
+        }
+
+        return r.games.size() + " games, sits in " + r.latency + " ms, " + c.getQueueDepth() + " queued";
+    }
+}
@@ -24,10 +24,10 @@ import java.sql.SQLException;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.Random;
 import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import soc.debug.D;		// isableD
 import soc.game.SOCBoard;
@@ -48,10 +48,12 @@ import soc.message.SOCAdminPing;
 import soc.message.SOCAdminReset;
 import soc.message.SOCBCastTextMsg;
 import soc.message.SOCBankTrade;
+import soc.message.SOCBinaryCodec;
 import soc.message.SOCBoardLayout;
 import soc.message.SOCBuildRequest;
 import soc.message.SOCBuyCardRequest;
 import soc.message.SOCCancelBuildRequest;
+import soc.message.SOCCapabilities;
 import soc.message.SOCChangeFace;
 import soc.message.SOCChannels;
 import soc.message.SOCChoosePlayer;
@@ -69,7 +71,9 @@ import soc.message.SOCDiscardRequest;
 import soc.message.SOCDiscoveryPick;
 import soc.message.SOCEndTurn;
 import soc.message.SOCFirstPlayer;
+import soc.message.SOCGameHandle;
 import soc.message.SOCGameMembers;
+import soc.message.SOCGameSnapshot;
 import soc.message.SOCGameState;
 import soc.message.SOCGameTextMsg;
 import soc.message.SOCGames;
@@ -82,6 +86,7 @@ import soc.message.SOCJoinGameRequest;
 import soc.message.SOCLargestArmy;
 import soc.message.SOCLastSettlement;
 import soc.message.SOCLeave;
+import soc.message.SOCLeaveAll;
 import soc.message.SOCLeaveGame;
 import soc.message.SOCLongestRoad;
 import soc.message.SOCMakeOffer;
@@ -98,6 +103,7 @@ import soc.message.SOCPutPiece;
 import soc.message.SOCRejectConnection;
 import soc.message.SOCRejectOffer;
 import soc.message.SOCResourceCount;
+import soc.message.SOCResume;
 import soc.message.SOCRobotDismiss;
 import soc.message.SOCRollDice;
 import soc.message.SOCSetPlayedDevCard;
@@ -108,10 +114,14 @@ import soc.message.SOCStartGame;
 import soc.message.SOCStatusMessage;
 import soc.message.SOCTextMsg;
 import soc.message.SOCTurn;
+import soc.message.SOCTypeTable;
 import soc.message.SOCUpdateRobotParams;
 import soc.robot.SOCRobotClient;
 import soc.server.database.SOCDBHelper;
 import soc.server.genericServer.Connection;
+import soc.server.genericServer.Deflation;
+import soc.server.genericServer.Frame;
+import soc.server.genericServer.Mailbox;
 import soc.server.genericServer.Server;
 import soc.util.IntPair;
 import soc.util.SOCRobotParameters;
@@ -119,6 +129,12 @@ import soc.util.Version;
 
 /**
  * A server for Settlers of Catan
+ *<P>
+ * Each game's messages are handled on the game's own mailbox (see
+ * {@link Server#postToGame(Mailbox, Runnable)}), one at a time, so the
+ * handlers change the SOCGame without taking its monitor.  Anything
+ * else that changes a game, such as leaving all games when a connection
+ * is lost, is posted to the game's mailbox as a task.
  *
  * @author  Robert S. Thomas
  *
@@ -132,16 +148,24 @@ public class SOCServer extends Server
      */
     public static final String SERVERNAME = "Server";
 
+    /**
+     * System property: set to "false" to connect the robots started
+     * by main() over TCP instead of in-process.
+     */
+    public static final String LOCAL_ROBOTS_PROPERTY = "LOCAL_ROBOTS";
+
+    /**
+     * System property: seconds a robot asked to fill a seat when a game
+     * starts has to sit down before another robot is asked instead
+     * (default 10; 0 waits for it however long it takes).
+     */
+    public static final String ROBOT_JOIN_TIMEOUT_PROPERTY = "ROBOT_JOIN_TIMEOUT";
+
     /** 90 minutes */
     public static final long TIME_LIMIT = TimeUnit.MINUTES.toMillis(90);
     public static final long TIME_EXTENSION = TimeUnit.MINUTES.toMillis(30);
     public static final long TIME_WARNING = TimeUnit.MINUTES.toMillis(5);
 
-    /**
-     * So we can get random numbers.
-     */
-    private Random rand = new Random();
-
     /**
      * The TCP port we listen on.
      */
@@ -157,6 +181,12 @@ public class SOCServer extends Server
      */
     protected Vector robots = new Vector();
 
+    /**
+     * The same robots, with how busy each is; seats needing a robot
+     * are given to the least loaded one
+     */
+    protected SOCRobotPool robotPool = new SOCRobotPool();
+
     /**
      * list of chat channels
      */
@@ -194,29 +224,140 @@ public class SOCServer extends Server
     protected long startTime;
 
     /**
-     * the total number of games that have been started
+     * the total number of games that have been started; counted from
+     * each game's mailbox, so from several threads at once
      */
-    protected int numberOfGamesStarted;
+    protected final AtomicInteger numberOfGamesStarted = new AtomicInteger();
 
     /**
      * the total number of games finished
      */
-    protected int numberOfGamesFinished;
+    protected final AtomicInteger numberOfGamesFinished = new AtomicInteger();
 
     /**
      * total number of users
      */
     protected int numberOfUsers;
 
+    /** held while checking and assigning a connection's nickname */
+    private Object nicknameLock = new Object();
+
+    /**
+     * Treats one type of message from a client.
+     */
+    public interface Handler
+    {
+        /**
+         * @param c  the connection that sent the message
+         * @param mes  the message
+         * @param h  the handle of the game whose mailbox it's treated
+         *           on, or -1 for the lobby's
+         */
+        void handle(Connection c, SOCMessage mes, int h);
+    }
+
+    /**
+     * A group of messages for one game, to be sent together by
+     * {@link SOCServer#messageToGame(SOCGame, MessageBatch)}: each
+     * connection gets its share queued at once, to go out with one write.  Messages for
+     * one player can be mixed in; everyone gets their messages in the
+     * order they were added.
+     */
+    public static final class MessageBatch
+    {
+        /** the messages, in order */
+        final Vector<SOCMessage> messages = new Vector<SOCMessage>();
+
+        /** for each message, the one connection it's for, or null for the whole game */
+        final Vector<Connection> targets = new Vector<Connection>();
+
+        /**
+         * Add a message for everyone in the game.
+         *
+         * @param mes  the message; don't change it after this
+         */
+        public void add(SOCMessage mes)
+        {
+            messages.addElement(mes);
+            targets.addElement(null);
+        }
+
+        /**
+         * Add a message for one player only.
+         *
+         * @param c  the player's connection; if null, the message is dropped
+         * @param mes  the message; don't change it after this
+         */
+        public void addToPlayer(Connection c, SOCMessage mes)
+        {
+            if (c != null)
+            {
+                messages.addElement(mes);
+                targets.addElement(c);
+            }
+        }
+
+        /** @return true if nothing has been added */
+        public boolean isEmpty()
+        {
+            return messages.isEmpty();
+        }
+    }
+
+    /**
+     * the Handler for each message type, which also counts the messages
+     * and the time taken over them; see {@link #processCommand}
+     */
+    protected final SOCTypeTable<Handler> handlers = new SOCTypeTable<Handler>(true);
+
+    /**
+     * the protocol features this server can use; see {@link SOCCapabilities}
+     */
+    public static final int CAPABILITIES = SOCCapabilities.BINARY | SOCCapabilities.SNAPSHOT | SOCCapabilities.RESUME | SOCCapabilities.DEFLATE;
+
+    /**
+     * What clients joining a game are sent about it, made once and kept
+     * until the game changes; see {@link #sendGameState}.
+     */
+    private static final class JoinState
+    {
+        /** the game this was made from */
+        final SOCGame game;
+
+        /** the game's change count when this was made */
+        final int changeCount;
+
+        /** the GAMESNAPSHOT Frame, or null until a client takes one */
+        Frame snapshot;
+
+        /** the Frames sent one at a time, or null until a client takes them */
+        Frame[] frames;
+
+        JoinState(SOCGame ga)
+        {
+            game = ga;
+            changeCount = ga.getChangeCount();
+        }
+    }
+
+    /**
+     * the JoinState for each game, by name
+     */
+    private Hashtable<String, JoinState> joinStates = new Hashtable<String, JoinState>();
+
     /**
      * server robot pinger
      */
     SOCServerRobotPinger serverRobotPinger;
 
     /**
-     * game timeout checker
+     * true unless TL=none: games are destroyed when their time limit runs out
      */
-    SOCGameTimeoutChecker gameTimeoutChecker;
+    boolean expireGames;
+
+    /** ms a robot has to sit down when a game starts, or 0 for no limit */
+    long robotJoinTimeout;
+
     String databaseUserName;
     String databasePassword;
 
@@ -232,6 +373,7 @@ public class SOCServer extends Server
     {
         super(p);
         maxConnections = mc;
+        registerHandlers();
 
         System.err.println("Java Settlers Server TL=\"" + (System.getProperty("TL")) +"\"");
 
@@ -251,19 +393,17 @@ public class SOCServer extends Server
 
         port = p;
         startTime = System.currentTimeMillis();
-        numberOfGamesStarted = 0;
-        numberOfGamesFinished = 0;
         numberOfUsers = 0;
-        serverRobotPinger = new SOCServerRobotPinger(robots);
+        serverRobotPinger = new SOCServerRobotPinger(robots, timers);
         serverRobotPinger.start();
-        gameTimeoutChecker = new SOCGameTimeoutChecker(this);
         System.err.println("TL=" + System.getProperty("TL"));
-        if (!"none".equals(System.getProperty("TL"))) {
-            System.err.println("Starting TimeoutChecker");
-            gameTimeoutChecker.start(); // setTimeout(() => server.checkForExpiredGames(), 5 SECS)
+        expireGames = !"none".equals(System.getProperty("TL"));
+        if (expireGames) {
+            System.err.println("Games expire after " + (TIME_LIMIT / 60000) + " minutes");
         } else {
-            System.err.println("Not starting TimeoutChecker");
+            System.err.println("Games do not expire");
         }
+        robotJoinTimeout = TimeUnit.SECONDS.toMillis(Math.max(0, Integer.getInteger(ROBOT_JOIN_TIMEOUT_PROPERTY, 10).intValue()));
         this.databaseUserName = databaseUserName;
         this.databasePassword = databasePassword;
     }
@@ -294,6 +434,19 @@ public class SOCServer extends Server
         }
     }
 
+    /**
+     * @param ga  a game
+     * @param c   a connection
+     * @return c's player in the game, found by seat number, or null if
+     *         c isn't sitting in it
+     */
+    private SOCPlayer playerFor(SOCGame ga, Connection c)
+    {
+        int pn = gameList.getSeatNumber(ga, c);
+
+        return (pn != -1) ? ga.getPlayer(pn) : null;
+    }
+
     /**
      * @param a SOCPlayer name.
      * @return Connection to player named by pname.
@@ -371,131 +524,117 @@ public class SOCServer extends Server
     }
 
     /**
-     * Adds a connection to a game.
+     * Adds a connection to a game, which must exist already; see
+     * {@link #createGame(String)}.
+     *
+     * WARNING: MUST BE RUN ON THE GAME'S MAILBOX
      *
      * @param c    the Connection to be added
-     * @param ga   the name of the game
+     * @param ga   the game
      *
      * @return     true if c was not a member of ch before
      */
-    public boolean connectToGame(Connection c, String ga)
+    public boolean connectToGame(Connection c, SOCGame ga)
     {
         boolean result = false;
 
-        if (c != null) {
-            boolean gameExists = false;
-            gameList.takeMonitor();
-
+        if ((c != null) && gameList.isGame(ga)) {
             try {
-                gameExists = gameList.isGame(ga);
+                if (gameList.isMember(c, ga)) {
+                    result = false;
+                } else {
+                    sendGameHandle(c, ga);
+                    gameList.addMember(c, ga); // connect joining players
+                    result = true;
+                }
             } catch (Exception e) {
-                D.ebugPrintln("Excepetion in connectToGame - " + e);
+                D.ebugPrintln("Excepetion in connectToGame (isMember) - " + e);
             }
+        }
 
-            gameList.releaseMonitor();
-
-            if (gameExists) {
-                gameList.takeMonitorForGame(ga);
-
-                try {
-                    if (gameList.isMember(c, ga)) {
-                        result = false;
-                    } else {
-                        gameList.addMember(c, ga); // connect joining players
-                        result = true;
-                    }
-                } catch (Exception e) {
-                    D.ebugPrintln("Excepetion in connectToGame (isMember) - " + e);
-                }
-
-                gameList.releaseMonitorForGame(ga);
-            } else {
-                /**
-                 * the game did not exist, create it
-                 */
-                gameList.takeMonitor();
-
-                boolean monitorReleased = false;
+        return result;
+    }
 
-                try {
-                    gameList.createGame(ga); // create SOCGame in server space
-                    gameList.addMember(c, ga); // connect first player
+    /**
+     * Create a game, unless there's one by that name already, and let
+     * everyone know about it.
+     *
+     * @param ga   the name of the game
+     * @return     the game's mailbox, or null if it couldn't be made
+     */
+    private Mailbox createGame(String ga)
+    {
+        boolean created = false;
+        gameList.takeMonitor();
 
-                    // must release monitor before we broadcast
-                    gameList.releaseMonitor();
-                    monitorReleased = true;
-                    broadcast(SOCNewGame.toCmd(ga));
-                    result = true;
-                } catch (Exception e) {
-                    D.ebugPrintln("Excepetion in connectToGame - " + e);
-		    e.printStackTrace(System.out);
-                }
+        try {
+            if (!gameList.isGame(ga)) {
+                gameList.createGame(ga); // create SOCGame in server space
+                created = true;
 
-                if (!monitorReleased) {
-                    gameList.releaseMonitor();
+                if (expireGames) {
+                    scheduleExpiryCheck(gameList.getGameData(ga));
                 }
             }
-
-            return result;
+        } catch (Exception e) {
+            D.ebugPrintln("Excepetion in createGame - " + e);
+            e.printStackTrace(System.out);
         }
-        else
-        {
-            return false;
+
+        // must release monitor before we broadcast
+        gameList.releaseMonitor();
+
+        if (created) {
+            broadcast(SOCNewGame.toCmd(ga));
         }
+
+        return gameList.getMailbox(ga);
     }
 
     /**
      * the connection c leaves the game gm
      *
-     * WARNING: MUST HAVE THE gameList.takeMonitorForGame(gm) before
-     * calling this method
+     * WARNING: MUST BE RUN ON THE GAME'S MAILBOX: from its message
+     * handlers or a task given to postToGame(gm, ...)
      *
      * @param c  the connection
-     * @param gm the game
+     * @param cg the game
      * @param gameListLock  true if we have the gameList.takeMonitor() lock
      * @return true if the game was destroyed
      */
-    public boolean leaveGame(Connection c, String gm, boolean gameListLock)
+    public boolean leaveGame(Connection c, SOCGame cg, boolean gameListLock)
     {
         boolean gameDestroyed = false;
 
         if (c != null)
         {
-            gameList.removeMember(c, gm);
+            String gm = cg.getName();
+
+            gameList.removeMember(c, cg);
+            robotPool.release(c, gm);
 
-            boolean isPlayer = false;
-            int playerNumber = 0;
-            SOCGame cg = gameList.getGameData(gm);
+            int playerNumber = gameList.getSeatNumber(cg, c);
+            boolean isPlayer = (playerNumber != -1);
 
             boolean gameHasHumanPlayer = false;
             boolean gameHasObserver = false;
 
             if (cg != null)
             {
-                for (playerNumber = 0; playerNumber < SOCGame.MAXPLAYERS;
-                        playerNumber++)
+                if (isPlayer)
                 {
-                    SOCPlayer player = cg.getPlayer(playerNumber);
-
-                    if ((player != null) && (player.getName() != null))
-                    {
-                        if (player.getName().equals((String) c.data))
-                        {
-                            isPlayer = true;
-                            cg.removePlayer((String) c.data);
+                    cg.removePlayer((String) c.data);
+                    gameList.setSeat(cg, playerNumber, null);
 
-                            //broadcastGameStats(cg);
-                            break;
-                        }
-                    }
+                    //broadcastGameStats(cg);
                 }
 
                 SOCLeaveGame leaveMessage = new SOCLeaveGame((String) c.data, c.host(), gm);
-                messageToGameWithMon(gm, leaveMessage);
+                messageToGame(cg, leaveMessage);
                 recordGameEvent(gm, leaveMessage.toCmd());
 
                 D.ebugPrintln("*** " + (String) c.data + " left the game " + gm);
-                messageToGameWithMon(gm, new SOCGameTextMsg(gm, SERVERNAME, (String) c.data + " left the game"));
+                messageToGame(cg, new SOCGameTextMsg(gm, SERVERNAME, (String) c.data + " left the game"));
 
                 /**
                  * check if there is at least one person playing the game
@@ -520,30 +659,16 @@ public class SOCServer extends Server
                 /**
                  * check if there is at least one person watching the game
                  */
-                if ((cg != null) && !gameHasHumanPlayer && !gameList.isGameEmpty(gm))
+                if ((cg != null) && !gameHasHumanPlayer && !gameList.isGameEmpty(cg))
                 {
-                    Enumeration membersEnum = gameList.getMembers(gm).elements();
+                    Enumeration membersEnum = gameList.getMembers(cg).elements();
 
                     while (membersEnum.hasMoreElements())
                     {
                         Connection member = (Connection) membersEnum.nextElement();
 
                         //D.ebugPrintln("*** "+member.data+" is a member of "+gm);
-                        boolean nameMatch = false;
-
-                        for (int pn = 0; pn < SOCGame.MAXPLAYERS; pn++)
-                        {
-                            SOCPlayer player = cg.getPlayer(pn);
-
-                            if ((player != null) && (player.getName() != null) && (player.getName().equals((String) member.data)))
-                            {
-                                nameMatch = true;
-
-                                break;
-                            }
-                        }
-
-                        if (!nameMatch)
+                        if (gameList.getSeatNumber(cg, member) == -1)
                         {
                             gameHasObserver = true;
 
@@ -563,106 +688,21 @@ public class SOCServer extends Server
                     /**
                      * get a robot to replace this player
                      */
-                    messageToGameWithMon(gm, new SOCGameTextMsg(gm, SERVERNAME, "Fetching a robot player..."));
+                    messageToGame(cg, new SOCGameTextMsg(gm, SERVERNAME, "Fetching a robot player..."));
 
                     if (robots.isEmpty())
                     {
-                        messageToGameWithMon(gm, new SOCGameTextMsg(gm, SERVERNAME, "Sorry, no robots on this server."));
+                        messageToGame(cg, new SOCGameTextMsg(gm, SERVERNAME, "Sorry, no robots on this server."));
                     }
                     else
                     {
                         /**
-                         * request a robot that isn't already playing this game or
-                         * is not already requested to play in this game
+                         * request the least loaded robot that isn't already playing
+                         * this game or already requested to play in it
                          */
-                        boolean nameMatch = false;
-                        Connection robotConn = null;
-
-                        ///
-                        /// shuffle the indexes to distribute load
-                        ///
-                        int[] robotIndexes = new int[robots.size()];
+                        Connection robotConn = robotPool.pick(gm);
 
-                        for (int i = 0; i < robots.size(); i++)
-                        {
-                            robotIndexes[i] = i;
-                        }
-
-                        for (int j = 0; j < 3; j++)
-                        {
-                            for (int i = 0; i < robotIndexes.length; i++) //
-                            {
-                                // Swap a random card below the ith robot with the ith robot
-                                int idx = Math.abs(rand.nextInt() % (robotIndexes.length - i));
-                                int tmp = robotIndexes[idx];
-                                robotIndexes[idx] = robotIndexes[i];
-                                robotIndexes[i] = tmp;
-                            }
-                        }
-
-                        if (D.ebugOn)
-                        {
-                            for (int i = 0; i < robots.size(); i++)
-                            {
-                                D.ebugPrintln("^^^ robotIndexes[" + i + "]=" + robotIndexes[i]);
-                            }
-                        }
-
-                        Vector requests = (Vector) robotJoinRequests.get(gm);
-
-                        for (int idx = 0; idx < robots.size(); idx++)
-                        {
-                            robotConn = (Connection) robots.get(robotIndexes[idx]);
-                            nameMatch = false;
-
-                            for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
-                            {
-                                if (cg != null)
-                                {
-                                    SOCPlayer pl = cg.getPlayer(i);
-
-                                    if (pl != null)
-                                    {
-                                        String pname = pl.getName();
-
-                                        D.ebugPrintln("CHECKING " + (String) robotConn.data + " == " + pname);
-
-                                        if ((pname != null) && (pname.equals((String) robotConn.data)))
-                                        {
-                                            nameMatch = true;
-
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
-
-                            if ((!nameMatch) && (requests != null))
-                            {
-                                Enumeration requestsEnum = requests.elements();
-
-                                while (requestsEnum.hasMoreElements())
-                                {
-                                    Connection tempCon = (Connection) requestsEnum.nextElement();
-
-                                    D.ebugPrintln("CHECKING " + robotConn + " == " + tempCon);
-
-                                    if (tempCon == robotConn)
-                                    {
-                                        nameMatch = true;
-                                    }
-
-                                    break;
-                                }
-                            }
-
-                            if (!nameMatch)
-                            {
-                                break;
-                            }
-                        }
-
-                        if (!nameMatch && (cg != null))
+                        if (robotConn != null)
                         {
                             /**
                              * make the request
@@ -674,6 +714,8 @@ public class SOCServer extends Server
                                 /**
                                  * record the request
                                  */
+                                Vector requests = (Vector) robotJoinRequests.get(gm);
+
                                 if (requests == null)
                                 {
                                     requests = new Vector();
@@ -688,12 +730,12 @@ public class SOCServer extends Server
                             else
                             {
                                 // !!! won't ever happen now because put is asynchronous
-                                messageToGameWithMon(gm, new SOCGameTextMsg(gm, SERVERNAME, "*** Error on robot request! ***"));
+                                messageToGame(cg, new SOCGameTextMsg(gm, SERVERNAME, "*** Error on robot request! ***"));
                             }
                         }
                         else
                         {
-                            messageToGameWithMon(gm, new SOCGameTextMsg(gm, SERVERNAME, "*** Can't find a robot! ***"));
+                            messageToGame(cg, new SOCGameTextMsg(gm, SERVERNAME, "*** Can't find a robot! ***"));
                         }
                     }
                 }
@@ -705,7 +747,7 @@ public class SOCServer extends Server
              * to disk.
              */
             boolean emptyGame = false;
-            emptyGame = gameList.isGameEmpty(gm);
+            emptyGame = gameList.isGameEmpty(cg);
 
             if (emptyGame || (!gameHasHumanPlayer && !gameHasObserver))
             {
@@ -756,7 +798,7 @@ public class SOCServer extends Server
         {
             if (cg.getGameState() == SOCGame.OVER)
             {
-                numberOfGamesFinished++;
+                numberOfGamesFinished.incrementAndGet();
             }
 
             ///
@@ -785,13 +827,65 @@ public class SOCServer extends Server
                 {
                     Connection con = (Connection) conEnum.nextElement();
                     con.put(SOCRobotDismiss.toCmd(gm));
+                    robotPool.release(con, gm);
+                }
+            }
+
+            /**
+             * and the robots asked to join that haven't yet
+             */
+            Vector requests = (Vector) robotJoinRequests.remove(gm);
+
+            if (requests != null)
+            {
+                for (Enumeration re = requests.elements(); re.hasMoreElements();)
+                {
+                    robotPool.release((Connection) re.nextElement(), gm);
                 }
             }
 
             gameList.deleteGame(gm);
+            joinStates.remove(gm);
+        }
+    }
+
+    /**
+     * If c takes binary frames, tell it the game's handle.  Called before
+     * c is added to the game's members, so that the handle is queued
+     * ahead of any binary frame for the game.
+     *
+     * @param c  the connection joining the game
+     * @param ga  the game
+     */
+    private void sendGameHandle(Connection c, SOCGame ga)
+    {
+        if ((c.getCapabilities() & SOCCapabilities.BINARY) != 0)
+        {
+            c.put(SOCGameHandle.toCmd(ga.getName(), ga.getHandle()));
         }
     }
 
+    /**
+     * The frame to send a binary connection: mes as a binary frame if
+     * it has a binary form, otherwise the text frame f.
+     *
+     * @param f  the text frame for mes
+     * @param mes  the message
+     * @param h  the handle of mes's game
+     * @return the frame to put
+     */
+    private Frame binaryFrame(Frame f, SOCMessage mes, int h)
+    {
+        if (h < 0)
+        {
+            return f;  // the game is gone
+        }
+
+        byte[] b = SOCBinaryCodec.encode(mes, h);
+
+        return (b != null) ? f.recode(b) : f;
+    }
+
     /**
      * the connection c leaves all channels it was in
      *
@@ -862,68 +956,62 @@ public class SOCServer extends Server
     }
 
     /**
-     * the connection c leaves all games it was in
+     * the connection c leaves all games it was in.  Each game is left
+     * on its own mailbox, by a task posted to it; they may not have run
+     * yet when this returns.
      *
      * @param c  the connection
      * @return   the games it was in
      */
-    public Vector leaveAllGames(Connection c)
+    public Vector leaveAllGames(final Connection c)
     {
         if (c != null)
         {
             Vector ret = new Vector();
-            Vector destroyed = new Vector();
 
-            gameList.takeMonitor();
-
-            try
+            for (Enumeration k = gameList.getGames(); k.hasMoreElements();)
             {
-                for (Enumeration k = gameList.getGames(); k.hasMoreElements();)
-                {
-                    String ga = (String) k.nextElement();
-                    Vector v = (Vector) gameList.getMembers(ga);
+                final String ga = (String) k.nextElement();
+                final SOCGame gaData = gameList.getGameData(ga);
+                Vector v = gameList.getMembers(ga);  // a snapshot; no monitor needed
+                Mailbox mb = gameList.getMailbox(ga);
 
-                    if (v.contains(c))
+                if ((gaData != null) && (v != null) && (mb != null) && v.contains(c))
+                {
+                    postToGame(mb, new Runnable()
                     {
-                        boolean thisGameDestroyed = false;
-                        gameList.takeMonitorForGame(ga);
-
-                        try
-                        {
-                            thisGameDestroyed = leaveGame(c, ga, true);
-                        }
-                        catch (Exception e)
+                        public void run()
                         {
-                            D.ebugPrintln("Exception in leaveAllGames (leaveGame) - " + e);
-                        }
+                            if (!gameList.isMember(c, gaData))
+                            {
+                                return;  // left or destroyed meanwhile
+                            }
 
-                        gameList.releaseMonitorForGame(ga);
+                            boolean gameDestroyed = false;
 
-                        if (thisGameDestroyed)
-                        {
-                            destroyed.addElement(ga);
+                            try
+                            {
+                                gameDestroyed = leaveGame(c, gaData, false);
+                            }
+                            catch (Exception e)
+                            {
+                                D.ebugPrintln("Exception in leaveAllGames (leaveGame) - " + e);
+                            }
+
+                            /**
+                             * let everyone know about the destroyed game
+                             */
+                            if (gameDestroyed)
+                            {
+                                D.ebugPrintln("** Broadcasting SOCDeleteGame " + ga);
+                                broadcast(SOCDeleteGame.toCmd(ga));
+                            }
                         }
+                    });
 
-                        ret.addElement(ga);
-                    }
+                    ret.addElement(ga);
                 }
             }
-            catch (Exception e)
-            {
-                D.ebugPrintln("Exception in leaveAllGames - " + e);
-            }
-
-            gameList.releaseMonitor();
-
-            /**
-             * let everyone know about the destroyed games
-             */
-            for (Enumeration de = destroyed.elements(); de.hasMoreElements();)
-            {
-                String ga = (String) de.nextElement();
-                D.ebugPrintln("** Broadcasting SOCDeleteGame " + ga);
-                broadcast(SOCDeleteGame.toCmd(ga));
-            }
 
             return ret;
         }
@@ -941,40 +1029,20 @@ public class SOCServer extends Server
      */
     public void messageToChannel(String ch, SOCMessage mes)
     {
-        channelList.takeMonitorForChannel(ch);
-
         try
         {
-            Vector v = channelList.getMembers(ch);
-
-            if (v != null)
-            {
-                Enumeration enumr = v.elements();
-
-                while (enumr.hasMoreElements())
-                {
-                    Connection c = (Connection) enumr.nextElement();
-
-                    if (c != null)
-                    {
-                        c.put(mes.toCmd());
-                    }
-                }
-            }
+            messageToChannelWithMon(ch, mes);
         }
         catch (Exception e)
         {
             D.ebugPrintln("Exception in messageToChannel - " + e);
         }
-
-        channelList.releaseMonitorForChannel(ch);
     }
 
     /**
-     * Send a message to the given channel
-     *
-     * WARNING: MUST HAVE THE gameList.takeMonitorForChannel(ch) before
-     * calling this method
+     * Send a message to the given channel.
+     * The channel's monitor isn't needed: the members are a snapshot
+     * (see {@link SOCChannelList}).
      *
      * @param ch  the name of the channel
      * @param mes the message to send
@@ -985,6 +1053,7 @@ public class SOCServer extends Server
 
         if (v != null)
         {
+            Frame f = null;  // encoded once, for all the members
             Enumeration enumr = v.elements();
 
             while (enumr.hasMoreElements())
@@ -993,90 +1062,295 @@ public class SOCServer extends Server
 
                 if (c != null)
                 {
-                    c.put(mes.toCmd());
+                    if (f == null)
+                    {
+                        f = frame(mes);
+
+                        if (f == null)
+                        {
+                            return;  // too long to send
+                        }
+                    }
+
+                    c.put(f);
                 }
             }
         }
     }
 
     /**
-     * Send a message to a player and record it
+     * Send a message to one connection, as text.
      *
-     * @param c   the player connection
+     * @param c   the connection
      * @param mes the message to send
      */
     public void messageToPlayer(Connection c, SOCMessage mes)
     {
-        if ((c != null) && (mes != null))
-        {
-            //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", c.data));
-            c.put(mes.toCmd());
-        }
+        messageToPlayer(c, null, mes);
     }
 
     /**
-     * Send a message to the given game
+     * Send a game's message to one connection: as a binary frame if c
+     * takes them and is a member of the game, so that it knows the
+     * game's handle, otherwise as text.
      *
-     * @param ga  the name of the game
+     * @param c   the connection
+     * @param ga  the game the message is about, or null
      * @param mes the message to send
      */
-    public void messageToGame(String ga, SOCMessage mes)
+    public void messageToPlayer(Connection c, SOCGame ga, SOCMessage mes)
     {
-	messageToGameExcept(ga, null, mes);
+        if ((c != null) && (mes != null))
+        {
+            //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", c.data));
+            Frame f = frame(mes);
+
+            if (f == null)
+            {
+                return;  // too long to send
+            }
+
+            // the client only knows the handles of games it's in
+            if ((ga != null) && ((c.getCapabilities() & SOCCapabilities.BINARY) != 0) && gameList.isMember(c, ga))
+            {
+                f = binaryFrame(f, mes, ga.getHandle());
+            }
+
+            c.put(f);
+        }
     }
 
     /**
-     * Send a message to all the connections in a game
-     * excluding some.
+     * Encode a message for sending to one or more connections.
+     * In-process connections (robots) are given mes itself, so they
+     * needn't parse it, unless it holds arrays, Vectors or other objects
+     * that could still change after it's sent.
      *
-     * @param gn  the name of the game
-     * @param ex  the list of exceptions
-     * @param mes the message
+     * @param mes  the message; don't change it after this
+     * @return the frame to put to the connections, or null if the
+     *         message is too long for a frame; that's logged, and the
+     *         message should be dropped
      */
-    public void messageToGameExcept(String gn, Vector ex, SOCMessage mes)
+    private static Frame frame(SOCMessage mes)
     {
-        gameList.takeMonitorForGame(gn);
-	// was try{mtgwm} catch(Exception) {print("wasexc");}
-	messageToGameWithMon(gn, ex ,mes);
-        gameList.releaseMonitorForGame(gn);
+        try
+        {
+            return frameOf(mes);
+        }
+        catch (IllegalArgumentException e)
+        {
+            D.ebugPrintln("Dropping message of type " + mes.getType() + " - " + e.getMessage());
+
+            return null;
+        }
+    }
+
+    /** see {@link #frame(SOCMessage)} */
+    private static Frame frameOf(SOCMessage mes)
+    {
+        switch (mes.getType())
+        {
+        case SOCMessage.BANKTRADE:
+        case SOCMessage.BOARDLAYOUT:
+        case SOCMessage.CHANNELS:
+        case SOCMessage.CHOOSEPLAYERREQUEST:
+        case SOCMessage.DISCARD:
+        case SOCMessage.DISCOVERYPICK:
+        case SOCMessage.GAMEMEMBERS:
+        case SOCMessage.GAMES:
+        case SOCMessage.GAMESNAPSHOT:
+        case SOCMessage.GAMESTATS:
+        case SOCMessage.MAKEOFFER:
+        case SOCMessage.MEMBERS:
+        case SOCMessage.POTENTIALSETTLEMENTS:
+        case SOCMessage.UPDATEROBOTPARAMS:
+            return new Frame(mes.toBytes());
+
+        default:
+            return new Frame(mes.toBytes(), mes);
+        }
     }
 
     /**
-     * Send a message to the given game
+     * Send a message to the given game.
+     * The game's monitor isn't needed: the members are a snapshot
+     * (see {@link SOCGameList}).
      *
-     * WARNING: MUST HAVE THE gameList.takeMonitorForGame(ga) before
-     * calling this method
-     *
-     * @param ga  the name of the game
+     * @param ga  the game
      * @param mes the message to send
      */
-    public void messageToGameWithMon(String ga, SOCMessage mes) {
-	messageToGameWithMon(ga, null, mes);
+    public void messageToGame(SOCGame ga, SOCMessage mes)
+    {
+        messageToGameExcept(ga, null, mes);
     }
+
     /**
-     * Send message to all connections except those in ex.
-     * @param ga  the name of the game
+     * Send message to all connections in a game except those in ex.
+     * The game is found by its handle; nothing is sent if it's been
+     * destroyed.
+     *
+     * @param ga  the game
      * @param ex Vector of connections to not send mes to (or null)
      * @param mes the message to send
      */
-    public void messageToGameWithMon(String ga, Vector ex, SOCMessage mes)
+    public void messageToGameExcept(SOCGame ga, Vector ex, SOCMessage mes)
     {
         Vector v = gameList.getMembers(ga);
 
         if (v != null) {
             //D.ebugPrintln("M2G - "+mes);
+            int h = ga.getHandle();
+            Frame f = null;  // encoded once, for all the members
+            Frame bf = null;  // and once more for those taking binary frames
             Enumeration enumr = v.elements();
 
             while (enumr.hasMoreElements()) {
                 Connection c = (Connection) enumr.nextElement();
                 if ((c != null) && ((ex == null) || !(ex.contains(c))) ) {
                     //currentGameEventRecord.addMessageOut(new SOCMessageRecord(mes, "SERVER", c.data));
-                    c.put(mes.toCmd());
+                    if (f == null) {
+                        f = frame(mes);
+                        if (f == null) {
+                            return;  // too long to send
+                        }
+                    }
+                    if ((c.getCapabilities() & SOCCapabilities.BINARY) != 0) {
+                        if (bf == null) {
+                            bf = binaryFrame(f, mes, h);
+                        }
+                        c.put(bf);
+                    } else {
+                        c.put(f);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Send a group of messages to the given game.  Each message is
+     * encoded once, and each connection's messages are put to it in
+     * one go.  The game's monitor isn't needed: the members are a
+     * snapshot (see {@link SOCGameList}), read once.
+     *
+     * @param ga  the game
+     * @param batch  the messages
+     */
+    public void messageToGame(SOCGame ga, MessageBatch batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+
+        int n = batch.messages.size();
+        Vector members = gameList.getMembers(ga);
+        int h = ga.getHandle();
+        Frame[] text = new Frame[n];  // encoded once, for all the connections
+        Frame[] binary = null;  // and once more for those taking binary frames
+        Frame[] out = new Frame[n];
+        boolean[] sent = new boolean[n];  // messages for one player, put to a member
+
+        for (int i = 0; i < n; i++)
+        {
+            text[i] = frame(batch.messages.elementAt(i));  // null if too long; not sent
+        }
+
+        int nm = (members != null) ? members.size() : 0;
+
+        for (int m = 0; m < nm; m++)
+        {
+            Connection c = (Connection) members.elementAt(m);
+
+            if (c == null)
+            {
+                continue;
+            }
+
+            boolean isBinary = ((c.getCapabilities() & SOCCapabilities.BINARY) != 0);
+            int k = 0;
+
+            if (isBinary && (binary == null))
+            {
+                binary = new Frame[n];
+            }
+
+            for (int i = 0; i < n; i++)
+            {
+                Object target = batch.targets.elementAt(i);
+
+                if (target != null)
+                {
+                    if (target != c)
+                    {
+                        continue;
+                    }
+
+                    sent[i] = true;
+                }
+
+                if (text[i] == null)
+                {
+                    continue;
+                }
+
+                if (isBinary)
+                {
+                    if (binary[i] == null)
+                    {
+                        binary[i] = binaryFrame(text[i], batch.messages.elementAt(i), h);
+                    }
+
+                    out[k++] = binary[i];
+                }
+                else
+                {
+                    out[k++] = text[i];
+                }
+            }
+
+            if (k > 0)
+            {
+                c.put(out, k);
+            }
+        }
+
+        /**
+         * a player's messages for a connection that isn't a member
+         * (rare: it left meanwhile) go as text, since it doesn't
+         * know the game's handle
+         */
+        for (int i = 0; i < n; i++)
+        {
+            Connection c = batch.targets.elementAt(i);
+
+            if ((c == null) || sent[i])
+            {
+                continue;
+            }
+
+            int k = 0;
+
+            for (int j = i; j < n; j++)
+            {
+                if (batch.targets.elementAt(j) == c)
+                {
+                    sent[j] = true;
+
+                    if (text[j] != null)
+                    {
+                        out[k++] = text[j];
+                    }
+                }
+            }
+
+            if (k > 0)
+            {
+                c.put(out, k);
+            }
+        }
+    }
+
     /**
      * things to do when the connection c leaves
      *
@@ -1093,9 +1367,19 @@ public class SOCServer extends Server
              * if it is a robot, remove it from the list
              */
             robots.removeElement(c);
+            robotPool.remove(c);
         }
     }
 
+    /**
+     * Connections turned away before they're set up get a
+     * SOCRejectConnection, which clients show to the user.
+     */
+    protected String rejectMessage(String reason)
+    {
+        return new SOCRejectConnection(reason).toCmd();
+    }
+
     /**
      * Things to do when a new connection comes
      *
@@ -1244,635 +1528,715 @@ public class SOCServer extends Server
     }
 
     /**
-     * Treat the incomming messages
+     * Log in a connection that hasn't got a nickname yet: check that the
+     * nickname is free and the password is right, then give it the nickname.
+     * JOIN and JOINGAME can be treated at the same time from different
+     * mailboxes, so the check and the assignment are done under one lock.
      *
-     * Note: When there is a choice, always use local information
-     *       over information from the message.  For example, use
-     *       the nickname from the connection to get the player
-     *       information rather than the player information from
-     *       the message.  This makes it harder to send false
-     *       messages making players do things they didn't want
-     *       to do.
-     *
-     * @param s    String containing the message
-     * @param c    the Connection that sent the Message
+     * @param c  the connection
+     * @param nickname  the nickname it asked for
+     * @param password  the password it gave
+     * @return true if the connection is logged in
      */
-    public void processCommand(String s, Connection c)
+    private boolean loginUser(Connection c, String nickname, String password)
     {
-        try
+        synchronized (nicknameLock)
         {
-            SOCMessage mes = (SOCMessage) SOCMessage.toMsg(s);
-
-            //D.ebugPrintln(c.data+" - "+mes);
-            if (mes != null)
+            if (c.data != null)
             {
-                SOCGame ga;
-
-                switch (mes.getType())
-                {
-                /**
-                 * "join a channel" message
-                 */
-                case SOCMessage.JOIN:
-                    handleJOIN(c, (SOCJoin) mes);
-
-                    break;
-
-                /**
-                 * "leave a channel" message
-                 */
-                case SOCMessage.LEAVE:
-                    handleLEAVE(c, (SOCLeave) mes);
-
-                    break;
-
-                /**
-                 * "leave all channels" message
-                 */
-                case SOCMessage.LEAVEALL:
-                    removeConnection(c);
-                    removeConnectionCleanup(c);
-
-                    break;
-
-                /**
-                 * text message
-                 */
-                case SOCMessage.TEXTMSG:
-
-                    SOCTextMsg textMsgMes = (SOCTextMsg) mes;
-
-                    if (c.data.equals("debug"))
-                    {
-                        if (textMsgMes.getText().startsWith("*KILLCHANNEL*"))
-                        {
-                            messageToChannel(textMsgMes.getChannel(), new SOCTextMsg(textMsgMes.getChannel(), SERVERNAME, "********** " + (String) c.data + " KILLED THE CHANNEL **********"));
-                            channelList.takeMonitor();
-
-                            try
-                            {
-                                channelList.deleteChannel(textMsgMes.getChannel());
-                            }
-                            catch (Exception e)
-                            {
-                                D.ebugPrintln("Exception in KILLCHANNEL - " + e);
-                            }
-
-                            channelList.releaseMonitor();
-                            broadcast(SOCDeleteChannel.toCmd(textMsgMes.getChannel()));
-                        }
-                        else
-                        {
-                            /**
-                             * Send the message to the members of the channel
-                             */
-                            messageToChannel(textMsgMes.getChannel(), mes);
-                        }
-                    }
-                    else
-                    {
-                        /**
-                         * Send the message to the members of the channel
-                         */
-                        messageToChannel(textMsgMes.getChannel(), mes);
-                    }
-
-                    break;
-
-                /**
-                 * a robot has connected to this server
-                 */
-                case SOCMessage.IMAROBOT:
-                    handleIMAROBOT(c, (SOCImARobot) mes);
-
-                    break;
-
-                /**
-                 * text message from a game (chat & user requests to server)
-                 */
-                case SOCMessage.GAMETEXTMSG:
-
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    SOCGameTextMsg gameTextMsgMes = (SOCGameTextMsg) mes;
-	            	    String game = gameTextMsgMes.getGame(); // game name
-
-                    recordGameEvent(game, gameTextMsgMes.toCmd());
-
-                    ga = gameList.getGameData(game);
-                    String msgText = gameTextMsgMes.getText();
-
-                    //currentGameEventRecord.setSnapshot(ga);
-                    if ((msgText.startsWith("..")) ||
-                        (msgText.toLowerCase().startsWith("*showdice*"))) {
-                        showDice(ga);
-                    } else
-                    if (msgText.toLowerCase().startsWith("*roll*")) {
-                      int forceValue = 0;
-                      try {
-                        String[] tokens =  msgText.split(" ");
-                        if (tokens.length > 1) {
-                          forceValue = Integer.parseInt(tokens[1]);
-                        }
-                      } catch (NumberFormatException nfe) {
-                        System.err.println(nfe);
-                      }
-                      ga.forceDice = forceValue;
-                    } else
-
-                    if (msgText.startsWith("*undo*")) { // try undo last trade
-                        if (ga.lastTrade != null && ga.lastTrade.issueUndo(ga)) {
-                            ga.lastTrade = null;
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "-- last trade undone"));
-                        } else {
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "-- no trade to undo"));
-                        }
-                    } else
-
-                    ///
-                    /// command to add time to a game
-                    ///
-                    if ((msgText.startsWith("++")) ||
-                            (msgText.toLowerCase().startsWith("*addtime*")) ||
-                            (msgText.toLowerCase().startsWith("addtime")))
-                    {
-                        SOCGame gameData = gameList.getGameData(game);
-
-                        if (gameData != null)
-                        {
-                            // add 30 min. to the expiration date
-                            gameData.setExpiration(gameData.getExpiration() + SOCServer.TIME_EXTENSION);
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> This game will expire in " + ((gameData.getExpiration() - System.currentTimeMillis()) / 60000) + " minutes."));
-                        }
-                    } else
-
-                    ///
-                    /// Check the time remaining for this game
-                    ///
-                    if (msgText.startsWith("*CHECKTIME*"))
-                    {
-                        SOCGame gameData = gameList.getGameData(game);
-                        messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> This game will expire in " + ((gameData.getExpiration() - System.currentTimeMillis()) / 60000) + " minutes."));
-                    }
-                    else 
-                    if (msgText.startsWith("*WHO*"))
-                    {
-                        Vector gameMembers = null;
-                        gameList.takeMonitorForGame(game);
-
-                        try
-                        {
-                            gameMembers = gameList.getMembers(game);
-                        }
-                        catch (Exception e)
-                        {
-                            D.ebugPrintln("Exception in *WHO* (gameMembers) - " + e);
-                        }
-
-                        gameList.releaseMonitorForGame(game);
-
-                        if (gameMembers != null)
-                        {
-                            Enumeration membersEnum = gameMembers.elements();
+                return true;
+            }
 
-                            while (membersEnum.hasMoreElements())
-                            {
-                                Connection conn = (Connection) membersEnum.nextElement();
-                                messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> " + conn.data));
-                            }
-                        }
-                    }
-                    else
+            if (!checkNickname(nickname))
+            {
+                c.put(SOCStatusMessage.toCmd("Someone with that nickname is already logged into the system."));
 
-                    //
-                    // useful for debuging 
-                    //
-                    if (c.data.equals("debug"))
-                    {
+                return false;
+            }
 
-                        if (msgText.startsWith("res:"))
-                        {
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, ">>"+msgText));
-                            giveResources(gameTextMsgMes, ga);
-                        }
-                        else if (msgText.startsWith("dev:"))
-                        {
-			                      messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, ">>"+msgText));
-                            giveDevCard(msgText, ga, SOCDevCardSet.NEW);
-                        }
-                        else if (msgText.startsWith("odev:"))
-                        {
-			                      messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, ">>"+msgText));
-                            giveDevCard(msgText, ga, SOCDevCardSet.OLD);
-                        }
-                        else if (msgText.startsWith("*KILLGAME*"))
-                        {
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "********** " + (String) c.data + " KILLED THE GAME!!! **********"));
-                            gameList.takeMonitor();
+            if (!authenticateUser(c, nickname, password))
+            {
+                return false;
+            }
 
-                            try
-                            {
-                                destroyGame(game);
-                            }
-                            catch (Exception e)
-                            {
-                                D.ebugPrintln("Exception in KILLGAME - " + e);
-                            }
+            c.data = nickname;
+            numberOfUsers++;
 
-                            gameList.releaseMonitor();
-                            broadcast(SOCDeleteGame.toCmd(game));
-                        }
-                        else if (msgText.startsWith("*STATS*"))
-                        {
-                            long diff = System.currentTimeMillis() - startTime;
-                            long hours = diff / (60 * 60 * 1000);
-                            long minutes = (diff - (hours * 60 * 60 * 1000)) / (60 * 1000);
-                            long seconds = (diff - (hours * 60 * 60 * 1000) - (minutes * 60 * 1000)) / 1000;
-                            Runtime rt = Runtime.getRuntime();
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Uptime: " + hours + ":" + minutes + ":" + seconds));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Total connections: " + numberOfConnections));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Current connections: " + connectionCount()));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Total Users: " + numberOfUsers));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Games started: " + numberOfGamesStarted));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Games finished: " + numberOfGamesFinished));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Total Memory: " + rt.totalMemory()));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Free Memory: " + rt.freeMemory()));
-                        }
-                        else if (msgText.startsWith("*GC*"))
-                        {
-                            Runtime rt = Runtime.getRuntime();
-                            rt.gc();
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> GARBAGE COLLECTING DONE"));
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Free Memory: " + rt.freeMemory()));
-                        }
-                        else if (msgText.startsWith("*STOP*"))
-                        {
-                            try
-                            {
-                                SOCDBHelper.cleanup();
-                            }
-                            catch (SQLException x) { }
+            return true;
+        }
+    }
 
-                            stopServer();
-                            System.exit(0);
-                        }
-                        else if (msgText.startsWith("*BCAST* "))
-                        {
-                            ///
-                            /// broadcast to all chat channels and games
-                            ///
-                            broadcast(SOCBCastTextMsg.toCmd(msgText.substring(8)));
-                        }
-                        else if (msgText.startsWith("*BOTLIST*"))
-                        {
-                            Enumeration robotsEnum = robots.elements();
+    /**
+     * Find the mailbox of the game a message is for, without parsing the
+     * whole message.  The game name is the first field of most game
+     * messages; JOINGAME and LEAVEGAME have it further along.  This is
+     * the one place a message's game is looked up by name.
+     *
+     * @param s  the message
+     * @return the game's mailbox, or null for lobby and channel messages
+     *         and games that don't exist
+     */
+    protected Mailbox mailboxFor(String s)
+    {
+        int type = messageType(s);
 
-                            while (robotsEnum.hasMoreElements())
-                            {
-                                Connection robotConn = (Connection) robotsEnum.nextElement();
-                                messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> Robot: " + robotConn.data));
-                                robotConn.put(SOCAdminPing.toCmd((game)));
-                            }
-                        }
-                        else if (msgText.startsWith("*RESETBOT* "))
-                        {
-                            String botName = msgText.substring(11).trim();
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> botName = '" + botName + "'"));
+        if (type < 0)
+        {
+            return null;
+        }
 
-                            Enumeration robotsEnum = robots.elements();
+        int bar = s.indexOf('|');
+        int field;
 
-                            while (robotsEnum.hasMoreElements())
-                            {
-                                Connection robotConn = (Connection) robotsEnum.nextElement();
-                                D.ebugPrintln("&&& '" + botName + "' == '" + robotConn.data + "' is " + (botName.equals((String) robotConn.data)));
+        switch (type)
+        {
+        case SOCMessage.JOIN:
+        case SOCMessage.LEAVE:
+        case SOCMessage.LEAVEALL:
+        case SOCMessage.TEXTMSG:
+        case SOCMessage.IMAROBOT:
+        case SOCMessage.CREATEACCOUNT:
+        case SOCMessage.CAPABILITIES:
+        case SOCMessage.RESUME:
+            return null;
 
-                                if (botName.equals((String) robotConn.data))
-                                {
-                                    messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> SENDING RESET COMMAND TO " + botName));
+        case SOCMessage.JOINGAME:
+            field = 3;  // nickname,password,host,game
 
-                                    SOCAdminReset resetCmd = new SOCAdminReset();
-                                    robotConn.put(resetCmd.toCmd());
+            break;
 
-                                    break;
-                                }
-                            }
-                        }
-                        else if (msgText.startsWith("*KILLBOT* "))
-                        {
-                            String botName = msgText.substring(10).trim();
-                            messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> botName = '" + botName + "'"));
+        case SOCMessage.LEAVEGAME:
+            field = 2;  // nickname,host,game
 
-                            Enumeration robotsEnum = robots.elements();
+            break;
 
-                            while (robotsEnum.hasMoreElements())
-                            {
-                                Connection robotConn = (Connection) robotsEnum.nextElement();
-                                D.ebugPrintln("&&& '" + botName + "' == '" + robotConn.data + "' is " + (botName.equals((String) robotConn.data)));
+        default:
+            field = 0;
+        }
 
-                                if (botName.equals((String) robotConn.data))
-                                {
-                                    messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, "> DISCONNECTING " + botName));
-                                    removeConnection(robotConn);
-                                    removeConnectionCleanup(robotConn);
+        int start = bar + 1;
 
-                                    break;
-                                }
-                            }
-                        }
-                        else
-                        {
-                            //
-                            // Send the message to the members of the game
-                            //
-                            messageToGame(game, new SOCGameTextMsg(game, (String) c.data, msgText));
-                        }
-                    }
-                    else
-                    {
-                        //
-                        // Send the message to the members of the game
-                        //
-                        messageToGame(game, new SOCGameTextMsg(game, (String) c.data, msgText));
-                    }
+        for (; field > 0; field--)
+        {
+            start = s.indexOf(',', start);
 
-                    //saveCurrentGameEventRecord(game);
-                    break;
+            if (start < 0)
+            {
+                return null;
+            }
 
-                /**
-                 * "join a game" message
-                 */
-                case SOCMessage.JOINGAME:
+            start++;
+        }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleJOINGAME(c, (SOCJoinGame) mes);
+        // the game name ends at a ',' or, in GAMETEXTMSG, a (char)0
+        int end = start;
+        int len = s.length();
 
-                    //ga = (SOCGame)gamesData.get(((SOCJoinGame)mes).getGame());
-                    //if (ga != null) {
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCJoinGame)mes).getGame());
-                    //}
-                    break;
+        while ((end < len) && (s.charAt(end) != ',') && (s.charAt(end) != (char) 0))
+        {
+            end++;
+        }
 
-                /**
-                 * "leave a game" message
-                 */
-                case SOCMessage.LEAVEGAME:
+        return gameList.getMailbox(s.substring(start, end));
+    }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleLEAVEGAME(c, (SOCLeaveGame) mes);
+    /**
+     * @param s  a message
+     * @return its type, read from the digits before the '|', or -1 if it has none
+     */
+    private static int messageType(String s)
+    {
+        int bar = s.indexOf('|');
 
-                    //ga = (SOCGame)gamesData.get(((SOCLeaveGame)mes).getGame());
-                    //if (ga != null) {
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCLeaveGame)mes).getGame());
-                    //}
-                    break;
+        if (bar <= 0)
+        {
+            return -1;
+        }
 
-                /**
-                 * someone wants to sit down
-                 */
-                case SOCMessage.SITDOWN:
+        int type = 0;
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleSITDOWN(c, (SOCSitDown) mes);
+        for (int i = 0; i < bar; i++)
+        {
+            char ch = s.charAt(i);
 
-                    //ga = (SOCGame)gamesData.get(((SOCSitDown)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCSitDown)mes).getGame());
-                    break;
+            if ((ch < '0') || (ch > '9'))
+            {
+                return -1;
+            }
 
-                /**
-                 * someone put a piece on the board
-                 */
-                case SOCMessage.PUTPIECE:
+            type = (type * 10) + (ch - '0');
+        }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handlePUTPIECE(c, (SOCPutPiece) mes);
+        return type;
+    }
 
-                    //ga = (SOCGame)gamesData.get(((SOCPutPiece)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCPutPiece)mes).getGame());
-                    break;
+    /** the action field of a SOCPlayerElement SET message, with its commas */
+    private static final String PLAYERELEMENT_SET = "," + SOCPlayerElement.SET + ",";
 
-                /**
-                 * a player is moving the robber
-                 */
-                case SOCMessage.MOVEROBBER:
+    /**
+     * Chat can be dropped for a client that isn't keeping up.
+     */
+    protected boolean isChat(String s)
+    {
+        int type = messageType(s);
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleMOVEROBBER(c, (SOCMoveRobber) mes);
+        return (type == SOCMessage.GAMETEXTMSG) || (type == SOCMessage.TEXTMSG);
+    }
 
-                    //ga = (SOCGame)gamesData.get(((SOCMoveRobber)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCMoveRobber)mes).getGame());
-                    break;
+    /**
+     * @return a line for *DEFLATE* about a connection's compression: bytes
+     *         in and out, the ratio, and the CPU time per kilobyte
+     */
+    private static String deflationStats(long raw, long deflated, long nanos)
+    {
+        return raw + " bytes sent as " + deflated + " (" + ((deflated * 100) / raw) + "%), "
+            + (nanos / 1000000) + " ms compressing, " + ((nanos * 1024) / (raw * 1000)) + " us/KB";
+    }
 
-                /**
-                 * someone is starting a game
-                 */
-                case SOCMessage.STARTGAME:
+    /**
+     * Messages that set a value outright, so only the newest one with the
+     * same game, player and element has to reach a client that isn't
+     * keeping up.  GAMESTATE and TURN are left alone; the client acts on
+     * each of those.
+     */
+    protected int stateKeyLength(String s)
+    {
+        int fields;
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleSTARTGAME(c, (SOCStartGame) mes);
+        switch (messageType(s))
+        {
+        case SOCMessage.DEVCARDCOUNT:
+        case SOCMessage.LONGESTROAD:
+        case SOCMessage.LARGESTARMY:
+            fields = 1;  // game
 
-                    //ga = (SOCGame)gamesData.get(((SOCStartGame)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCStartGame)mes).getGame());
-                    break;
+            break;
 
-                case SOCMessage.ROLLDICE:
+        case SOCMessage.RESOURCECOUNT:
+        case SOCMessage.SETPLAYEDDEVCARD:
+        case SOCMessage.CHANGEFACE:
+            fields = 2;  // game,pn
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleROLLDICE(c, (SOCRollDice) mes);
+            break;
 
-                    //ga = (SOCGame)gamesData.get(((SOCRollDice)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCRollDice)mes).getGame());
-                    break;
+        case SOCMessage.PLAYERELEMENT:
 
-                case SOCMessage.DISCARD:
+            // game,pn,action,element - but only for SET
+            int pn = s.indexOf(',');
+            int action = (pn < 0) ? -1 : s.indexOf(',', pn + 1);
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleDISCARD(c, (SOCDiscard) mes);
+            if ((action < 0) || !s.startsWith(PLAYERELEMENT_SET, action))
+            {
+                return 0;
+            }
 
-                    //ga = (SOCGame)gamesData.get(((SOCDiscard)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCDiscard)mes).getGame());
-                    break;
+            fields = 4;
 
-                case SOCMessage.ENDTURN:
+            break;
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleENDTURN(c, (SOCEndTurn) mes);
+        default:
+            return 0;
+        }
 
-                    //ga = (SOCGame)gamesData.get(((SOCEndTurn)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCEndTurn)mes).getGame());
-                    break;
+        // the prefix includes the ',' after the last field, so "g1" isn't taken for "g10"
+        int k = s.indexOf('|');
 
-                case SOCMessage.CHOOSEPLAYER:
+        for (; fields > 0; fields--)
+        {
+            k = s.indexOf(',', k + 1);
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleCHOOSEPLAYER(c, (SOCChoosePlayer) mes);
+            if (k < 0)
+            {
+                return 0;
+            }
+        }
 
-                    //ga = (SOCGame)gamesData.get(((SOCChoosePlayer)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCChoosePlayer)mes).getGame());
-                    break;
+        return k + 1;
+    }
 
-                case SOCMessage.MAKEOFFER:
+    /**
+     * Treat the incomming messages
+     *
+     * Note: When there is a choice, always use local information
+     *       over information from the message.  For example, use
+     *       the nickname from the connection to get the player
+     *       information rather than the player information from
+     *       the message.  This makes it harder to send false
+     *       messages making players do things they didn't want
+     *       to do.
+     *
+     * @param s    String containing the message
+     * @param c    the Connection that sent the Message
+     */
+    public void processCommand(String s, Connection c)
+    {
+        processCommand(s, c, -1);
+    }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleMAKEOFFER(c, (SOCMakeOffer) mes);
+    /**
+     * Treat a message on the mailbox it was posted to.
+     *
+     * @param s  the message
+     * @param c  the connection that sent it
+     * @param key  the handle of the game whose mailbox it's on, or -1
+     *             for the lobby's
+     * @see #processCommand(String, Connection)
+     */
+    protected void processCommand(String s, Connection c, int key)
+    {
+        try
+        {
+            SOCMessage mes = (SOCMessage) SOCMessage.toMsg(s);
 
-                    //ga = (SOCGame)gamesData.get(((SOCMakeOffer)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCMakeOffer)mes).getGame());
-                    break;
+            //D.ebugPrintln(c.data+" - "+mes);
+            if (mes != null)
+            {
+                int type = mes.getType();
+                Handler h = handlers.get(type);
 
-                case SOCMessage.CLEAROFFER:
+                if (h != null)
+                {
+                    long t0 = System.nanoTime();
+                    h.handle(c, mes, key);
+                    handlers.record(type, System.nanoTime() - t0);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            D.ebugPrintln("ERROR -> " + e);
+            e.printStackTrace();
+        }
+    }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleCLEAROFFER(c, (SOCClearOffer) mes);
+    /**
+     * Fill in {@link #handlers} with the handler for each message type
+     * a client may send.  Subclasses may add or replace handlers with
+     * {@link #setHandler(int, Handler)}.
+     */
+    private void registerHandlers()
+    {
+        // "join a channel" message
+        handlers.put(SOCMessage.JOIN, (c, m, h) -> handleJOIN(c, (SOCJoin) m));
+
+        // "leave a channel" message
+        handlers.put(SOCMessage.LEAVE, (c, m, h) -> handleLEAVE(c, (SOCLeave) m));
+
+        // "leave all channels" message
+        handlers.put(SOCMessage.LEAVEALL, (c, m, h) -> handleLEAVEALL(c, (SOCLeaveAll) m));
+
+        // text message
+        handlers.put(SOCMessage.TEXTMSG, (c, m, h) -> handleTEXTMSG(c, (SOCTextMsg) m));
+
+        // a client says what protocol features it can use
+        handlers.put(SOCMessage.CAPABILITIES, (c, m, h) -> handleCAPABILITIES(c, (SOCCapabilities) m));
+
+        // a client whose connection dropped is back
+        handlers.put(SOCMessage.RESUME, (c, m, h) -> handleRESUME(c, (SOCResume) m));
+
+        // a robot has connected to this server
+        handlers.put(SOCMessage.IMAROBOT, (c, m, h) -> handleIMAROBOT(c, (SOCImARobot) m));
+
+        // text message from a game (chat & user requests to server)
+        handlers.put(SOCMessage.GAMETEXTMSG, (c, m, h) -> handleGAMETEXTMSG(c, (SOCGameTextMsg) m, h));
+
+        // "join a game" message
+        handlers.put(SOCMessage.JOINGAME, (c, m, h) -> handleJOINGAME(c, (SOCJoinGame) m, h));
+
+        // "leave a game" message
+        handlers.put(SOCMessage.LEAVEGAME, (c, m, h) -> handleLEAVEGAME(c, (SOCLeaveGame) m, h));
+
+        // someone wants to sit down
+        handlers.put(SOCMessage.SITDOWN, (c, m, h) -> handleSITDOWN(c, (SOCSitDown) m, h));
+
+        // someone put a piece on the board
+        handlers.put(SOCMessage.PUTPIECE, (c, m, h) -> handlePUTPIECE(c, (SOCPutPiece) m, h));
+
+        // a player is moving the robber
+        handlers.put(SOCMessage.MOVEROBBER, (c, m, h) -> handleMOVEROBBER(c, (SOCMoveRobber) m, h));
+
+        // someone is starting a game
+        handlers.put(SOCMessage.STARTGAME, (c, m, h) -> handleSTARTGAME(c, (SOCStartGame) m, h));
+        handlers.put(SOCMessage.ROLLDICE, (c, m, h) -> handleROLLDICE(c, (SOCRollDice) m, h));
+        handlers.put(SOCMessage.DISCARD, (c, m, h) -> handleDISCARD(c, (SOCDiscard) m, h));
+        handlers.put(SOCMessage.ENDTURN, (c, m, h) -> handleENDTURN(c, (SOCEndTurn) m, h));
+        handlers.put(SOCMessage.CHOOSEPLAYER, (c, m, h) -> handleCHOOSEPLAYER(c, (SOCChoosePlayer) m, h));
+        handlers.put(SOCMessage.MAKEOFFER, (c, m, h) -> handleMAKEOFFER(c, (SOCMakeOffer) m, h));
+        handlers.put(SOCMessage.CLEAROFFER, (c, m, h) -> handleCLEAROFFER(c, (SOCClearOffer) m, h));
+        handlers.put(SOCMessage.REJECTOFFER, (c, m, h) -> handleREJECTOFFER(c, (SOCRejectOffer) m, h));
+        handlers.put(SOCMessage.ACCEPTOFFER, (c, m, h) -> handleACCEPTOFFER(c, (SOCAcceptOffer) m, h));
+        handlers.put(SOCMessage.BANKTRADE, (c, m, h) -> handleBANKTRADE(c, (SOCBankTrade) m, h));
+        handlers.put(SOCMessage.BUILDREQUEST, (c, m, h) -> handleBUILDREQUEST(c, (SOCBuildRequest) m, h));
+        handlers.put(SOCMessage.CANCELBUILDREQUEST, (c, m, h) -> handleCANCELBUILDREQUEST(c, (SOCCancelBuildRequest) m, h));
+        handlers.put(SOCMessage.BUYCARDREQUEST, (c, m, h) -> handleBUYCARDREQUEST(c, (SOCBuyCardRequest) m, h));
+        handlers.put(SOCMessage.PLAYDEVCARDREQUEST, (c, m, h) -> handlePLAYDEVCARDREQUEST(c, (SOCPlayDevCardRequest) m, h));
+        handlers.put(SOCMessage.DISCOVERYPICK, (c, m, h) -> handleDISCOVERYPICK(c, (SOCDiscoveryPick) m, h));
+        handlers.put(SOCMessage.MONOPOLYPICK, (c, m, h) -> handleMONOPOLYPICK(c, (SOCMonopolyPick) m, h));
+        handlers.put(SOCMessage.CHANGEFACE, (c, m, h) -> handleCHANGEFACE(c, (SOCChangeFace) m, h));
+        handlers.put(SOCMessage.SETSEATLOCK, (c, m, h) -> handleSETSEATLOCK(c, (SOCSetSeatLock) m, h));
+        handlers.put(SOCMessage.CREATEACCOUNT, (c, m, h) -> handleCREATEACCOUNT(c, (SOCCreateAccount) m));
+    }
 
-                    //ga = (SOCGame)gamesData.get(((SOCClearOffer)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCClearOffer)mes).getGame());
-                    break;
+    /**
+     * Set how a type of message from clients is treated.
+     *
+     * @param type  the message type
+     * @param h  its handler, or null to ignore messages of that type
+     * @throws IllegalArgumentException if the type has no room in a
+     *         {@link SOCTypeTable}
+     */
+    public void setHandler(int type, Handler h)
+    {
+        handlers.put(type, h);
+    }
 
-                case SOCMessage.REJECTOFFER:
+    /**
+     * Handle the "leave all channels" message
+     *
+     * @param c  the connection that sent the message
+     * @param mes  the messsage
+     */
+    private void handleLEAVEALL(Connection c, SOCLeaveAll mes)
+    {
+        removeConnection(c);
+        removeConnectionCleanup(c);
+    }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleREJECTOFFER(c, (SOCRejectOffer) mes);
+    /**
+     * Handle the channel text message
+     *
+     * @param c  the connection that sent the message
+     * @param mes  the messsage
+     */
+    private void handleTEXTMSG(Connection c, SOCTextMsg mes)
+    {
+        if (c.data.equals("debug"))
+        {
+            if (mes.getText().startsWith("*KILLCHANNEL*"))
+            {
+                messageToChannel(mes.getChannel(), new SOCTextMsg(mes.getChannel(), SERVERNAME, "********** " + (String) c.data + " KILLED THE CHANNEL **********"));
+                channelList.takeMonitor();
 
-                    //ga = (SOCGame)gamesData.get(((SOCRejectOffer)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCRejectOffer)mes).getGame());
-                    break;
+                try
+                {
+                    channelList.deleteChannel(mes.getChannel());
+                }
+                catch (Exception e)
+                {
+                    D.ebugPrintln("Exception in KILLCHANNEL - " + e);
+                }
 
-                case SOCMessage.ACCEPTOFFER:
+                channelList.releaseMonitor();
+                broadcast(SOCDeleteChannel.toCmd(mes.getChannel()));
+            }
+            else
+            {
+                /**
+                 * Send the message to the members of the channel
+                 */
+                messageToChannel(mes.getChannel(), mes);
+            }
+        }
+        else
+        {
+            /**
+             * Send the message to the members of the channel
+             */
+            messageToChannel(mes.getChannel(), mes);
+        }
+    }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleACCEPTOFFER(c, (SOCAcceptOffer) mes);
+    /**
+     * Handle the game text message: chat, and requests to the server
+     * from players such as *STATS*
+     *
+     * @param c  the connection that sent the message
+     * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
+     */
+    private void handleGAMETEXTMSG(Connection c, SOCGameTextMsg mes, int h)
+    {
+        //createNewGameEventRecord();
+        //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
+        String game = mes.getGame(); // game name
+
+        recordGameEvent(game, mes.toCmd());
+
+        SOCGame ga = gameList.getGameData(h);
+        String msgText = mes.getText();
+
+        //currentGameEventRecord.setSnapshot(ga);
+        if ((msgText.startsWith("..")) ||
+            (msgText.toLowerCase().startsWith("*showdice*"))) {
+            showDice(ga);
+        } else
+        if (msgText.toLowerCase().startsWith("*roll*")) {
+          int forceValue = 0;
+          try {
+            String[] tokens =  msgText.split(" ");
+            if (tokens.length > 1) {
+              forceValue = Integer.parseInt(tokens[1]);
+            }
+          } catch (NumberFormatException nfe) {
+            System.err.println(nfe);
+          }
+          ga.forceDice = forceValue;
+        } else
 
-                    //ga = (SOCGame)gamesData.get(((SOCAcceptOffer)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCAcceptOffer)mes).getGame());
-                    break;
+        if (msgText.startsWith("*undo*")) { // try undo last trade
+            if (ga.lastTrade != null && ga.lastTrade.issueUndo(ga)) {
+                ga.lastTrade = null;
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "-- last trade undone"));
+            } else {
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "-- no trade to undo"));
+            }
+        } else
+
+        ///
+        /// command to add time to a game
+        ///
+        if ((msgText.startsWith("++")) ||
+                (msgText.toLowerCase().startsWith("*addtime*")) ||
+                (msgText.toLowerCase().startsWith("addtime")))
+        {
+            SOCGame gameData = gameList.getGameData(h);
 
-                case SOCMessage.BANKTRADE:
+            if (gameData != null)
+            {
+                // add 30 min. to the expiration date
+                gameData.setExpiration(gameData.getExpiration() + SOCServer.TIME_EXTENSION);
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> This game will expire in " + ((gameData.getExpiration() - System.currentTimeMillis()) / 60000) + " minutes."));
+            }
+        } else
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleBANKTRADE(c, (SOCBankTrade) mes);
+        ///
+        /// Check the time remaining for this game
+        ///
+        if (msgText.startsWith("*CHECKTIME*"))
+        {
+            SOCGame gameData = gameList.getGameData(h);
+            messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> This game will expire in " + ((gameData.getExpiration() - System.currentTimeMillis()) / 60000) + " minutes."));
+        }
+        else 
+        if (msgText.startsWith("*WHO*"))
+        {
+            Vector gameMembers = gameList.getMembers(game);  // a snapshot; no monitor needed
 
-                    //ga = (SOCGame)gamesData.get(((SOCBankTrade)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCBankTrade)mes).getGame());
-                    break;
+            if (gameMembers != null)
+            {
+                Enumeration membersEnum = gameMembers.elements();
 
-                case SOCMessage.BUILDREQUEST:
+                while (membersEnum.hasMoreElements())
+                {
+                    Connection conn = (Connection) membersEnum.nextElement();
+                    messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> " + conn.data));
+                }
+            }
+        }
+        else
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleBUILDREQUEST(c, (SOCBuildRequest) mes);
+        //
+        // useful for debuging 
+        //
+        if (c.data.equals("debug"))
+        {
 
-                    //ga = (SOCGame)gamesData.get(((SOCBuildRequest)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCBuildRequest)mes).getGame());
-                    break;
+            if (msgText.startsWith("res:"))
+            {
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, ">>"+msgText));
+                giveResources(mes, ga);
+            }
+            else if (msgText.startsWith("dev:"))
+            {
+			                      messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, ">>"+msgText));
+                giveDevCard(msgText, ga, SOCDevCardSet.NEW);
+            }
+            else if (msgText.startsWith("odev:"))
+            {
+			                      messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, ">>"+msgText));
+                giveDevCard(msgText, ga, SOCDevCardSet.OLD);
+            }
+            else if (msgText.startsWith("*KILLGAME*"))
+            {
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "********** " + (String) c.data + " KILLED THE GAME!!! **********"));
+                gameList.takeMonitor();
 
-                case SOCMessage.CANCELBUILDREQUEST:
+                try
+                {
+                    destroyGame(game);
+                }
+                catch (Exception e)
+                {
+                    D.ebugPrintln("Exception in KILLGAME - " + e);
+                }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleCANCELBUILDREQUEST(c, (SOCCancelBuildRequest) mes);
+                gameList.releaseMonitor();
+                broadcast(SOCDeleteGame.toCmd(game));
+            }
+            else if (msgText.startsWith("*STATS*"))
+            {
+                long diff = System.currentTimeMillis() - startTime;
+                long hours = diff / (60 * 60 * 1000);
+                long minutes = (diff - (hours * 60 * 60 * 1000)) / (60 * 1000);
+                long seconds = (diff - (hours * 60 * 60 * 1000) - (minutes * 60 * 1000)) / 1000;
+                Runtime rt = Runtime.getRuntime();
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Uptime: " + hours + ":" + minutes + ":" + seconds));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Total connections: " + numberOfConnections));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Current connections: " + connectionCount()));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Total Users: " + numberOfUsers));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Games started: " + numberOfGamesStarted.get()));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Games finished: " + numberOfGamesFinished.get()));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Total Memory: " + rt.totalMemory()));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Free Memory: " + rt.freeMemory()));
+
+                if (System.getProperty(LOG_PROPERTY) != null)
+                {
+                    messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Log records dropped: " + getLogDropped()));
+                }
 
-                    //ga = (SOCGame)gamesData.get(((SOCCancelBuildRequest)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCCancelBuildRequest)mes).getGame());
-                    break;
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Connections turned away: " + getRejectedForRate() + " too fast, " + getRejectedBusy() + " busy"));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Output queue drops: " + getOutQueueEvictions() + ", overflow disconnects: " + getOutQueueOverflows()));
 
-                case SOCMessage.BUYCARDREQUEST:
+                long sent = getMessagesWritten();
+                long flushes = getFlushCount();
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Messages sent: " + sent + " in " + flushes + " flushes (avg "
+                    + ((flushes > 0) ? (((sent * 10) / flushes) / 10.0) : 0) + ", max " + getLargestBatch() + " per flush)"));
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleBUYCARDREQUEST(c, (SOCBuyCardRequest) mes);
+                int[] busiest = handlers.busiest(3);
+                StringBuffer sb = new StringBuffer("> Most time handling:");
 
-                    //ga = (SOCGame)gamesData.get(((SOCBuyCardRequest)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCBuyCardRequest)mes).getGame());
-                    break;
+                for (int i = 0; i < busiest.length; i++)
+                {
+                    int type = busiest[i];
+                    long n = handlers.getCount(type);
+                    sb.append((i > 0) ? ", " : " ").append(type).append(" x").append(n)
+                      .append(" avg ").append(handlers.getNanos(type) / (n * 1000)).append("us");
+                }
 
-                case SOCMessage.PLAYDEVCARDREQUEST:
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, sb.toString()));
+            }
+            else if (msgText.startsWith("*DEFLATE*"))
+            {
+                // compression ratio and cost of each connection that has it
+                long raw = 0;
+                long deflated = 0;
+                long nanos = 0;
+                Enumeration connsEnum = getConnections();
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handlePLAYDEVCARDREQUEST(c, (SOCPlayDevCardRequest) mes);
+                while (connsEnum.hasMoreElements())
+                {
+                    Connection conn = (Connection) connsEnum.nextElement();
+                    Deflation z = conn.getDeflation();
 
-                    //ga = (SOCGame)gamesData.get(((SOCPlayDevCardRequest)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCPlayDevCardRequest)mes).getGame());
-                    break;
+                    if ((z != null) && (z.getRawBytes() > 0))
+                    {
+                        messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> " + conn.data + ": " + deflationStats(z.getRawBytes(), z.getDeflatedBytes(), z.getNanos())));
+                        raw += z.getRawBytes();
+                        deflated += z.getDeflatedBytes();
+                        nanos += z.getNanos();
+                    }
+                }
 
-                case SOCMessage.DISCOVERYPICK:
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Total: " + ((raw > 0) ? deflationStats(raw, deflated, nanos) : "nothing compressed")));
+            }
+            else if (msgText.startsWith("*GC*"))
+            {
+                Runtime rt = Runtime.getRuntime();
+                rt.gc();
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> GARBAGE COLLECTING DONE"));
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Free Memory: " + rt.freeMemory()));
+            }
+            else if (msgText.startsWith("*STOP*"))
+            {
+                try
+                {
+                    SOCDBHelper.cleanup();
+                }
+                catch (SQLException x) { }
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleDISCOVERYPICK(c, (SOCDiscoveryPick) mes);
+                stopServer();
+                System.exit(0);
+            }
+            else if (msgText.startsWith("*BCAST* "))
+            {
+                ///
+                /// broadcast to all chat channels and games
+                ///
+                broadcast(SOCBCastTextMsg.toCmd(msgText.substring(8)));
+            }
+            else if (msgText.startsWith("*BOTLIST*"))
+            {
+                Enumeration robotsEnum = robots.elements();
 
-                    //ga = (SOCGame)gamesData.get(((SOCDiscoveryPick)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCDiscoveryPick)mes).getGame());
-                    break;
+                while (robotsEnum.hasMoreElements())
+                {
+                    Connection robotConn = (Connection) robotsEnum.nextElement();
+                    messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> Robot: " + robotConn.data + " (" + robotPool.describe(robotConn) + ")"));
+                    robotConn.put(SOCAdminPing.toCmd((game)));
+                }
+            }
+            else if (msgText.startsWith("*RESETBOT* "))
+            {
+                String botName = msgText.substring(11).trim();
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> botName = '" + botName + "'"));
 
-                case SOCMessage.MONOPOLYPICK:
+                Enumeration robotsEnum = robots.elements();
 
-                    //createNewGameEventRecord();
-                    //currentGameEventRecord.setMessageIn(new SOCMessageRecord(mes, c.data, "SERVER"));
-                    handleMONOPOLYPICK(c, (SOCMonopolyPick) mes);
+                while (robotsEnum.hasMoreElements())
+                {
+                    Connection robotConn = (Connection) robotsEnum.nextElement();
+                    D.ebugPrintln("&&& '" + botName + "' == '" + robotConn.data + "' is " + (botName.equals((String) robotConn.data)));
 
-                    //ga = (SOCGame)gamesData.get(((SOCMonopolyPick)mes).getGame());
-                    //currentGameEventRecord.setSnapshot(ga);
-                    //saveCurrentGameEventRecord(((SOCMonopolyPick)mes).getGame());
-                    break;
+                    if (botName.equals((String) robotConn.data))
+                    {
+                        messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> SENDING RESET COMMAND TO " + botName));
 
-                case SOCMessage.CHANGEFACE:
-                    handleCHANGEFACE(c, (SOCChangeFace) mes);
+                        SOCAdminReset resetCmd = new SOCAdminReset();
+                        robotConn.put(resetCmd.toCmd());
 
-                    break;
+                        break;
+                    }
+                }
+            }
+            else if (msgText.startsWith("*KILLBOT* "))
+            {
+                String botName = msgText.substring(10).trim();
+                messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> botName = '" + botName + "'"));
 
-                case SOCMessage.SETSEATLOCK:
-                    handleSETSEATLOCK(c, (SOCSetSeatLock) mes);
+                Enumeration robotsEnum = robots.elements();
 
-                    break;
+                while (robotsEnum.hasMoreElements())
+                {
+                    Connection robotConn = (Connection) robotsEnum.nextElement();
+                    D.ebugPrintln("&&& '" + botName + "' == '" + robotConn.data + "' is " + (botName.equals((String) robotConn.data)));
 
-                case SOCMessage.CREATEACCOUNT:
-                    handleCREATEACCOUNT(c, (SOCCreateAccount) mes);
+                    if (botName.equals((String) robotConn.data))
+                    {
+                        messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, "> DISCONNECTING " + botName));
+                        removeConnection(robotConn);
+                        removeConnectionCleanup(robotConn);
 
-                    break;
+                        break;
+                    }
                 }
             }
+            else
+            {
+                //
+                // Send the message to the members of the game
+                //
+                messageToGame(ga, new SOCGameTextMsg(game, (String) c.data, msgText));
+            }
         }
-        catch (Exception e)
+        else
         {
-            D.ebugPrintln("ERROR -> " + e);
-            e.printStackTrace();
+            //
+            // Send the message to the members of the game
+            //
+            messageToGame(ga, new SOCGameTextMsg(game, (String) c.data, msgText));
         }
+
+        //saveCurrentGameEventRecord(game);
     }
 
     private void showDice(SOCGame ga) {
@@ -1885,7 +2249,7 @@ public class SOCServer extends Server
       for (int i = 1; i<=6; i++) {
           dmsg += "   "+diceRolls[i];
       }
-      messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, dmsg));
+      messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, dmsg));
       dmsg = ">";
       int[] ev = {0,0,1,2,3,4,5,6,5,4,3,2,1};
       for (int i = 2; i<=12; i++) {
@@ -1898,7 +2262,7 @@ public class SOCServer extends Server
           String rsis = rsi < 10 ? "  "+rsi : ""+rsi; // pad-left, variable font
           String fmt = ">  %s: %s = % 5.2f %s";
           dmsg = String.format(fmt, iss, rsis, rdif, exs);
-          messageToGame(game, new SOCGameTextMsg(game, SERVERNAME, dmsg));
+          messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, dmsg));
       }
     }
 
@@ -1973,14 +2337,7 @@ public class SOCServer extends Server
             /**
              * Check that the nickname is ok
              */
-            if ((c.data == null) && (!checkNickname(mes.getNickname())))
-            {
-                c.put(SOCStatusMessage.toCmd("Someone with that nickname is already logged into the system."));
-
-                return;
-            }
-
-            if ((c.data == null) && (!authenticateUser(c, mes.getNickname(), mes.getPassword())))
+            if (!loginUser(c, mes.getNickname(), mes.getPassword()))
             {
                 return;
             }
@@ -1994,11 +2351,6 @@ public class SOCServer extends Server
                return;
                }
              */
-            if (c.data == null)
-            {
-                c.data = mes.getNickname();
-                numberOfUsers++;
-            }
 
             /**
              * Tell the client that everything is good to go
@@ -2098,6 +2450,85 @@ public class SOCServer extends Server
         }
     }
 
+    /**
+     * Handle the "capabilities" message: agree to the features both sides
+     * have, and tell the client which those are.  The reply is put before
+     * the connection is switched over, so it is sent as text.  Features
+     * can only be chosen before the client logs in or joins anything,
+     * and in-process clients don't need them.
+     *
+     * @param c  the connection that sent the message
+     * @param mes  the messsage
+     */
+    private void handleCAPABILITIES(Connection c, SOCCapabilities mes)
+    {
+        if (c != null)
+        {
+            int bits = 0;
+
+            if ((c.data == null) && !c.isLocal())
+            {
+                bits = mes.getBits() & CAPABILITIES;
+            }
+
+            String token = null;
+
+            if ((bits & SOCCapabilities.RESUME) != 0)
+            {
+                token = startSession(c);
+
+                if (token == null)
+                {
+                    bits &= ~SOCCapabilities.RESUME;  // sessions are turned off
+                }
+            }
+
+            if (getDeflateLevel() == 0)
+            {
+                bits &= ~SOCCapabilities.DEFLATE;
+            }
+
+            if ((bits & SOCCapabilities.DEFLATE) != 0)
+            {
+                c.putThenDeflate(SOCCapabilities.toCmd(bits), getDeflateLevel());
+            }
+            else
+            {
+                c.put(SOCCapabilities.toCmd(bits));
+            }
+
+            c.setCapabilities(bits);
+
+            if (token != null)
+            {
+                c.put(SOCResume.toCmd(token, 0));
+            }
+        }
+    }
+
+    /**
+     * Handle the "resume" message from a client connecting again after
+     * its connection dropped.  If its session can be resumed, it goes on
+     * as before and the rest is done by the generic server; otherwise
+     * the client is told so, and starts over.
+     *
+     * @param c  the new connection
+     * @param mes  the message
+     */
+    private void handleRESUME(Connection c, SOCResume mes)
+    {
+        if (c != null)
+        {
+            String token = mes.getToken();
+            int n = mes.getSequence();
+
+            if ((c.data != null) || !resumeSession(c, token, n, SOCResume.toCmd(token, n)))
+            {
+                c.put(SOCResume.toCmd(token, -1));
+            }
+        }
+    }
+
     /**
      * Handle the "I'm a robot" message
      *
@@ -2134,6 +2565,7 @@ public class SOCServer extends Server
             //
             c.data = mes.getNickname();
             robots.addElement(c);
+            robotPool.add(c);
         }
     }
 
@@ -2142,8 +2574,10 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, or -1 if there was no such game
+     *           when the message came in
      */
-    private void handleJOINGAME(Connection c, SOCJoinGame mes)
+    private void handleJOINGAME(final Connection c, final SOCJoinGame mes, int h)
     {
         if (c != null)
         {
@@ -2152,27 +2586,11 @@ public class SOCServer extends Server
             /**
              * Check that the nickname is ok
              */
-            if ((c.data == null) && (!checkNickname(mes.getNickname())))
-            {
-                c.put(SOCStatusMessage.toCmd("Someone with that nickname is already logged into the system."));
-
-                return;
-            }
-
-            if ((c.data == null) && (!authenticateUser(c, mes.getNickname(), mes.getPassword())))
+            if (!loginUser(c, mes.getNickname(), mes.getPassword()))
             {
                 return;
             }
 
-            if (c != null)
-            {
-                if (c.data == null)
-                {
-                    c.data = mes.getNickname();
-                    numberOfUsers++;
-                }
-            }
-
             /**
              * Check that the game name is ok
              */
@@ -2183,163 +2601,288 @@ public class SOCServer extends Server
                }
              */
 
+            if (h < 0)
+            {
+                /**
+                 * The game didn't exist when this came in, so it's on
+                 * the lobby's mailbox.  Make the game, then join it on
+                 * the game's own, in order with the game's messages.
+                 */
+                final Mailbox mb = createGame(mes.getGame());
+
+                if (mb != null)
+                {
+                    postToGame(mb, new Runnable()
+                    {
+                        public void run()
+                        {
+                            if (mb.isClosed())
+                            {
+                                handleJOINGAME(c, mes, -1);  // gone already; make it again
+                            }
+                            else
+                            {
+                                joinGame(c, mes, mb.getKey());
+                            }
+                        }
+                    });
+                }
+
+                return;
+            }
+
+            joinGame(c, mes, h);
+        }
+    }
+
+    /**
+     * Join a logged-in client to a game that exists, and send it the
+     * game's state.
+     *
+     * WARNING: MUST BE RUN ON THE GAME'S MAILBOX
+     *
+     * @param c  the connection that sent the message
+     * @param mes  the messsage
+     * @param h  the handle of the game
+     */
+    private void joinGame(Connection c, SOCJoinGame mes, int h)
+    {
+        SOCGame gameData = gameList.getGameData(h);
+
+        /**
+         * Tell the client that everything is good to go
+         */
+        if ((gameData != null) && connectToGame(c, gameData))
+        {
+            String gameName = gameData.getName();
+
             /**
-             * Tell the client that everything is good to go
+             * send the entire state of the game
              */
-            if (connectToGame(c, mes.getGame()))
+            c.put(SOCJoinGameAuth.toCmd(mes.getGame()));
+            c.put(SOCStatusMessage.toCmd("Welcome to Java Settlers of Catan!"));
+
+            sendGameState(c, gameData);
+
+            c.put(SOCGameMembers.toCmd(gameName, gameList.getMembers(gameData)));
+
+            if ((c.getCapabilities() & SOCCapabilities.SNAPSHOT) == 0)
             {
-                String gameName = mes.getGame();
+                c.put(new Frame(SOCSetTurn.toBytes(gameName, gameData.getCurrentPlayerNumber())));
+                c.put(new Frame(SOCGameState.toBytes(gameName, gameData.getGameState())));
+            }
 
-                /**
-                 * send the entire state of the game
-                 */
-                SOCGame gameData = gameList.getGameData(gameName);
+            D.ebugPrintln("*** " + c.data + " joined the game " + gameName);
+
+            //messageToGame(ga, new SOCGameTextMsg(gameName, SERVERNAME, n+" joined the game"));
+            /**
+             * Let everyone else know about the change
+             */
+            messageToGame(gameData, new SOCJoinGame(mes.getNickname(), "", "dummyhost", mes.getGame()));
+        }
+    }
+
+    /**
+     * Send a client joining a game the game's state: as one
+     * {@link SOCGameSnapshot} if it takes them, otherwise one message at
+     * a time.  Both forms are made at most once for each change to the
+     * game, and kept for the joins after; watchers coming into a game
+     * between two moves cost only the queueing of Frames already made,
+     * all at once.
+     *
+     * @param c  the joining connection
+     * @param gameData  the game
+     */
+    private void sendGameState(Connection c, SOCGame gameData)
+    {
+        String gameName = gameData.getName();
+        JoinState js = joinStates.get(gameName);
+
+        if ((js == null) || (js.game != gameData) || (js.changeCount != gameData.getChangeCount()))
+        {
+            js = new JoinState(gameData);
+            joinStates.put(gameName, js);
+        }
+
+        if ((c.getCapabilities() & SOCCapabilities.SNAPSHOT) != 0)
+        {
+            if (js.snapshot == null)
+            {
+                js.snapshot = frame(new SOCGameSnapshot(gameData));
+            }
 
-                if (gameData != null)
+            if (js.snapshot != null)
+            {
+                c.put(js.snapshot);
+            }
+        }
+        else
+        {
+            if (js.frames == null)
+            {
+                try
+                {
+                    Vector<Frame> v = joinFrames(gameData);
+                    Frame[] frames = new Frame[v.size()];
+                    v.copyInto(frames);
+                    js.frames = frames;
+                }
+                catch (IllegalArgumentException e)
                 {
-                    c.put(SOCJoinGameAuth.toCmd(mes.getGame()));
-                    c.put(SOCStatusMessage.toCmd("Welcome to Java Settlers of Catan!"));
+                    D.ebugPrintln("Can't send the state of " + gameName + " - " + e.getMessage());
 
-                    //c.put(SOCGameState.toCmd(gameName, gameData.getGameState()));
-                    for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
-                    {
-                        SOCPlayer pl = gameData.getPlayer(i);
+                    return;
+                }
+            }
+
+            c.put(js.frames, js.frames.length);
+        }
+    }
+
+    /**
+     * The game's state as a client joining it is sent it, one message at
+     * a time: the seats, the board, and each player's pieces and counts.
+     *
+     * @param gameData  the game
+     * @return the messages' Frames, in the order to send them
+     */
+    private Vector<Frame> joinFrames(SOCGame gameData)
+    {
+        Vector<Frame> frames = new Vector<Frame>();
+        String gameName = gameData.getName();
 
-                        if ((pl.getName() != null) && (!gameData.isSeatVacant(i)))
-                        {
-                            c.put(SOCSitDown.toCmd(gameName, pl.getName(), i, pl.isRobot()));
-                        }
+        for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
+        {
+            SOCPlayer pl = gameData.getPlayer(i);
 
-                        /**
-                         * send the seat lock information
-                         */
-                        messageToPlayer(c, new SOCSetSeatLock(gameName, i, gameData.isSeatLocked(i)));
-                    }
+            if ((pl.getName() != null) && (!gameData.isSeatVacant(i)))
+            {
+                frames.addElement(new Frame(SOCSitDown.toBytes(gameName, pl.getName(), i, pl.isRobot())));
+            }
 
-                    SOCBoardLayout bl = getBoardLayoutMessage(gameData);
-                    c.put(bl.toCmd());
+            /**
+             * send the seat lock information
+             */
+            Frame f = frame(new SOCSetSeatLock(gameName, i, gameData.isSeatLocked(i)));
 
-                    for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
-                    {
-                        SOCPlayer pl = gameData.getPlayer(i);
+            if (f != null)
+            {
+                frames.addElement(f);
+            }
+        }
 
-                        if (pl.getName() != null)
-                        {
-                            Enumeration piecesEnum = pl.getPieces().elements();
+        Frame blf = frame(getBoardLayoutMessage(gameData));
 
-                            while (piecesEnum.hasMoreElements())
-                            {
-                                SOCPlayingPiece piece = (SOCPlayingPiece) piecesEnum.nextElement();
+        if (blf != null)
+        {
+            frames.addElement(blf);
+        }
 
-                                if (piece.getType() == SOCPlayingPiece.CITY)
-                                {
-                                    c.put(SOCPutPiece.toCmd(gameName, i, SOCPlayingPiece.SETTLEMENT, piece.getCoordinates()));
-                                }
+        for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
+        {
+            SOCPlayer pl = gameData.getPlayer(i);
 
-                                c.put(SOCPutPiece.toCmd(gameName, i, piece.getType(), piece.getCoordinates()));
-                            }
+            if (pl.getName() != null)
+            {
+                Enumeration<SOCPlayingPiece> piecesEnum = pl.getPieces().elements();
 
-                            /**
-                             * send potential settlement list
-                             */
-                            Vector psList = new Vector();
+                while (piecesEnum.hasMoreElements())
+                {
+                    SOCPlayingPiece piece = piecesEnum.nextElement();
 
-                            for (int j = 0x23; j <= 0xDC; j++)
-                            {
-                                if (pl.isPotentialSettlement(j))
-                                {
-                                    psList.addElement((j));
-                                }
-                            }
+                    if (piece.getType() == SOCPlayingPiece.CITY)
+                    {
+                        frames.addElement(new Frame(SOCPutPiece.toBytes(gameName, i, SOCPlayingPiece.SETTLEMENT, piece.getCoordinates())));
+                    }
 
-                            c.put(SOCPotentialSettlements.toCmd(gameName, i, psList));
+                    frames.addElement(new Frame(SOCPutPiece.toBytes(gameName, i, piece.getType(), piece.getCoordinates())));
+                }
 
-                            /**
-                             * send coords of the last settlement
-                             */
-                            c.put(SOCLastSettlement.toCmd(gameName, i, pl.getLastSettlementCoord()));
+                /**
+                 * send potential settlement list
+                 */
+                int nps = 0;
 
-                            /**
-                             * send number of playing pieces in hand
-                             */
-                            c.put(SOCPlayerElement.toCmd(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.ROADS, pl.getNumPieces(SOCPlayingPiece.ROAD)));
-                            c.put(SOCPlayerElement.toCmd(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.SETTLEMENTS, pl.getNumPieces(SOCPlayingPiece.SETTLEMENT)));
-                            c.put(SOCPlayerElement.toCmd(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.CITIES, pl.getNumPieces(SOCPlayingPiece.CITY)));
+                for (int j = 0x23; j <= 0xDC; j++)
+                {
+                    if (pl.isPotentialSettlement(j))
+                    {
+                        nps++;
+                    }
+                }
 
-                            c.put(SOCPlayerElement.toCmd(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.UNKNOWN, pl.getResources().getTotal()));
+                int[] psList = new int[nps];
 
-                            c.put(SOCPlayerElement.toCmd(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.NUMKNIGHTS, pl.getNumKnights()));
+                for (int j = 0x23, k = 0; k < nps; j++)
+                {
+                    if (pl.isPotentialSettlement(j))
+                    {
+                        psList[k++] = j;
+                    }
+                }
 
-                            int numDevCards = pl.getDevCards().getTotal();
+                frames.addElement(new Frame(SOCPotentialSettlements.toBytes(gameName, i, psList)));
 
-                            for (int j = 0; j < numDevCards; j++)
-                            {
-                                c.put(SOCDevCard.toCmd(gameName, i, SOCDevCard.ADDOLD, SOCDevCardConstants.UNKNOWN));
-                            }
+                /**
+                 * send coords of the last settlement
+                 */
+                frames.addElement(new Frame(SOCLastSettlement.toBytes(gameName, i, pl.getLastSettlementCoord())));
 
-                            c.put(SOCFirstPlayer.toCmd(gameName, gameData.getFirstPlayer()));
+                /**
+                 * send number of playing pieces in hand
+                 */
+                frames.addElement(new Frame(SOCPlayerElement.toBytes(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.ROADS, pl.getNumPieces(SOCPlayingPiece.ROAD))));
+                frames.addElement(new Frame(SOCPlayerElement.toBytes(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.SETTLEMENTS, pl.getNumPieces(SOCPlayingPiece.SETTLEMENT))));
+                frames.addElement(new Frame(SOCPlayerElement.toBytes(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.CITIES, pl.getNumPieces(SOCPlayingPiece.CITY))));
 
-                            c.put(SOCDevCardCount.toCmd(gameName, gameData.getNumDevCards()));
+                frames.addElement(new Frame(SOCPlayerElement.toBytes(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.UNKNOWN, pl.getResources().getTotal())));
 
-                            c.put(SOCChangeFace.toCmd(gameName, i, pl.getFaceId()));
+                frames.addElement(new Frame(SOCPlayerElement.toBytes(gameName, i, SOCPlayerElement.SET, SOCPlayerElement.NUMKNIGHTS, pl.getNumKnights())));
 
-                            c.put(SOCDiceResult.toCmd(gameName, gameData.getCurrentDice()));
-                        }
-                    }
+                int numDevCards = pl.getDevCards().getTotal();
 
-                    /// 
-                    /// send who has longest road
-                    ///
-                    SOCPlayer lrPlayer = gameData.getPlayerWithLongestRoad();
-                    int lrPlayerNum = -1;
+                for (int j = 0; j < numDevCards; j++)
+                {
+                    frames.addElement(new Frame(SOCDevCard.toBytes(gameName, i, SOCDevCard.ADDOLD, SOCDevCardConstants.UNKNOWN)));
+                }
 
-                    if (lrPlayer != null)
-                    {
-                        lrPlayerNum = lrPlayer.getPlayerNumber();
-                    }
+                frames.addElement(new Frame(SOCFirstPlayer.toBytes(gameName, gameData.getFirstPlayer())));
 
-                    c.put(SOCLongestRoad.toCmd(gameName, lrPlayerNum));
+                frames.addElement(new Frame(SOCDevCardCount.toBytes(gameName, gameData.getNumDevCards())));
 
-                    ///
-                    /// send who has largest army
-                    ///
-                    SOCPlayer laPlayer = gameData.getPlayerWithLargestArmy();
-                    int laPlayerNum = -1;
+                frames.addElement(new Frame(SOCChangeFace.toBytes(gameName, i, pl.getFaceId())));
 
-                    if (laPlayer != null)
-                    {
-                        laPlayerNum = laPlayer.getPlayerNumber();
-                    }
+                frames.addElement(new Frame(SOCDiceResult.toBytes(gameName, gameData.getCurrentDice())));
+            }
+        }
 
-                    c.put(SOCLargestArmy.toCmd(gameName, laPlayerNum));
+        /// 
+        /// send who has longest road
+        ///
+        SOCPlayer lrPlayer = gameData.getPlayerWithLongestRoad();
+        int lrPlayerNum = -1;
 
-                    String membersCommand = null;
-                    gameList.takeMonitorForGame(gameName);
+        if (lrPlayer != null)
+        {
+            lrPlayerNum = lrPlayer.getPlayerNumber();
+        }
 
-                    try
-                    {
-                        Vector gameMembers = gameList.getMembers(gameName);
-                        membersCommand = SOCGameMembers.toCmd(gameName, gameMembers);
-                    }
-                    catch (Exception e)
-                    {
-                        D.ebugPrintln("Exception in handleJOINGAME (gameMembers) - " + e);
-                    }
+        frames.addElement(new Frame(SOCLongestRoad.toBytes(gameName, lrPlayerNum)));
 
-                    gameList.releaseMonitorForGame(gameName);
-                    c.put(membersCommand);
-                    c.put(SOCSetTurn.toCmd(gameName, gameData.getCurrentPlayerNumber()));
-                    c.put(SOCGameState.toCmd(gameName, gameData.getGameState()));
-                    D.ebugPrintln("*** " + c.data + " joined the game " + gameName);
+        ///
+        /// send who has largest army
+        ///
+        SOCPlayer laPlayer = gameData.getPlayerWithLargestArmy();
+        int laPlayerNum = -1;
 
-                    //messageToGame(gameName, new SOCGameTextMsg(gameName, SERVERNAME, n+" joined the game"));
-                    /**
-                     * Let everyone else know about the change
-                     */
-                    messageToGame(mes.getGame(), new SOCJoinGame(mes.getNickname(), "", "dummyhost", mes.getGame()));
-                }
-            }
+        if (laPlayer != null)
+        {
+            laPlayerNum = laPlayer.getPlayerNumber();
         }
+
+        frames.addElement(new Frame(SOCLargestArmy.toBytes(gameName, laPlayerNum)));
+
+        return frames;
     }
 
     /**
@@ -2347,41 +2890,27 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleLEAVEGAME(Connection c, SOCLeaveGame mes)
+    private void handleLEAVEGAME(Connection c, SOCLeaveGame mes, int h)
     {
         if (c != null)
         {
-            boolean isMember = false;
-            gameList.takeMonitorForGame(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
-            try
-            {
-                isMember = gameList.isMember(c, mes.getGame());
-            }
-            catch (Exception e)
-            {
-                D.ebugPrintln("Exception in handleLEAVEGAME (isMember) - " + e);
-            }
-
-            gameList.releaseMonitorForGame(mes.getGame());
-
-            if (isMember)
+            if ((ga != null) && gameList.isMember(c, ga))
             {
                 boolean gameDestroyed = false;
-                gameList.takeMonitorForGame(mes.getGame());
 
                 try
                 {
-                    gameDestroyed = leaveGame(c, mes.getGame(), false);
+                    gameDestroyed = leaveGame(c, ga, false);
                 }
                 catch (Exception e)
                 {
                     D.ebugPrintln("Exception in handleLEAVEGAME (leaveGame) - " + e);
                 }
 
-                gameList.releaseMonitorForGame(mes.getGame());
-
                 if (gameDestroyed)
                 {
                     broadcast(SOCDeleteGame.toCmd(mes.getGame()));
@@ -2390,7 +2919,7 @@ public class SOCServer extends Server
                 {
                     /*
                        SOCLeaveGame leaveMessage = new SOCLeaveGame((String)c.data, c.host(), mes.getGame());
-                       messageToGame(mes.getGame(), leaveMessage);
+                       messageToGame(ga, leaveMessage);
                        recordGameEvent(mes.getGame(), leaveMessage.toCmd());
                      */
                 }
@@ -2424,8 +2953,10 @@ public class SOCServer extends Server
                         /**
                          * let the person replacing the robot sit down
                          */
-                        SOCGame ga = gameList.getGameData(mes.getGame());
-                        sitDown(ga, req.getArriving(), req.getSitDownMessage().getPlayerNumber(), req.getSitDownMessage().isRobot());
+                        if (!gameDestroyed)
+                        {
+                            sitDown(ga, req.getArriving(), req.getSitDownMessage().getPlayerNumber(), req.getSitDownMessage().isRobot());
+                        }
                     }
                 }
             }
@@ -2437,12 +2968,13 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleSITDOWN(Connection c, SOCSitDown mes)
+    private void handleSITDOWN(Connection c, SOCSitDown mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
@@ -2463,8 +2995,6 @@ public class SOCServer extends Server
                 /**
                  * make sure a person isn't sitting here already
                  */
-                ga.takeMonitor();
-
                 try
                 {
                     if (!ga.isSeatVacant(mes.getPlayerNumber()))
@@ -2476,7 +3006,7 @@ public class SOCServer extends Server
                             /**
                              * boot the robot out of the game
                              */
-                            Connection robotCon = connectionForPlayer(seatedPlayer.getName());
+                            Connection robotCon = gameList.getSeatConnection(ga, mes.getPlayerNumber());
 
                             robotCon.put(SOCRobotDismiss.toCmd(mes.getGame()));
 
@@ -2507,21 +3037,29 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception in handleSITDOWN - " + e);
                 }
 
-                ga.releaseMonitor();
-
                 /**
-                 * if this is a robot, remove it from the request list
+                 * if this is a robot, remove it from the request list.
+                 * While the seats are being filled, a robot that isn't on
+                 * the list was too slow and has been replaced.
                  */
                 Vector joinRequests = (Vector) robotJoinRequests.get(mes.getGame());
 
                 if (joinRequests != null)
                 {
-                    joinRequests.removeElement(c);
+                    if (!joinRequests.removeElement(c) && mes.isRobot() && (ga.getGameState() == SOCGame.READY))
+                    {
+                        canSit = false;
+                    }
                 }
 
                 //D.ebugPrintln("canSit 2 = "+canSit);
                 if (canSit)
                 {
+                    if (mes.isRobot())
+                    {
+                        robotPool.seated(c, mes.getGame());
+                    }
+
                     sitDown(ga, c, mes.getPlayerNumber(), mes.isRobot());
                 }
                 else
@@ -2543,20 +3081,19 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handlePUTPIECE(Connection c, SOCPutPiece mes)
+    private void handlePUTPIECE(Connection c, SOCPutPiece mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
-                    SOCPlayer player = ga.getPlayer((String) c.data);
+                    SOCPlayer player = playerFor(ga, c);
 
                     /**
                      * make sure the player can do it
@@ -2601,8 +3138,8 @@ public class SOCServer extends Server
                                        }
                                        }
                                      */
-                                    messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " built a road."));
-                                    messageToGame(ga.getName(), new SOCPutPiece(mes.getGame(), player.getPlayerNumber(), SOCPlayingPiece.ROAD, mes.getCoordinates()));
+                                    messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " built a road."));
+                                    messageToGame(ga, new SOCPutPiece(mes.getGame(), player.getPlayerNumber(), SOCPlayingPiece.ROAD, mes.getCoordinates()));
                                     broadcastGameStats(ga);
                                     sendGameState(ga);
 
@@ -2614,12 +3151,12 @@ public class SOCServer extends Server
                                 else
                                 {
                                     D.ebugPrintln("ILLEGAL ROAD");
-                                    c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't build a road there."));
+                                    c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't build a road there.")));
                                 }
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't build a road right now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't build a road right now.")));
                             }
 
                             break;
@@ -2633,8 +3170,8 @@ public class SOCServer extends Server
                                 if (player.isPotentialSettlement(mes.getCoordinates()))
                                 {
                                     ga.putPiece(se);
-                                    messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " built a settlement."));
-                                    messageToGame(ga.getName(), new SOCPutPiece(mes.getGame(), player.getPlayerNumber(), SOCPlayingPiece.SETTLEMENT, mes.getCoordinates()));
+                                    messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " built a settlement."));
+                                    messageToGame(ga, new SOCPutPiece(mes.getGame(), player.getPlayerNumber(), SOCPlayingPiece.SETTLEMENT, mes.getCoordinates()));
                                     broadcastGameStats(ga);
                                     sendGameState(ga);
 
@@ -2645,12 +3182,12 @@ public class SOCServer extends Server
                                 }
                                 else
                                 {
-                                    c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't build a settlement there."));
+                                    c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't build a settlement there.")));
                                 }
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't build a settlement right now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't build a settlement right now.")));
                             }
 
                             break;
@@ -2664,8 +3201,8 @@ public class SOCServer extends Server
                                 if (player.isPotentialCity(mes.getCoordinates()))
                                 {
                                     ga.putPiece(ci);
-                                    messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " built a city."));
-                                    messageToGame(ga.getName(), new SOCPutPiece(mes.getGame(), player.getPlayerNumber(), SOCPlayingPiece.CITY, mes.getCoordinates()));
+                                    messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " built a city."));
+                                    messageToGame(ga, new SOCPutPiece(mes.getGame(), player.getPlayerNumber(), SOCPlayingPiece.CITY, mes.getCoordinates()));
                                     broadcastGameStats(ga);
                                     sendGameState(ga);
 
@@ -2676,12 +3213,12 @@ public class SOCServer extends Server
                                 }
                                 else
                                 {
-                                    c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't build a city there."));
+                                    c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't build a city there.")));
                                 }
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't build a city right now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't build a city right now.")));
                             }
 
                             break;
@@ -2689,7 +3226,7 @@ public class SOCServer extends Server
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -2697,8 +3234,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -2708,21 +3243,20 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleMOVEROBBER(Connection c, SOCMoveRobber mes)
+    private void handleMOVEROBBER(Connection c, SOCMoveRobber mes, int h)
     {
         if (c != null)
         {
             String gn = mes.getGame();
-            SOCGame ga = gameList.getGameData(gn);
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
-                    SOCPlayer player = ga.getPlayer((String) c.data);
+                    SOCPlayer player = playerFor(ga, c);
 
                     /**
                      * make sure the player can do it
@@ -2730,8 +3264,8 @@ public class SOCServer extends Server
                     if (ga.canMoveRobber(player.getPlayerNumber(), mes.getCoordinates()))
                     {
                         SOCMoveRobberResult result = ga.moveRobber(player.getPlayerNumber(), mes.getCoordinates());
-                        messageToGame(ga.getName(), new SOCMoveRobber(ga.getName(), player.getPlayerNumber(), mes.getCoordinates()));
-                        messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " moved the robber."));
+                        messageToGame(ga, new SOCMoveRobber(ga.getName(), player.getPlayerNumber(), mes.getCoordinates()));
+                        messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " moved the robber."));
 
                         Vector<SOCPlayer> victims = result.getVictims();
 
@@ -2752,7 +3286,7 @@ public class SOCServer extends Server
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't move the robber."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't move the robber.")));
                     }
                 }
                 catch (Exception e)
@@ -2760,8 +3294,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -2771,18 +3303,17 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleSTARTGAME(Connection c, SOCStartGame mes)
+    private void handleSTARTGAME(Connection c, SOCStartGame mes, int h)
     {
         if (c != null)
         {
             String gn = mes.getGame();
-            SOCGame ga = gameList.getGameData(gn);
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (ga.getGameState() == SOCGame.NEW)
@@ -2805,7 +3336,7 @@ public class SOCServer extends Server
                         {
                             if (robots.isEmpty())
                             {
-                                messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, "No robots on this server, please fill all seats before starting."));
+                                messageToGame(ga, new SOCGameTextMsg(gn, SERVERNAME, "No robots on this server, please fill all seats before starting."));
                             }
                             else
                             {
@@ -2828,7 +3359,7 @@ public class SOCServer extends Server
                                 if (numEmpty > robots.size())
                                 {
                                     String m = "Sorry, not enough robots to fill all the seats.  Only " + robots.size() + " robots are available.";
-                                    messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, m));
+                                    messageToGame(ga, new SOCGameTextMsg(gn, SERVERNAME, m));
                                 }
                                 else
                                 {
@@ -2837,53 +3368,20 @@ public class SOCServer extends Server
                                     /**
                                      * Fill all the empty seats with robots
                                      */
-
-                                    ///
-                                    /// shuffle the indexes to distribute load
-                                    ///
-                                    int[] robotIndexes = new int[robots.size()];
-
-                                    for (int i = 0; i < robots.size(); i++)
-                                    {
-                                        robotIndexes[i] = i;
-                                    }
-
-                                    for (int j = 0; j < 3; j++)
-                                    {
-                                        for (int i = 0; i < robotIndexes.length; i++)
-                                        {
-                                            int idx = Math.abs(rand.nextInt() % (robotIndexes.length - i));
-                                            int tmp = robotIndexes[idx];
-                                            robotIndexes[idx] = robotIndexes[i];
-                                            robotIndexes[i] = tmp;
-                                        }
-                                    }
-
-                                    if (D.ebugOn)
-                                    {
-                                        for (int i = 0; i < robots.size();
-                                                i++)
-                                        {
-                                            D.ebugPrintln("^^^ robotIndexes[" + i + "]=" + robotIndexes[i]);
-                                        }
-                                    }
-
-                                    int idx = 0;
-
                                     for (int i = 0; i < SOCGame.MAXPLAYERS;
                                             i++)
                                     {
                                         if (ga.isSeatVacant(i))
                                         {
                                             /**
-                                             * fetch a robot player
+                                             * fetch the least loaded robot
+                                             * not already fetched for this game
                                              */
-                                            if (idx < robots.size())
-                                            {
-                                                messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, "Fetching a robot player..."));
+                                            Connection robotConn = robotPool.pick(gn);
 
-                                                Connection robotConn = (Connection) robots.get(robotIndexes[idx]);
-                                                idx++;
+                                            if (robotConn != null)
+                                            {
+                                                messageToGame(ga, new SOCGameTextMsg(gn, SERVERNAME, "Fetching a robot player..."));
 
                                                 /**
                                                  * make the request
@@ -2895,11 +3393,12 @@ public class SOCServer extends Server
                                                      */
                                                     D.ebugPrintln("@@@ JOIN GAME REQUEST for " + (String) robotConn.data);
                                                     requests.addElement(robotConn);
+                                                    scheduleRobotJoinDeadline(ga, robotConn, i);
                                                 }
                                                 else
                                                 {
                                                     // !!! won't ever happen
-                                                    messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, "*** Error on robot request! ***"));
+                                                    messageToGame(ga, new SOCGameTextMsg(gn, SERVERNAME, "*** Error on robot request! ***"));
                                                 }
                                             }
                                         }
@@ -2930,10 +3429,107 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
+            }
+        }
+    }
+
+    /**
+     * Give a robot asked to fill a seat at the start of a game
+     * {@link #ROBOT_JOIN_TIMEOUT_PROPERTY} to sit down; see
+     * {@link #robotJoinTimedOut(SOCGame, Connection, int)}.
+     *
+     * @param ga  the game
+     * @param robotConn  the robot asked
+     * @param pn  the seat it was asked to take
+     */
+    private void scheduleRobotJoinDeadline(final SOCGame ga, final Connection robotConn, final int pn)
+    {
+        Mailbox mb = gameList.getMailbox(ga);
+
+        if ((robotJoinTimeout > 0) && (mb != null))
+        {
+            scheduleForGame(mb, robotJoinTimeout, new Runnable()
+            {
+                public void run()
+                {
+                    robotJoinTimedOut(ga, robotConn, pn);
+                }
+            });
+        }
+    }
+
+    /**
+     * A robot asked to fill a seat at the start of a game hasn't sat
+     * down in time.  Ask the least loaded other robot to take the seat
+     * instead, and tell the slow one to go away; if there's no other
+     * robot, give the slow one more time.  Runs on the game's mailbox.
+     *
+     * @param ga  the game
+     * @param robotConn  the robot asked
+     * @param pn  the seat it was asked to take
+     */
+    void robotJoinTimedOut(SOCGame ga, Connection robotConn, int pn)
+    {
+        String gn = ga.getName();
+
+        if (!gameList.isGame(ga) || (ga.getGameState() != SOCGame.READY))
+        {
+            return;  // destroyed, or started already
+        }
+
+        Vector requests = (Vector) robotJoinRequests.get(gn);
+
+        if ((requests == null) || !requests.contains(robotConn))
+        {
+            return;  // it sat down
+        }
+
+        robotPool.timedOut(robotConn, gn);
+
+        Connection other = null;
+
+        if (ga.isSeatVacant(pn))
+        {
+            other = robotPool.pick(gn);
+
+            if (other == null)
+            {
+                scheduleRobotJoinDeadline(ga, robotConn, pn);
+
+                return;
+            }
+        }
+
+        D.ebugPrintln("@@@ " + (String) robotConn.data + " too slow to join " + gn);
+        requests.removeElement(robotConn);
+        robotConn.put(SOCRobotDismiss.toCmd(gn));
+
+        if (!gameList.isMember(robotConn, ga))
+        {
+            /**
+             * it never joined, so it won't leave; stop counting the game
+             * against it.  If it's a member, leaveGame releases it.
+             */
+            robotPool.release(robotConn, gn);
+        }
 
-                ga.releaseMonitor();
+        if (other == null)
+        {
+            /**
+             * someone else sat down there meanwhile
+             */
+            if (requests.isEmpty())
+            {
+                robotJoinRequests.remove(gn);
+                startGame(ga);
             }
         }
+        else if (other.put(SOCJoinGameRequest.toCmd(gn, pn)))
+        {
+            D.ebugPrintln("@@@ JOIN GAME REQUEST for " + (String) other.data);
+            requests.addElement(other);
+            scheduleRobotJoinDeadline(ga, other, pn);
+        }
     }
 
     /**
@@ -2941,21 +3537,20 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleROLLDICE(Connection c, SOCRollDice mes)
+    private void handleROLLDICE(Connection c, SOCRollDice mes, int h)
     {
         if (c != null)
         {
             String gn = mes.getGame();
-            SOCGame ga = gameList.getGameData(gn);
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
-                    if (ga.canRollDice(ga.getPlayer((String) c.data).getPlayerNumber()))
+                    if (ga.canRollDice(playerFor(ga, c).getPlayerNumber()))
                     {
                         ga.lastTrade = null;        // no longer undoable
                         IntPair dice = ga.rollDice();
@@ -2963,8 +3558,9 @@ public class SOCServer extends Server
                         int turnNum = ga.getTurnNumber();
                         String msgFormat = "%d: ----%s rolled %d       [%d + %d]";
                         String msg = String.format(msgFormat, turnNum, c.data, curdice, dice.getA(), dice.getB());
-                        messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, msg));
-                        messageToGame(gn, new SOCDiceResult(gn, curdice));
+                        MessageBatch batch = new MessageBatch();
+                        batch.add(new SOCGameTextMsg(gn, SERVERNAME, msg));
+                        batch.add(new SOCDiceResult(gn, curdice));
 
                         /**
                          * if the roll is not 7, tell players what they got
@@ -2978,14 +3574,14 @@ public class SOCServer extends Server
 
                                 if (total == 0)
                                 {
-                                    messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, "  " + ga.getPlayer(i).getName() + " got nothing."));
+                                    batch.add(new SOCGameTextMsg(gn, SERVERNAME, "  " + ga.getPlayer(i).getName() + " got nothing."));
                                 }
                                 else
                                 {
                                     String message = "  " + ga.getPlayer(i).getName() + " got ";
                                     for (int rs = SOCResourceConstants.MIN; rs < SOCResourceConstants.MAX; rs++) {
                                         int cnt = rsrcs.getAmount(rs);
-                                        messageToGame(gn, new SOCPlayerElement(gn, i, SOCPlayerElement.GAIN, rs, cnt));
+                                        batch.add(new SOCPlayerElement(gn, i, SOCPlayerElement.GAIN, rs, cnt));
                                         if (cnt > 0) {
                                             message += (cnt + " " + SOCResourceConstants.names[rs]);
                                             total -= cnt;
@@ -2993,11 +3589,11 @@ public class SOCServer extends Server
                                         }
                                     }
                                     message += ".";
-                                    messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, message));
+                                    batch.add(new SOCGameTextMsg(gn, SERVERNAME, message));
                                 }
                                 //  send all resource info for accuracy
 
-                                Connection playerCon = connectionForPlayer(ga.getPlayer(i).getName());
+                                Connection playerCon = gameList.getSeatConnection(ga, i);
 
                                 if (playerCon != null)
                                 {
@@ -3005,9 +3601,9 @@ public class SOCServer extends Server
                                     SOCResourceSet resources = ga.getPlayer(i).getResources();
                                     for (int rs = SOCResourceConstants.MIN; rs < SOCResourceConstants.MAX; rs++) {
                                         int cnt = resources.getAmount(rs);
-                                        messageToPlayer(playerCon, new SOCPlayerElement(gn, i, SOCPlayerElement.SET, rs, cnt));
+                                        batch.addToPlayer(playerCon, new SOCPlayerElement(gn, i, SOCPlayerElement.SET, rs, cnt));
                                     }
-                                    messageToGame(ga.getName(), new SOCResourceCount(gn, i, resources.getTotal()));
+                                    batch.add(new SOCResourceCount(gn, i, resources.getTotal()));
                                 }
                             }
 
@@ -3022,7 +3618,7 @@ public class SOCServer extends Server
                                resourceMessage += rsrcs.getAmount(SOCResourceConstants.WHEAT)+" ";
                                resourceMessage += rsrcs.getAmount(SOCResourceConstants.WOOD)+" ";
                                resourceMessage += rsrcs.getAmount(SOCResourceConstants.UNKNOWN)+" ";
-                               messageToGame(gn, new SOCGameTextMsg(gn, SERVERNAME, resourceMessage));
+                               messageToGame(ga, new SOCGameTextMsg(gn, SERVERNAME, resourceMessage));
                                }
                                }
                              */
@@ -3038,27 +3634,23 @@ public class SOCServer extends Server
                                 int rscnt = plyr.getResources().getTotal();
                                 if (rscnt > 7)
                                 {
-                                    Connection con = connectionForPlayer(plyr.getName());
-                                    if (con != null) {
-                                        con.put(SOCDiscardRequest.toCmd(ga.getName(), rscnt / 2));
-                                    }
+                                    batch.addToPlayer(gameList.getSeatConnection(ga, i), new SOCDiscardRequest(ga.getName(), rscnt / 2));
                                 }
                             }
                         }
 
+                        messageToGame(ga, batch);
                         sendGameState(ga);
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(gn, SERVERNAME, "You can't roll right now."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(gn, SERVERNAME, "You can't roll right now.")));
                     }
                 }
                 catch (Exception e)
                 {
                     D.ebugPrintln("Exception in handleROLLDICE - " + e);
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3068,21 +3660,20 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleDISCARD(Connection c, SOCDiscard mes)
+    private void handleDISCARD(Connection c, SOCDiscard mes, int h)
     {
         if (c != null)
         {
             String gn = mes.getGame();
-            SOCGame ga = gameList.getGameData(gn);
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
-                    SOCPlayer player = ga.getPlayer((String) c.data);
+                    SOCPlayer player = playerFor(ga, c);
 
                     if (ga.canDiscard(player.getPlayerNumber(), mes.getResources()))
                     {
@@ -3094,7 +3685,7 @@ public class SOCServer extends Server
                         for (int rs = SOCResourceConstants.MIN; rs < SOCResourceConstants.MAX; rs++) {
                             int cnt = mes.getResources().getAmount(rs);
                             if (cnt > 0) {
-                                messageToPlayer(c, new SOCPlayerElement(gn, player.getPlayerNumber(), SOCPlayerElement.LOSE, rs, cnt));
+                                messageToPlayer(c, ga, new SOCPlayerElement(gn, player.getPlayerNumber(), SOCPlayerElement.LOSE, rs, cnt));
                             }
                         }
 
@@ -3103,8 +3694,8 @@ public class SOCServer extends Server
                          */
                         Vector exceptions = new Vector(1);
                         exceptions.addElement(c);
-                        messageToGameExcept(gn, exceptions, new SOCPlayerElement(gn, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.UNKNOWN, mes.getResources().getTotal()));
-                        messageToGame(gn, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " discarded " + mes.getResources().getTotal() + " resources."));
+                        messageToGameExcept(ga, exceptions, new SOCPlayerElement(gn, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.UNKNOWN, mes.getResources().getTotal()));
+                        messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " discarded " + mes.getResources().getTotal() + " resources."));
                         sendGameState(ga);
                     }
                     else
@@ -3112,7 +3703,7 @@ public class SOCServer extends Server
                         /**
                          * there could be a better feedback message here
                          */
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't discard that many cards."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't discard that many cards.")));
                     }
                 }
                 catch (Exception e)
@@ -3120,8 +3711,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3131,22 +3720,21 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleENDTURN(Connection c, SOCEndTurn mes)
+    private void handleENDTURN(Connection c, SOCEndTurn mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
                     {
-                        if (ga.canEndTurn(ga.getPlayer((String) c.data).getPlayerNumber()))
+                        if (ga.canEndTurn(playerFor(ga, c).getPlayerNumber()))
                         {
                             ga.endTurn();
                             ga.lastTrade = null;        // no longer undoable
@@ -3157,7 +3745,7 @@ public class SOCServer extends Server
                              */
                             for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
                             {
-                                messageToGame(ga.getName(), new SOCClearOffer(ga.getName(), i));
+                                messageToGame(ga, new SOCClearOffer(ga.getName(), i));
                             }
 
                             /**
@@ -3167,12 +3755,12 @@ public class SOCServer extends Server
                         }
                         else
                         {
-                            c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't end your turn yet."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't end your turn yet.")));
                         }
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3180,8 +3768,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3191,17 +3777,16 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleCHOOSEPLAYER(Connection c, SOCChoosePlayer mes)
+    private void handleCHOOSEPLAYER(Connection c, SOCChoosePlayer mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
@@ -3209,17 +3794,17 @@ public class SOCServer extends Server
                         if (ga.canChoosePlayer(mes.getChoice()))
                         {
                             int rsrc = ga.stealFromPlayer(mes.getChoice());
-                            reportRobbery(ga, ga.getPlayer((String) c.data), ga.getPlayer(mes.getChoice()), rsrc);
+                            reportRobbery(ga, playerFor(ga, c), ga.getPlayer(mes.getChoice()), rsrc);
                             sendGameState(ga);
                         }
                         else
                         {
-                            c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't steal from that player."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't steal from that player.")));
                         }
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3227,8 +3812,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3238,17 +3821,16 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleMAKEOFFER(Connection c, SOCMakeOffer mes)
+    private void handleMAKEOFFER(Connection c, SOCMakeOffer mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     SOCTradeOffer offer = mes.getOffer();
@@ -3257,7 +3839,7 @@ public class SOCServer extends Server
                      * remake the offer with data that we know is accurate,
                      * namely the 'from' datum
                      */
-                    SOCPlayer player = ga.getPlayer((String) c.data);
+                    SOCPlayer player = playerFor(ga, c);
 
                     if (player != null)
                     {
@@ -3265,10 +3847,10 @@ public class SOCServer extends Server
 
                         SOCTradeOffer remadeOffer = new SOCTradeOffer(ga.getName(), player.getPlayerNumber(), offer.getTo(), offer.getGiveSet(), offer.getGetSet());
                         player.setCurrentOffer(remadeOffer);
-                        messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " made an offer to trade."));
+                        messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " made an offer to trade."));
 
                         SOCMakeOffer makeOfferMessage = new SOCMakeOffer(ga.getName(), remadeOffer);
-                        messageToGame(ga.getName(), makeOfferMessage);
+                        messageToGame(ga, makeOfferMessage);
 
                         recordGameEvent(ga.getName(), makeOfferMessage.toCmd());
 
@@ -3277,7 +3859,7 @@ public class SOCServer extends Server
                          */
                         for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
                         {
-                            messageToGame(ga.getName(), new SOCClearTradeMsg(ga.getName(), i));
+                            messageToGame(ga, new SOCClearTradeMsg(ga.getName(), i));
                         }
                     }
                 }
@@ -3286,8 +3868,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3297,21 +3877,20 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleCLEAROFFER(Connection c, SOCClearOffer mes)
+    private void handleCLEAROFFER(Connection c, SOCClearOffer mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
-                    ga.getPlayer((String) c.data).setCurrentOffer(null);
-                    messageToGame(ga.getName(), new SOCClearOffer(ga.getName(), ga.getPlayer((String) c.data).getPlayerNumber()));
+                    playerFor(ga, c).setCurrentOffer(null);
+                    messageToGame(ga, new SOCClearOffer(ga.getName(), playerFor(ga, c).getPlayerNumber()));
                     recordGameEvent(mes.getGame(), mes.toCmd());
 
                     /**
@@ -3319,7 +3898,7 @@ public class SOCServer extends Server
                      */
                     for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
                     {
-                        messageToGame(ga.getName(), new SOCClearTradeMsg(ga.getName(), i));
+                        messageToGame(ga, new SOCClearTradeMsg(ga.getName(), i));
                     }
                 }
                 catch (Exception e)
@@ -3327,8 +3906,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3338,21 +3915,22 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleREJECTOFFER(Connection c, SOCRejectOffer mes)
+    private void handleREJECTOFFER(Connection c, SOCRejectOffer mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                SOCPlayer player = ga.getPlayer((String) c.data);
+                SOCPlayer player = playerFor(ga, c);
 
                 if (player != null)
                 {
                     SOCRejectOffer rejectMessage = new SOCRejectOffer(ga.getName(), player.getPlayerNumber());
-                    messageToGame(ga.getName(), rejectMessage);
+                    messageToGame(ga, rejectMessage);
 
                     recordGameEvent(ga.getName(), rejectMessage.toCmd());
                 }
@@ -3365,20 +3943,19 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleACCEPTOFFER(Connection c, SOCAcceptOffer mes)
+    private void handleACCEPTOFFER(Connection c, SOCAcceptOffer mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
-                    SOCPlayer player = ga.getPlayer((String) c.data);
+                    SOCPlayer player = playerFor(ga, c);
 
                     if (player != null)
                     {
@@ -3401,17 +3978,17 @@ public class SOCServer extends Server
                             for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
                             {
                                 ga.getPlayer(i).setCurrentOffer(null);
-                                messageToGame(ga.getName(), new SOCClearOffer(ga.getName(), i));
+                                messageToGame(ga, new SOCClearOffer(ga.getName(), i));
                             }
 
                             /**
                              * send a message to the bots that the offer was accepted
                              */
-                            messageToGame(ga.getName(), mes);
+                            messageToGame(ga, mes);
                         }
                         else
                         {
-                            c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't accept that trade."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't accept that trade.")));
                         }
                     }
                 }
@@ -3420,8 +3997,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3431,17 +4006,16 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleBANKTRADE(Connection c, SOCBankTrade mes)
+    private void handleBANKTRADE(Connection c, SOCBankTrade mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
@@ -3455,12 +4029,12 @@ public class SOCServer extends Server
                         }
                         else
                         {
-                            c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't make that trade."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't make that trade.")));
                         }
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3468,8 +4042,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3479,25 +4051,24 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleBUILDREQUEST(Connection c, SOCBuildRequest mes)
+    private void handleBUILDREQUEST(Connection c, SOCBuildRequest mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 	          String gname = ga.getName();
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
                     {
                         if (ga.getGameState() == SOCGame.PLAY1)
                         {
-                            SOCPlayer player = ga.getPlayer((String) c.data);
+                            SOCPlayer player = playerFor(ga, c);
                             ga.lastTrade = null;        // no longer undoable
 
                             switch (mes.getPieceType())
@@ -3507,13 +4078,13 @@ public class SOCServer extends Server
                                 if (ga.couldBuildRoad(player.getPlayerNumber()))
                                 {
                                     ga.buyRoad(player.getPlayerNumber());
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, 1));
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, 1));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, 1));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, 1));
                                     sendGameState(ga);
                                 }
                                 else
                                 {
-                                    c.put(SOCGameTextMsg.toCmd(gname, SERVERNAME, "You can't build a road."));
+                                    c.put(new Frame(SOCGameTextMsg.toBytes(gname, SERVERNAME, "You can't build a road.")));
                                 }
 
                                 break;
@@ -3523,15 +4094,15 @@ public class SOCServer extends Server
                                 if (ga.couldBuildSettlement(player.getPlayerNumber()))
                                 {
                                     ga.buySettlement(player.getPlayerNumber());
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, 1));
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, 1));
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, 1));
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, 1));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, 1));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, 1));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, 1));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, 1));
                                     sendGameState(ga);
                                 }
                                 else
                                 {
-                                    c.put(SOCGameTextMsg.toCmd(gname, SERVERNAME, "You can't build a settlement."));
+                                    c.put(new Frame(SOCGameTextMsg.toBytes(gname, SERVERNAME, "You can't build a settlement.")));
                                 }
 
                                 break;
@@ -3541,13 +4112,13 @@ public class SOCServer extends Server
                                 if (ga.couldBuildCity(player.getPlayerNumber()))
                                 {
                                     ga.buyCity(player.getPlayerNumber());
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.ORE, 3));
-                                    messageToGame(gname, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, 2));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.ORE, 3));
+                                    messageToGame(ga, new SOCPlayerElement(gname, player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, 2));
                                     sendGameState(ga);
                                 }
                                 else
                                 {
-                                    c.put(SOCGameTextMsg.toCmd(gname, SERVERNAME, "You can't build a city."));
+                                    c.put(new Frame(SOCGameTextMsg.toBytes(gname, SERVERNAME, "You can't build a city.")));
                                 }
 
                                 break;
@@ -3555,12 +4126,12 @@ public class SOCServer extends Server
                         }
                         else
                         {
-                            c.put(SOCGameTextMsg.toCmd(gname, SERVERNAME, "You can't build now."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(gname, SERVERNAME, "You can't build now.")));
                         }
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(gname, SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(gname, SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3568,8 +4139,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3579,22 +4148,21 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleCANCELBUILDREQUEST(Connection c, SOCCancelBuildRequest mes)
+    private void handleCANCELBUILDREQUEST(Connection c, SOCCancelBuildRequest mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
                     {
-                        SOCPlayer player = ga.getPlayer((String) c.data);
+                        SOCPlayer player = playerFor(ga, c);
 
                         switch (mes.getPieceType())
                         {
@@ -3603,13 +4171,13 @@ public class SOCServer extends Server
                             if (ga.getGameState() == SOCGame.PLACING_ROAD)
                             {
                                 ga.cancelBuildRoad(player.getPlayerNumber());
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, 1));
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, 1));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, 1));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, 1));
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You didn't buy a road."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You didn't buy a road.")));
                             }
 
                             break;
@@ -3619,15 +4187,15 @@ public class SOCServer extends Server
                             if (ga.getGameState() == SOCGame.PLACING_SETTLEMENT)
                             {
                                 ga.cancelBuildSettlement(player.getPlayerNumber());
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, 1));
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, 1));
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, 1));
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, 1));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, 1));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, 1));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, 1));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, 1));
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You didn't buy a settlement."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You didn't buy a settlement.")));
                             }
 
                             break;
@@ -3637,13 +4205,13 @@ public class SOCServer extends Server
                             if (ga.getGameState() == SOCGame.PLACING_CITY)
                             {
                                 ga.cancelBuildCity(player.getPlayerNumber());
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.ORE, 3));
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, 2));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.ORE, 3));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, 2));
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You didn't buy a city."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You didn't buy a city.")));
                             }
 
                             break;
@@ -3651,7 +4219,7 @@ public class SOCServer extends Server
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3659,8 +4227,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3670,49 +4236,48 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleBUYCARDREQUEST(Connection c, SOCBuyCardRequest mes)
+    private void handleBUYCARDREQUEST(Connection c, SOCBuyCardRequest mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
                     {
-                        SOCPlayer player = ga.getPlayer((String) c.data);
+                        SOCPlayer player = playerFor(ga, c);
                         ga.lastTrade = null;        // no longer undoable
 
                         if ((ga.getGameState() == SOCGame.PLAY1) && (ga.couldBuyDevCard(player.getPlayerNumber())))
                         {
                             int card = ga.buyDevCard();
-                            messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.ORE, 1));
-                            messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, 1));
-                            messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, 1));
-                            messageToGame(ga.getName(), new SOCDevCardCount(ga.getName(), ga.getNumDevCards()));
-                            messageToPlayer(c, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.DRAW, card));
+                            messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.ORE, 1));
+                            messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, 1));
+                            messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, 1));
+                            messageToGame(ga, new SOCDevCardCount(ga.getName(), ga.getNumDevCards()));
+                            messageToPlayer(c, ga, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.DRAW, card));
 
                             Vector ex = new Vector(1);
                             ex.addElement(c);
-                            messageToGameExcept(ga.getName(), ex, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.DRAW, SOCDevCardConstants.UNKNOWN));
-                            messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " bought a development card."));
+                            messageToGameExcept(ga, ex, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.DRAW, SOCDevCardConstants.UNKNOWN));
+                            messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, (String) c.data + " bought a development card."));
 
                             if (ga.getNumDevCards() > 1)
                             {
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, "There are " + ga.getNumDevCards() + " cards left."));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, "There are " + ga.getNumDevCards() + " cards left."));
                             }
                             else if (ga.getNumDevCards() == 1)
                             {
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, "There is 1 card left."));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, "There is 1 card left."));
                             }
                             else
                             {
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, "There are no more Development cards."));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, "There are no more Development cards."));
                             }
 
                             sendGameState(ga);
@@ -3721,17 +4286,17 @@ public class SOCServer extends Server
                         {
                             if (ga.getNumDevCards() == 0)
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "There are no more Development cards."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "There are no more Development cards.")));
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't buy a development card now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't buy a development card now.")));
                             }
                         }
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3739,8 +4304,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3750,22 +4313,21 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handlePLAYDEVCARDREQUEST(Connection c, SOCPlayDevCardRequest mes)
+    private void handlePLAYDEVCARDREQUEST(Connection c, SOCPlayDevCardRequest mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
                     {
-                        SOCPlayer player = ga.getPlayer((String) c.data);
+                        SOCPlayer player = playerFor(ga, c);
                         ga.lastTrade = null;        // no longer undoable
 
                         switch (mes.getDevCard())
@@ -3775,16 +4337,16 @@ public class SOCServer extends Server
                             if (ga.canPlayKnight(player.getPlayerNumber()))
                             {
                                 ga.playKnight();
-                                messageToGame(ga.getName(), new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.KNIGHT));
-                                messageToGame(ga.getName(), new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.NUMKNIGHTS, 1));
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Knight card."));
+                                messageToGame(ga, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.KNIGHT));
+                                messageToGame(ga, new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), player.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.NUMKNIGHTS, 1));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Knight card."));
                                 broadcastGameStats(ga);
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't play a Knight card now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't play a Knight card now.")));
                             }
 
                             break;
@@ -3794,14 +4356,14 @@ public class SOCServer extends Server
                             if (ga.canPlayRoadBuilding(player.getPlayerNumber()))
                             {
                                 ga.playRoadBuilding();
-                                messageToGame(ga.getName(), new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.ROADS));
-                                messageToGame(ga.getName(), new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Road Building card."));
+                                messageToGame(ga, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.ROADS));
+                                messageToGame(ga, new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Road Building card."));
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't play a Road Building card now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't play a Road Building card now.")));
                             }
 
                             break;
@@ -3811,14 +4373,14 @@ public class SOCServer extends Server
                             if (ga.canPlayDiscovery(player.getPlayerNumber()))
                             {
                                 ga.playDiscovery();
-                                messageToGame(ga.getName(), new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.DISC));
-                                messageToGame(ga.getName(), new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Discovery card."));
+                                messageToGame(ga, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.DISC));
+                                messageToGame(ga, new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Discovery card."));
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't play a Discovery card now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't play a Discovery card now.")));
                             }
 
                             break;
@@ -3828,14 +4390,14 @@ public class SOCServer extends Server
                             if (ga.canPlayMonopoly(player.getPlayerNumber()))
                             {
                                 ga.playMonopoly();
-                                messageToGame(ga.getName(), new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.MONO));
-                                messageToGame(ga.getName(), new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
-                                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Monopoly card."));
+                                messageToGame(ga, new SOCDevCard(ga.getName(), player.getPlayerNumber(), SOCDevCard.PLAY, SOCDevCardConstants.MONO));
+                                messageToGame(ga, new SOCSetPlayedDevCard(ga.getName(), player.getPlayerNumber(), true));
+                                messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " played a Monopoly card."));
                                 sendGameState(ga);
                             }
                             else
                             {
-                                c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't play a Monopoly card now."));
+                                c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't play a Monopoly card now.")));
                             }
 
                             break;
@@ -3843,7 +4405,7 @@ public class SOCServer extends Server
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3851,8 +4413,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3862,20 +4422,19 @@ public class SOCServer extends Server
      *
      * @param c  the connection that sent the message
      * @param mes  the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleDISCOVERYPICK(Connection c, SOCDiscoveryPick mes)
+    private void handleDISCOVERYPICK(Connection c, SOCDiscoveryPick mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 	          String game = ga.getName();
 
             if (ga != null) {
-		            ga.takeMonitor();
-		
                 try {
                     if (checkTurn(c, ga)) {
-                        SOCPlayer player = ga.getPlayer((String) c.data);
+                        SOCPlayer player = playerFor(ga, c);
                   			SOCResourceSet rs = mes.getResources();
 
                         if (ga.canDoDiscoveryAction(rs)) {
@@ -3888,20 +4447,20 @@ public class SOCServer extends Server
                                 int nr = rs.getAmount(rsc);
                                 if (nr > 0) {
                                     // ElementType = Resource type: rsc
-                                    messageToGameWithMon(game, new SOCPlayerElement(game, pn, SOCPlayerElement.GAIN, rsc, nr));
+                                    messageToGame(ga, new SOCPlayerElement(game, pn, SOCPlayerElement.GAIN, rsc, nr));
                                     message += (nr + " " + SOCResourceConstants.names[rsc]);
                                     nc -= nr;
                                     if (nc > 0) message += " and ";
                                }
 			                      }
                             message += " from the bank.";
-                            messageToGameWithMon(game, new SOCGameTextMsg(game, SERVERNAME, message));
+                            messageToGame(ga, new SOCGameTextMsg(game, SERVERNAME, message));
                             sendGameState(ga);
 	                  		} else {
-                            c.put(SOCGameTextMsg.toCmd(game, SERVERNAME, "That is not a legal Discovery pick."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(game, SERVERNAME, "That is not a legal Discovery pick.")));
                         }
             		    } else {
-                        c.put(SOCGameTextMsg.toCmd(game, SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(game, SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3909,8 +4468,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3920,17 +4477,16 @@ public class SOCServer extends Server
      *
      * @param c     the connection that sent the message
      * @param mes   the messsage
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleMONOPOLYPICK(Connection c, SOCMonopolyPick mes)
+    private void handleMONOPOLYPICK(Connection c, SOCMonopolyPick mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                ga.takeMonitor();
-
                 try
                 {
                     if (checkTurn(c, ga))
@@ -3942,7 +4498,7 @@ public class SOCServer extends Server
 
                             int sum = ga.doMonopolyAction(rt); // set game's count of resources
                             String message = (String) c.data + " monopolized " + sum + " " + resName + ".";
-                            messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
+                            messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
 
                             /**
                              * currentPlayer: GAIN(sum), other players: SET(0)
@@ -3955,19 +4511,19 @@ public class SOCServer extends Server
                                 /**
                                  * Note: This only works if SOCPlayerElement.CLAY == SOCResourceConstants.CLAY
                                  */
-                                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), i, setOrGain, rt, num));
+                                messageToGame(ga, new SOCPlayerElement(ga.getName(), i, setOrGain, rt, num));
                             }
 
                             sendGameState(ga);
                         }
                         else
                         {
-                            c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "You can't do a Monopoly pick now."));
+                            c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "You can't do a Monopoly pick now.")));
                         }
                     }
                     else
                     {
-                        c.put(SOCGameTextMsg.toCmd(ga.getName(), SERVERNAME, "It's not your turn."));
+                        c.put(new Frame(SOCGameTextMsg.toBytes(ga.getName(), SERVERNAME, "It's not your turn.")));
                     }
                 }
                 catch (Exception e)
@@ -3975,8 +4531,6 @@ public class SOCServer extends Server
                     D.ebugPrintln("Exception caught - " + e);
                     e.printStackTrace();
                 }
-
-                ga.releaseMonitor();
             }
         }
     }
@@ -3986,21 +4540,22 @@ public class SOCServer extends Server
      *
      * @param c  the connection
      * @param mes  the message
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleCHANGEFACE(Connection c, SOCChangeFace mes)
+    private void handleCHANGEFACE(Connection c, SOCChangeFace mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                SOCPlayer player = ga.getPlayer((String) c.data);
+                SOCPlayer player = playerFor(ga, c);
 
                 if (player != null)
                 {
                     player.setFaceId(mes.getFaceId());
-                    messageToGame(mes.getGame(), new SOCChangeFace(mes.getGame(), player.getPlayerNumber(), mes.getFaceId()));
+                    messageToGame(ga, new SOCChangeFace(mes.getGame(), player.getPlayerNumber(), mes.getFaceId()));
                 }
             }
         }
@@ -4011,16 +4566,17 @@ public class SOCServer extends Server
      *
      * @param c  the connection
      * @param mes  the message
+     * @param h  the handle of the game, looked up when the message came in
      */
-    private void handleSETSEATLOCK(Connection c, SOCSetSeatLock mes)
+    private void handleSETSEATLOCK(Connection c, SOCSetSeatLock mes, int h)
     {
         if (c != null)
         {
-            SOCGame ga = gameList.getGameData(mes.getGame());
+            SOCGame ga = gameList.getGameData(h);
 
             if (ga != null)
             {
-                SOCPlayer player = ga.getPlayer((String) c.data);
+                SOCPlayer player = playerFor(ga, c);
 
                 if (player != null)
                 {
@@ -4033,7 +4589,7 @@ public class SOCServer extends Server
                         ga.unlockSeat(mes.getPlayerNumber());
                     }
 
-                    messageToGame(mes.getGame(), mes);
+                    messageToGame(ga, mes);
                 }
             }
         }
@@ -4109,18 +4665,17 @@ public class SOCServer extends Server
     {
         if ((c != null) && (ga != null))
         {
-            ga.takeMonitor();
-
             try
             {
                 ga.addPlayer((String) c.data, pn);
                 ga.getPlayer(pn).setRobotFlag(robot);
+                gameList.setSeat(ga, pn, c);
 
                 /**
                  * if the player can sit, then tell the other clients in the game
                  */
                 SOCSitDown sitMessage = new SOCSitDown(ga.getName(), (String) c.data, pn, robot);
-                messageToGame(ga.getName(), sitMessage);
+                messageToGame(ga, sitMessage);
 
                 D.ebugPrintln("*** sent SOCSitDown message to game ***");
 
@@ -4157,7 +4712,7 @@ public class SOCServer extends Server
 
 		// include UNKNOWN:
 		for (int rs = SOCResourceConstants.MIN; rs <= SOCResourceConstants.MAX; rs++) {
-		    messageToPlayer(c, new SOCPlayerElement(ga.getName(), pn, SOCPlayerElement.SET, rs, resources.getAmount(rs)));
+		    messageToPlayer(c, ga, new SOCPlayerElement(ga.getName(), pn, SOCPlayerElement.SET, rs, resources.getAmount(rs)));
 		}
 
                 SOCDevCardSet devCards = ga.getPlayer(pn).getDevCards();
@@ -4167,97 +4722,97 @@ public class SOCServer extends Server
 		// remove (PLAY) the unknown cards:
                 for (i = 0; i < devCards.getTotal(); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.PLAY, SOCDevCardConstants.UNKNOWN));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.PLAY, SOCDevCardConstants.UNKNOWN));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.KNIGHT); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.KNIGHT));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.KNIGHT));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.ROADS); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.ROADS));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.ROADS));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.DISC); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.DISC));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.DISC));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.MONO); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.MONO));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.MONO));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.CAP); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.CAP));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.CAP));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.LIB); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.LIB));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.LIB));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.UNIV); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.UNIV));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.UNIV));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.TEMP); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.TEMP));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.TEMP));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.NEW, SOCDevCardConstants.TOW); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.TOW));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDNEW, SOCDevCardConstants.TOW));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.KNIGHT); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.KNIGHT));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.KNIGHT));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.ROADS); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.ROADS));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.ROADS));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.DISC); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.DISC));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.DISC));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.MONO); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.MONO));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.MONO));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.CAP); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.CAP));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.CAP));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.LIB); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.LIB));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.LIB));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.UNIV); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.UNIV));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.UNIV));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.TEMP); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.TEMP));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.TEMP));
                 }
 
                 for (i = 0; i < devCards.getAmount(SOCDevCardSet.OLD, SOCDevCardConstants.TOW); i++)
                 {
-                    messageToPlayer(c, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.TOW));
+                    messageToPlayer(c, ga, new SOCDevCard(ga.getName(), pn, SOCDevCard.ADDOLD, SOCDevCardConstants.TOW));
                 }
 
                 /**
@@ -4267,21 +4822,19 @@ public class SOCServer extends Server
 
                 if ((ga.getCurrentDice() == 7) && (ga.getPlayer(pn).getResources().getTotal() > 7))
                 {
-                    messageToPlayer(c, new SOCDiscardRequest(ga.getName(), ga.getPlayer(pn).getResources().getTotal() / 2));
+                    messageToPlayer(c, ga, new SOCDiscardRequest(ga.getName(), ga.getPlayer(pn).getResources().getTotal() / 2));
                 }
 
                 /**
                  * send what face this player is using
                  */
-                messageToGame(ga.getName(), new SOCChangeFace(ga.getName(), pn, ga.getPlayer(pn).getFaceId()));
+                messageToGame(ga, new SOCChangeFace(ga.getName(), pn, ga.getPlayer(pn).getFaceId()));
             }
             catch (Exception e)
             {
                 D.ebugPrintln("Exception caught - " + e);
                 e.printStackTrace();
             }
-
-            ga.releaseMonitor();
         }
     }
 
@@ -4311,8 +4864,8 @@ public class SOCServer extends Server
             gainRsrc = new SOCPlayerElement(ga.getName(), pe.getPlayerNumber(), SOCPlayerElement.GAIN, rsrc, 1);
             loseRsrc = new SOCPlayerElement(ga.getName(), vi.getPlayerNumber(), SOCPlayerElement.LOSE, rsrc, 1);
 
-            Connection peCon = connectionForPlayer(pe.getName());
-            Connection viCon = connectionForPlayer(vi.getName());
+            Connection peCon = gameList.getSeatConnection(ga, pe.getPlayerNumber());
+            Connection viCon = gameList.getSeatConnection(ga, vi.getPlayerNumber());
 
             Vector<Connection> exceptions = new Vector<Connection>(2);
             exceptions.addElement(peCon);
@@ -4321,21 +4874,21 @@ public class SOCServer extends Server
             /**
              * send the text messages
              */
-            messageToPlayer(viCon, new SOCGameTextMsg(ga.getName(), SERVERNAME, viMsg));
-            messageToPlayer(peCon, new SOCGameTextMsg(ga.getName(), SERVERNAME, peMsg));
-            messageToGameExcept(ga.getName(), exceptions, new SOCGameTextMsg(ga.getName(), SERVERNAME, obMsg));
+            messageToPlayer(viCon, ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, viMsg));
+            messageToPlayer(peCon, ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, peMsg));
+            messageToGameExcept(ga, exceptions, new SOCGameTextMsg(ga.getName(), SERVERNAME, obMsg));
 
             /**
              * send the game messages; send lose *before* gain
              */
-            messageToPlayer(peCon, loseRsrc);
-            messageToPlayer(peCon, gainRsrc);
-            messageToPlayer(viCon, loseRsrc);
-            messageToPlayer(viCon, gainRsrc);
+            messageToPlayer(peCon, ga, loseRsrc);
+            messageToPlayer(peCon, ga, gainRsrc);
+            messageToPlayer(viCon, ga, loseRsrc);
+            messageToPlayer(viCon, ga, gainRsrc);
             loseUnknown = new SOCPlayerElement(ga.getName(), vi.getPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.UNKNOWN, 1);
             gainUnknown = new SOCPlayerElement(ga.getName(), pe.getPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.UNKNOWN, 1);
-            messageToGameExcept(ga.getName(), exceptions, loseUnknown);
-            messageToGameExcept(ga.getName(), exceptions, gainUnknown);
+            messageToGameExcept(ga, exceptions, loseUnknown);
+            messageToGameExcept(ga, exceptions, gainUnknown);
         }
     }
 
@@ -4354,7 +4907,8 @@ public class SOCServer extends Server
     {
         if (ga != null)
         {
-            messageToGame(ga.getName(), new SOCGameState(ga.getName(), ga.getGameState()));
+            MessageBatch batch = new MessageBatch();
+            batch.add(new SOCGameState(ga.getName(), ga.getGameState()));
 
             SOCPlayer player = null;
             String msg;
@@ -4369,20 +4923,20 @@ public class SOCServer extends Server
             case SOCGame.START1A:
             case SOCGame.START2A:
                 msg = itsPlayersTurnTo(ga, "build a settlement");
-                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
+                batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
 
                 break;
 
             case SOCGame.START1B:
             case SOCGame.START2B:
                 msg = itsPlayersTurnTo(ga, "build a road");
-                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
+                batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
 
                 break;
 
             case SOCGame.PLAY:
                 msg = itsPlayersTurnTo(ga, "roll the dice");
-                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
+                batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
 
                 break;
 
@@ -4421,12 +4975,12 @@ public class SOCServer extends Server
                     message += (" and " + names[count - 1] + " need to discard.");
                 }
 
-                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
+                batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
 
                 break;
 
             case SOCGame.PLACING_ROBBER:
-                messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " will move the robber."));
+                batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, player.getName() + " will move the robber."));
 
                 break;
 
@@ -4453,9 +5007,7 @@ public class SOCServer extends Server
                 /**
                  * ask the current player to choose a player to steal from
                  */
-                String n = ga.getPlayer(ga.getCurrentPlayerNumber()).getName();
-                Connection con = connectionForPlayer(n);
-                if (con != null) con.put(SOCChoosePlayerRequest.toCmd(ga.getName(), choices));
+                batch.addToPlayer(gameList.getSeatConnection(ga, ga.getCurrentPlayerNumber()), new SOCChoosePlayerRequest(ga.getName(), choices));
 
                 break;
 
@@ -4470,7 +5022,7 @@ public class SOCServer extends Server
                     if (pl.getTotalVP() >= 10)
                     {
                         msg = pl.getName() + " has won the game with " + pl.getTotalVP() + " points.";
-                        messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
+                        batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
                         // TODO: try update playerPanel to show final score
                        
                         ///
@@ -4534,15 +5086,22 @@ public class SOCServer extends Server
                                 }
                             }
 
-                            messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
+                            batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, msg));
                         }
 
                         break;
                     }
                 }
-            		showDice(ga);
+
                 break;
             }
+
+            messageToGame(ga, batch);
+
+            if (ga.getGameState() == SOCGame.OVER)
+            {
+                showDice(ga);
+            }
         }
     }
 
@@ -4587,6 +5146,7 @@ public class SOCServer extends Server
     {
         if (ga != null)
         {
+            MessageBatch batch = new MessageBatch();
             SOCTradeOffer offer = ga.getPlayer(offering).getCurrentOffer();
             String message = ga.getPlayer(offering).getName() + " traded ";
             SOCResourceSet rsrcs;
@@ -4605,8 +5165,8 @@ public class SOCServer extends Server
 
             if (cl > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, cl));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, cl));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, cl));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, cl));
                 message += (cl + " clay");
 
                 if ((or + sh + wh + wo) > 0)
@@ -4617,8 +5177,8 @@ public class SOCServer extends Server
 
             if (or > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, or));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.ORE, or));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, or));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.ORE, or));
                 message += (or + " ore");
 
                 if ((sh + wh + wo) > 0)
@@ -4629,8 +5189,8 @@ public class SOCServer extends Server
 
             if (sh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, sh));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, sh));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, sh));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, sh));
                 message += (sh + " sheep");
 
                 if ((wh + wo) > 0)
@@ -4641,8 +5201,8 @@ public class SOCServer extends Server
 
             if (wh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, wh));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, wh));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, wh));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, wh));
                 message += (wh + " wheat");
 
                 if (wo > 0)
@@ -4653,8 +5213,8 @@ public class SOCServer extends Server
 
             if (wo > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, wo));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, wo));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, wo));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, wo));
                 message += (wo + " wood");
             }
 
@@ -4668,8 +5228,8 @@ public class SOCServer extends Server
 
             if (cl > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, cl));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, cl));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, cl));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, cl));
                 message += (cl + " clay");
 
                 if ((or + sh + wh + wo) > 0)
@@ -4680,8 +5240,8 @@ public class SOCServer extends Server
 
             if (or > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.ORE, or));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, or));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.ORE, or));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, or));
                 message += (or + " ore");
 
                 if ((sh + wh + wo) > 0)
@@ -4692,8 +5252,8 @@ public class SOCServer extends Server
 
             if (sh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, sh));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, sh));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, sh));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, sh));
                 message += (sh + " sheep");
 
                 if ((wh + wo) > 0)
@@ -4704,8 +5264,8 @@ public class SOCServer extends Server
 
             if (wh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, wh));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, wh));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, wh));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, wh));
                 message += (wh + " wheat");
 
                 if (wo > 0)
@@ -4716,13 +5276,14 @@ public class SOCServer extends Server
 
             if (wo > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, wo));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, wo));
+                batch.add(new SOCPlayerElement(ga.getName(), accepting, SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, wo));
+                batch.add(new SOCPlayerElement(ga.getName(), offering, SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, wo));
                 message += (wo + " wood");
             }
 
             message += (" from " + ga.getPlayer(accepting).getName() + ".");
-            messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
+            batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
+            messageToGame(ga, batch);
         }
     }
 
@@ -4737,6 +5298,7 @@ public class SOCServer extends Server
     {
         if (ga != null)
         {
+            MessageBatch batch = new MessageBatch();
             String message = ga.getPlayer(ga.getCurrentPlayerNumber()).getName() + " traded ";
             int cl;
             int or;
@@ -4752,7 +5314,7 @@ public class SOCServer extends Server
 
             if (cl > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, cl));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.CLAY, cl));
                 message += (cl + " clay");
 
                 if ((or + sh + wh + wo) > 0)
@@ -4763,7 +5325,7 @@ public class SOCServer extends Server
 
             if (or > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.ORE, or));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.ORE, or));
                 message += (or + " ore");
 
                 if ((sh + wh + wo) > 0)
@@ -4774,7 +5336,7 @@ public class SOCServer extends Server
 
             if (sh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, sh));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.SHEEP, sh));
                 message += (sh + " sheep");
 
                 if ((wh + wo) > 0)
@@ -4785,7 +5347,7 @@ public class SOCServer extends Server
 
             if (wh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, wh));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WHEAT, wh));
                 message += (wh + " wheat");
 
                 if (wo > 0)
@@ -4796,7 +5358,7 @@ public class SOCServer extends Server
 
             if (wo > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, wo));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, wo));
                 message += (wo + " wood");
             }
 
@@ -4810,7 +5372,7 @@ public class SOCServer extends Server
 
             if (cl > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, cl));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, cl));
                 message += (cl + " clay");
 
                 if ((or + sh + wh + wo) > 0)
@@ -4821,7 +5383,7 @@ public class SOCServer extends Server
 
             if (or > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.ORE, or));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.ORE, or));
                 message += (or + " ore");
 
                 if ((sh + wh + wo) > 0)
@@ -4832,7 +5394,7 @@ public class SOCServer extends Server
 
             if (sh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, sh));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, sh));
                 message += (sh + " sheep");
 
                 if ((wh + wo) > 0)
@@ -4843,7 +5405,7 @@ public class SOCServer extends Server
 
             if (wh > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, wh));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, wh));
                 message += (wh + " wheat");
 
                 if (wo > 0)
@@ -4854,7 +5416,7 @@ public class SOCServer extends Server
 
             if (wo > 0)
             {
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, wo));
+                batch.add(new SOCPlayerElement(ga.getName(), ga.getCurrentPlayerNumber(), SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, wo));
                 message += (wo + " wood");
             }
 
@@ -4867,7 +5429,8 @@ public class SOCServer extends Server
                 message += " from a port.";
             }
 
-            messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
+            batch.add(new SOCGameTextMsg(ga.getName(), SERVERNAME, message));
+            messageToGame(ga, batch);
         }
     }
 
@@ -4885,7 +5448,7 @@ public class SOCServer extends Server
         {
             try
             {
-                if (ga.getCurrentPlayerNumber() != ga.getPlayer((String) c.data).getPlayerNumber())
+                if (ga.getCurrentPlayerNumber() != playerFor(ga, c).getPlayerNumber())
                 {
                     return false;
                 }
@@ -4914,14 +5477,14 @@ public class SOCServer extends Server
     {
         if (ga != null)
         {
-            numberOfGamesStarted++;
+            numberOfGamesStarted.incrementAndGet();
             ga.startGame();
 
             /**
              * send the board layout
              */
             SOCBoardLayout bl = getBoardLayoutMessage(ga);
-            messageToGame(ga.getName(), bl);
+            messageToGame(ga, bl);
 
             /**
              * send the player info
@@ -4929,21 +5492,21 @@ public class SOCServer extends Server
             for (int i = 0; i < SOCGame.MAXPLAYERS; i++)
             {
                 SOCPlayer pl = ga.getPlayer(i);
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), i, SOCPlayerElement.SET, SOCPlayerElement.ROADS, pl.getNumPieces(SOCPlayingPiece.ROAD)));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), i, SOCPlayerElement.SET, SOCPlayerElement.SETTLEMENTS, pl.getNumPieces(SOCPlayingPiece.SETTLEMENT)));
-                messageToGame(ga.getName(), new SOCPlayerElement(ga.getName(), i, SOCPlayerElement.SET, SOCPlayerElement.CITIES, pl.getNumPieces(SOCPlayingPiece.CITY)));
-                messageToGame(ga.getName(), new SOCSetPlayedDevCard(ga.getName(), i, false));
+                messageToGame(ga, new SOCPlayerElement(ga.getName(), i, SOCPlayerElement.SET, SOCPlayerElement.ROADS, pl.getNumPieces(SOCPlayingPiece.ROAD)));
+                messageToGame(ga, new SOCPlayerElement(ga.getName(), i, SOCPlayerElement.SET, SOCPlayerElement.SETTLEMENTS, pl.getNumPieces(SOCPlayingPiece.SETTLEMENT)));
+                messageToGame(ga, new SOCPlayerElement(ga.getName(), i, SOCPlayerElement.SET, SOCPlayerElement.CITIES, pl.getNumPieces(SOCPlayingPiece.CITY)));
+                messageToGame(ga, new SOCSetPlayedDevCard(ga.getName(), i, false));
             }
 
             /**
              * send the number of dev cards
              */
-            messageToGame(ga.getName(), new SOCDevCardCount(ga.getName(), ga.getNumDevCards()));
+            messageToGame(ga, new SOCDevCardCount(ga.getName(), ga.getNumDevCards()));
 
             /**
              * ga.startGame() picks who goes first, but feedback is nice
              */
-            messageToGame(ga.getName(), new SOCGameTextMsg(ga.getName(), SERVERNAME, "Randomly picking a starting player..."));
+            messageToGame(ga, new SOCGameTextMsg(ga.getName(), SERVERNAME, "Randomly picking a starting player..."));
 
             /**
              * send the game state
@@ -4953,7 +5516,7 @@ public class SOCServer extends Server
             /**
              * start the game
              */
-            messageToGame(ga.getName(), new SOCStartGame(ga.getName()));
+            messageToGame(ga, new SOCStartGame(ga.getName()));
 
             /**
              * send who's turn it is
@@ -4971,10 +5534,10 @@ public class SOCServer extends Server
     {
         if (ga != null)
         {
-            messageToGame(ga.getName(), new SOCSetPlayedDevCard(ga.getName(), ga.getCurrentPlayerNumber(), false));
+            messageToGame(ga, new SOCSetPlayedDevCard(ga.getName(), ga.getCurrentPlayerNumber(), false));
 
             SOCTurn turnMessage = new SOCTurn(ga.getName(), ga.getCurrentPlayerNumber());
-            messageToGame(ga.getName(), turnMessage);
+            messageToGame(ga, turnMessage);
             recordGameEvent(ga.getName(), turnMessage.toCmd());
         }
     }
@@ -5145,33 +5708,34 @@ public class SOCServer extends Server
             switch (resourceType)
             {
             case SOCResourceConstants.CLAY:
-                messageToGame(game.getName(), new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, resources[resourceType]));
+                messageToGame(game, new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, resources[resourceType]));
 
                 break;
 
             case SOCResourceConstants.ORE:
-                messageToGame(game.getName(), new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, resources[resourceType]));
+                messageToGame(game, new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, resources[resourceType]));
 
                 break;
 
             case SOCResourceConstants.SHEEP:
-                messageToGame(game.getName(), new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, resources[resourceType]));
+                messageToGame(game, new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.SHEEP, resources[resourceType]));
 
                 break;
 
             case SOCResourceConstants.WHEAT:
-                messageToGame(game.getName(), new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, resources[resourceType]));
+                messageToGame(game, new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.WHEAT, resources[resourceType]));
 
                 break;
 
             case SOCResourceConstants.WOOD:
-                messageToGame(game.getName(), new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, resources[resourceType]));
+                messageToGame(game, new SOCPlayerElement(game.getName(), pnum, SOCPlayerElement.GAIN, SOCPlayerElement.WOOD, resources[resourceType]));
 
                 break;
             }
         }
 
-        messageToGame(game.getName(), new SOCGameTextMsg(game.getName(), SERVERNAME, outMes));
+        game.changed();  // rset was changed behind the game's back
+        messageToGame(game, new SOCGameTextMsg(game.getName(), SERVERNAME, outMes));
     }
 
     /**
@@ -5205,64 +5769,89 @@ public class SOCServer extends Server
     }
 
     /**
-     * check for games that have expired and destroy them
-     * if games are about to expire, send a warning
+     * Check on a game when its time limit is 5 minutes from running out.
+     *
+     * @param ga  the game
      */
-    public void checkForExpiredGames()
+    private void scheduleExpiryCheck(SOCGame ga)
     {
-        Vector<String> expired = new Vector<String>();
+        scheduleExpiryCheck(ga, ga.getExpiration() - TIME_WARNING);
+    }
 
-        gameList.takeMonitor();
+    /**
+     * Check on a game at a given time.  The check runs on the game's
+     * mailbox; see {@link #checkGameExpiry(SOCGame)}.
+     *
+     * @param ga  the game
+     * @param when  time to check, as from System.currentTimeMillis()
+     */
+    private void scheduleExpiryCheck(final SOCGame ga, long when)
+    {
+        long delay = when - System.currentTimeMillis();
+        Mailbox mb = gameList.getMailbox(ga);
 
-        try
+        if (mb == null)
         {
-            for (Enumeration<String> k = gameList.getGames(); k.hasMoreElements();)
-            {
-                String gameName = k.nextElement();
-                SOCGame gameData = gameList.getGameData(gameName);
+            return;  // destroyed already
+        }
 
-                if (gameData.getExpiration() <= System.currentTimeMillis())
-                {
-                    expired.addElement(gameName);
-                    messageToGame(gameName, new SOCGameTextMsg(gameName, SERVERNAME, ">>> The time limit on this game has expired and will now be destroyed."));
-                }
-                else
-                //
-                //  Give people a 5 minute warning
-                //
-                if ((gameData.getExpiration() - SOCServer.TIME_WARNING) <= System.currentTimeMillis())
-                {
-                    gameData.setExpiration(System.currentTimeMillis() + SOCServer.TIME_WARNING);
-                    messageToGame(gameName, new SOCGameTextMsg(gameName, SERVERNAME, ">>> Less than 5 minutes remaining.  Type *ADDTIME* to extend this game another 30 minutes."));
-                }
+        scheduleForGame(mb, Math.max(0, delay), new Runnable()
+        {
+            public void run()
+            {
+                checkGameExpiry(ga);
             }
-        }
-        catch (Exception e)
+        });
+    }
+
+    /**
+     * Warn a game's players when it has less than 5 minutes left, and
+     * destroy it when its time is up.  If the time limit has been
+     * extended (*ADDTIME*) since the check was scheduled, just check
+     * again later.  Looks only at this game, without the gameList monitor.
+     *
+     * @param ga  the game
+     */
+    void checkGameExpiry(SOCGame ga)
+    {
+        String gameName = ga.getName();
+
+        if (!gameList.isGame(ga))
         {
-            D.ebugPrintln("Exception in checkForExpiredGames - " + e);
+            return;  // destroyed already, or replaced by a new game with the same name
         }
 
-        gameList.releaseMonitor();
+        long now = System.currentTimeMillis();
 
-        //
-        // destroy the expired games
-        //
-        for (Enumeration ex = expired.elements(); ex.hasMoreElements();)
+        if (ga.getExpiration() <= now)
         {
-            String ga = (String) ex.nextElement();
+            messageToGame(ga, new SOCGameTextMsg(gameName, SERVERNAME, ">>> The time limit on this game has expired and will now be destroyed."));
             gameList.takeMonitor();
 
             try
             {
-                destroyGame(ga);
+                destroyGame(gameName);
             }
             catch (Exception e)
             {
-                D.ebugPrintln("Exception in checkForExpired - " + e);
+                D.ebugPrintln("Exception in checkGameExpiry - " + e);
             }
 
             gameList.releaseMonitor();
-            broadcast(SOCDeleteGame.toCmd(ga));
+            broadcast(SOCDeleteGame.toCmd(gameName));
+        }
+        else if ((ga.getExpiration() - TIME_WARNING) <= now)
+        {
+            //
+            //  Give people a 5 minute warning
+            //
+            ga.setExpiration(now + TIME_WARNING);
+            messageToGame(ga, new SOCGameTextMsg(gameName, SERVERNAME, ">>> Less than 5 minutes remaining.  Type *ADDTIME* to extend this game another 30 minutes."));
+            scheduleExpiryCheck(ga, ga.getExpiration());
+        }
+        else
+        {
+            scheduleExpiryCheck(ga);
         }
     }
 
@@ -5292,11 +5881,12 @@ public class SOCServer extends Server
 
         SOCDevCardSet dcSet = game.getPlayer(name).getDevCards();
         dcSet.add(1, age, cardType); // give 'old' or 'new' card
+        game.changed();
 
         int pnum = game.getPlayer(name).getPlayerNumber();
         String outMes = "### " + name + " got a " + cardType + " card.";
-        messageToGame(game.getName(), new SOCDevCard(game.getName(), pnum, SOCDevCard.DRAW, cardType));
-        messageToGame(game.getName(), new SOCGameTextMsg(game.getName(), SERVERNAME, outMes));
+        messageToGame(game, new SOCDevCard(game.getName(), pnum, SOCDevCard.DRAW, cardType));
+        messageToGame(game, new SOCGameTextMsg(game.getName(), SERVERNAME, outMes));
     }
 
     /**
@@ -5333,8 +5923,18 @@ public class SOCServer extends Server
         server.start();
         try {Thread.sleep(3000);} 
         catch (InterruptedException ex) {}
+        // robots started here connect in-process unless LOCAL_ROBOTS=false
+        boolean localRobots = !"false".equalsIgnoreCase(System.getProperty(LOCAL_ROBOTS_PROPERTY));
+
         for (int i = 5; i < args.length; i+=2) {
-            SOCRobotClient ex1 = new SOCRobotClient("localhost", port, args[i-1], args[i]);
+            SOCRobotClient ex1;
+
+            if (localRobots) {
+                ex1 = new SOCRobotClient(server, args[i-1], args[i]);
+            } else {
+                ex1 = new SOCRobotClient("localhost", port, args[i-1], args[i]);
+            }
+
             ex1.init();
         }
     }
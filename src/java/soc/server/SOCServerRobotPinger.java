@@ -26,68 +26,78 @@ import soc.message.SOCServerPing;
 
 import soc.server.genericServer.Connection;
 
+import soc.util.TimingWheel;
+
 import java.util.Enumeration;
 import java.util.Vector;
 
 
 /**
  * Pings the robots so that they know that they're connected
- * to the server
+ * to the server.  Runs on the server's {@link TimingWheel} rather
+ * than a thread of its own.
  *
  * @author Robert S Thomas
  */
-public class SOCServerRobotPinger extends Thread
+public class SOCServerRobotPinger implements Runnable
 {
     Vector robotConnections;
     int sleepTime = 150000;
     SOCServerPing ping;
-    boolean alive;
+    TimingWheel timers;
+    volatile boolean alive;
 
     /**
      * Create a server robot pinger
      *
      * @param robots  the connections to robots
+     * @param wheel  the timing wheel to run on
      */
-    public SOCServerRobotPinger(Vector robots)
+    public SOCServerRobotPinger(Vector robots, TimingWheel wheel)
     {
         robotConnections = robots;
+        timers = wheel;
         ping = new SOCServerPing(sleepTime);
         alive = true;
     }
 
     /**
-     * DOCUMENT ME!
+     * Start pinging
+     */
+    public void start()
+    {
+        timers.schedule(this, 0);
+    }
+
+    /**
+     * Ping the robots, then wait for the next time
      */
     public void run()
     {
-        while (alive)
+        if (!alive)
         {
-            if (!robotConnections.isEmpty())
-            {
-                Enumeration robotConnectionsEnum = robotConnections.elements();
+            //
+            //  cleanup
+            //
+            robotConnections = null;
+            ping = null;
 
-                while (robotConnectionsEnum.hasMoreElements())
-                {
-                    Connection robotConnection = (Connection) robotConnectionsEnum.nextElement();
-                    D.ebugPrintln("(*)(*)(*)(*) PINGING " + robotConnection.data);
-                    robotConnection.put(ping.toCmd());
-                }
-            }
+            return;
+        }
 
-            Thread.yield();
+        if (!robotConnections.isEmpty())
+        {
+            Enumeration robotConnectionsEnum = robotConnections.elements();
 
-            try
+            while (robotConnectionsEnum.hasMoreElements())
             {
-                sleep(sleepTime - 60000);
+                Connection robotConnection = (Connection) robotConnectionsEnum.nextElement();
+                D.ebugPrintln("(*)(*)(*)(*) PINGING " + robotConnection.data);
+                robotConnection.put(ping.toCmd());
             }
-            catch (InterruptedException exc) {}
         }
 
-        //
-        //  cleanup
-        //
-        robotConnections = null;
-        ping = null;
+        timers.schedule(this, sleepTime - 60000);
     }
 
     /**
@@ -0,0 +1,126 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import java.net.InetAddress;
+import java.util.Hashtable;
+import java.util.Iterator;
+
+
+/**
+ * Limits how fast each address may open connections: a token bucket per
+ * address.  Each address may connect {@link #burst} times at once, and
+ * then {@link #rate} times a second.  Buckets that have filled up again
+ * are forgotten by {@link #purge(long)}, so the table only holds the
+ * addresses that connected recently.
+ */
+final class AcceptLimiter
+{
+    /** a bucket of tokens; one is taken for each connection */
+    private static final class Bucket
+    {
+        double tokens;
+        long last;
+    }
+
+    /** tokens added each second */
+    private final double rate;
+
+    /** most tokens a bucket holds */
+    private final double burst;
+
+    /** Bucket for each InetAddress */
+    private final Hashtable<InetAddress, Bucket> buckets = new Hashtable<InetAddress, Bucket>();
+
+    /**
+     * @param rate  connections a second allowed from one address
+     * @param burst  connections allowed at once from one address
+     */
+    AcceptLimiter(double rate, int burst)
+    {
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+    }
+
+    /**
+     * Take a token for a connection from this address.
+     *
+     * @param addr  where the connection comes from
+     * @param now  the time, from System.currentTimeMillis()
+     * @return false if the address is connecting too fast
+     */
+    boolean tryAccept(InetAddress addr, long now)
+    {
+        synchronized (buckets)
+        {
+            Bucket b = buckets.get(addr);
+
+            if (b == null)
+            {
+                b = new Bucket();
+                b.tokens = burst;
+                b.last = now;
+                buckets.put(addr, b);
+            }
+            else
+            {
+                b.tokens = Math.min(burst, b.tokens + (((now - b.last) * rate) / 1000.0));
+                b.last = now;
+            }
+
+            if (b.tokens < 1.0)
+            {
+                return false;
+            }
+
+            b.tokens -= 1.0;
+
+            return true;
+        }
+    }
+
+    /**
+     * Forget the addresses whose buckets are full again.
+     *
+     * @param now  the time, from System.currentTimeMillis()
+     */
+    void purge(long now)
+    {
+        synchronized (buckets)
+        {
+            for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext();)
+            {
+                Bucket b = it.next();
+
+                if ((b.tokens + (((now - b.last) * rate) / 1000.0)) >= burst)
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /** @return the number of addresses being tracked */
+    int size()
+    {
+        return buckets.size();
+    }
+}
@@ -22,14 +22,23 @@ package soc.server.genericServer;
 
 import soc.disableDebug.D;
 
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UTFDataFormatException;
 
 import java.net.Socket;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import java.util.Collections;
+import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.locks.LockSupport;
 
 
 /** A server connection.
@@ -56,7 +65,88 @@ public final class Connection extends Thread implements Runnable, Serializable,
     protected String hst;
     protected Exception error = null;
     protected boolean connected = false;
-    public Vector outQueue = new Vector();
+    public Vector<Object> outQueue = new Vector<Object>();
+
+    /**
+     * the selector servicing this connection when the server uses
+     * the NIO transport, or null if this connection has its own
+     * reader thread and Putter
+     */
+    NioTransport.SelectorThread selector = null;
+    SocketChannel channel = null;
+    SelectionKey key = null;
+    ByteBuffer readBuf = null;
+    ByteBuffer writeBuf = null;
+    long lastRead;
+
+    /** true while the selector has been asked to look at our outQueue */
+    boolean writeWanted = false;
+
+    /** about how many bytes are in outQueue; see {@link #size(Object)} */
+    int outBytes = 0;
+
+    /** the most messages outQueue has held */
+    int maxOutDepth = 0;
+
+    /** messages dropped from outQueue because it was full */
+    int evictions = 0;
+
+    /** the thread running our Putter, woken by put() */
+    volatile Thread putterThread = null;
+
+    /**
+     * true from the server's accept until the first message comes in,
+     * or the connection fails first; counted in the server's pending
+     */
+    volatile boolean admitted = false;
+
+    /** the client end, if this is an in-process connection; see {@link Server#connectLocal()} */
+    LocalLink local = null;
+
+    /**
+     * messages put to this connection before it had a session; the
+     * client counts the messages it reads the same way
+     */
+    int sent = 0;
+
+    /**
+     * the session this connection carries, or null; see {@link Session}
+     */
+    volatile Session session = null;
+
+    /**
+     * optional protocol features this connection's client has asked for
+     * and the server has agreed to; a bit mask, 0 for the plain text protocol
+     */
+    private volatile int capabilities = 0;
+
+    /**
+     * put in outQueue by {@link #putThenDeflate}: whoever writes the
+     * connection starts compressing there.  Compared by identity.
+     */
+    static final String DEFLATE = new String("");
+
+    /** the level to compress at, once DEFLATE is reached */
+    int deflateLevel;
+
+    /** compresses what this connection sends, once DEFLATE is reached; otherwise null */
+    volatile Deflation deflation = null;
+
+    /** true once {@link #disconnect()} has ended deflation; guarded by deflationLock */
+    private boolean deflationEnded = false;
+
+    private final Object deflationLock = new Object();
+
+    /** initialize an in-process connection */
+    Connection(LocalLink link, Server sve)
+    {
+        hst = "local";
+        sv = sve;
+        local = link;
+        link.conn = this;
+        reader = null;
+        data = null;
+    }
 
     /** initialize the connection data */
     Connection(Socket so, Server sve)
@@ -79,19 +169,124 @@ public final class Connection extends Thread implements Runnable, Serializable,
         return hst;
     }
 
+    /**
+     * @return the protocol features in use on this connection, or 0
+     */
+    public int getCapabilities()
+    {
+        return capabilities;
+    }
+
+    /**
+     * Set the protocol features agreed with the client.  Messages put
+     * after this may be framed the new way, so the client must have been
+     * sent the agreement first.
+     *
+     * @param c  the feature bits
+     */
+    public void setCapabilities(int c)
+    {
+        capabilities = c;
+    }
+
+    /**
+     * Put a message, then compress everything sent after it.  The client
+     * must start inflating as soon as it has read msg; messages put by
+     * other threads meanwhile all go after it.  Call on the thread that
+     * starts this connection's session, if it has one.
+     *
+     * @param msg  the last message sent as it is
+     * @param level  the Deflater level, 1 to 9
+     * @see Deflation
+     */
+    public void putThenDeflate(String msg, int level)
+    {
+        if (local != null)
+        {
+            putLocal(msg);  // nothing to compress
+
+            return;
+        }
+
+        deflateLevel = level;
+
+        Session ss = session;
+        boolean full;
+
+        if (ss != null)
+        {
+            synchronized (ss)
+            {
+                ss.put(msg);
+
+                synchronized (outQueue)
+                {
+                    add(DEFLATE);  // not numbered: the client doesn't see it
+                    full = isFull() && !trimOutQueue();
+                }
+            }
+        }
+        else
+        {
+            synchronized (outQueue)
+            {
+                if (error != null)
+                {
+                    return;
+                }
+
+                add(msg);
+                sent++;
+                add(DEFLATE);
+                full = isFull() && !trimOutQueue();
+            }
+        }
+
+        queued(full);
+    }
+
+    /**
+     * @return the compression of what this connection sends, or null if
+     *         it isn't compressed
+     */
+    public Deflation getDeflation()
+    {
+        return deflation;
+    }
+
     /** start reading from the net; called only by the server */
     boolean connect()
     {
+        if (local != null)
+        {
+            connected = true;  // nothing to set up: no socket, no threads
+
+            return true;
+        }
+
+        if (selector != null)
+        {
+            return connectNio();
+        }
+
         try
         {
             s.setSoTimeout(TIMEOUT_VALUE);
             in = new DataInputStream(s.getInputStream());
-            out = new DataOutputStream(s.getOutputStream());
+            out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 8192));
             connected = true;
             reader = this;
 
             Putter putter = new Putter(this);
-            putter.start();
+
+            if (sv.virtual)
+            {
+                VirtualThreads.start(putter, "putter-" + hst);
+            }
+            else
+            {
+                putter.start();
+            }
 
             //(reader=new Thread(this)).start();
         }
@@ -113,6 +308,31 @@ public final class Connection extends Thread implements Runnable, Serializable,
         return true;
     }
 
+    /** set up a connection serviced by a NioTransport selector; no threads are started */
+    private boolean connectNio()
+    {
+        try
+        {
+            channel = s.getChannel();
+            channel.configureBlocking(false);
+            readBuf = ByteBuffer.allocate(NioTransport.READ_BUF_SIZE);
+            writeBuf = ByteBuffer.allocate(8192);
+            writeBuf.flip();  // nothing to write yet
+            lastRead = System.currentTimeMillis();
+            connected = true;
+        }
+        catch (Exception e)
+        {
+            D.ebugPrintln("IOException in Connection.connectNio (" + hst + ") - " + e);
+            error = e;
+            disconnect();
+
+            return false;
+        }
+
+        return true;
+    }
+
     /** continuously read from the net */
     public void run()
     {
@@ -139,8 +359,12 @@ public final class Connection extends Thread implements Runnable, Serializable,
                 return;
             }
 
-            error = e;
-            sv.removeConnection(this);
+            if (error == null)
+            {
+                error = e;
+            }
+
+            sv.connectionLost(this);
         }
     }
 
@@ -152,17 +376,467 @@ public final class Connection extends Thread implements Runnable, Serializable,
      * @return DOCUMENT ME!
      */
     public final boolean put(String str)
+    {
+        return queue(str);
+    }
+
+    /**
+     * Send a message that was encoded once for several connections.
+     *
+     * @param f  the encoded message
+     * @return false if the connection is lost or its outQueue overflowed
+     */
+    public final boolean put(Frame f)
+    {
+        return queue(f);
+    }
+
+    /**
+     * @param msg  a String or a Frame from outQueue
+     * @return about how many bytes it takes to send
+     */
+    static int size(Object msg)
+    {
+        if (msg instanceof Frame)
+        {
+            return ((Frame) msg).length();
+        }
+
+        return 2 + ((String) msg).length();
+    }
+
+    /**
+     * Send several frames at once.  They go into outQueue together, so
+     * whoever sends them is woken once and writes them all with one flush.
+     *
+     * @param fs  the encoded messages, in order; the array may be reused
+     *            once this returns
+     * @param n  how many of fs to send
+     * @return false if the connection is lost or its outQueue overflowed
+     */
+    public final boolean put(Frame[] fs, int n)
+    {
+        if (local != null)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                if (!putLocal(fs[i]))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        boolean full;
+
+        while (true)
+        {
+            Session ss = session;
+
+            if (ss != null)
+            {
+                return ss.put(fs, n);
+            }
+
+            synchronized (outQueue)
+            {
+                if (session != null)
+                {
+                    continue;  // a session started meanwhile, and numbers these
+                }
+
+                if (error != null)
+                {
+                    return false;
+                }
+
+                for (int i = 0; i < n; i++)
+                {
+                    add(fs[i]);
+                }
+
+                sent += n;
+                full = isFull() && !trimOutQueue();
+            }
+
+            return queued(full);
+        }
+    }
+
+    /** add a String or Frame to outQueue, and wake whoever sends it */
+    private boolean queue(Object msg)
+    {
+        if (local != null)
+        {
+            return putLocal(msg);
+        }
+
+        boolean full;
+
+        while (true)
+        {
+            Session ss = session;
+
+            if (ss != null)
+            {
+                return ss.put(msg);
+            }
+
+            synchronized (outQueue)
+            {
+                if (session != null)
+                {
+                    continue;  // a session started meanwhile, and numbers this
+                }
+
+                if (error != null)
+                {
+                    return false;
+                }
+
+                add(msg);
+                sent++;
+                full = isFull() && !trimOutQueue();
+            }
+
+            return queued(full);
+        }
+    }
+
+    /** add a message to outQueue; call holding outQueue's lock */
+    private void add(Object msg)
+    {
+        D.ebugPrintln("Adding " + msg + " to outQueue for " + data);
+        outQueue.addElement(msg);
+        outBytes += size(msg);
+
+        if (outQueue.size() > maxOutDepth)
+        {
+            maxOutDepth = outQueue.size();
+        }
+    }
+
+    /**
+     * Add a message numbered by our session to outQueue.  Call holding
+     * the session's lock, then call {@link #queued(boolean)} without it.
+     *
+     * @return true if outQueue is full
+     */
+    boolean append(Object msg)
     {
         synchronized (outQueue)
         {
-            D.ebugPrintln("Adding " + str + " to outQueue for " + data);
-            outQueue.addElement(str);
-            outQueue.notify();
+            if (error != null)
+            {
+                return false;  // kept by the session, for when it's resumed
+            }
+
+            add(msg);
+
+            return isFull() && !trimOutQueue();
+        }
+    }
+
+    /**
+     * Add messages numbered by our session to outQueue.
+     *
+     * @see #append(Object)
+     */
+    boolean append(Object[] msgs, int n)
+    {
+        synchronized (outQueue)
+        {
+            if (error != null)
+            {
+                return false;
+            }
+
+            for (int i = 0; i < n; i++)
+            {
+                add(msgs[i]);
+            }
+
+            return isFull() && !trimOutQueue();
+        }
+    }
+
+    /**
+     * Give this connection a session, which numbers and keeps every
+     * message put to it from now on.
+     *
+     * @param ss  the new session
+     */
+    void startSession(Session ss)
+    {
+        synchronized (ss)
+        {
+            synchronized (outQueue)
+            {
+                ss.start(sent);
+                session = ss;
+            }
+
+            ss.attached = this;
+        }
+    }
+
+    /**
+     * Carry a session resumed by our client: queue the reply and the
+     * messages it missed, then take everything put to the session.
+     * Called by {@link Session#resume}, holding its lock.
+     *
+     * @return true if outQueue is full
+     */
+    boolean takeOver(Session ss, Object reply, Object[] missed)
+    {
+        synchronized (outQueue)
+        {
+            add(reply);
+
+            for (int i = 0; i < missed.length; i++)
+            {
+                add(missed[i]);
+            }
+
+            session = ss;
+
+            return isFull() && !trimOutQueue();
+        }
+    }
+
+    /**
+     * After adding to outQueue: close the connection if it overflowed,
+     * otherwise wake whoever sends what's queued.
+     *
+     * @param full  true if outQueue is still over the limits
+     * @return false if the connection overflowed
+     */
+    boolean queued(boolean full)
+    {
+        if (full)
+        {
+            overflow();
+
+            return false;
+        }
+
+        if (selector != null)
+        {
+            selector.wantWrite(this);
+        }
+        else
+        {
+            Thread p = putterThread;
+
+            if (p != null)
+            {
+                LockSupport.unpark(p);
+            }
         }
 
         return true;
     }
 
+    /**
+     * Hand a message straight to the in-process client: the Frame's
+     * payload object if it has one, otherwise the String.
+     */
+    private boolean putLocal(Object msg)
+    {
+        if (!connected)
+        {
+            return false;
+        }
+
+        if (msg instanceof Frame)
+        {
+            Frame f = (Frame) msg;
+            Object p = f.getPayload();
+
+            local.deliver((p != null) ? p : f.toString());
+        }
+        else
+        {
+            local.deliver(msg);
+        }
+
+        return true;
+    }
+
+    /** @return true if this is an in-process connection, which can take Frame payloads */
+    public boolean isLocal()
+    {
+        return local != null;
+    }
+
+    /** is outQueue over the server's limits?  Call while holding outQueue's lock. */
+    private boolean isFull()
+    {
+        return (outQueue.size() > sv.maxOutMessages) || (outBytes > sv.maxOutBytes);
+    }
+
+    /**
+     * outQueue is full: drop what the server's policy allows.
+     * Call while holding outQueue's lock.
+     *
+     * @return true if that made enough room
+     */
+    private boolean trimOutQueue()
+    {
+        if (sv.outPolicy == Server.POLICY_DISCONNECT)
+        {
+            return false;
+        }
+
+        Vector<Object> kept = new Vector<Object>(outQueue.size());
+        int n = outQueue.size();
+
+        if (sv.outPolicy == Server.POLICY_COALESCE)
+        {
+            // keep only the newest of each state update, going backwards
+            Hashtable<String, String> seen = new Hashtable<String, String>();
+
+            for (int i = n - 1; i >= 0; i--)
+            {
+                Object msg = outQueue.elementAt(i);
+                String str = msg.toString();
+                int k = sv.stateKeyLength(str);
+
+                if (k > 0)
+                {
+                    String key = str.substring(0, k);
+
+                    if (seen.put(key, key) != null)
+                    {
+                        outBytes -= size(msg);
+
+                        continue;
+                    }
+                }
+
+                kept.addElement(msg);
+            }
+
+            Collections.reverse(kept);
+            replaceOutQueue(kept, n);
+
+            if (!isFull())
+            {
+                return true;
+            }
+
+            kept.removeAllElements();
+            n = outQueue.size();
+        }
+
+        // drop chat, oldest first, until there's room
+        for (int i = 0; i < n; i++)
+        {
+            Object msg = outQueue.elementAt(i);
+
+            if (isFull() && sv.isChat(msg.toString()))
+            {
+                outBytes -= size(msg);
+            }
+            else
+            {
+                kept.addElement(msg);
+            }
+        }
+
+        replaceOutQueue(kept, n);
+
+        return !isFull();
+    }
+
+    /** put what trimOutQueue kept back into outQueue, counting what was dropped */
+    private void replaceOutQueue(Vector<Object> kept, int oldSize)
+    {
+        int dropped = oldSize - kept.size();
+
+        if (dropped > 0)
+        {
+            outQueue.removeAllElements();
+            outQueue.addAll(kept);
+            evictions += dropped;
+            sv.evicted(dropped);
+
+            if (session != null)
+            {
+                session.broken = true;  // the client's count won't match ours
+            }
+            else
+            {
+                sent -= dropped;
+            }
+        }
+    }
+
+    /**
+     * outQueue is still full after trimming: throw away what's queued and
+     * close the connection.  The server isn't told here, since put() may be
+     * called with a game's monitor held; the reader thread (or selector)
+     * sees the closed connection and removes it.
+     */
+    private void overflow()
+    {
+        synchronized (outQueue)
+        {
+            if (error != null)
+            {
+                return;
+            }
+
+            error = new IOException("output queue full");
+            evictions += outQueue.size();
+            sv.evicted(outQueue.size());
+            outQueue.removeAllElements();
+            outBytes = 0;
+        }
+
+        sv.overflowed();
+        D.ebugPrintln("outQueue full, closing connection (" + hst + ") " + data);
+
+        if (selector != null)
+        {
+            selector.wantWrite(this);
+        }
+        else
+        {
+            try
+            {
+                s.close();  // the reader's readUTF will fail
+            }
+            catch (Exception e) {}
+        }
+    }
+
+    /** @return the number of messages waiting to go out */
+    public int getQueueDepth()
+    {
+        return outQueue.size();
+    }
+
+    /** @return about how many bytes are waiting to go out */
+    public int getQueueBytes()
+    {
+        return outBytes;
+    }
+
+    /** @return the most messages that have been waiting to go out at once */
+    public int getMaxQueueDepth()
+    {
+        return maxOutDepth;
+    }
+
+    /** @return the number of messages dropped because the queue was full */
+    public int getEvictions()
+    {
+        return evictions;
+    }
+
     /**
      * DOCUMENT ME!
      *
@@ -182,7 +856,7 @@ public final class Connection extends Thread implements Runnable, Serializable,
             }
             else
             {
-                sv.removeConnection(this);
+                sv.connectionLost(this);
             }
 
             return false;
@@ -193,6 +867,71 @@ public final class Connection extends Thread implements Runnable, Serializable,
         }
     }
 
+    /**
+     * Put a batch of messages on the net with a single flush.
+     * The Putter sends everything that has queued up this way.
+     *
+     * @param batch the Strings and Frames to send, in order
+     * @return success, disconnects on failure
+     */
+    boolean putBatch(Vector<Object> batch)
+    {
+        if ((error != null) || !connected)
+        {
+            return false;
+        }
+
+        int n = batch.size();
+
+        try
+        {
+            for (int i = 0; i < n; i++)
+            {
+                Object msg = batch.elementAt(i);
+
+                if (msg instanceof Frame)
+                {
+                    ((Frame) msg).writeTo(out);
+                }
+                else if (msg == DEFLATE)
+                {
+                    out.flush();  // send the rest as it is, then compress
+                    out = new DataOutputStream(startDeflation().stream(s.getOutputStream()));
+                }
+                else
+                {
+                    try
+                    {
+                        out.writeUTF((String) msg);
+                    }
+                    catch (UTFDataFormatException e)
+                    {
+                        // too long; writeUTF checks before writing anything
+                        D.ebugPrintln("Dropping message to " + hst + " - " + e.getMessage());
+                    }
+                }
+            }
+
+            out.flush();
+        }
+        catch (Exception e)
+        {
+            D.ebugPrintln("Exception in Connection.putBatch (" + hst + ") - " + e);
+            error = e;
+
+            if (connected)
+            {
+                sv.connectionLost(this);
+            }
+
+            return false;
+        }
+
+        sv.wroteBatch(n);
+
+        return true;
+    }
+
     /** put a message on the net
      * @return success, disconnects on failure
      */
@@ -207,6 +946,8 @@ public final class Connection extends Thread implements Runnable, Serializable,
         {
             //D.ebugPrintln("trying to put "+str+" to "+data);
             out.writeUTF(str);
+            out.flush();
+            sv.wroteBatch(1);
         }
         catch (IOException e)
         {
@@ -242,11 +983,21 @@ public final class Connection extends Thread implements Runnable, Serializable,
         D.ebugPrintln("DISCONNECTING " + data);
         connected = false;
 
+        if (local != null)
+        {
+            local.closed();
+
+            return;
+        }
+
         /*                if(Thread.currentThread()!=reader && reader!=null && reader.isAlive())
            reader.stop();*/
         try
         {
-            s.close();
+            if (s != null)
+            {
+                s.close();
+            }
         }
         catch (IOException e)
         {
@@ -263,6 +1014,40 @@ public final class Connection extends Thread implements Runnable, Serializable,
         s = null;
         in = null;
         out = null;
+
+        synchronized (deflationLock)
+        {
+            deflationEnded = true;
+
+            if (deflation != null)
+            {
+                deflation.end();  // free its native memory now, not when it's collected
+            }
+        }
+    }
+
+    /**
+     * Start compressing what this connection sends; called by the thread
+     * writing it, on reaching DEFLATE.  If the connection has been closed
+     * meanwhile, the deflater is ended straight away.
+     *
+     * @return the new {@link #deflation}
+     */
+    Deflation startDeflation()
+    {
+        Deflation z = new Deflation(deflateLevel);
+
+        synchronized (deflationLock)
+        {
+            deflation = z;
+
+            if (deflationEnded)
+            {
+                z.end();
+            }
+        }
+
+        return z;
     }
 
     /**
@@ -288,42 +1073,36 @@ public final class Connection extends Thread implements Runnable, Serializable,
 
         public void run()
         {
+            putterThread = Thread.currentThread();
+
+            Vector<Object> batch = new Vector<Object>();
+
             while (con.connected)
             {
-                String c = null;
-
                 D.ebugPrintln("** " + data + " is at the top of the putter loop");
 
+                // take everything queued, and send it with one flush
                 synchronized (outQueue)
                 {
-                    if (outQueue.size() > 0)
-                    {
-                        c = (String) outQueue.elementAt(0);
-                        outQueue.removeElementAt(0);
-                    }
+                    batch.addAll(outQueue);
+                    outQueue.removeAllElements();
+                    outBytes = 0;
                 }
 
-                if (c != null)
+                if (batch.size() > 0)
                 {
-                    boolean rv = con.putForReal(c);
+                    con.putBatch(batch);
+                    batch.removeAllElements();
 
-                    // rv ignored because handled by putForReal
+                    // rv ignored because handled by putBatch
                 }
 
-                synchronized (outQueue)
+                // park rather than outQueue.wait(): a virtual thread waiting
+                // inside synchronized would hold on to its carrier thread
+                if (outQueue.size() == 0)
                 {
-                    if (outQueue.size() == 0)
-                    {
-                        try
-                        {
-                            //D.ebugPrintln("** "+data+" is WAITING for outQueue");
-                            outQueue.wait(1000);
-                        }
-                        catch (Exception ex)
-                        {
-                            D.ebugPrintln("Exception while waiting for outQueue in " + data + ". - " + ex);
-                        }
-                    }
+                    //D.ebugPrintln("** "+data+" is WAITING for outQueue");
+                    LockSupport.parkNanos(this, 1000000000L);
                 }
             }
 
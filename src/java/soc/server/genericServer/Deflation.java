@@ -0,0 +1,232 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+
+/**
+ * Compresses what is sent on one connection, once its client has agreed
+ * to it.  Everything after the agreement is one deflate stream (zlib
+ * format, as java.util.zip.InflaterInputStream reads by default), flushed
+ * with SYNC_FLUSH at the end of each batch the connection writes, so the
+ * client can inflate each batch as soon as it arrives.
+ *<P>
+ * Also counts the bytes in and out and the time spent compressing, for
+ * the server's statistics.  Used only by the thread writing the
+ * connection; the counts may be read from any thread.
+ *<P>
+ * The Deflater's native memory is freed by {@link #end()} when the
+ * connection is closed, rather than whenever the garbage collector
+ * gets to it.
+ */
+public final class Deflation
+{
+    private final Deflater deflater;
+
+    /** compressed output; see {@link #deflate(ByteBuffer)} */
+    private byte[] zbuf = new byte[8192];
+
+    /** bytes before and after compression */
+    private volatile long rawBytes = 0, deflatedBytes = 0;
+
+    /** time spent in the deflater */
+    private volatile long nanos = 0;
+
+    /** true once {@link #end()} has freed the deflater */
+    private boolean ended = false;
+
+    /**
+     * @param level  the Deflater level, 1 (fastest) to 9 (smallest)
+     */
+    Deflation(int level)
+    {
+        deflater = new Deflater(level);
+    }
+
+    /**
+     * Compress some bytes into zbuf.
+     *
+     * @param b  the bytes
+     * @param off  where they start
+     * @param len  how many
+     * @param flush  true to flush, so the client can inflate all of it now
+     * @return the number of bytes in zbuf, 0 if the deflater has been ended
+     */
+    private synchronized int deflate(byte[] b, int off, int len, boolean flush)
+    {
+        if (ended)
+        {
+            return 0;  // the connection is closed; nothing more goes out
+        }
+
+        long t0 = System.nanoTime();
+        int mode = flush ? Deflater.SYNC_FLUSH : Deflater.NO_FLUSH;
+        int n = 0;
+
+        deflater.setInput(b, off, len);
+
+        while (true)
+        {
+            n += deflater.deflate(zbuf, n, zbuf.length - n, mode);
+
+            if (n == zbuf.length)
+            {
+                byte[] z = new byte[zbuf.length * 2];  // more output may be waiting
+                System.arraycopy(zbuf, 0, z, 0, n);
+                zbuf = z;
+            }
+            else if (flush || deflater.needsInput())
+            {
+                break;
+            }
+        }
+
+        rawBytes += len;
+        deflatedBytes += n;
+        nanos += System.nanoTime() - t0;
+
+        return n;
+    }
+
+    /**
+     * Compress and flush a filled buffer, for the NIO transport.  The
+     * buffer returned is filled the same way, with the compressed bytes;
+     * raw's array is kept to compress into next time, so raw must not be
+     * used again.
+     *
+     * @param raw  a heap buffer; the bytes from 0 to its position are compressed
+     * @return a buffer holding the compressed bytes from 0 to its position
+     */
+    ByteBuffer deflate(ByteBuffer raw)
+    {
+        int n = deflate(raw.array(), 0, raw.position(), true);
+        ByteBuffer z = ByteBuffer.wrap(zbuf);
+        z.position(n);
+        zbuf = raw.array();
+
+        return z;
+    }
+
+    /**
+     * @param sink  where the compressed bytes go
+     * @return a stream compressing what is written to it, which flushes
+     *         the compressed bytes to sink when it's flushed
+     */
+    OutputStream stream(OutputStream sink)
+    {
+        return new DeflatingStream(sink);
+    }
+
+    /**
+     * Free the deflater.  Called when the connection is closed, by any
+     * thread; anything given to compress after this is dropped.
+     */
+    synchronized void end()
+    {
+        if (!ended)
+        {
+            ended = true;
+            deflater.end();
+        }
+    }
+
+    /** @return the bytes given to be compressed */
+    public long getRawBytes()
+    {
+        return rawBytes;
+    }
+
+    /** @return the bytes they were compressed to */
+    public long getDeflatedBytes()
+    {
+        return deflatedBytes;
+    }
+
+    /** @return the nanoseconds spent compressing */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    /** a buffered stream that compresses as it goes, for the thread transport */
+    private final class DeflatingStream extends OutputStream
+    {
+        private final OutputStream sink;
+        private final byte[] buf = new byte[8192];
+        private int count = 0;
+
+        DeflatingStream(OutputStream s)
+        {
+            sink = s;
+        }
+
+        /** compress what's buffered and send it on */
+        private void drain(boolean flush) throws IOException
+        {
+            int n = deflate(buf, 0, count, flush);
+            count = 0;
+            sink.write(zbuf, 0, n);
+        }
+
+        public void write(int b) throws IOException
+        {
+            if (count == buf.length)
+            {
+                drain(false);
+            }
+
+            buf[count++] = (byte) b;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if ((count + len) > buf.length)
+            {
+                drain(false);
+
+                if (len > buf.length)
+                {
+                    sink.write(zbuf, 0, deflate(b, off, len, false));
+
+                    return;
+                }
+            }
+
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        public void flush() throws IOException
+        {
+            drain(true);
+            sink.flush();
+        }
+
+        public void close() throws IOException
+        {
+            sink.close();
+        }
+    }
+}
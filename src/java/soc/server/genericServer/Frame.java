@@ -0,0 +1,208 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import soc.message.SOCMessageEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * A message encoded once, for sending to many connections.
+ * Holds the message String and the bytes writeUTF would send for it;
+ * the same Frame can be put in any number of outQueues.  Immutable.
+ *<P>
+ * A Frame may also carry the message as an object, which is handed
+ * as-is to in-process clients (see {@link LocalLink}) so they don't
+ * have to parse the String.  The object must not be changed by anyone
+ * once it's in a Frame.  The bytes are only encoded when a socket
+ * connection needs them.
+ *<P>
+ * A Frame can also be made from bytes already encoded, such as those from
+ * SOCMessage.toBytes(); then the String is only decoded if someone asks.
+ *<P>
+ * A frame made by {@link #recode(byte[])} sends other bytes for the same
+ * message, such as a binary encoding some connections have agreed to;
+ * it shows the message and payload of the frame it was made from.
+ */
+public final class Frame
+{
+    /** the message, or null until needed if the frame was made from bytes */
+    private volatile String str;
+
+    /** the message as an object for in-process clients, or null */
+    private final Object payload;
+
+    /** 2-byte length and modified UTF-8 of str, or null until needed */
+    private volatile byte[] bytes = null;
+
+    /** the text frame this one was recoded from, or null */
+    private final Frame text;
+
+    /**
+     * Make a frame for a message.
+     *
+     * @param s  the message
+     */
+    public Frame(String s)
+    {
+        this(s, null);
+    }
+
+    /**
+     * Make a frame for a message, with the object it was made from.
+     *
+     * @param s  the message
+     * @param p  the message as an object that nobody will change, or null
+     */
+    public Frame(String s, Object p)
+    {
+        str = s;
+        payload = p;
+        text = null;
+    }
+
+    /**
+     * Make a frame from an encoded message.
+     *
+     * @param b  2-byte length and modified UTF-8 of the message, as writeUTF
+     *           would send it; not to be changed after this
+     */
+    public Frame(byte[] b)
+    {
+        this(b, (Object) null);
+    }
+
+    /**
+     * Make a frame from an encoded message.
+     *
+     * @param b  2-byte length and modified UTF-8 of the message, as writeUTF
+     *           would send it; not to be changed after this
+     * @param p  the message as an object that nobody will change, or null
+     */
+    public Frame(byte[] b, Object p)
+    {
+        bytes = b;
+        payload = p;
+        text = null;
+    }
+
+    /** make a frame that sends b for the message in t */
+    private Frame(byte[] b, Frame t)
+    {
+        bytes = b;
+        payload = t.payload;
+        text = t;
+    }
+
+    /**
+     * Make a frame sending other bytes for this frame's message.
+     *
+     * @param b  2-byte length and the message encoded some other way;
+     *           not to be changed after this
+     * @return the new frame, whose toString and payload are this frame's
+     */
+    public Frame recode(byte[] b)
+    {
+        return new Frame(b, (text != null) ? text : this);
+    }
+
+    /**
+     * @return 2-byte length and modified UTF-8 of the message
+     * @throws IllegalArgumentException if it encodes to more than 65535 bytes
+     */
+    byte[] bytes()
+    {
+        byte[] b = bytes;
+
+        if (b == null)
+        {
+            b = encode(str);
+            bytes = b;  // two threads may both encode; either result will do
+        }
+
+        return b;
+    }
+
+    /** encode s the way writeUTF would */
+    private static byte[] encode(String s)
+    {
+        int utflen = SOCMessageEncoder.utfLength(s);
+
+        if (utflen > 65535)
+        {
+            throw new IllegalArgumentException("encoded string too long: " + utflen + " bytes");
+        }
+
+        byte[] b = new byte[2 + utflen];
+        b[0] = (byte) (utflen >>> 8);
+        b[1] = (byte) utflen;
+        SOCMessageEncoder.encode(s, b, 2);
+
+        return b;
+    }
+
+    /** @return the number of bytes sent for this frame, including the length */
+    public int length()
+    {
+        return bytes().length;
+    }
+
+    /** write the frame as writeUTF would have written the message */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        out.write(bytes());
+    }
+
+    /** @return the message as an object, or null if the frame has none */
+    public Object getPayload()
+    {
+        return payload;
+    }
+
+    /** @return the message */
+    public String toString()
+    {
+        if (text != null)
+        {
+            return text.toString();
+        }
+
+        String s = str;
+
+        if (s == null)
+        {
+            try
+            {
+                s = SOCMessageEncoder.decode(bytes);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IllegalStateException("bad frame: " + e);
+            }
+
+            str = s;
+        }
+
+        return s;
+    }
+}
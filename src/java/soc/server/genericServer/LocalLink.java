@@ -0,0 +1,113 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import soc.util.Queue;
+
+
+/**
+ * The client end of an in-process connection to a Server, for clients
+ * (such as robots) running in the server's JVM.  There is no socket:
+ * the client's messages go straight to {@link Server#treat(String, Connection)},
+ * and the server's messages are queued here for the client to take.
+ * The server sees an ordinary {@link Connection}.
+ *<P>
+ * A message from the server is taken either as its String, or as the
+ * object the server attached to it (see {@link Frame#getPayload()}),
+ * which the client must not change.
+ */
+public final class LocalLink
+{
+    /** put in the queue when the connection is closed */
+    private static final Object CLOSED = new Object();
+
+    /** messages from the server, waiting for the client */
+    private final Queue in = new Queue();
+
+    /** the server's end */
+    Connection conn;
+
+    /** Server.connectLocal() makes these */
+    LocalLink() {}
+
+    /**
+     * Send a message to the server.
+     *
+     * @param str  the message
+     * @return false if the connection is closed
+     */
+    public boolean put(String str)
+    {
+        if (!conn.connected)
+        {
+            return false;
+        }
+
+        conn.sv.treat(str, conn);
+
+        return true;
+    }
+
+    /**
+     * Wait for the next message from the server.
+     *
+     * @return a String or the message object attached by the server,
+     *         or null once the connection is closed
+     */
+    public Object take()
+    {
+        Object o = in.get();
+
+        if (o == CLOSED)
+        {
+            in.put(CLOSED);  // for anyone else taking
+
+            return null;
+        }
+
+        return o;
+    }
+
+    /** close the connection from the client end */
+    public void close()
+    {
+        conn.sv.removeConnection(conn);
+        closed();
+    }
+
+    /** @return true until the connection is closed at either end */
+    public boolean isConnected()
+    {
+        return conn.connected;
+    }
+
+    /** queue a message from the server */
+    void deliver(Object msg)
+    {
+        in.put(msg);
+    }
+
+    /** the server end is closed; wake the client */
+    void closed()
+    {
+        in.put(CLOSED);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * The commands for one game, or for the lobby, treated one after another
+ * in the order they were posted.  A game's mailbox is kept with the game
+ * and made when it is; the lobby's belongs to the server.
+ *<P>
+ * Posting takes no lock: the command goes on the mailbox's queue, and the
+ * first command posted to an idle mailbox puts the mailbox on the
+ * server's ready queue, where the next free treater picks it up.  Only
+ * one treater runs a mailbox at a time.
+ *<P>
+ * When its game is deleted the mailbox is closed.  Commands still in it
+ * are treated as if they named no game, because the handle they were
+ * looked up with may be another game's by then.
+ */
+public final class Mailbox
+{
+    /** the game's handle, or -1 for the lobby */
+    final int key;
+
+    /** commands waiting */
+    final ConcurrentLinkedQueue<Server.Command> queue = new ConcurrentLinkedQueue<Server.Command>();
+
+    /** true while on the ready queue or being run by a treater */
+    final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /** set once the game is gone */
+    private volatile boolean closed = false;
+
+    /**
+     * @param key  the game's handle, or -1 for the lobby
+     */
+    public Mailbox(int key)
+    {
+        this.key = key;
+    }
+
+    /** @return the game's handle, or -1 for the lobby or a closed mailbox */
+    public int getKey()
+    {
+        return closed ? -1 : key;
+    }
+
+    /** The game is gone; treat what's left as naming no game. */
+    public void close()
+    {
+        closed = true;
+    }
+
+    /** @return true once the game is gone */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Logs every incoming message to a file, one per line, without holding up
+ * the threads that read them.  {@link #log(String)} puts the message in a
+ * fixed-size ring and returns; a writer thread takes everything in the ring
+ * at once, writes it and flushes once per batch.  If the disk can't keep up
+ * and the ring fills, messages are dropped and counted rather than making
+ * the readers wait; the count is written to the log as a line starting
+ * with '#'.
+ *<P>
+ * When the file reaches its size limit it is renamed to name.1 (name.1
+ * to name.2, and so on, up to the number of files to keep) and a new
+ * file is started.
+ */
+final class MessageLog extends Thread
+{
+    /** the ring of messages waiting to be written */
+    private final String[] ring;
+
+    /** index of the oldest message in the ring */
+    private int head = 0;
+
+    /** number of messages in the ring */
+    private int count = 0;
+
+    /** messages dropped because the ring was full, not yet reported in the log */
+    private int droppedSinceWrite = 0;
+
+    /** all messages dropped */
+    private volatile long dropped = 0;
+
+    /** the log file */
+    private final File file;
+
+    /** start a new file when the current one reaches this size */
+    private final long maxBytes;
+
+    /** rotated files to keep: name.1 to name.keep */
+    private final int keep;
+
+    private Writer out;
+
+    /** bytes (about) written to the current file */
+    private long written;
+
+    private volatile boolean running = true;
+
+    /**
+     * Open the log.
+     *
+     * @param name  the file name
+     * @param size  how many messages the ring holds
+     * @param maxBytes  rotate the file when it reaches this size; 0 for never
+     * @param keep  how many rotated files to keep
+     * @throws IOException if the file can't be opened
+     */
+    MessageLog(String name, int size, long maxBytes, int keep) throws IOException
+    {
+        super("message-log");
+        setDaemon(true);
+
+        ring = new String[size];
+        file = new File(name);
+        this.maxBytes = maxBytes;
+        this.keep = keep;
+        out = new BufferedWriter(new FileWriter(file), 65536);
+        written = 0;
+    }
+
+    /**
+     * Queue a message to be written.  Never waits for the disk.
+     *
+     * @return false if the ring was full and the message was dropped
+     */
+    boolean log(String s)
+    {
+        synchronized (ring)
+        {
+            if (count == ring.length)
+            {
+                droppedSinceWrite++;
+                dropped++;
+
+                return false;
+            }
+
+            ring[(head + count) % ring.length] = s;
+            count++;
+
+            if (count == 1)
+            {
+                ring.notify();  // the writer may be waiting for this
+            }
+        }
+
+        return true;
+    }
+
+    /** @return how many messages have been dropped because the ring was full */
+    long getDropped()
+    {
+        return dropped;
+    }
+
+    /** write out what's left and stop */
+    void shutdown()
+    {
+        running = false;
+
+        synchronized (ring)
+        {
+            ring.notify();
+        }
+    }
+
+    public void run()
+    {
+        String[] batch = new String[ring.length];
+
+        while (true)
+        {
+            int n;
+            int drops;
+
+            synchronized (ring)
+            {
+                while (running && (count == 0) && (droppedSinceWrite == 0))
+                {
+                    try
+                    {
+                        ring.wait();
+                    }
+                    catch (InterruptedException e) {}
+                }
+
+                // take the whole ring in one go, so readers can refill it while we write
+                n = count;
+
+                for (int i = 0; i < n; i++)
+                {
+                    int j = (head + i) % ring.length;
+                    batch[i] = ring[j];
+                    ring[j] = null;
+                }
+
+                head = (head + n) % ring.length;
+                count = 0;
+                drops = droppedSinceWrite;
+                droppedSinceWrite = 0;
+            }
+
+            try
+            {
+                if (drops > 0)
+                {
+                    write("# " + drops + " messages dropped, log writer too slow");
+                }
+
+                for (int i = 0; i < n; i++)
+                {
+                    write(batch[i]);
+                    batch[i] = null;
+                }
+
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Could not write message log " + file + ": " + e);
+            }
+
+            if (!running && (n == 0))
+            {
+                break;
+            }
+        }
+
+        try
+        {
+            out.close();
+        }
+        catch (IOException e) {}
+    }
+
+    /** write one line, starting a new file first if this one is full */
+    private void write(String s) throws IOException
+    {
+        if ((maxBytes > 0) && (written >= maxBytes))
+        {
+            rotate();
+        }
+
+        out.write(s);
+        out.write('\n');
+        written += s.length() + 1;
+    }
+
+    /** close the file, shift the old ones along, and start a new one */
+    private void rotate() throws IOException
+    {
+        out.close();
+
+        String name = file.getPath();
+        new File(name + "." + keep).delete();
+
+        for (int i = keep - 1; i >= 1; i--)
+        {
+            new File(name + "." + i).renameTo(new File(name + "." + (i + 1)));
+        }
+
+        if (keep > 0)
+        {
+            file.renameTo(new File(name + ".1"));
+        }
+
+        out = new BufferedWriter(new FileWriter(file), 65536);
+        written = 0;
+    }
+}
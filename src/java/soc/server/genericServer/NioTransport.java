@@ -0,0 +1,621 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import soc.disableDebug.D;
+
+import soc.message.SOCMessageEncoder;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/** Non-blocking transport for the Server.
+ *  A small, fixed set of selector threads does the reading and writing
+ *  for every Connection, instead of each Connection running its own
+ *  reader thread and Putter thread.  The wire format is unchanged:
+ *  each message is framed as by DataOutputStream.writeUTF, and every
+ *  complete frame read is handed to Server.treat().
+ *  Connection.put() keeps working the same, it just wakes up the
+ *  selector that owns the connection instead of a Putter.
+ */
+final class NioTransport
+{
+    /** largest frame writeUTF can produce: 2 length bytes + 65535 data bytes */
+    static final int MAX_FRAME = 2 + 65535;
+
+    /** size of a connection's read buffer, until a larger frame comes in */
+    static final int READ_BUF_SIZE = 4096;
+
+    /** how often (ms) the selectors look for idle connections */
+    static final long IDLE_CHECK_INTERVAL = 60000;
+
+    Server sv;
+    SelectorThread[] selectors;
+    int nextSelector = 0;
+
+    /**
+     * Create the transport and open its selectors.
+     *
+     * @param sve       the server that will treat the incoming messages
+     * @param nThreads  number of selector threads, at least 1
+     */
+    NioTransport(Server sve, int nThreads) throws IOException
+    {
+        sv = sve;
+        selectors = new SelectorThread[Math.max(1, nThreads)];
+
+        for (int i = 0; i < selectors.length; i++)
+        {
+            selectors[i] = new SelectorThread(i);
+        }
+    }
+
+    /** start the selector threads */
+    void start()
+    {
+        for (int i = 0; i < selectors.length; i++)
+        {
+            selectors[i].start();
+        }
+    }
+
+    /** stop the selector threads; the connections are closed by the server */
+    void shutdown()
+    {
+        for (int i = 0; i < selectors.length; i++)
+        {
+            selectors[i].alive = false;
+            selectors[i].selector.wakeup();
+        }
+    }
+
+    /**
+     * Take over a freshly accepted connection: let the server
+     * add it, then hand it to a selector (round-robin).
+     *
+     * @param c  the connection, built around a socket from a ServerSocketChannel
+     */
+    void accept(Connection c)
+    {
+        SelectorThread st;
+
+        synchronized (this)
+        {
+            st = selectors[nextSelector];
+            nextSelector = (nextSelector + 1) % selectors.length;
+        }
+
+        c.selector = st;
+        sv.addConnection(c);
+
+        if (c.isConnected())
+        {
+            st.register(c);
+        }
+    }
+
+    /**
+     * A thread that owns one Selector and all the connections registered with it.
+     */
+    final class SelectorThread extends Thread
+    {
+        Selector selector;
+        boolean alive = true;
+
+        /** connections waiting to be registered with the selector */
+        Vector<Connection> newConns = new Vector<Connection>();
+
+        /** connections that have something in their outQueue */
+        Vector<Connection> writeConns = new Vector<Connection>();
+
+        /** last time we looked for idle connections */
+        long lastIdleCheck = System.currentTimeMillis();
+
+        SelectorThread(int n) throws IOException
+        {
+            super("NioSelector-" + n);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        /** queue a connection for registration; called by any thread */
+        void register(Connection c)
+        {
+            synchronized (newConns)
+            {
+                newConns.addElement(c);
+            }
+
+            selector.wakeup();
+        }
+
+        /** note that c has output waiting; called by any thread from Connection.put */
+        void wantWrite(Connection c)
+        {
+            synchronized (writeConns)
+            {
+                if (c.writeWanted)
+                {
+                    return;
+                }
+
+                c.writeWanted = true;
+                writeConns.addElement(c);
+            }
+
+            selector.wakeup();
+        }
+
+        public void run()
+        {
+            while (alive)
+            {
+                try
+                {
+                    selector.select(1000);
+                    registerNew();
+                    enableWrites();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+
+                    while (it.hasNext())
+                    {
+                        SelectionKey key = it.next();
+                        it.remove();
+
+                        Connection c = (Connection) key.attachment();
+
+                        if (!key.isValid())
+                        {
+                            continue;
+                        }
+
+                        if (key.isReadable() && !read(c))
+                        {
+                            continue;
+                        }
+
+                        if (key.isValid() && key.isWritable())
+                        {
+                            write(c);
+                        }
+                    }
+
+                    checkIdle();
+                }
+                catch (Exception e)
+                {
+                    // keep going; one bad connection must not stop the others
+                    D.ebugPrintln("Exception in " + getName() + " - " + e);
+
+                    if (D.ebugOn)
+                    {
+                        e.printStackTrace(System.out);
+                    }
+                }
+            }
+
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e) {}
+        }
+
+        void registerNew()
+        {
+            Object[] conns;
+
+            synchronized (newConns)
+            {
+                if (newConns.isEmpty())
+                {
+                    return;
+                }
+
+                conns = newConns.toArray();
+                newConns.removeAllElements();
+            }
+
+            for (int i = 0; i < conns.length; i++)
+            {
+                Connection c = (Connection) conns[i];
+
+                if (!c.connected)
+                {
+                    continue;
+                }
+
+                try
+                {
+                    int ops = SelectionKey.OP_READ;
+
+                    synchronized (c.outQueue)
+                    {
+                        if (!c.outQueue.isEmpty())
+                        {
+                            ops |= SelectionKey.OP_WRITE;
+                        }
+                    }
+
+                    c.key = c.channel.register(selector, ops, c);
+                }
+                catch (ClosedChannelException e)
+                {
+                    lost(c, e);
+                }
+            }
+        }
+
+        void enableWrites()
+        {
+            Object[] conns;
+
+            synchronized (writeConns)
+            {
+                if (writeConns.isEmpty())
+                {
+                    return;
+                }
+
+                conns = writeConns.toArray();
+                writeConns.removeAllElements();
+
+                for (int i = 0; i < conns.length; i++)
+                {
+                    ((Connection) conns[i]).writeWanted = false;
+                }
+            }
+
+            for (int i = 0; i < conns.length; i++)
+            {
+                Connection c = (Connection) conns[i];
+
+                // its outQueue overflowed: drop it now, since a slow
+                // client's socket may never become writable
+                if (c.error != null)
+                {
+                    lost(c, c.error);
+                }
+
+                // not registered yet: registerNew() will look at the outQueue
+                else if ((c.key != null) && c.key.isValid())
+                {
+                    c.key.interestOps(c.key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        }
+
+        /**
+         * read what is available and treat every complete frame
+         * @return false if the connection was lost
+         */
+        boolean read(Connection c)
+        {
+            ByteBuffer buf = c.readBuf;
+            int n;
+
+            try
+            {
+                n = c.channel.read(buf);
+            }
+            catch (IOException e)
+            {
+                lost(c, e);
+
+                return false;
+            }
+
+            if (n < 0)
+            {
+                lost(c, new IOException("end of stream"));
+
+                return false;
+            }
+
+            c.lastRead = System.currentTimeMillis();
+            buf.flip();
+
+            try
+            {
+                while (buf.remaining() >= 2)
+                {
+                    int len = ((buf.get(buf.position()) & 0xFF) << 8) | (buf.get(buf.position() + 1) & 0xFF);
+
+                    if (buf.remaining() < (2 + len))
+                    {
+                        if ((2 + len) > buf.capacity())
+                        {
+                            // frame bigger than the buffer: grow it, keeping the partial frame
+                            ByteBuffer bigger = ByteBuffer.allocate(MAX_FRAME);
+                            bigger.put(buf);
+                            c.readBuf = bigger;
+
+                            return true;
+                        }
+
+                        break;
+                    }
+
+                    buf.position(buf.position() + 2);
+
+                    String str = decodeUTF(buf.array(), buf.position(), len);
+                    buf.position(buf.position() + len);
+                    sv.treat(str, c);
+                }
+            }
+            catch (UTFDataFormatException e)
+            {
+                lost(c, e);
+
+                return false;
+            }
+
+            buf.compact();
+
+            if ((buf.capacity() > READ_BUF_SIZE) && (buf.position() <= READ_BUF_SIZE))
+            {
+                // the large frame has been treated: go back to a small buffer
+                ByteBuffer smaller = ByteBuffer.allocate(READ_BUF_SIZE);
+                buf.flip();
+                smaller.put(buf);
+                c.readBuf = smaller;
+            }
+
+            return true;
+        }
+
+        /** write as much of c's queued output as the socket will take */
+        void write(Connection c)
+        {
+            ByteBuffer buf = c.writeBuf;
+            int n = 0;  // messages put in buf since the last write
+
+            try
+            {
+                while (true)
+                {
+                    if (!buf.hasRemaining())
+                    {
+                        buf.clear();
+                        n = fill(c);
+                        buf = c.writeBuf;
+                        buf.flip();
+
+                        if (!buf.hasRemaining())
+                        {
+                            break;
+                        }
+                    }
+
+                    c.channel.write(buf);
+                    sv.wroteBatch(n);
+                    n = 0;
+
+                    if (buf.hasRemaining())
+                    {
+                        // socket is full; keep OP_WRITE and come back later
+                        return;
+                    }
+                }
+
+                synchronized (c.outQueue)
+                {
+                    // nothing left to write: stop asking for OP_WRITE
+                    if (c.outQueue.isEmpty() && c.key.isValid())
+                    {
+                        c.key.interestOps(SelectionKey.OP_READ);
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                lost(c, e);
+            }
+        }
+
+        /**
+         * move queued messages from c.outQueue into c.writeBuf (which is cleared),
+         * compressing them if the connection has started to
+         * @return the number of messages moved
+         */
+        int fill(Connection c)
+        {
+            int n = fillRaw(c);
+            Deflation z = c.deflation;
+
+            if ((z != null) && (c.writeBuf.position() > 0))
+            {
+                c.writeBuf = z.deflate(c.writeBuf);
+            }
+
+            return n;
+        }
+
+        /** fill c.writeBuf with queued messages as they are */
+        private int fillRaw(Connection c)
+        {
+            int n = 0;
+
+            while (true)
+            {
+                Object msg;
+                int room;  // most bytes msg can take
+
+                synchronized (c.outQueue)
+                {
+                    if (c.outQueue.isEmpty())
+                    {
+                        return n;
+                    }
+
+                    msg = c.outQueue.elementAt(0);
+
+                    if (msg == Connection.DEFLATE)
+                    {
+                        if (c.writeBuf.position() > 0)
+                        {
+                            return n;  // what's before it isn't compressed
+                        }
+
+                        c.outQueue.removeElementAt(0);
+                        c.outBytes -= Connection.size(msg);
+                        c.startDeflation();
+
+                        continue;
+                    }
+
+                    if (msg instanceof Frame)
+                    {
+                        room = ((Frame) msg).length();
+                    }
+                    else
+                    {
+                        room = Math.min(MAX_FRAME, 2 + (3 * ((String) msg).length()));
+                    }
+
+                    if (c.writeBuf.remaining() < room)
+                    {
+                        if (c.writeBuf.position() > 0)
+                        {
+                            return n;  // send what we have first
+                        }
+
+                        c.writeBuf = ByteBuffer.allocate(room);
+                    }
+
+                    c.outQueue.removeElementAt(0);
+                    c.outBytes -= Connection.size(msg);
+                }
+
+                if (msg instanceof Frame)
+                {
+                    c.writeBuf.put(((Frame) msg).bytes());
+                }
+                else
+                {
+                    try
+                    {
+                        encodeUTF((String) msg, c.writeBuf);
+                    }
+                    catch (UTFDataFormatException e)
+                    {
+                        D.ebugPrintln("Dropping message to " + c.host() + " - " + e.getMessage());
+
+                        continue;
+                    }
+                }
+
+                n++;
+            }
+        }
+
+        /** close connections that have been silent longer than Connection.TIMEOUT_VALUE */
+        void checkIdle()
+        {
+            long now = System.currentTimeMillis();
+
+            if ((now - lastIdleCheck) < IDLE_CHECK_INTERVAL)
+            {
+                return;
+            }
+
+            lastIdleCheck = now;
+
+            Iterator<SelectionKey> it = selector.keys().iterator();
+
+            while (it.hasNext())
+            {
+                SelectionKey key = it.next();
+                Connection c = (Connection) key.attachment();
+
+                if ((c != null) && ((now - c.lastRead) > Connection.TIMEOUT_VALUE))
+                {
+                    key.cancel();
+                    lost(c, new IOException("read timed out"));
+                }
+            }
+        }
+
+        /** the connection failed: remove it from the server, like Connection.run() does */
+        void lost(Connection c, Exception e)
+        {
+            D.ebugPrintln("IOException in NioTransport (" + c.host() + ") - " + e);
+
+            if (!c.connected)
+            {
+                return;
+            }
+
+            c.error = e;
+            sv.connectionLost(c);
+        }
+    }
+
+    /**
+     * Append str to buf the way DataOutputStream.writeUTF would
+     * (2-byte length, then modified UTF-8), with
+     * {@link SOCMessageEncoder#encode(String, byte[], int)}.
+     * buf must be an array buffer with room for 2 + 3 * str.length() bytes.
+     */
+    static void encodeUTF(String str, ByteBuffer buf) throws UTFDataFormatException
+    {
+        int utflen = SOCMessageEncoder.utfLength(str);
+
+        if (utflen > 65535)
+        {
+            throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+        }
+
+        buf.put((byte) (utflen >> 8));
+        buf.put((byte) utflen);
+
+        int off = buf.arrayOffset();
+        buf.position(SOCMessageEncoder.encode(str, buf.array(), off + buf.position()) - off);
+    }
+
+    /**
+     * Decode len bytes of modified UTF-8, as written by writeUTF
+     * (without the 2-byte length), with
+     * {@link SOCMessageEncoder#decode(byte[], int, int)}.
+     */
+    static String decodeUTF(byte[] b, int off, int len) throws UTFDataFormatException
+    {
+        try
+        {
+            return SOCMessageEncoder.decode(b, off, len);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new UTFDataFormatException(e.getMessage());
+        }
+    }
+}
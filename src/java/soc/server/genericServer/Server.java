@@ -20,16 +20,25 @@
  **/
 package soc.server.genericServer;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
 import java.io.Serializable;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.nio.channels.ServerSocketChannel;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import soc.disableDebug.D;
+import soc.util.TimingWheel;
 
 
 /** a general purpose server
@@ -41,13 +50,140 @@ import soc.disableDebug.D;
  */
 public abstract class Server extends Thread implements Serializable, Cloneable
 {
+    /**
+     * System property choosing how connections are serviced:
+     * "thread" (the default) gives each Connection a reader thread and a Putter,
+     * "nio" services all of them from a few selector threads, and
+     * "virtual" runs the reader and Putter on virtual threads (Java 21+).
+     */
+    public static final String TRANSPORT_PROPERTY = "TRANSPORT";
+
+    /** System property: number of selector threads for the "nio" transport */
+    public static final String NIO_THREADS_PROPERTY = "NIO_THREADS";
+
+    /**
+     * System property: number of treater threads.  Each game has its own
+     * mailbox, and so does the lobby (commands that aren't for a game);
+     * a mailbox is run by one treater at a time, so its commands are
+     * treated one after another, while the treaters run different
+     * mailboxes at once.
+     */
+    public static final String TREATERS_PROPERTY = "TREATERS";
+
+    /** System property: most messages waiting to go out to one connection */
+    public static final String OUTQUEUE_MESSAGES_PROPERTY = "OUTQUEUE_MESSAGES";
+
+    /** System property: most bytes (about) waiting to go out to one connection */
+    public static final String OUTQUEUE_BYTES_PROPERTY = "OUTQUEUE_BYTES";
+
+    /**
+     * System property: what to do when a connection's outQueue is full:
+     * "disconnect", "dropchat" (drop queued chat, then disconnect), or
+     * "coalesce" (the default: drop queued state updates that a later one
+     * replaces, then chat, then disconnect).
+     */
+    public static final String OUTQUEUE_POLICY_PROPERTY = "OUTQUEUE_POLICY";
+
+    /** outQueue overflow policies */
+    public static final int POLICY_DISCONNECT = 0;
+    public static final int POLICY_DROP_CHAT = 1;
+    public static final int POLICY_COALESCE = 2;
+
+    /** limits and policy for each connection's outQueue */
+    int maxOutMessages;
+    int maxOutBytes;
+    int outPolicy;
+
+    /** messages dropped from full outQueues */
+    private final AtomicLong outEvictions = new AtomicLong();
+
+    /** connections closed because their outQueue stayed full */
+    private final AtomicLong outOverflows = new AtomicLong();
+
     ServerSocket ss;
-    boolean up = false;
+    volatile boolean up = false;
     protected Exception error = null;
     protected int port;
     
-    /** log all messages here for debug. */
-    protected PrintStream out = null;
+    /** System property: file to log every incoming message to */
+    public static final String LOG_PROPERTY = "LOG";
+
+    /** System property: how many messages the log can hold while the disk catches up */
+    public static final String LOG_BUFFER_PROPERTY = "LOG_BUFFER";
+
+    /** System property: start a new log file when it reaches this many bytes (0 for never) */
+    public static final String LOG_MAX_BYTES_PROPERTY = "LOG_MAX_BYTES";
+
+    /** System property: how many old log files to keep when rotating */
+    public static final String LOG_FILES_PROPERTY = "LOG_FILES";
+
+    /** log all messages here for debug, or null. */
+    MessageLog out = null;
+
+    /**
+     * System property: connections a second accepted from one address,
+     * once its burst is used up; 0 (the default) for no limit.
+     * Connections from the loopback address are never limited, so
+     * robots and other clients on the server's host can always connect.
+     */
+    public static final String ACCEPT_RATE_PROPERTY = "ACCEPT_RATE";
+
+    /** System property: connections accepted at once from one address */
+    public static final String ACCEPT_BURST_PROPERTY = "ACCEPT_BURST";
+
+    /**
+     * System property: most accepted connections that haven't sent their
+     * first message yet, before more are turned away
+     */
+    public static final String MAX_PENDING_PROPERTY = "MAX_PENDING";
+
+    /**
+     * System property: seconds a client whose connection drops has to
+     * connect again and resume its session; 0 for no sessions
+     */
+    public static final String RESUME_GRACE_PROPERTY = "RESUME_GRACE";
+
+    /** System property: messages kept for each session, to resume it with */
+    public static final String RESUME_BUFFER_PROPERTY = "RESUME_BUFFER";
+
+    /**
+     * System property: the Deflater level, 1 to 9, for clients that ask
+     * for their messages compressed; 0 to refuse them
+     */
+    public static final String DEFLATE_LEVEL_PROPERTY = "DEFLATE_LEVEL";
+
+    /** level to compress at for clients that ask, or 0 for none */
+    private int deflateLevel;
+
+    /** milliseconds a session waits to be resumed, or 0 for no sessions */
+    private long resumeGrace;
+
+    /** messages kept for each session */
+    private int resumeBuffer;
+
+    /** the sessions, by token; see {@link Session} */
+    private final Hashtable sessions = new Hashtable();
+
+    /** makes session tokens */
+    private SecureRandom tokens = null;
+
+    /** per-address connection rate limit, or null for none */
+    private AcceptLimiter limiter = null;
+
+    /** most connections being set up at once */
+    private int maxPending;
+
+    /** connections accepted that haven't sent a message or failed yet */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** connections turned away for connecting too fast from one address */
+    private final AtomicLong rejectedRate = new AtomicLong();
+
+    /** connections turned away because too many were being set up */
+    private final AtomicLong rejectedBusy = new AtomicLong();
+
+    /** what to send a connection turned away, encoded once; or null to just close */
+    private Frame rateReject, busyReject;
 
 
     /**
@@ -55,19 +191,131 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      */
     protected int numberOfConnections;
 
+    /** messages written to all connections */
+    private final AtomicLong messagesWritten = new AtomicLong();
+
+    /** flushes to the network; each one writes a batch of messages */
+    private final AtomicLong flushes = new AtomicLong();
+
+    /** the most messages written in one flush */
+    private volatile int largestBatch = 0;
+
     /** the connections */
     protected Vector conns = new Vector();
-    public Vector inQueue = new Vector();
+
+    /** the treaters, which run the mailboxes */
+    Treater[] treaters;
+
+    /** the mailbox for commands that aren't for a game */
+    protected final Mailbox lobby = new Mailbox(-1);
+
+    /** the mailboxes waiting for a treater, oldest first */
+    private final ConcurrentLinkedQueue<Mailbox> ready = new ConcurrentLinkedQueue<Mailbox>();
+
+    /** a permit for each mailbox put on {@link #ready}; idle treaters wait on it */
+    private final Semaphore readyCount = new Semaphore(0);
+
+    /**
+     * Timers for the server: game expiry, pings, deadlines.  Tasks run on
+     * the wheel's thread and must be short; use {@link #scheduleForGame}
+     * for anything that works on a game.
+     */
+    protected TimingWheel timers = new TimingWheel("server-timers", 100);
+
+    /** the selectors servicing the connections, or null for thread-per-connection */
+    NioTransport nio = null;
+
+    /** true if connection readers and Putters run on virtual threads */
+    boolean virtual = false;
 
     /** start listening to the given port */
     public Server(int port)
     {
         this.port = port;
         numberOfConnections = 0;
+        timers.start();
+
+        int nTreaters = Math.max(1, Integer.getInteger(TREATERS_PROPERTY, 1 + Runtime.getRuntime().availableProcessors()).intValue());
+        treaters = new Treater[nTreaters];
+
+        for (int i = 0; i < nTreaters; i++)
+        {
+            treaters[i] = new Treater(this, i);
+        }
+
+        maxOutMessages = Integer.getInteger(OUTQUEUE_MESSAGES_PROPERTY, 5000).intValue();
+        maxOutBytes = Integer.getInteger(OUTQUEUE_BYTES_PROPERTY, 1024 * 1024).intValue();
+
+        String policy = System.getProperty(OUTQUEUE_POLICY_PROPERTY, "coalesce");
+
+        if (policy.equalsIgnoreCase("disconnect"))
+        {
+            outPolicy = POLICY_DISCONNECT;
+        }
+        else if (policy.equalsIgnoreCase("dropchat"))
+        {
+            outPolicy = POLICY_DROP_CHAT;
+        }
+        else
+        {
+            outPolicy = POLICY_COALESCE;
+        }
+
+        String rate = System.getProperty(ACCEPT_RATE_PROPERTY, "0");
+
+        try
+        {
+            double r = Double.parseDouble(rate);
+
+            if (r > 0)
+            {
+                limiter = new AcceptLimiter(r, Integer.getInteger(ACCEPT_BURST_PROPERTY, 10).intValue());
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("Bad " + ACCEPT_RATE_PROPERTY + ": " + rate);
+        }
+
+        maxPending = Math.max(1, Integer.getInteger(MAX_PENDING_PROPERTY, 100).intValue());
+        resumeGrace = 1000L * Math.max(0, Integer.getInteger(RESUME_GRACE_PROPERTY, 30).intValue());
+        resumeBuffer = Math.max(1, Integer.getInteger(RESUME_BUFFER_PROPERTY, 1000).intValue());
+        deflateLevel = Math.max(0, Math.min(9, Integer.getInteger(DEFLATE_LEVEL_PROPERTY, 6).intValue()));
+
+        String transport = System.getProperty(TRANSPORT_PROPERTY);
+
+        if ("virtual".equalsIgnoreCase(transport))
+        {
+            virtual = VirtualThreads.available();
+
+            if (virtual)
+            {
+                System.err.println("Using virtual threads for connections.");
+            }
+            else
+            {
+                System.err.println("Virtual threads need Java 21, using a thread per connection.");
+            }
+        }
+        else if ("nio".equalsIgnoreCase(transport))
+        {
+            int nThreads = Integer.getInteger(NIO_THREADS_PROPERTY, Math.min(4, Runtime.getRuntime().availableProcessors())).intValue();
+
+            try
+            {
+                nio = new NioTransport(this, nThreads);
+                System.err.println("Using NIO transport with " + nThreads + " selector threads.");
+            }
+            catch (IOException e)
+            {
+                System.err.println("Could not open selectors, using a thread per connection: " + e);
+                nio = null;
+            }
+        }
 
         try
         {
-            ss = new ServerSocket(port);
+            ss = openServerSocket();
         }
         catch (IOException e)
         {
@@ -76,6 +324,89 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         }
     }
 
+    /**
+     * Open the listening socket.  For the NIO transport it comes from a
+     * ServerSocketChannel (left in blocking mode for the accept loop),
+     * so that the accepted sockets have channels.
+     */
+    private ServerSocket openServerSocket() throws IOException
+    {
+        if (nio == null)
+        {
+            return new ServerSocket(port);
+        }
+
+        ServerSocketChannel ssc = ServerSocketChannel.open();
+        ssc.socket().bind(new InetSocketAddress(port));
+
+        return ssc.socket();
+    }
+
+    /**
+     * Turn a connection away: send it a rejection, if there is one, and
+     * close it.  Runs on the accept thread, so it mustn't wait; a short
+     * message fits in a new socket's send buffer.
+     */
+    private void reject(Socket so, Frame f)
+    {
+        try
+        {
+            if (f != null)
+            {
+                f.writeTo(so.getOutputStream());
+            }
+        }
+        catch (IOException e) {}
+        finally
+        {
+            try
+            {
+                so.close();
+            }
+            catch (IOException e) {}
+        }
+    }
+
+    /** forget addresses that haven't connected lately, once a minute */
+    private void purgeLimiter()
+    {
+        timers.schedule(new Runnable()
+        {
+            public void run()
+            {
+                if (isUp())
+                {
+                    limiter.purge(System.currentTimeMillis());
+                    purgeLimiter();
+                }
+            }
+        }, 60000);
+    }
+
+    /**
+     * The message sent to a connection turned away before it was set up,
+     * because it came too fast or the server was too busy.
+     *
+     * @param reason  why it was turned away
+     * @return the message, or null to just close the connection
+     */
+    protected String rejectMessage(String reason)
+    {
+        return null;
+    }
+
+    /** @return the number of connections turned away for connecting too fast from one address */
+    protected long getRejectedForRate()
+    {
+        return rejectedRate.get();
+    }
+
+    /** @return the number of connections turned away because too many were being set up */
+    protected long getRejectedBusy()
+    {
+        return rejectedBusy.get();
+    }
+
     protected Enumeration getConnections()
     {
         return conns.elements();
@@ -86,7 +417,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         return conns.size();
     }
 
-    protected synchronized boolean isUp()
+    protected boolean isUp()
     {
         return up;
     }
@@ -94,16 +425,18 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     /** run method for Server */
     public void run()
     {
-        Treater treater = new Treater(this);
-        treater.start();
         if (error != null)
         {
             return;
         }
-        String outlog = System.getProperty("LOG");
+        String outlog = System.getProperty(LOG_PROPERTY);
         if (outlog != null) {
             try {
-                out = new PrintStream(new FileOutputStream(outlog));
+                out = new MessageLog(outlog,
+                    Integer.getInteger(LOG_BUFFER_PROPERTY, 16384).intValue(),
+                    Long.getLong(LOG_MAX_BYTES_PROPERTY, 64L * 1024 * 1024).longValue(),
+                    Integer.getInteger(LOG_FILES_PROPERTY, 5).intValue());
+                out.start();
             } catch (IOException ex) {
                 out = null;
                 System.out.println("no log file");
@@ -113,15 +446,69 @@ public abstract class Server extends Thread implements Serializable, Cloneable
 
         up = true;
 
+        for (int i = 0; i < treaters.length; i++)
+        {
+            treaters[i].start();
+        }
+
+        String m = rejectMessage("Too many connections from your address, please try again later.");
+        rateReject = (m != null) ? new Frame(m) : null;
+        m = rejectMessage("The server is busy, please try again later.");
+        busyReject = (m != null) ? new Frame(m) : null;
+
+        if (limiter != null)
+        {
+            purgeLimiter();
+        }
+
+        if (nio != null)
+        {
+            nio.start();
+        }
+
         while (isUp())
         {
             try
             {
                 while (isUp())
                 {
-                    // we could limit the number of accepted connections here
-                    Connection con = new Connection(ss.accept(), this);
-                    con.start();
+                    Socket so = ss.accept();
+
+                    // turn away what we can't take before building anything for it
+                    if (pending.get() >= maxPending)
+                    {
+                        rejectedBusy.incrementAndGet();
+                        reject(so, busyReject);
+
+                        continue;
+                    }
+
+                    if ((limiter != null) && !so.getInetAddress().isLoopbackAddress()
+                        && !limiter.tryAccept(so.getInetAddress(), System.currentTimeMillis()))
+                    {
+                        rejectedRate.incrementAndGet();
+                        reject(so, rateReject);
+
+                        continue;
+                    }
+
+                    pending.incrementAndGet();
+
+                    Connection con = new Connection(so, this);
+                    con.admitted = true;
+
+                    if (nio != null)
+                    {
+                        nio.accept(con);
+                    }
+                    else if (virtual)
+                    {
+                        VirtualThreads.start(con, "connection-" + con.host());
+                    }
+                    else
+                    {
+                        con.start();
+                    }
 
                     //addConnection(new Connection());
                 }
@@ -138,7 +525,7 @@ public abstract class Server extends Thread implements Serializable, Cloneable
             try
             {
                 ss.close();
-                ss = new ServerSocket(port);
+                ss = openServerSocket();
             }
             catch (IOException e)
             {
@@ -152,14 +539,109 @@ public abstract class Server extends Thread implements Serializable, Cloneable
     /** treat a request from the given connection */
     public void treat(String s, Connection c)
     {
-	if (out != null) { out.println(s); out.flush(); }
-        synchronized (inQueue)
+        if (out != null)
+        {
+            out.log(s);
+        }
+
+        settle(c);
+
+        Session ss = c.session;
+
+        if (ss != null)
+        {
+            c = ss.owner;  // the server knows a resumed client by its first connection
+        }
+
+        Mailbox mb = mailboxFor(s);
+        post((mb != null) ? mb : lobby, new Command(s, c));
+    }
+
+    /**
+     * Put a command in a mailbox, making the mailbox ready if it wasn't.
+     * Takes no lock.
+     *
+     * @param mb  the mailbox
+     * @param cmd  the command
+     */
+    void post(Mailbox mb, Command cmd)
+    {
+        mb.queue.add(cmd);
+        schedule(mb);
+    }
+
+    /**
+     * Put a mailbox on the ready queue, unless it's there already or
+     * being run.
+     */
+    private void schedule(Mailbox mb)
+    {
+        if (mb.scheduled.compareAndSet(false, true))
         {
-            inQueue.addElement(new Command(s, c));
-            inQueue.notify();
+            ready.add(mb);
+            readyCount.release();
         }
     }
 
+    /**
+     * Run a task on a game's mailbox, in order with the game's messages.
+     * This is how work that touches several games is done: a task for
+     * each game, posted to each one.
+     *
+     * @param mb  the game's mailbox
+     * @param task  what to run
+     */
+    public void postToGame(Mailbox mb, Runnable task)
+    {
+        post(mb, new Command(task));
+    }
+
+    /**
+     * Run a task on the lobby's mailbox, in order with the commands that
+     * aren't for a game.
+     *
+     * @param task  what to run
+     */
+    public void postToLobby(Runnable task)
+    {
+        post(lobby, new Command(task));
+    }
+
+    /**
+     * Run a task after a delay on a game's mailbox, so it runs in order
+     * with the game's messages like any message handler.
+     *
+     * @param mb  the game's mailbox
+     * @param delay  milliseconds to wait
+     * @param task  what to run
+     * @return the Timeout, to cancel the task with
+     */
+    public TimingWheel.Timeout scheduleForGame(final Mailbox mb, long delay, final Runnable task)
+    {
+        return timers.schedule(new Runnable()
+        {
+            public void run()
+            {
+                post(mb, new Command(task));
+            }
+        }, delay);
+    }
+
+    /**
+     * Find the mailbox of the game a command is for, so that all the
+     * commands for one game are treated in order.  Called from the
+     * reading thread for every command, so it should be cheap; this is
+     * where a game named in a command is looked up, once.
+     *
+     * @param str the command
+     * @return the game's mailbox, or null if the command isn't for a
+     *         game that exists; it goes to the lobby's
+     */
+    protected Mailbox mailboxFor(String str)
+    {
+        return null;
+    }
+
     /**
      * DOCUMENT ME!
      *
@@ -168,6 +650,20 @@ public abstract class Server extends Thread implements Serializable, Cloneable
      */
     abstract public void processCommand(String str, Connection con);
 
+    /**
+     * Treat a command from the mailbox it was posted to.  Unless
+     * overridden, the key is ignored.
+     *
+     * @param str  the command
+     * @param con  the connection it came from
+     * @param key  the handle of the game whose mailbox it was in, or -1
+     *             for the lobby or a game that's gone
+     */
+    protected void processCommand(String str, Connection con, int key)
+    {
+        processCommand(str, con);
+    }
+
     /** placeholder for doing things when server gets down */
     protected void serverDown() {}
 
@@ -185,6 +681,18 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         up = false;
         serverDown();
 
+        if (out != null)
+        {
+            out.shutdown();
+        }
+
+        timers.stopWheel();
+
+        if (nio != null)
+        {
+            nio.shutdown();
+        }
+
         for (Enumeration e = conns.elements(); e.hasMoreElements();)
         {
             ((Connection) e.nextElement()).disconnect();
@@ -193,9 +701,119 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         conns.removeAllElements();
     }
 
-    /** remove a connection from the system */
+    /**
+     * A connection's socket has failed.  If the connection carries a
+     * session, the client has {@link #RESUME_GRACE_PROPERTY} seconds to
+     * resume it before it's removed; otherwise it's removed now.
+     * Called by the reader thread or selector that saw the failure.
+     */
+    synchronized void connectionLost(Connection c)
+    {
+        settle(c);
+
+        Session ss = c.session;
+
+        if (ss != null)
+        {
+            boolean waiting;
+
+            synchronized (ss)
+            {
+                if (ss.attached != c)
+                {
+                    c.disconnect();  // the session has moved to a newer connection
+
+                    return;
+                }
+
+                waiting = !ss.broken;
+
+                if (waiting)
+                {
+                    ss.attached = null;
+                    ss.expiry = timers.schedule(new Runnable()
+                    {
+                        public void run()
+                        {
+                            postToLobby(new Runnable()
+                            {
+                                public void run()
+                                {
+                                    expireSession(ss);
+                                }
+                            });
+                        }
+                    }, resumeGrace);
+                }
+            }
+
+            if (waiting)
+            {
+                c.disconnect();
+                D.ebugPrintln(c.host() + " lost, waiting to resume " + ss.owner.data);
+
+                return;
+            }
+        }
+
+        removeConnection(c);
+    }
+
+    /**
+     * A connection is no longer pending: it has sent its first message,
+     * or failed before it did.  Does nothing after the first time.
+     */
+    private void settle(Connection c)
+    {
+        if (c.admitted)
+        {
+            synchronized (pending)
+            {
+                if (!c.admitted)
+                {
+                    return;
+                }
+
+                c.admitted = false;
+            }
+
+            pending.decrementAndGet();
+        }
+    }
+
+    /** remove a connection from the system, ending its session if it has one */
     protected synchronized void removeConnection(Connection c)
     {
+        settle(c);
+
+        Session ss = c.session;
+
+        if (ss != null)
+        {
+            Connection carrier;
+
+            synchronized (ss)
+            {
+                ss.broken = true;
+                carrier = ss.attached;
+                ss.attached = null;
+
+                if (ss.expiry != null)
+                {
+                    ss.expiry.cancel();
+                }
+            }
+
+            sessions.remove(ss.token);
+
+            if ((carrier != null) && (carrier != ss.owner))
+            {
+                carrier.disconnect();
+            }
+
+            c = ss.owner;
+        }
+
         //conns.removeElement(c);
         if (!conns.removeElement(c))
         {
@@ -207,27 +825,245 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         D.ebugPrintln(c.host() + " left (" + connectionCount() + ")  " + (new Date()).toString() + ((c.error != null) ? (": " + c.error.toString()) : ""));
     }
 
+    /** remove a client whose session wasn't resumed in time */
+    private synchronized void expireSession(Session ss)
+    {
+        if ((ss.attached == null) && !ss.broken)
+        {
+            removeConnection(ss.owner);
+        }
+    }
+
+    /**
+     * Give a connection a session, so that its client can resume it if
+     * the connection drops; see {@link Session}.
+     *
+     * @param c  the connection
+     * @return the session's token, to tell the client; or null if
+     *         sessions are turned off, or c can't have one
+     */
+    protected synchronized String startSession(Connection c)
+    {
+        if ((resumeGrace <= 0) || c.isLocal() || (c.session != null))
+        {
+            return null;
+        }
+
+        if (tokens == null)
+        {
+            tokens = new SecureRandom();
+        }
+
+        String token = Long.toString(tokens.nextLong() & Long.MAX_VALUE, 36);
+        Session ss = new Session(token, c, resumeBuffer);
+        c.startSession(ss);
+        sessions.put(token, ss);
+
+        return token;
+    }
+
+    /**
+     * @return the Deflater level for clients that ask for their messages
+     *         compressed, or 0 if they can't have it
+     */
+    protected int getDeflateLevel()
+    {
+        return deflateLevel;
+    }
+
+    /**
+     * A new connection's client asks to resume its session.  If it can,
+     * the connection is sent reply, then the messages the client missed,
+     * and from then on carries the session; the connection the session
+     * was on, if it's still open, is closed.  The new connection is no
+     * longer counted as a connection of its own.
+     *
+     * @param c  the new connection
+     * @param token  the session's token
+     * @param ack  how many messages the client read
+     * @param reply  the message telling the client it has resumed
+     * @return false if there's no such session, or it can't go on from ack
+     */
+    protected synchronized boolean resumeSession(Connection c, String token, int ack, String reply)
+    {
+        Session ss = (Session) sessions.get(token);
+
+        if ((ss == null) || c.isLocal() || (c.session != null))
+        {
+            return false;
+        }
+
+        Connection old = ss.attached;
+
+        if (!ss.resume(c, ack, reply))
+        {
+            return false;
+        }
+
+        if (ss.expiry != null)
+        {
+            ss.expiry.cancel();
+            ss.expiry = null;
+        }
+
+        if (old != null)
+        {
+            old.disconnect();  // dropped, but its reader hasn't noticed yet
+        }
+
+        conns.removeElement(c);
+        D.ebugPrintln(c.host() + " resumed " + ss.owner.data + " from message " + ack);
+
+        return true;
+    }
+
+    /**
+     * Connect an in-process client, such as a robot running in this JVM.
+     * The server sees an ordinary Connection, but messages pass through
+     * memory instead of a socket.
+     *
+     * @return the client's end of the connection
+     */
+    public LocalLink connectLocal()
+    {
+        LocalLink link = new LocalLink();
+        addConnection(new Connection(link, this));
+
+        return link;
+    }
+
     /** do cleanup after a remove connection */
     protected void removeConnectionCleanup(Connection c) {}
 
     /** add a connection to the system */
     protected synchronized void addConnection(Connection c)
     {
-        if (c.connect())
+        boolean added = false;
+
+        try
         {
-            numberOfConnections++;
-            newConnection(c);
-            conns.addElement(c);
-            D.ebugPrintln(c.host() + " came (" + connectionCount() + ")  " + (new Date()).toString());
+            if (c.connect())
+            {
+                numberOfConnections++;
+                newConnection(c);
+                conns.addElement(c);
+                added = true;
+                D.ebugPrintln(c.host() + " came (" + connectionCount() + ")  " + (new Date()).toString());
+            }
         }
+        finally
+        {
+            if (!added)
+            {
+                settle(c);  // won't get to send a message
+            }
+        }
+    }
+
+    /**
+     * Count a batch of messages written to a connection with one flush.
+     * Called by Putters and selectors.
+     */
+    void wroteBatch(int n)
+    {
+        messagesWritten.addAndGet(n);
+        flushes.incrementAndGet();
+
+        if (n > largestBatch)
+        {
+            largestBatch = n;
+        }
+    }
+
+    /** @return the number of messages written to connections */
+    protected long getMessagesWritten()
+    {
+        return messagesWritten.get();
+    }
+
+    /** @return the number of flushes (socket writes) that sent those messages */
+    protected long getFlushCount()
+    {
+        return flushes.get();
+    }
+
+    /** @return the most messages sent with one flush */
+    protected int getLargestBatch()
+    {
+        return largestBatch;
+    }
+
+    /**
+     * Is this outgoing message chat, which can be dropped when a
+     * connection's outQueue is full?
+     */
+    protected boolean isChat(String str)
+    {
+        return false;
+    }
+
+    /**
+     * If this outgoing message sets some state outright, so that a later
+     * message setting the same thing makes it useless, return the length
+     * of its prefix that names that thing.  Messages with equal prefixes
+     * can be coalesced when a connection's outQueue is full.
+     *
+     * @return the prefix length, or 0 if the message can't be coalesced
+     */
+    protected int stateKeyLength(String str)
+    {
+        return 0;
+    }
+
+    /** count messages dropped from an outQueue */
+    void evicted(int n)
+    {
+        outEvictions.addAndGet(n);
+    }
+
+    /** count a connection closed because its outQueue was full */
+    void overflowed()
+    {
+        outOverflows.incrementAndGet();
+    }
+
+    /** @return the number of incoming messages the LOG file dropped because the disk was slow */
+    protected long getLogDropped()
+    {
+        return (out != null) ? out.getDropped() : 0;
+    }
+
+    /** @return the number of messages dropped from full outQueues */
+    protected long getOutQueueEvictions()
+    {
+        return outEvictions.get();
+    }
+
+    /** @return the number of connections closed because their outQueue was full */
+    protected long getOutQueueOverflows()
+    {
+        return outOverflows.get();
     }
 
     /** broadcast a message */
     protected synchronized void broadcast(String m)
     {
+        Frame f = new Frame(m);  // encoded once, for every connection
+
+        try
+        {
+            f.length();
+        }
+        catch (IllegalArgumentException e)
+        {
+            D.ebugPrintln("Dropping broadcast - " + e.getMessage());
+
+            return;
+        }
+
         for (Enumeration e = getConnections(); e.hasMoreElements();)
         {
-            ((Connection) e.nextElement()).put(m);
+            ((Connection) e.nextElement()).put(f);
         }
     }
 
@@ -236,58 +1072,71 @@ public abstract class Server extends Thread implements Serializable, Cloneable
         public String str;
         public Connection con;
 
+        /** if not null, run this instead of treating str */
+        public Runnable task;
+
         public Command(String s, Connection c)
         {
             str = s;
             con = c;
         }
+
+        public Command(Runnable r)
+        {
+            task = r;
+        }
     }
 
     class Treater extends Thread
     {
+        /** most commands run from a mailbox before the treater moves on */
+        static final int TURN = 64;
+
         Server svr;
 
-        public Treater(Server s)
+        public Treater(Server s, int n)
         {
+            super("treater-" + n);
             svr = s;
         }
 
         public void run() {
             while (svr.isUp()) {
-                //D.ebugPrintln("treater server is up");
-                Command c = null;
-
-                synchronized (inQueue) {
-                    // while (inQueue.size() <= 0) {
-                    //     try {
-                    //         inQueue.wait(1000);
-                    //     } catch (InterruptedException ex) {}
-                    // }
-                    if (inQueue.size() > 0) {
-                        //D.ebugPrintln("treater getting command");
-                        c = (Command) inQueue.elementAt(0);
-                        inQueue.removeElementAt(0);
+                try {
+                    if (!readyCount.tryAcquire(1000, TimeUnit.MILLISECONDS)) {
+                        continue;
                     }
+                } catch (InterruptedException ex) {
+                    continue;
                 }
 
-                try {
-                    if (c != null) {
-                        svr.processCommand(c.str, c.con);
+                Mailbox mb = ready.poll();  // there's one for the permit we took
+
+                // run a turn's worth; later ones wait for the next turn
+                for (int i = 0; i < TURN; i++) {
+                    Command c = mb.queue.poll();
+
+                    if (c == null) {
+                        break;
+                    }
+
+                    try {
+                        if (c.task != null) {
+                            c.task.run();
+                        } else {
+                            svr.processCommand(c.str, c.con, mb.getKey());
+                        }
+                    } catch (Exception e) {
+                        System.out.println("Exception in treater (processCommand) for mailbox " + mb.key + ", "
+                                           + ((c.task != null) ? ("task " + c.task) : ("command " + c.str)) + " - " + e);
+                        e.printStackTrace(System.out);
                     }
-                } catch (Exception e) {
-                    System.out.println("Exception in treater (processCommand) - " + e);
                 }
 
-                Thread.yield();
+                mb.scheduled.set(false);
 
-	          	// hokey NO-OP!
-                synchronized (inQueue) {
-                    if (inQueue.size() == 0) {
-		                  	try {
-                            //D.ebugPrintln("treater waiting");
-                            inQueue.wait(1000);
-                        } catch (Exception ex) {}
-                    }
+                if (!mb.queue.isEmpty()) {
+                    schedule(mb);  // behind the others that were waiting
                 }
             }
 
@@ -0,0 +1,215 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import soc.util.TimingWheel;
+
+
+/**
+ * A client's session with the server, which can outlast the client's
+ * connection.  Every message put to a connection is counted, and the
+ * client counts them as it reads them; once the connection has a
+ * session, the newest messages are also kept.  If the connection drops,
+ * the server waits {@link Server#RESUME_GRACE_PROPERTY} seconds before
+ * removing the client.  A client that connects again in that time and
+ * says how many messages it had read is sent the ones it missed, and
+ * carries on as if it had never left.
+ *<P>
+ * The server and its games go on knowing the client by the connection
+ * the session started on, its owner.  Messages put to the owner go to
+ * whichever connection carries the session now, and messages read from
+ * that connection are treated as coming from the owner.
+ */
+public final class Session
+{
+    /** what the client resumes the session with; hard to guess */
+    final String token;
+
+    /** the connection the server knows the client by */
+    final Connection owner;
+
+    /**
+     * the connection carrying the session, or null while it waits to be
+     * resumed; changed only with the server's lock held as well as ours
+     */
+    Connection attached = null;
+
+    /** the newest messages; message n is at n % kept.length */
+    private final Object[] kept;
+
+    /** the number of the last message put */
+    private int seq;
+
+    /** the number of the oldest message kept */
+    private int first;
+
+    /**
+     * true once the session can't be resumed: messages were dropped
+     * unsent, or the client has been removed
+     */
+    volatile boolean broken = false;
+
+    /** removes the client if the session isn't resumed in time, or null */
+    TimingWheel.Timeout expiry = null;
+
+    /**
+     * @param t  the token
+     * @param c  the connection the session starts on
+     * @param keep  how many messages to keep for resuming
+     */
+    Session(String t, Connection c, int keep)
+    {
+        token = t;
+        owner = c;
+        kept = new Object[Math.max(1, keep)];
+    }
+
+    /**
+     * @return what the client resumes the session with
+     */
+    public String getToken()
+    {
+        return token;
+    }
+
+    /**
+     * Start numbering after the messages already put to the owner.
+     * Call holding our lock.
+     *
+     * @param n  how many messages have been put
+     */
+    void start(int n)
+    {
+        seq = n;
+        first = n + 1;
+    }
+
+    /** number and keep a message; call holding our lock */
+    private void keep(Object msg)
+    {
+        seq++;
+        kept[seq % kept.length] = msg;
+
+        if ((seq - first) >= kept.length)
+        {
+            first = (seq - kept.length) + 1;
+        }
+    }
+
+    /**
+     * Number a message, keep it, and put it to the connection carrying
+     * the session, if there is one.
+     *
+     * @param msg  a String or Frame
+     * @return false if the connection carrying the session overflowed
+     */
+    boolean put(Object msg)
+    {
+        Connection c;
+        boolean full;
+
+        synchronized (this)
+        {
+            keep(msg);
+            c = attached;
+
+            if (c == null)
+            {
+                return true;  // kept until the session is resumed or ends
+            }
+
+            full = c.append(msg);
+        }
+
+        return c.queued(full);
+    }
+
+    /**
+     * Number and keep several messages, and put them to the connection
+     * carrying the session, if there is one, all at once.
+     *
+     * @param msgs  the Strings or Frames
+     * @param n  how many of msgs to put
+     * @return false if the connection carrying the session overflowed
+     */
+    boolean put(Object[] msgs, int n)
+    {
+        Connection c;
+        boolean full;
+
+        synchronized (this)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                keep(msgs[i]);
+            }
+
+            c = attached;
+
+            if (c == null)
+            {
+                return true;
+            }
+
+            full = c.append(msgs, n);
+        }
+
+        return c.queued(full);
+    }
+
+    /**
+     * Carry the session on a new connection: send it reply, then the
+     * messages after ack, then everything put to the session from now on.
+     * Call holding the server's lock.
+     *
+     * @param c  the new connection
+     * @param ack  the number of the last message the client read
+     * @param reply  the message telling the client it has resumed, not
+     *               numbered
+     * @return false if the session can't be resumed from ack
+     */
+    boolean resume(Connection c, int ack, Object reply)
+    {
+        boolean full;
+
+        synchronized (this)
+        {
+            if (broken || (ack < (first - 1)) || (ack > seq))
+            {
+                return false;
+            }
+
+            Object[] missed = new Object[seq - ack];
+
+            for (int i = 0; i < missed.length; i++)
+            {
+                missed[i] = kept[(ack + 1 + i) % kept.length];
+            }
+
+            full = c.takeOver(this, reply, missed);
+            attached = c;
+        }
+
+        c.queued(full);
+
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import java.lang.reflect.Method;
+
+
+/**
+ * Starts Runnables on virtual threads, for the "virtual" transport.
+ * Virtual threads came with Java 21 and we compile for older releases,
+ * so Thread.ofVirtual() is looked up by reflection.
+ *<P>
+ * This hasn't been run on Java 21 yet: only the fallback to platform
+ * threads on older Javas has been tried, so the virtual transport is
+ * untested and unmeasured.
+ */
+final class VirtualThreads
+{
+    /** the Thread.Builder.OfVirtual, or null if this Java has no virtual threads */
+    private static Object builder = null;
+
+    /** Thread.Builder.name(String) */
+    private static Method name;
+
+    /** Thread.Builder.start(Runnable) */
+    private static Method start;
+
+    static
+    {
+        try
+        {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            name = builderClass.getMethod("name", new Class<?>[] { String.class });
+            start = builderClass.getMethod("start", new Class<?>[] { Runnable.class });
+            builder = Thread.class.getMethod("ofVirtual", new Class<?>[0]).invoke(null, new Object[0]);
+        }
+        catch (Exception e)
+        {
+            builder = null;
+        }
+    }
+
+    private VirtualThreads() {}
+
+    /** @return true if this Java can start virtual threads */
+    static boolean available()
+    {
+        return builder != null;
+    }
+
+    /**
+     * Run r on a new virtual thread.
+     *
+     * @param r  what to run
+     * @param threadName  name for the thread, shown in thread dumps
+     * @return the started thread
+     * @throws IllegalStateException if virtual threads aren't available
+     */
+    static Thread start(Runnable r, String threadName)
+    {
+        if (builder == null)
+        {
+            throw new IllegalStateException("virtual threads need Java 21");
+        }
+
+        try
+        {
+            // builders aren't thread safe; name() returns the same builder
+            synchronized (builder)
+            {
+                return (Thread) start.invoke(name.invoke(builder, new Object[] { threadName }), new Object[] { r });
+            }
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("could not start virtual thread: " + e);
+        }
+    }
+}
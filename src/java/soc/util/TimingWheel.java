@@ -0,0 +1,306 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.util;
+
+import java.util.Vector;
+
+
+/**
+ * Runs tasks after a delay, from one thread, for any number of tasks.
+ * A hierarchical timing wheel: time is cut into ticks, and a task waits
+ * in a slot of one of four wheels of 64 slots; the first wheel has a slot
+ * per tick, the next a slot per 64 ticks, and so on.  Scheduling and
+ * cancelling are O(1), and each tick only looks at the tasks that are due
+ * (plus, every 64 ticks, moves one slot of a coarser wheel down).
+ *<P>
+ * Tasks run on the wheel's thread, so they should be short: hand anything
+ * slow, or anything needing locks that could be held a long time, to
+ * another thread.  A task is run at most one tick late when the wheel
+ * isn't held up.  A repeating task schedules itself again.
+ */
+public class TimingWheel extends Thread
+{
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    /** the longest delay, in ticks, that can be placed exactly */
+    private static final long SPAN = 1L << (BITS * LEVELS);
+
+    /** milliseconds per tick */
+    private final long tickMillis;
+
+    /** slots[level][slot] is the first Timeout in a doubly-linked list, or null */
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+
+    /** ticks done since the wheel started */
+    private long currentTick = 0;
+
+    /** when the wheel started, from System.nanoTime() */
+    private final long startNanos;
+
+    private volatile boolean alive = true;
+
+    /**
+     * A scheduled task, which can be cancelled.
+     */
+    public static class Timeout
+    {
+        final Runnable task;
+        final TimingWheel wheel;
+        long deadline;
+        Timeout prev, next;
+        int level = -1, slot;  // level -1: not in a slot
+        boolean cancelled = false;
+
+        Timeout(TimingWheel w, Runnable r, long d)
+        {
+            wheel = w;
+            task = r;
+            deadline = d;
+        }
+
+        /**
+         * Stop the task from running, if it hasn't yet.
+         *
+         * @return true if the task was waiting and now won't run
+         */
+        public boolean cancel()
+        {
+            synchronized (wheel)
+            {
+                if (cancelled || (level < 0))
+                {
+                    return false;
+                }
+
+                cancelled = true;
+                wheel.unlink(this);
+
+                return true;
+            }
+        }
+
+        /** @return true if {@link #cancel()} stopped this task */
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Make a timing wheel; call start() to set it turning.
+     *
+     * @param name  name of its thread
+     * @param tick  milliseconds per tick; tasks run to this accuracy
+     */
+    public TimingWheel(String name, long tick)
+    {
+        super(name);
+        setDaemon(true);
+        tickMillis = tick;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Run a task after a delay.
+     *
+     * @param task  what to run, on the wheel's thread
+     * @param delay  milliseconds to wait; rounded up to whole ticks
+     * @return the Timeout, to cancel the task with
+     */
+    public Timeout schedule(Runnable task, long delay)
+    {
+        long ticks = (delay + tickMillis - 1) / tickMillis;
+
+        synchronized (this)
+        {
+            // currentTick's slot is being emptied or already was, so at least 1
+            Timeout t = new Timeout(this, task, currentTick + Math.max(1, ticks));
+            place(t);
+
+            return t;
+        }
+    }
+
+    /** stop the wheel; tasks still waiting will not run */
+    public void stopWheel()
+    {
+        alive = false;
+        interrupt();
+    }
+
+    /** put t in the slot that will be reached at its deadline.  Hold the lock. */
+    private void place(Timeout t)
+    {
+        long delta = t.deadline - currentTick;
+        int level = 0;
+
+        while ((level < (LEVELS - 1)) && (delta >= (1L << (BITS * (level + 1)))))
+        {
+            level++;
+        }
+
+        long d = (delta < SPAN) ? t.deadline : (currentTick + SPAN - 1);  // too far: place, then place again
+        int slot = (int) ((d >> (BITS * level)) & MASK);
+
+        t.level = level;
+        t.slot = slot;
+        t.prev = null;
+        t.next = slots[level][slot];
+
+        if (t.next != null)
+        {
+            t.next.prev = t;
+        }
+
+        slots[level][slot] = t;
+    }
+
+    /** take t out of its slot.  Hold the lock. */
+    private void unlink(Timeout t)
+    {
+        if (t.prev != null)
+        {
+            t.prev.next = t.next;
+        }
+        else
+        {
+            slots[t.level][t.slot] = t.next;
+        }
+
+        if (t.next != null)
+        {
+            t.next.prev = t.prev;
+        }
+
+        t.prev = t.next = null;
+        t.level = -1;
+    }
+
+    /**
+     * Advance one tick.  Hold the lock.
+     *
+     * @param due  the tasks to run now are added to this
+     */
+    private void tick(Vector<Timeout> due)
+    {
+        currentTick++;
+
+        // at the start of a coarser wheel's slot, move that slot's timeouts
+        // down; they now fall within a finer wheel's range.  Coarsest first.
+        int top = 0;
+
+        while (((top + 1) < LEVELS) && ((currentTick & ((1L << (BITS * (top + 1))) - 1)) == 0))
+        {
+            top++;
+        }
+
+        for (int level = top; level > 0; level--)
+        {
+            int slot = (int) ((currentTick >> (BITS * level)) & MASK);
+            Timeout t = slots[level][slot];
+            slots[level][slot] = null;
+
+            while (t != null)
+            {
+                Timeout next = t.next;
+                place(t);
+                t = next;
+            }
+        }
+
+        int slot = (int) (currentTick & MASK);
+        Timeout t = slots[0][slot];
+        slots[0][slot] = null;
+
+        while (t != null)
+        {
+            Timeout next = t.next;
+
+            if (t.deadline <= currentTick)
+            {
+                t.level = -1;
+                t.prev = t.next = null;
+                due.addElement(t);
+            }
+            else
+            {
+                place(t);  // was beyond the wheels' span
+            }
+
+            t = next;
+        }
+    }
+
+    /**
+     * Turn the wheel, running tasks as they come due.
+     */
+    public void run()
+    {
+        Vector<Timeout> due = new Vector<Timeout>();
+
+        while (alive)
+        {
+            long next;
+
+            synchronized (this)
+            {
+                next = (currentTick + 1) * tickMillis;
+            }
+
+            long wait = next - ((System.nanoTime() - startNanos) / 1000000);
+
+            if (wait > 0)
+            {
+                try
+                {
+                    sleep(wait);
+                }
+                catch (InterruptedException e)
+                {
+                    continue;
+                }
+            }
+
+            synchronized (this)
+            {
+                tick(due);
+            }
+
+            for (int i = 0; i < due.size(); i++)
+            {
+                try
+                {
+                    due.elementAt(i).task.run();
+                }
+                catch (Throwable e)
+                {
+                    System.err.println("Exception in timer task - " + e);
+                    e.printStackTrace();
+                }
+            }
+
+            due.removeAllElements();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Checks that {@link SOCBinaryCodec} frames decode to the messages they
+ * were made from, and that messages it can't carry are left as text.
+ */
+public class TestBinaryCodec extends TestCase
+{
+    private static final String GAME = "g\u00E4me \u20AC";
+
+    /** the handle of GAME; over 127, so it takes two varint bytes */
+    private static final int H = 300;
+
+    private SOCBinaryCodec.Handles handles;
+
+    protected void setUp()
+    {
+        handles = new SOCBinaryCodec.Handles();
+        handles.put(H, GAME);
+    }
+
+    /** encode mes, which must have a binary form, and decode it again */
+    private SOCMessage roundTrip(SOCMessage mes)
+    {
+        byte[] b = SOCBinaryCodec.encode(mes, H);
+
+        assertNotNull(mes.toCmd(), b);
+        assertEquals(b.length - 2, ((b[0] & 0xFF) << 8) | (b[1] & 0xFF));
+        assertTrue(SOCBinaryCodec.isBinary(b, 2, b.length - 2));
+
+        return SOCBinaryCodec.decode(b, 2, b.length - 2, handles);
+    }
+
+    public void testRoundTrip()
+    {
+        SOCMessage[] ms =
+        {
+            new SOCPlayerElement(GAME, 3, SOCPlayerElement.LOSE, SOCPlayerElement.WOOD, 2),
+            new SOCPlayerElement(GAME, 0, SOCPlayerElement.SET, SOCPlayerElement.ROADS, Integer.MIN_VALUE),
+            new SOCPlayerElement(GAME, 1, SOCPlayerElement.GAIN, SOCPlayerElement.ORE, Integer.MAX_VALUE),
+            new SOCGameTextMsg(GAME, "Server", "h\u00E9llo \uD83C\uDFB2 \u0000"),
+            new SOCGameTextMsg(GAME, "", ""),
+            new SOCClearOffer(GAME, 2),
+            new SOCGameState(GAME, 1000),
+            new SOCResourceCount(GAME, 1, 7),
+            new SOCSetPlayedDevCard(GAME, 2, true),
+            new SOCSetPlayedDevCard(GAME, 2, false),
+            new SOCTurn(GAME, 3),
+            new SOCDiceResult(GAME, -1),
+            new SOCClearTradeMsg(GAME, 0),
+            new SOCPutPiece(GAME, 1, 2, 0xDC)
+        };
+
+        for (int i = 0; i < ms.length; i++)
+        {
+            SOCMessage m = roundTrip(ms[i]);
+
+            assertEquals(ms[i].getType(), m.getType());
+            assertEquals(ms[i].toCmd(), m.toCmd());
+        }
+    }
+
+    public void testTextStaysText()
+    {
+        byte[] b = new SOCGameState(GAME, 1).toBytes();
+
+        assertFalse(SOCBinaryCodec.isBinary(b, 2, b.length - 2));
+        assertFalse(SOCBinaryCodec.isBinary(b, 2, 0));
+    }
+
+    public void testNoBinaryForm()
+    {
+        assertNull(SOCBinaryCodec.encode(new SOCSitDown(GAME, "p", 1, false), H));
+        assertNull(SOCBinaryCodec.encode(new SOCClearTradeMsg(GAME, -1), H));  // all players
+        assertNull(SOCBinaryCodec.encode(new SOCPutPiece(GAME, 1, 2, 0x100), H));
+        assertNull(SOCBinaryCodec.encode(new SOCTurn(GAME, 1), -1));
+    }
+
+    public void testUnknownHandle()
+    {
+        byte[] b = SOCBinaryCodec.encode(new SOCTurn(GAME, 1), H + 1);
+
+        try
+        {
+            SOCBinaryCodec.decode(b, 2, b.length - 2, handles);
+            fail("decoded a frame for an unknown game");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+
+    public void testTruncated()
+    {
+        byte[] b = SOCBinaryCodec.encode(new SOCPlayerElement(GAME, 1, SOCPlayerElement.GAIN, SOCPlayerElement.CLAY, 1), H);
+
+        for (int n = 0; n < (b.length - 2); n++)
+        {
+            try
+            {
+                SOCBinaryCodec.decode(b, 2, n, handles);
+                fail("decoded " + n + " of " + (b.length - 2) + " bytes");
+            }
+            catch (IllegalArgumentException e) {}
+        }
+    }
+
+    public void testHandles()
+    {
+        assertEquals(GAME, handles.get(H));
+        assertNull(handles.get(H + 1));
+        assertNull(handles.get(-1));
+        assertNull(handles.get(0));
+
+        handles.clear();
+        assertNull(handles.get(H));
+    }
+}
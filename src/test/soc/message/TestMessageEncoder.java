@@ -0,0 +1,150 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.message;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Checks that the messages encoded straight into wire bytes by
+ * {@link SOCMessageEncoder} send exactly what writeUTF(toCmd()) would.
+ */
+public class TestMessageEncoder extends TestCase
+{
+    /** game names and text with 1, 2 and 3 byte characters, and a NUL */
+    private static final String[] NAMES = { "g", "g\u00E4me\u20AC", "a\u0000b", "\uD83C\uDFB2 dice" };
+
+    /** @return the bytes writeUTF sends for s */
+    private static byte[] writeUTF(String s) throws IOException
+    {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        new DataOutputStream(bo).writeUTF(s);
+
+        return bo.toByteArray();
+    }
+
+    /** the messages with their own toBytes(), for each game name */
+    private static SOCMessage[] messages(String ga)
+    {
+        return new SOCMessage[]
+        {
+            new SOCChangeFace(ga, 2, 17),
+            new SOCClearOffer(ga, 3),
+            new SOCClearTradeMsg(ga, -1),
+            new SOCDevCard(ga, 1, SOCDevCard.ADDOLD, 4),
+            new SOCDevCardCount(ga, 25),
+            new SOCDiceResult(ga, 12),
+            new SOCFirstPlayer(ga, 0),
+            new SOCGameState(ga, 20),
+            new SOCGameTextMsg(ga, "Server", "h\u00E9llo \u20AC " + ga),
+            new SOCLargestArmy(ga, -1),
+            new SOCLastSettlement(ga, 1, 0x45),
+            new SOCLongestRoad(ga, 3),
+            new SOCPlayerElement(ga, 0, SOCPlayerElement.SET, SOCPlayerElement.ORE, Integer.MIN_VALUE),
+            new SOCPlayerElement(ga, 3, SOCPlayerElement.GAIN, SOCPlayerElement.ROADS, Integer.MAX_VALUE),
+            new SOCPotentialSettlements(ga, 1, new int[0]),
+            new SOCPotentialSettlements(ga, 2, new int[] { 0x23, 0x45, 0xAB, 0xDC }),
+            new SOCPutPiece(ga, 2, 1, 0x67),
+            new SOCResourceCount(ga, 1, 0),
+            new SOCSetPlayedDevCard(ga, 0, true),
+            new SOCSetPlayedDevCard(ga, 3, false),
+            new SOCSetTurn(ga, 2),
+            new SOCSitDown(ga, "robot 3", 1, true),
+            new SOCSitDown(ga, ga, 0, false),
+            new SOCTurn(ga, 1)
+        };
+    }
+
+    public void testToBytesMatchesWriteUTF() throws IOException
+    {
+        for (int n = 0; n < NAMES.length; n++)
+        {
+            SOCMessage[] ms = messages(NAMES[n]);
+
+            for (int i = 0; i < ms.length; i++)
+            {
+                String cmd = ms[i].toCmd();
+
+                assertTrue(cmd, Arrays.equals(writeUTF(cmd), ms[i].toBytes()));
+                assertEquals(cmd, SOCMessageEncoder.decode(ms[i].toBytes()));
+            }
+        }
+    }
+
+    public void testToCmdRoundTrip()
+    {
+        SOCMessage[] ms = messages("game 1");
+
+        for (int i = 0; i < ms.length; i++)
+        {
+            String cmd = ms[i].toCmd();
+            SOCMessage m = SOCMessage.toMsg(cmd);
+
+            assertNotNull(cmd, m);
+            assertEquals(ms[i].getType(), m.getType());
+            assertEquals(cmd, m.toCmd());
+        }
+    }
+
+    public void testCodecMatchesJava() throws IOException
+    {
+        String[] ss = { "", "plain", "\u0000", "\u007F\u0080\u07FF\u0800\uFFFF", "\uD83C\uDFB2", NAMES[1] };
+
+        for (int i = 0; i < ss.length; i++)
+        {
+            byte[] utf = writeUTF(ss[i]);
+            byte[] b = new byte[SOCMessageEncoder.utfLength(ss[i]) + 1];
+
+            assertEquals(utf.length - 2, SOCMessageEncoder.utfLength(ss[i]));
+            assertEquals(b.length, SOCMessageEncoder.encode(ss[i], b, 1));
+            assertTrue(Arrays.equals(Arrays.copyOfRange(utf, 2, utf.length), Arrays.copyOfRange(b, 1, b.length)));
+            assertEquals(ss[i], SOCMessageEncoder.decode(utf, 2, utf.length - 2));
+        }
+    }
+
+    public void testDecodeRejectsBadBytes()
+    {
+        try
+        {
+            SOCMessageEncoder.decode(new byte[] { (byte) 0xE2, (byte) 0x82 }, 0, 2);
+            fail("decoded a truncated character");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+
+    public void testTooLong()
+    {
+        char[] cs = new char[30000];
+        Arrays.fill(cs, '\u20AC');
+
+        try
+        {
+            new SOCGameTextMsg("g", "Server", new String(cs)).toBytes();
+            fail("encoded a message over 65535 bytes");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+}
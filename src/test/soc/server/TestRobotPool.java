@@ -0,0 +1,165 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server;
+
+import junit.framework.TestCase;
+
+import soc.server.genericServer.Connection;
+import soc.server.genericServer.Server;
+
+import java.util.Vector;
+
+
+/**
+ * Checks which robot {@link SOCRobotPool} picks for a seat, and how
+ * timeouts and releases change that.
+ */
+public class TestRobotPool extends TestCase
+{
+    /** never started: hands out in-process connections to use as robots */
+    private static final class Robots extends Server
+    {
+        final Vector<Connection> conns = new Vector<Connection>();
+
+        Robots()
+        {
+            super(0);
+        }
+
+        public void processCommand(String str, Connection con) {}
+
+        protected void newConnection(Connection c)
+        {
+            conns.addElement(c);
+        }
+
+        /** @return a new robot connection */
+        Connection connect()
+        {
+            connectLocal();
+
+            return conns.lastElement();
+        }
+    }
+
+    private static final Robots ROBOTS = new Robots();
+
+    private SOCRobotPool pool;
+    private Connection a;
+    private Connection b;
+    private Connection c;
+
+    protected void setUp()
+    {
+        pool = new SOCRobotPool();
+        a = ROBOTS.connect();
+        b = ROBOTS.connect();
+        c = ROBOTS.connect();
+        pool.add(a);
+        pool.add(b);
+        pool.add(c);
+    }
+
+    public void testLeastLoaded()
+    {
+        assertSame(a, pool.pick("g1"));
+        assertSame(b, pool.pick("g2"));
+        assertSame(c, pool.pick("g3"));
+        assertSame(a, pool.pick("g4"));
+    }
+
+    public void testOnceAGame()
+    {
+        assertSame(a, pool.pick("g"));
+        assertSame(b, pool.pick("g"));
+        assertSame(c, pool.pick("g"));
+        assertNull(pool.pick("g"));
+    }
+
+    public void testFewestQueued()
+    {
+        a.outQueue.addElement("busy");
+        b.outQueue.addElement("busy");
+        b.outQueue.addElement("busy");
+
+        assertSame(c, pool.pick("g1"));
+        assertSame(a, pool.pick("g2"));  // c has more games now
+    }
+
+    public void testRelease()
+    {
+        assertSame(a, pool.pick("g"));
+        assertSame(b, pool.pick("g2"));
+        assertSame(c, pool.pick("g3"));
+
+        pool.release(b, "g");  // not b's game: no change
+        pool.release(b, "g2");
+        assertSame(b, pool.pick("g"));
+    }
+
+    public void testTimedOutStillCounts()
+    {
+        assertSame(a, pool.pick("g"));
+        pool.timedOut(a, "g");
+
+        assertSame(b, pool.pick("g2"));
+        assertSame(c, pool.pick("g3"));
+        assertSame(b, pool.pick("g"));  // a's still asked to play g
+
+        pool.release(a, "g");
+        assertSame(a, pool.pick("g4"));
+    }
+
+    public void testSlowRobotLast() throws InterruptedException
+    {
+        assertSame(a, pool.pick("g"));
+        Thread.sleep(20);
+        pool.timedOut(a, "g");
+        pool.release(a, "g");
+
+        assertSame(b, pool.pick("g1"));
+        assertSame(c, pool.pick("g2"));
+        assertSame(a, pool.pick("g3"));  // all have one game; a is slowest
+        assertSame(b, pool.pick("g4"));
+    }
+
+    public void testSeated()
+    {
+        assertSame(a, pool.pick("g"));
+        pool.seated(a, "g");
+
+        assertSame(b, pool.pick("g"));  // still counts until released
+        assertTrue(pool.describe(a).startsWith("1 games"));
+    }
+
+    public void testRemove()
+    {
+        assertEquals(3, pool.size());
+        pool.remove(a);
+        pool.remove(a);
+
+        assertEquals(2, pool.size());
+        assertNull(pool.describe(a));
+        assertSame(b, pool.pick("g"));
+        assertSame(c, pool.pick("g"));
+        assertNull(pool.pick("g"));
+    }
+}
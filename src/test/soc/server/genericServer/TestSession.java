@@ -0,0 +1,162 @@
+/**
+ * Java Settlers - An online multiplayer version of the game Settlers of Catan
+ * Copyright (C) 2003  Robert S. Thomas
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * The author of this program can be reached at thomas@infolab.northwestern.edu
+ **/
+package soc.server.genericServer;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Checks which messages a {@link Session} sends a client that resumes
+ * it, and when it refuses.
+ */
+public class TestSession extends TestCase
+{
+    /** never started: the connections only need its outQueue limits */
+    private static final Server SERVER = new Server(0)
+    {
+        public void processCommand(String str, Connection con) {}
+    };
+
+    /** the connection the session starts on */
+    private Connection owner;
+
+    /** the connection the client resumes on */
+    private Connection next;
+
+    protected void setUp()
+    {
+        owner = new Connection(new LocalLink(), SERVER);
+        next = new Connection(new LocalLink(), SERVER);
+    }
+
+    /** start a session on owner, and drop owner as if its client had gone */
+    private Session dropped(int keep)
+    {
+        Session ss = new Session("token", owner, keep);
+        owner.startSession(ss);
+        ss.attached = null;
+
+        return ss;
+    }
+
+    /** put messages m(from) to m(to) to the session */
+    private static void put(Session ss, int from, int to)
+    {
+        for (int i = from; i <= to; i++)
+        {
+            assertTrue(ss.put("m" + i));
+        }
+    }
+
+    /** assert that c's outQueue holds exactly these messages */
+    private static void assertQueued(Connection c, String[] msgs)
+    {
+        assertEquals(msgs.length, c.outQueue.size());
+
+        for (int i = 0; i < msgs.length; i++)
+        {
+            assertEquals(msgs[i], c.outQueue.elementAt(i));
+        }
+    }
+
+    public void testResumeSendsWhatWasMissed()
+    {
+        Session ss = dropped(10);
+        put(ss, 1, 3);
+
+        assertTrue(ss.resume(next, 1, "R"));
+        assertQueued(next, new String[] { "R", "m2", "m3" });
+        assertQueued(owner, new String[0]);
+
+        put(ss, 4, 4);
+        assertQueued(next, new String[] { "R", "m2", "m3", "m4" });
+    }
+
+    public void testResumeUpToDate()
+    {
+        Session ss = dropped(10);
+        put(ss, 1, 3);
+
+        assertTrue(ss.resume(next, 3, "R"));
+        assertQueued(next, new String[] { "R" });
+    }
+
+    public void testWindow()
+    {
+        Session ss = dropped(3);
+        put(ss, 1, 6);
+
+        assertFalse(ss.resume(next, 2, "R"));  // m3 is gone
+        assertQueued(next, new String[0]);
+
+        assertTrue(ss.resume(next, 3, "R"));
+        assertQueued(next, new String[] { "R", "m4", "m5", "m6" });
+    }
+
+    public void testAckAhead()
+    {
+        Session ss = dropped(10);
+        put(ss, 1, 2);
+
+        assertFalse(ss.resume(next, 3, "R"));
+        assertQueued(next, new String[0]);
+    }
+
+    public void testBroken()
+    {
+        Session ss = dropped(10);
+        put(ss, 1, 2);
+        ss.broken = true;
+
+        assertFalse(ss.resume(next, 1, "R"));
+        assertQueued(next, new String[0]);
+    }
+
+    public void testCountsFromMessagesSentBefore()
+    {
+        owner.sent = 5;  // sent before the session started
+
+        Session ss = dropped(10);
+        put(ss, 6, 7);
+
+        assertFalse(ss.resume(next, 4, "R"));
+        assertTrue(ss.resume(next, 5, "R"));
+        assertQueued(next, new String[] { "R", "m6", "m7" });
+    }
+
+    public void testPutSeveral()
+    {
+        Session ss = dropped(10);
+
+        assertTrue(ss.put(new Object[] { "m1", "m2", "m3" }, 2));
+        assertTrue(ss.resume(next, 0, "R"));
+        assertQueued(next, new String[] { "R", "m1", "m2" });
+    }
+
+    public void testPutWhileAttached()
+    {
+        Session ss = new Session("token", owner, 10);
+        owner.startSession(ss);
+
+        put(ss, 1, 2);
+        assertQueued(owner, new String[] { "m1", "m2" });
+    }
+}